@@ -0,0 +1,234 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.time.Duration;
+
+/**
+ * Limits the number of concurrent calls per partition, rather than their rate: the limit is adjusted continuously
+ * from the latency of the calls, so the backend capacity does not have to be guessed. The limit grows while the
+ * latency stays close to its long term average, shrinks in proportion when the latency inflates (the calls start to
+ * queue up somewhere downstream), and is backed off at once when a response denotes an overloaded backend. The calls
+ * over the limit are rejected, shedding the load before the backend collapses.
+ * <p>
+ * The limit is adjusted the way the gradient algorithm of Netflix' concurrency-limits does: the gradient is the ratio
+ * of the long term latency (multiplied by a tolerance) to the short term latency, clamped to [0.5, 1], and the new
+ * limit is {@code limit * gradient + sqrt(limit)}, smoothed.
+ * <p>
+ * The {@link ThrottlingRate} of a partition is interpreted differently than by the other strategies: its number of
+ * requests is the maximum concurrency limit, and its duration the time a partition without calls keeps its learnt
+ * limit.
+ *
+ * @see <a href="https://github.com/Netflix/concurrency-limits">Netflix' concurrency-limits</a>
+ */
+public class AdaptiveThrottlingStrategy extends PartitionedThrottlingStrategy<AdaptiveThrottlingStrategy.Limiter>
+        implements LatencyAwareThrottlingStrategy {
+
+    /**
+     * Constructs a new {@link AdaptiveThrottlingStrategy}.
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     * @param maxPartitions the maximum number of partitions to keep.
+     */
+    public AdaptiveThrottlingStrategy(Ticker ticker,
+                                      ScheduledExecutorService scheduledExecutor,
+                                      Duration cleaningInterval,
+                                      int maxPartitions) {
+        super(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+    }
+
+    AdaptiveThrottlingStrategy(Ticker ticker,
+                               PartitionStore<Limiter> partitions,
+                               ScheduledExecutorService scheduledExecutor,
+                               Duration cleaningInterval) {
+        super(ticker, partitions, scheduledExecutor, cleaningInterval);
+    }
+
+    @Override
+    Limiter newPartition(ThrottlingRate rate, long now) {
+        return new Limiter(rate, now);
+    }
+
+    @Override
+    Promise<Long, NeverThrowsException> acquire(String partitionKey, Limiter limiter, long now) {
+        // Only tell whether the call would be accepted: a slot is taken by acquire(String, ThrottlingRate) alone
+        return newResultPromise(limiter.getDelay(now));
+    }
+
+    @Override
+    public Promise<Permit, NeverThrowsException> acquire(String partitionKey, ThrottlingRate throttlingRate) {
+        final long now = now();
+        final Limiter limiter = selectPartition(partitionKey, throttlingRate, now);
+        return newResultPromise(new LimiterPermit(limiter, limiter.tryAcquire(now)));
+    }
+
+    /**
+     * The decision taken by a {@link Limiter}, releasing the slot taken there.
+     */
+    private static final class LimiterPermit implements Permit {
+
+        private final Limiter limiter;
+        private final long delay;
+        // Guarded by limiter
+        private boolean released;
+
+        LimiterPermit(Limiter limiter, long delay) {
+            this.limiter = limiter;
+            this.delay = delay;
+        }
+
+        @Override
+        public long getDelay() {
+            return delay;
+        }
+
+        @Override
+        public void release(long latency, boolean overloaded) {
+            if (delay > 0) {
+                return;
+            }
+            synchronized (limiter) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                limiter.release(latency, overloaded);
+            }
+        }
+    }
+
+    /**
+     * The concurrency limit of a partition, and the latency it is computed from.
+     */
+    static final class Limiter implements PartitionedThrottlingStrategy.Partition {
+
+        /** The limit a partition starts with, unless its maximum is lower. */
+        static final int INITIAL_LIMIT = 20;
+        private static final double MIN_LIMIT = 1.0;
+
+        /** How much the short term latency may exceed the long term one before the limit decreases. */
+        private static final double TOLERANCE = 1.5;
+        private static final double SHORT_TERM_SMOOTHING = 0.1;
+        private static final double LONG_TERM_SMOOTHING = 1.0 / 600;
+        private static final double LIMIT_SMOOTHING = 0.2;
+        private static final double BACKOFF_RATIO = 0.9;
+
+        private final ThrottlingRate throttlingRate;
+        private final double maxLimit;
+        private final long idleTimeout;
+        // Guarded by this
+        private double limit;
+        private int inFlight;
+        private double shortTermLatency;
+        private double longTermLatency;
+        private long lastAccess;
+
+        Limiter(ThrottlingRate throttlingRate, long now) {
+            this.throttlingRate = throttlingRate;
+            this.maxLimit = throttlingRate.getNumberOfRequests();
+            this.idleTimeout = throttlingRate.getDuration().to(NANOSECONDS);
+            this.limit = Math.min(maxLimit, INITIAL_LIMIT);
+            this.lastAccess = now;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return throttlingRate;
+        }
+
+        @Override
+        public synchronized long tryAcquire(long now) {
+            lastAccess = now;
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return 0;
+            }
+            return getDelay(now);
+        }
+
+        /**
+         * Returns 0 if a call would be accepted, otherwise the delay to wait for the next accepted call.
+         *
+         * @param now the current time, in nanoseconds
+         * @return 0 if a call would be accepted, otherwise the delay to wait for the next accepted call
+         */
+        synchronized long getDelay(long now) {
+            if (inFlight < (int) limit) {
+                return 0;
+            }
+            // A call is expected to complete within the current latency: return at least 1ns to indicate the call
+            // is not accepted
+            return Math.max(1L, (long) shortTermLatency);
+        }
+
+        /**
+         * Releases the concurrency slot of a call and adjusts the limit.
+         *
+         * @param latency the latency of the call, in nanoseconds
+         * @param overloaded whether the call failed because of an overload
+         */
+        synchronized void release(long latency, boolean overloaded) {
+            final int previousInFlight = inFlight;
+            inFlight--;
+            if (overloaded) {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                return;
+            }
+
+            if (shortTermLatency == 0) {
+                shortTermLatency = latency;
+                longTermLatency = latency;
+            } else {
+                shortTermLatency += (latency - shortTermLatency) * SHORT_TERM_SMOOTHING;
+                longTermLatency += (latency - longTermLatency) * LONG_TERM_SMOOTHING;
+            }
+            if (longTermLatency > 2 * shortTermLatency) {
+                // The latency has durably improved: let the long term latency catch up faster
+                longTermLatency *= 0.95;
+            }
+            if (previousInFlight < limit / 2 || shortTermLatency <= 0) {
+                // The partition does not use its limit: the latency says nothing about a higher limit
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermLatency / shortTermLatency));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = Math.min(maxLimit, Math.max(MIN_LIMIT, limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING));
+        }
+
+        synchronized double getLimit() {
+            return limit;
+        }
+
+        @Override
+        public synchronized boolean isExpired(long now) {
+            return inFlight == 0 && now - lastAccess >= idleTimeout;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.time.Duration;
+
+/**
+ * The rate limiting is implemented with the Generic Cell Rate Algorithm (GCRA): the calls of a partition are expected
+ * to be evenly spaced by an emission interval ({@code duration / numberOfRequests}), and a call is accepted unless it
+ * comes too early compared to the theoretical arrival time of the next call. A burst tolerance lets up to
+ * {@code numberOfRequests} calls go through at once after an inactivity, but, unlike the token bucket, the calls are
+ * then spaced by the emission interval: there is no burst of a full capacity at each window boundary.
+ * <p>
+ * The only state kept per partition is the theoretical arrival time, updated with compare-and-set: that makes this
+ * strategy suitable for very large numbers of partition keys.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Generic_cell_rate_algorithm">Generic cell rate algorithm</a>
+ */
+public class GcraThrottlingStrategy extends PartitionedThrottlingStrategy<GcraThrottlingStrategy.Cell> {
+
+    /**
+     * Constructs a new {@link GcraThrottlingStrategy}, that keeps up to {@value #DEFAULT_MAX_PARTITIONS} partitions
+     * (evicting the least recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     */
+    public GcraThrottlingStrategy(Ticker ticker,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Duration cleaningInterval) {
+        this(ticker, scheduledExecutor, cleaningInterval, DEFAULT_MAX_PARTITIONS);
+    }
+
+    /**
+     * Constructs a new {@link GcraThrottlingStrategy}, that keeps up to {@code maxPartitions} partitions (evicting
+     * the least recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     * @param maxPartitions the maximum number of partitions to keep.
+     */
+    public GcraThrottlingStrategy(Ticker ticker,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Duration cleaningInterval,
+                                  int maxPartitions) {
+        super(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+    }
+
+    GcraThrottlingStrategy(Ticker ticker,
+                           PartitionStore<Cell> partitions,
+                           ScheduledExecutorService scheduledExecutor,
+                           Duration cleaningInterval) {
+        super(ticker, partitions, scheduledExecutor, cleaningInterval);
+    }
+
+    @Override
+    Cell newPartition(ThrottlingRate rate, long now) {
+        return new Cell(rate, now);
+    }
+
+    /**
+     * The theoretical arrival time of the next call of a partition.
+     */
+    static final class Cell implements PartitionedThrottlingStrategy.Partition {
+
+        private static final AtomicLongFieldUpdater<Cell> TAT =
+                AtomicLongFieldUpdater.newUpdater(Cell.class, "theoreticalArrivalTime");
+
+        private final ThrottlingRate throttlingRate;
+        private volatile long theoreticalArrivalTime;
+
+        Cell(ThrottlingRate throttlingRate, long now) {
+            this.throttlingRate = throttlingRate;
+            this.theoreticalArrivalTime = now;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return throttlingRate;
+        }
+
+        @Override
+        public long tryAcquire(long now) {
+            final int numberOfRequests = throttlingRate.getNumberOfRequests();
+            final long durationNanos = throttlingRate.getDuration().to(NANOSECONDS);
+            final long emissionInterval = (durationNanos - 1) / numberOfRequests + 1;
+            final long burstTolerance = emissionInterval * (numberOfRequests - 1);
+            for (;;) {
+                final long tat = theoreticalArrivalTime;
+                // The times are compared through their difference, as the ticker's values may overflow
+                final long from = tat - now > 0 ? tat : now;
+                final long delay = from - burstTolerance - now;
+                if (delay > 0) {
+                    return delay;
+                }
+                if (TAT.compareAndSet(this, tat, from + emissionInterval)) {
+                    return 0;
+                }
+                // Someone else updated the theoretical arrival time before us, let's try again.
+            }
+        }
+
+        @Override
+        public boolean isExpired(long now) {
+            return now - theoreticalArrivalTime >= 0;
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static org.forgerock.util.Reject.checkNotNull;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Tracks, within a fixed amount of memory, the keys that are counted the most (the heavy hitters): a count-min
+ * sketch estimates the count of any key, and the keys whose estimate is among the highest ones are kept as
+ * candidates with their estimate.
+ * <p>
+ * Only one occurrence out of {@code sampling} (picked at random) is actually counted, with a weight of {@code
+ * sampling}: the other ones cost a random draw alone. Counting an occurrence costs a hash of the key, a few atomic
+ * increments and a lookup in the small candidates map: only a key whose estimate exceeds the lowest candidate's one
+ * takes a lock, to replace that candidate. The keys are hashed with a seed drawn for each tracker, so that keys with
+ * the same {@link String#hashCode()} do not share their counters. Without sampling, the estimates never underestimate
+ * the actual counts, and overestimate them by less than e / 2048 (about 0.13%) of the total count with a probability
+ * of 1 - e<sup>-4</sup> (about 98%); the sampling adds an error in the order of the square root of {@code sampling}
+ * times the count.
+ * <p>
+ * The counts only ever grow: {@link #decay()} halves them, so that when called periodically the heavy hitters
+ * reflect the recent traffic.
+ */
+public final class HeavyHitters {
+
+    /** Number of rows of the sketch, each one using a distinct hash function. */
+    private static final int DEPTH = 4;
+
+    /** Number of counters per row, as a power of 2. */
+    private static final int WIDTH_BITS = 11;
+
+    private static final int MASK = (1 << WIDTH_BITS) - 1;
+
+    private static final Comparator<Map.Entry<String, Long>> BY_DESCENDING_COUNT =
+            new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+                    return Long.compare(e2.getValue(), e1.getValue());
+                }
+            };
+
+    private static final LongUnaryOperator HALVE = new LongUnaryOperator() {
+        @Override
+        public long applyAsLong(long count) {
+            return count >>> 1;
+        }
+    };
+
+    private final int capacity;
+    private final int sampling;
+    private final HashFunction hashFunction = Hashing.murmur3_128(ThreadLocalRandom.current().nextInt());
+    private final AtomicLongArray counters = new AtomicLongArray(DEPTH << WIDTH_BITS);
+    private final LongAdder total = new LongAdder();
+    private final Map<String, AtomicLong> candidates;
+
+    /**
+     * The estimate a key must exceed to become a candidate: the lowest candidate's one (possibly outdated), or 0
+     * while there is room for more candidates.
+     */
+    private volatile long threshold;
+
+    /**
+     * Builds a new tracker counting every occurrence.
+     *
+     * @param capacity
+     *         the number of heavy hitters to track (must be greater than 0)
+     */
+    public HeavyHitters(final int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * Builds a new tracker counting one occurrence out of {@code sampling}.
+     *
+     * @param capacity
+     *         the number of heavy hitters to track (must be greater than 0)
+     * @param sampling
+     *         one occurrence out of {@code sampling} is counted (must be greater than 0)
+     */
+    public HeavyHitters(final int capacity, final int sampling) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity has to be greater than 0");
+        }
+        if (sampling <= 0) {
+            throw new IllegalArgumentException("The sampling has to be greater than 0");
+        }
+        this.capacity = capacity;
+        this.sampling = sampling;
+        this.candidates = new ConcurrentHashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts one occurrence of the given key.
+     *
+     * @param key
+     *         the key to count (must not be {@code null})
+     */
+    public void add(final String key) {
+        checkNotNull(key);
+        if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+            return;
+        }
+        total.add(sampling);
+        long estimate = Long.MAX_VALUE;
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(row, h1 + row * h2), sampling));
+        }
+
+        AtomicLong candidate = candidates.get(key);
+        if (candidate != null) {
+            raise(candidate, estimate);
+        } else if (estimate > threshold) {
+            promote(key, estimate);
+        }
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the given key (that is never lower than the actual one, unless
+     * the occurrences are sampled).
+     *
+     * @param key
+     *         the key
+     * @return the estimated number of occurrences of the given key
+     */
+    public long estimate(final String key) {
+        long estimate = Long.MAX_VALUE;
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the total number of counted occurrences (halved as well by {@link #decay()}).
+     *
+     * @return the total number of counted occurrences
+     */
+    public long getTotalCount() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the heavy hitters with their estimated number of occurrences, in descending order.
+     *
+     * @return the heavy hitters with their estimated number of occurrences, in descending order
+     */
+    public Map<String, Long> getTop() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(capacity);
+        for (Map.Entry<String, AtomicLong> candidate : candidates.entrySet()) {
+            entries.add(new SimpleImmutableEntry<>(candidate.getKey(), candidate.getValue().get()));
+        }
+        Collections.sort(entries, BY_DESCENDING_COUNT);
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * Halves all the counts, forgetting the heavy hitters whose count drops to 0.
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long count;
+            do {
+                count = counters.get(i);
+            } while (count != 0L && !counters.compareAndSet(i, count, count >>> 1));
+        }
+        long halfTotal = total.sumThenReset() >>> 1;
+        total.add(halfTotal);
+        for (Map.Entry<String, AtomicLong> candidate : candidates.entrySet()) {
+            if (candidate.getValue().updateAndGet(HALVE) == 0L) {
+                candidates.remove(candidate.getKey());
+            }
+        }
+        updateThreshold();
+    }
+
+    private synchronized void promote(final String key, final long estimate) {
+        AtomicLong candidate = candidates.get(key);
+        if (candidate != null) {
+            raise(candidate, estimate);
+            return;
+        }
+        if (candidates.size() >= capacity) {
+            Map.Entry<String, AtomicLong> lowest = lowestCandidate();
+            if (lowest.getValue().get() >= estimate) {
+                threshold = lowest.getValue().get();
+                return;
+            }
+            candidates.remove(lowest.getKey());
+        }
+        candidates.put(key, new AtomicLong(estimate));
+        updateThreshold();
+    }
+
+    /** Must be called while holding this object's lock. */
+    private void updateThreshold() {
+        threshold = candidates.size() < capacity ? 0L : lowestCandidate().getValue().get();
+    }
+
+    private Map.Entry<String, AtomicLong> lowestCandidate() {
+        Map.Entry<String, AtomicLong> lowest = null;
+        for (Map.Entry<String, AtomicLong> candidate : candidates.entrySet()) {
+            if (lowest == null || candidate.getValue().get() < lowest.getValue().get()) {
+                lowest = candidate;
+            }
+        }
+        return lowest;
+    }
+
+    private static void raise(final AtomicLong candidate, final long estimate) {
+        long current;
+        while (estimate > (current = candidate.get())) {
+            if (candidate.compareAndSet(current, estimate)) {
+                break;
+            }
+        }
+    }
+
+    private static int index(final int row, final int hash) {
+        return (row << WIDTH_BITS) + (hash & MASK);
+    }
+
+    /**
+     * Hashes the characters of the given key: its 2 halves give the index of the key in each row (double hashing).
+     */
+    private long hash(final String key) {
+        return hashFunction.hashUnencodedChars(key).asLong();
+    }
+}
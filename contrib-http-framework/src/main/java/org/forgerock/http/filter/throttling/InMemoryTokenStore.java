@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.http.filter.throttling.PartitionedThrottlingStrategy.DEFAULT_MAX_PARTITIONS;
+import static org.forgerock.util.Reject.checkNotNull;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * A {@link TokenStore} kept in memory: the filters sharing an instance of this store (for instance the filters of
+ * several routes, or several gateways embedded in a single test) apply their rates as if they were a single one.
+ * The leases are completed at once.
+ * <p>
+ * Each bucket is only made of the theoretical time at which it will be full again (as in the Generic Cell Rate
+ * Algorithm). The buckets are kept in a {@link PartitionStore}, bounded to a maximum number of buckets: the full
+ * buckets are forgotten a few at a time while new ones are created, and the least recently used ones are evicted
+ * (they start full again if their partition key comes back).
+ */
+public class InMemoryTokenStore implements TokenStore {
+
+    private static final PartitionStore.PartitionFactory<Bucket> FACTORY =
+            new PartitionStore.PartitionFactory<Bucket>() {
+                @Override
+                public Bucket newPartition(ThrottlingRate rate, long now) {
+                    return new Bucket(rate, now);
+                }
+            };
+
+    private final Ticker ticker;
+    private final PartitionStore<Bucket> buckets;
+
+    /**
+     * Constructs a new {@link InMemoryTokenStore}, that keeps up to 1000000 buckets (evicting the least recently used
+     * ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     */
+    public InMemoryTokenStore(Ticker ticker) {
+        this(ticker, DEFAULT_MAX_PARTITIONS);
+    }
+
+    /**
+     * Constructs a new {@link InMemoryTokenStore}, that keeps up to {@code maxBuckets} buckets (evicting the least
+     * recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param maxBuckets the maximum number of buckets to keep.
+     */
+    public InMemoryTokenStore(Ticker ticker, int maxBuckets) {
+        this(ticker, new PartitionStore<Bucket>(maxBuckets));
+    }
+
+    InMemoryTokenStore(Ticker ticker, PartitionStore<Bucket> buckets) {
+        this.ticker = checkNotNull(ticker);
+        this.buckets = checkNotNull(buckets);
+    }
+
+    @Override
+    public Promise<Lease, NeverThrowsException> lease(String partitionKey, ThrottlingRate throttlingRate, int tokens) {
+        final long now = ticker.read();
+        // A bucket whose rate has changed is replaced by a new one, that starts full
+        return newResultPromise(buckets.select(partitionKey, throttlingRate, now, FACTORY).take(tokens, now));
+    }
+
+    /**
+     * Returns the number of buckets currently kept.
+     *
+     * @return the number of buckets currently kept
+     */
+    int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * The bucket of a partition key, guarded by its own lock.
+     */
+    static final class Bucket implements PartitionedThrottlingStrategy.Partition {
+
+        private final ThrottlingRate throttlingRate;
+        private final long emissionInterval;
+        private final long capacity;
+        /** The time at which this bucket will be full again. */
+        private long fullTime;
+
+        Bucket(ThrottlingRate throttlingRate, long now) {
+            this.throttlingRate = throttlingRate;
+            final long durationNanos = throttlingRate.getDuration().to(NANOSECONDS);
+            this.emissionInterval = (durationNanos - 1) / throttlingRate.getNumberOfRequests() + 1;
+            this.capacity = emissionInterval * throttlingRate.getNumberOfRequests();
+            this.fullTime = now;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return throttlingRate;
+        }
+
+        @Override
+        public long tryAcquire(long now) {
+            Lease lease = take(1, now);
+            return lease.getTokens() > 0 ? 0L : lease.getDelay();
+        }
+
+        synchronized Lease take(int tokens, long now) {
+            // The times are compared through their difference, as the ticker's values may overflow
+            final long from = fullTime - now > 0 ? fullTime : now;
+            final long available = (now + capacity - from) / emissionInterval;
+            if (available <= 0) {
+                return Lease.denied(from + emissionInterval - capacity - now);
+            }
+            final int granted = (int) Math.min(tokens, available);
+            fullTime = from + granted * emissionInterval;
+            return Lease.granted(granted);
+        }
+
+        @Override
+        public synchronized boolean isExpired(long now) {
+            // A full bucket behaves as a new one
+            return now - fullTime >= 0;
+        }
+    }
+}
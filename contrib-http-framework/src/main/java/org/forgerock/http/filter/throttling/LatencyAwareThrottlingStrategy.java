@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * A {@link ThrottlingStrategy} that needs to know how the calls it accepted went: the {@link ThrottlingFilter}
+ * submits the calls with {@link #acquire(String, ThrottlingRate)}, and releases the {@link Permit} of each accepted
+ * one on its completion (whatever its outcome), with the time the next handler took to respond. {@link
+ * #throttle(String, ThrottlingRate)} only tells whether a call would be accepted, without accounting for it.
+ */
+public interface LatencyAwareThrottlingStrategy extends ThrottlingStrategy {
+
+    /**
+     * Based on the given {@literal partitionKey} and {@literal throttlingRate}, return if the call is accepted or not,
+     * as {@link #throttle(String, ThrottlingRate)} does, and accounts for it if it is accepted.
+     *
+     * @param partitionKey the key used to identify the different groups
+     * @param throttlingRate the throttling rate to apply
+     * @return a {@link Promise} succeeded with the {@link Permit} of the call, that has to be released once the call
+     * completes if it is accepted
+     */
+    Promise<Permit, NeverThrowsException> acquire(String partitionKey, ThrottlingRate throttlingRate);
+
+    /**
+     * The decision taken for a call: it is bound to the state that accounted for the call, so that the call is
+     * released there even if its partition is replaced or removed meanwhile.
+     */
+    interface Permit {
+
+        /**
+         * Returns 0 if the call is accepted, otherwise the delay (in nanoseconds) to wait for the next accepted call.
+         *
+         * @return 0 if the call is accepted, otherwise the delay to wait for the next accepted call
+         */
+        long getDelay();
+
+        /**
+         * Reports the completion of the accepted call. Only the first completion reported is taken into account.
+         *
+         * @param latency the time, in nanoseconds, the next handler took to respond
+         * @param overloaded whether the response denotes an overloaded downstream service (or no response was
+         * received)
+         */
+        void release(long latency, boolean overloaded);
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.util.Reject.checkNotNull;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.time.Duration;
+
+/**
+ * Applies a rate across several gateway nodes, sharing a bucket of tokens per partition key through a
+ * {@link TokenStore}, without a round trip to the store for each call: each node leases batches of tokens from the
+ * shared bucket, spends them locally, and leases the next batch in the background once half of the current one is
+ * spent. Only the calls finding no token left wait for a lease to complete.
+ * <p>
+ * The batch size trades the accuracy against the coordination cost: the tokens leased by a node are not available
+ * to the other ones, so a node may reject calls while tokens are idle on another node, but there is a round trip to
+ * the store every {@code batchSize} calls only. With a batch size of 1, every call takes its token from the shared
+ * bucket. The leased tokens are only spent during the duration of the rate: the unspent ones are then forgotten, the
+ * shared bucket having been refilled since.
+ * <p>
+ * A lease that the store does not complete within the lease timeout is replaced by a batch granted locally, so that
+ * the calls waiting for it are neither parked forever nor all rejected while the store is unavailable: each node then
+ * applies at most a batch per lease timeout and partition key, until the store answers again.
+ */
+public class LeasedTokenThrottlingStrategy
+        extends PartitionedThrottlingStrategy<LeasedTokenThrottlingStrategy.LeasedTokens> {
+
+    private final Ticker ticker;
+    private final TokenStore store;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduledExecutor;
+    private final long leaseTimeout;
+
+    /**
+     * Constructs a new {@link LeasedTokenThrottlingStrategy}, that keeps up to {@code maxPartitions} partitions
+     * (evicting the least recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param store the {@link TokenStore} holding the buckets shared by the gateway nodes.
+     * @param batchSize the number of tokens leased at once (at most the number of requests of the rate).
+     * @param leaseTimeout the time after which a lease that the store did not complete is granted locally.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning and time-out tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     * @param maxPartitions the maximum number of partitions to keep.
+     */
+    public LeasedTokenThrottlingStrategy(Ticker ticker,
+                                         TokenStore store,
+                                         int batchSize,
+                                         Duration leaseTimeout,
+                                         ScheduledExecutorService scheduledExecutor,
+                                         Duration cleaningInterval,
+                                         int maxPartitions) {
+        super(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+        this.ticker = ticker;
+        this.store = checkNotNull(store);
+        this.batchSize = checkBatchSize(batchSize);
+        this.scheduledExecutor = scheduledExecutor;
+        this.leaseTimeout = checkLeaseTimeout(leaseTimeout);
+    }
+
+    LeasedTokenThrottlingStrategy(Ticker ticker,
+                                  TokenStore store,
+                                  int batchSize,
+                                  Duration leaseTimeout,
+                                  PartitionStore<LeasedTokens> partitions,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Duration cleaningInterval) {
+        super(ticker, partitions, scheduledExecutor, cleaningInterval);
+        this.ticker = ticker;
+        this.store = checkNotNull(store);
+        this.batchSize = checkBatchSize(batchSize);
+        this.scheduledExecutor = scheduledExecutor;
+        this.leaseTimeout = checkLeaseTimeout(leaseTimeout);
+    }
+
+    private static int checkBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size has to be greater than 0");
+        }
+        return batchSize;
+    }
+
+    private static long checkLeaseTimeout(Duration leaseTimeout) {
+        if (leaseTimeout.isZero() || leaseTimeout.isUnlimited()) {
+            throw new IllegalArgumentException("The lease timeout cannot be neither zero nor unlimited");
+        }
+        return leaseTimeout.to(NANOSECONDS);
+    }
+
+    @Override
+    LeasedTokens newPartition(ThrottlingRate rate, long now) {
+        return new LeasedTokens(rate, Math.min(batchSize, rate.getNumberOfRequests()), now);
+    }
+
+    @Override
+    Promise<Long, NeverThrowsException> acquire(final String partitionKey,
+                                                final LeasedTokens partition,
+                                                final long now) {
+        final long delay;
+        final Promise<TokenStore.Lease, NeverThrowsException> lease;
+        synchronized (partition) {
+            delay = partition.tryAcquire(now);
+            if (delay == 0L) {
+                if (partition.needsPrefetch()) {
+                    // Lease the next batch in the background
+                    lease(partitionKey, partition);
+                }
+                lease = null;
+            } else if (partition.pendingLease != null) {
+                lease = partition.pendingLease;
+            } else if (partition.isDenied(now)) {
+                // The store holds no token before the delay
+                lease = null;
+            } else {
+                lease = lease(partitionKey, partition);
+            }
+        }
+        if (lease == null) {
+            return newResultPromise(delay);
+        }
+        return lease.thenAsync(new AsyncFunction<TokenStore.Lease, Long, NeverThrowsException>() {
+            @Override
+            public Promise<Long, NeverThrowsException> apply(TokenStore.Lease ignored) {
+                // Compete for the leased tokens (or lease again if the other calls spent them)
+                return acquire(partitionKey, partition, ticker.read());
+            }
+        });
+    }
+
+    /**
+     * Requests a lease for the given partition, that is recorded as the pending one until it completes, or times out.
+     * Must be called while holding the partition's lock.
+     */
+    private Promise<TokenStore.Lease, NeverThrowsException> lease(final String partitionKey,
+                                                                 final LeasedTokens partition) {
+        final Promise<TokenStore.Lease, NeverThrowsException> leased =
+                store.lease(partitionKey, partition.getThrottlingRate(), partition.batchSize);
+        final PromiseImpl<TokenStore.Lease, NeverThrowsException> lease = PromiseImpl.create();
+        partition.pendingLease = lease;
+        if (!leased.isDone()) {
+            try {
+                final ScheduledFuture<?> timeout = scheduledExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        // The store does not answer: spend a local batch meanwhile, rather than parking the calls
+                        complete(partition, lease, TokenStore.Lease.granted(partition.batchSize));
+                    }
+                }, leaseTimeout, NANOSECONDS);
+                leased.thenAlways(new Runnable() {
+                    @Override
+                    public void run() {
+                        timeout.cancel(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down: the lease does not time out
+            }
+        }
+        // If already completed, the handler is called at once (the lock is re-entrant), otherwise it waits for the lock
+        leased.thenOnResult(new ResultHandler<TokenStore.Lease>() {
+            @Override
+            public void handleResult(TokenStore.Lease result) {
+                complete(partition, lease, result);
+            }
+        });
+        return lease;
+    }
+
+    /**
+     * Completes the given lease of the partition, unless it is already completed (by the store or by its time-out).
+     */
+    private void complete(final LeasedTokens partition,
+                          final PromiseImpl<TokenStore.Lease, NeverThrowsException> lease,
+                          final TokenStore.Lease result) {
+        synchronized (partition) {
+            if (partition.pendingLease != lease) {
+                return;
+            }
+            partition.pendingLease = null;
+            partition.onLease(result, ticker.read());
+        }
+        lease.handleResult(result);
+    }
+
+    /**
+     * The tokens leased for a partition, guarded by its own lock.
+     */
+    static final class LeasedTokens implements PartitionedThrottlingStrategy.Partition {
+
+        private final ThrottlingRate throttlingRate;
+        private final int batchSize;
+        private final long validity;
+        private int tokens;
+        private long expirationTime;
+        private long deniedUntil;
+        private boolean denied;
+        private long lastCallTime;
+        private Promise<TokenStore.Lease, NeverThrowsException> pendingLease;
+
+        LeasedTokens(ThrottlingRate throttlingRate, int batchSize, long now) {
+            this.throttlingRate = throttlingRate;
+            this.batchSize = batchSize;
+            this.validity = throttlingRate.getDuration().to(NANOSECONDS);
+            this.lastCallTime = now;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return throttlingRate;
+        }
+
+        /**
+         * Spends a leased token, if any: the leases are requested by the strategy.
+         *
+         * @param now the current time, in nanoseconds
+         * @return 0 if a leased token has been spent, otherwise the delay (in nanoseconds) before the store holds a
+         * token again if it has denied the last lease, or else the time a lease takes to get a token back
+         */
+        @Override
+        public synchronized long tryAcquire(long now) {
+            lastCallTime = now;
+            if (tokens > 0 && now - expirationTime >= 0) {
+                // The lease is over: the shared bucket has been refilled since
+                tokens = 0;
+            }
+            if (tokens > 0) {
+                tokens--;
+                return 0L;
+            }
+            if (isDenied(now)) {
+                return deniedUntil - now;
+            }
+            return validity / throttlingRate.getNumberOfRequests() + 1;
+        }
+
+        @Override
+        public synchronized boolean isExpired(long now) {
+            return pendingLease == null && now - lastCallTime >= validity && (tokens == 0 || now - expirationTime >= 0);
+        }
+
+        synchronized boolean needsPrefetch() {
+            return batchSize > 1 && pendingLease == null && tokens < batchSize / 2;
+        }
+
+        synchronized boolean isDenied(long now) {
+            return denied && now - deniedUntil < 0;
+        }
+
+        synchronized void onLease(TokenStore.Lease lease, long now) {
+            if (lease.getTokens() > 0) {
+                tokens += lease.getTokens();
+                expirationTime = now + validity;
+                denied = false;
+            } else {
+                denied = true;
+                deniedUntil = now + lease.getDelay();
+            }
+        }
+
+        /**
+         * Returns the number of leased tokens that are not spent yet.
+         *
+         * @return the number of leased tokens that are not spent yet
+         */
+        synchronized int getTokens() {
+            return tokens;
+        }
+    }
+}
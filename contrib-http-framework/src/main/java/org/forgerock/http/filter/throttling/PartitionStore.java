@@ -0,0 +1,314 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.http.filter.throttling.PartitionedThrottlingStrategy.Partition;
+import org.forgerock.util.Reject;
+
+/**
+ * Keeps the partitions of a {@link PartitionedThrottlingStrategy}, up to a maximum number: the keys are spread over
+ * shards, each one made of a concurrent map and of a queue of its partitions in insertion order guarded by the shard's
+ * lock. Looking up an existing partition never takes a lock: it only marks the partition as referenced (the CLOCK
+ * algorithm). The lock is only taken to insert a partition: when the shard is full, the partitions at the head of the
+ * queue that have been referenced since they were queued get a second chance (they are queued again), and the first
+ * one that has not is evicted (an approximation of a least recently used eviction).
+ * <p>
+ * As the least recently used partitions are the most likely to be expired, the expired partitions are removed from
+ * the head of the queue too, a few at a time while inserting the partitions, and by {@link #expire(long)} that stops
+ * at the first partition still in use: nothing ever scans all the partitions. A partition key sprayed with unique
+ * values can then neither exhaust the memory nor slow the cleaning down: it only evicts the partitions that have not
+ * been used for the longest time.
+ *
+ * @param <P> the type of the partitions
+ */
+final class PartitionStore<P extends Partition> {
+
+    /**
+     * Creates the partitions.
+     *
+     * @param <P> the type of the partitions
+     */
+    interface PartitionFactory<P> {
+
+        /**
+         * Creates the partition of a key, for a first call made at the given time.
+         *
+         * @param rate the rate to apply
+         * @param now the current time, in nanoseconds
+         * @return the partition of a key
+         */
+        P newPartition(ThrottlingRate rate, long now);
+    }
+
+    /** Maximum number of partitions visited at the head of a shard's queue when inserting a partition. */
+    private static final int VISITED_PER_INSERTION = 4;
+
+    /** Maximum number of partitions visited while holding a shard's lock in {@link #expire(long)}. */
+    private static final int VISITED_PER_BATCH = 1024;
+
+    private final Shard<P>[] shards;
+    private final int shardMask;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a store with a number of shards suited to the number of processors.
+     *
+     * @param maximumSize the maximum number of partitions
+     */
+    PartitionStore(int maximumSize) {
+        this(maximumSize, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    PartitionStore(int maximumSize, int concurrencyLevel) {
+        Reject.ifTrue(maximumSize <= 0, "The maximum number of partitions has to be greater than 0.");
+        // A power of 2 number of shards, without exceeding the maximum size so that each shard can hold a partition
+        int shardCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maximumSize)));
+        this.shards = new Shard[shardCount];
+        this.shardMask = shardCount - 1;
+        int shardCapacity = maximumSize / shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>(shardCapacity, evictions);
+        }
+    }
+
+    /**
+     * Returns the partition of the given key, that is created (or replaced, if it applies another rate) with the
+     * given factory.
+     *
+     * @param key the partition key
+     * @param rate the rate to apply
+     * @param now the current time, in nanoseconds
+     * @param factory the factory of the partitions
+     * @return the partition of the given key
+     */
+    P select(String key, ThrottlingRate rate, long now, PartitionFactory<P> factory) {
+        Shard<P> shard = shardOf(key);
+        Node<P> node = shard.map.get(key);
+        if (node != null && node.partition.getThrottlingRate().equals(rate)) {
+            node.reference();
+            return node.partition;
+        }
+        synchronized (shard) {
+            node = shard.map.get(key);
+            if (node != null && node.partition.getThrottlingRate().equals(rate)) {
+                node.reference();
+                return node.partition;
+            }
+            // Make room for the new partition rather than evicting one in use
+            shard.removeExpired(now, VISITED_PER_INSERTION);
+            return shard.insert(key, factory.newPartition(rate, now)).partition;
+        }
+    }
+
+    /**
+     * Returns the partition of the given key, if any (without marking it as referenced).
+     *
+     * @param key the partition key
+     * @return the partition of the given key, or {@code null}
+     */
+    P get(String key) {
+        Node<P> node = shardOf(key).map.get(key);
+        return node == null ? null : node.partition;
+    }
+
+    /**
+     * Removes the expired partitions, starting from the head of the queues, until a partition still in use is found
+     * in each shard.
+     *
+     * @param now the current time, in nanoseconds
+     * @return the number of removed partitions
+     */
+    int expire(long now) {
+        int removed = 0;
+        for (Shard<P> shard : shards) {
+            // Each partition gets at most a second chance, even if it is referenced again while the lock is released
+            int visits = 2 * shard.map.size();
+            boolean more = true;
+            while (more && visits > 0) {
+                synchronized (shard) {
+                    int size = shard.map.size();
+                    more = shard.removeExpired(now, Math.min(visits, VISITED_PER_BATCH));
+                    removed += size - shard.map.size();
+                }
+                visits -= VISITED_PER_BATCH;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the number of partitions
+     */
+    int size() {
+        int size = 0;
+        for (Shard<P> shard : shards) {
+            size += shard.map.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of partitions evicted to make room for new ones, while they may still be in use.
+     *
+     * @return the number of partitions evicted to make room for new ones
+     */
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all the partitions.
+     */
+    void clear() {
+        for (Shard<P> shard : shards) {
+            synchronized (shard) {
+                shard.clear();
+            }
+        }
+    }
+
+    private Shard<P> shardOf(String key) {
+        int h = key.hashCode();
+        // Spread the higher bits, as HashMap does
+        return shards[(h ^ (h >>> 16)) & shardMask];
+    }
+
+    /**
+     * A partition, linked to the other partitions of its shard in the order they have been queued.
+     */
+    private static final class Node<P> {
+
+        private final String key;
+        private final P partition;
+        /** Whether the partition has been looked up since it has been queued. */
+        private volatile boolean referenced;
+        // Guarded by the shard's lock
+        private Node<P> previous;
+        private Node<P> next;
+
+        Node(String key, P partition) {
+            this.key = key;
+            this.partition = partition;
+        }
+
+        void reference() {
+            // Only written once per second chance, so that a hot partition does not keep writing its cache line
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+
+    /**
+     * The partitions of a shard: the map is read without lock, and both the map and the queue are modified holding
+     * this shard's lock.
+     */
+    private static final class Shard<P extends Partition> {
+
+        private final ConcurrentMap<String, Node<P>> map = new ConcurrentHashMap<>();
+        /** Sentinel of the circular queue: its next node is the head, its previous one the tail. */
+        private final Node<P> queue = new Node<>(null, null);
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Shard(int capacity, LongAdder evictions) {
+            this.capacity = capacity;
+            this.evictions = evictions;
+            queue.previous = queue;
+            queue.next = queue;
+        }
+
+        Node<P> insert(String key, P partition) {
+            Node<P> node = new Node<>(key, partition);
+            Node<P> replaced = map.put(key, node);
+            if (replaced != null) {
+                unlink(replaced);
+            }
+            enqueue(node);
+            while (map.size() > capacity) {
+                Node<P> head = queue.next;
+                if (head.referenced || head == node) {
+                    // Never evict the partition being inserted
+                    secondChance(head);
+                } else {
+                    unlink(head);
+                    map.remove(head.key, head);
+                    evictions.increment();
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Visits up to {@code max} partitions from the head of the queue: the referenced ones get a second chance,
+         * the expired ones are removed, and the visit stops at the first partition still in use.
+         *
+         * @return whether the visit has been stopped by the maximum number of visited partitions
+         */
+        boolean removeExpired(long now, int max) {
+            for (int visited = 0; visited < max; visited++) {
+                Node<P> head = queue.next;
+                if (head == queue) {
+                    return false;
+                }
+                if (head.referenced) {
+                    secondChance(head);
+                } else if (head.partition.isExpired(now)) {
+                    unlink(head);
+                    map.remove(head.key, head);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void clear() {
+            map.clear();
+            queue.previous = queue;
+            queue.next = queue;
+        }
+
+        private void secondChance(Node<P> node) {
+            node.referenced = false;
+            unlink(node);
+            enqueue(node);
+        }
+
+        private void enqueue(Node<P> node) {
+            node.previous = queue.previous;
+            node.next = queue;
+            queue.previous.next = node;
+            queue.previous = node;
+        }
+
+        private void unlink(Node<P> node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+        }
+    }
+}
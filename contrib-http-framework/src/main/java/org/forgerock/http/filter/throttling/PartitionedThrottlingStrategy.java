@@ -0,0 +1,209 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.forgerock.util.Reject.checkNotNull;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+import static org.forgerock.util.time.Duration.duration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of the throttling strategies that keep a small state per partition key: the state is created on the
+ * first call for a key, replaced when the rate applied to that key changes, and periodically removed once expired
+ * (when it would not throttle the next call anymore). The states are kept in a {@link PartitionStore}, bounded to a
+ * maximum number of partitions.
+ *
+ * @param <P> the type of the state kept per partition key
+ */
+abstract class PartitionedThrottlingStrategy<P extends PartitionedThrottlingStrategy.Partition>
+        implements ThrottlingStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedThrottlingStrategy.class);
+
+    /** Default maximum number of partitions kept. */
+    static final int DEFAULT_MAX_PARTITIONS = 1_000_000;
+
+    /**
+     * The state kept per partition key.
+     */
+    interface Partition {
+
+        /**
+         * Returns the rate applied by this partition.
+         *
+         * @return the rate applied by this partition
+         */
+        ThrottlingRate getThrottlingRate();
+
+        /**
+         * Accounts for a call made at the given time, if it is accepted.
+         *
+         * @param now the current time, in nanoseconds
+         * @return 0 if the call is accepted, otherwise the delay (in nanoseconds) to wait for the next accepted call
+         */
+        long tryAcquire(long now);
+
+        /**
+         * Returns whether this partition can be forgotten: a new one would behave the same.
+         *
+         * @param now the current time, in nanoseconds
+         * @return whether this partition can be forgotten
+         */
+        boolean isExpired(long now);
+    }
+
+    private final Ticker ticker;
+    private final PartitionStore<P> partitions;
+    private final ScheduledFuture<?> cleaningFuture;
+    private final PartitionStore.PartitionFactory<P> factory = new PartitionStore.PartitionFactory<P>() {
+        @Override
+        public P newPartition(ThrottlingRate rate, long now) {
+            return PartitionedThrottlingStrategy.this.newPartition(rate, now);
+        }
+    };
+
+    private class CleaningThread implements Runnable {
+
+        @Override
+        public void run() {
+            int removed = partitions.expire(ticker.read());
+            logger.trace("Cleaned {} partition(s)", removed);
+        }
+
+    }
+
+    PartitionedThrottlingStrategy(Ticker ticker,
+                                  PartitionStore<P> partitions,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Duration cleaningInterval) {
+        this.ticker = checkNotNull(ticker);
+        this.partitions = checkNotNull(partitions);
+        if (cleaningInterval.isZero() || cleaningInterval.compareTo(duration(1, DAYS)) > 0) {
+            throw new IllegalArgumentException("Invalid value for cleaningInterval : "
+                                                       + "it has to be in the range ]0, 1 day]");
+        }
+        this.cleaningFuture = scheduledExecutor.scheduleWithFixedDelay(new CleaningThread(),
+                                                                       0, // no delay
+                                                                       cleaningInterval.getValue(),
+                                                                       cleaningInterval.getUnit());
+    }
+
+    PartitionedThrottlingStrategy(Ticker ticker,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Duration cleaningInterval,
+                                  int maxPartitions) {
+        this(ticker, new PartitionStore<P>(maxPartitions), scheduledExecutor, cleaningInterval);
+    }
+
+    /**
+     * Creates the state of a partition key, for a first call made at the given time.
+     *
+     * @param rate the rate to apply
+     * @param now the current time, in nanoseconds
+     * @return the state of a partition key
+     */
+    abstract P newPartition(ThrottlingRate rate, long now);
+
+    @Override
+    public Promise<Long, NeverThrowsException> throttle(String partitionKey, ThrottlingRate throttlingRate) {
+        final long now = ticker.read();
+        return acquire(partitionKey, selectPartition(partitionKey, throttlingRate, now), now);
+    }
+
+    /**
+     * Returns the current time, in nanoseconds.
+     *
+     * @return the current time, in nanoseconds
+     */
+    long now() {
+        return ticker.read();
+    }
+
+    /**
+     * Returns the partition of the given key, created or replaced if it does not apply the given rate.
+     *
+     * @param partitionKey the partition key
+     * @param throttlingRate the throttling rate to apply
+     * @param now the current time, in nanoseconds
+     * @return the partition of the given key
+     */
+    P selectPartition(String partitionKey, ThrottlingRate throttlingRate, long now) {
+        P partition = partitions.select(partitionKey, throttlingRate, now, factory);
+        logger.trace("Applying rate {}: {}", partitionKey, partition.getThrottlingRate());
+        return partition;
+    }
+
+    /**
+     * Accounts for a call made at the given time on the given partition, if it is accepted. By default, the decision
+     * is taken at once by the partition.
+     *
+     * @param partitionKey the partition key
+     * @param partition the state of the partition key
+     * @param now the current time, in nanoseconds
+     * @return a promise succeeded with 0 if the call is accepted, otherwise with the delay (in nanoseconds) to wait
+     * for the next accepted call
+     */
+    Promise<Long, NeverThrowsException> acquire(String partitionKey, P partition, long now) {
+        return newResultPromise(partition.tryAcquire(now));
+    }
+
+    /**
+     * Returns the partition of the given key, if any.
+     *
+     * @param partitionKey the partition key
+     * @return the partition of the given key, or {@code null}
+     */
+    P getPartition(String partitionKey) {
+        return partitions.get(partitionKey);
+    }
+
+    /**
+     * Returns the number of partitions currently kept.
+     *
+     * @return the number of partitions currently kept
+     */
+    int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * Returns the number of partitions evicted to make room for new ones.
+     *
+     * @return the number of partitions evicted to make room for new ones
+     */
+    long getEvictedPartitionCount() {
+        return partitions.getEvictionCount();
+    }
+
+    @Override
+    public void stop() {
+        cleaningFuture.cancel(false);
+        partitions.clear();
+    }
+
+}
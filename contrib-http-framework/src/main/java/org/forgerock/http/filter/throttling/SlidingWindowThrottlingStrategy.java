@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.time.Duration;
+
+/**
+ * The rate limiting is implemented with a sliding window counter: the calls of a partition are counted per fixed
+ * window of the rate's duration, and the number of calls made during the last duration is estimated from the count of
+ * the current window plus the count of the previous one, weighted by how much the sliding window still overlaps it. A
+ * call is accepted if that estimate is lower than the rate's number of requests: unlike the token bucket, a partition
+ * can not get twice its capacity around a window boundary.
+ * <p>
+ * The only state kept per partition is the start of its current window and two counters: that makes this strategy
+ * suitable for very large numbers of partition keys. That state is guarded by the partition's own monitor, that does
+ * not take any memory until it is contended.
+ *
+ * @see <a href="https://blog.cloudflare.com/counting-things-a-lot-of-different-things/">Counting things, a lot of
+ * different things</a>
+ */
+public class SlidingWindowThrottlingStrategy
+        extends PartitionedThrottlingStrategy<SlidingWindowThrottlingStrategy.Window> {
+
+    /**
+     * Constructs a new {@link SlidingWindowThrottlingStrategy}, that keeps up to {@value #DEFAULT_MAX_PARTITIONS}
+     * partitions (evicting the least recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     */
+    public SlidingWindowThrottlingStrategy(Ticker ticker,
+                                           ScheduledExecutorService scheduledExecutor,
+                                           Duration cleaningInterval) {
+        this(ticker, scheduledExecutor, cleaningInterval, DEFAULT_MAX_PARTITIONS);
+    }
+
+    /**
+     * Constructs a new {@link SlidingWindowThrottlingStrategy}, that keeps up to {@code maxPartitions} partitions
+     * (evicting the least recently used ones).
+     *
+     * @param ticker the {@link Ticker} to use to follow the timeline.
+     * @param scheduledExecutor the {@link ScheduledExecutorService} used to schedule cleaning tasks.
+     * @param cleaningInterval the interval between 2 cleaning tasks.
+     * @param maxPartitions the maximum number of partitions to keep.
+     */
+    public SlidingWindowThrottlingStrategy(Ticker ticker,
+                                           ScheduledExecutorService scheduledExecutor,
+                                           Duration cleaningInterval,
+                                           int maxPartitions) {
+        super(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+    }
+
+    SlidingWindowThrottlingStrategy(Ticker ticker,
+                                    PartitionStore<Window> partitions,
+                                    ScheduledExecutorService scheduledExecutor,
+                                    Duration cleaningInterval) {
+        super(ticker, partitions, scheduledExecutor, cleaningInterval);
+    }
+
+    @Override
+    Window newPartition(ThrottlingRate rate, long now) {
+        return new Window(rate, now);
+    }
+
+    /**
+     * The counts of the current and previous windows of a partition.
+     */
+    static final class Window implements PartitionedThrottlingStrategy.Partition {
+
+        private final ThrottlingRate throttlingRate;
+        // Guarded by this
+        private long start;
+        private int previousCount;
+        private int currentCount;
+
+        Window(ThrottlingRate throttlingRate, long now) {
+            this.throttlingRate = throttlingRate;
+            this.start = now;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return throttlingRate;
+        }
+
+        @Override
+        public synchronized long tryAcquire(long now) {
+            final int numberOfRequests = throttlingRate.getNumberOfRequests();
+            final long duration = throttlingRate.getDuration().to(NANOSECONDS);
+            long elapsed = now - start;
+            if (elapsed >= duration) {
+                if (elapsed < 2 * duration) {
+                    // Move to the next window
+                    previousCount = currentCount;
+                    start += duration;
+                    elapsed -= duration;
+                } else {
+                    // Both windows are over: start a new one now
+                    previousCount = 0;
+                    start = now;
+                    elapsed = 0;
+                }
+                currentCount = 0;
+            }
+
+            double overlap = (double) (duration - elapsed) / duration;
+            if (previousCount * overlap + currentCount < numberOfRequests) {
+                currentCount++;
+                return 0;
+            }
+
+            // Compute when the estimate will get lower than the number of requests
+            long delay;
+            if (currentCount < numberOfRequests) {
+                // Later in the current window, once the previous window overlaps less
+                double ratio = (double) (numberOfRequests - currentCount) / previousCount;
+                delay = (long) Math.ceil(duration * (1 - ratio)) + 1 - elapsed;
+            } else {
+                // In the next window, the current one becoming the previous one
+                double ratio = (double) numberOfRequests / currentCount;
+                delay = duration - elapsed + (long) Math.ceil(duration * (1 - ratio)) + 1;
+            }
+            // Return at least 1ns to indicate the call is not accepted
+            return Math.max(1, delay);
+        }
+
+        @Override
+        public synchronized boolean isExpired(long now) {
+            return now - start >= 2 * throttlingRate.getDuration().to(NANOSECONDS);
+        }
+    }
+
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 package org.forgerock.http.filter.throttling;
 
@@ -20,22 +21,36 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.forgerock.http.protocol.Response.newResponsePromise;
 import static org.forgerock.http.protocol.Responses.newInternalServerError;
 import static org.forgerock.util.Reject.checkNotNull;
+import static org.forgerock.util.promise.Promises.newExceptionPromise;
 import static org.forgerock.util.promise.Promises.newResultPromise;
 
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.forgerock.http.ContextAndRequest;
 import org.forgerock.http.Filter;
 import org.forgerock.http.Handler;
+import org.forgerock.http.filter.throttling.LatencyAwareThrottlingStrategy.Permit;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Status;
 import org.forgerock.services.context.Context;
 import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.Function;
+import org.forgerock.util.promise.ExceptionHandler;
 import org.forgerock.util.promise.NeverThrowsException;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.promise.RuntimeExceptionHandler;
+import org.forgerock.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +69,12 @@ public class ThrottlingFilter implements Filter {
     private final ThrottlingPolicy throttlingRatePolicy;
     private final ThrottlingStrategy throttlingStrategy;
     private String name=null;
+    private final LongAdder allowedRequests = new LongAdder();
+    private final LongAdder throttledRequests = new LongAdder();
+    private ThrottlingQueue queue;
+    private HeavyHitters allowedHeavyHitters;
+    private HeavyHitters throttledHeavyHitters;
+    private ConcurrentMap<String, Promise<ThrottlingRate, Exception>> rateCache;
 
     /**
      * Constructs a ThrottlingFilter.
@@ -81,6 +102,147 @@ public class ThrottlingFilter implements Filter {
 		
 	}
 
+    /**
+     * Delays the requests that the throttling strategy does not accept yet, rather than rejecting them at once, as
+     * long as they do not have to wait for more than {@code maxDelay}: the delayed requests are parked on the given
+     * executor, without blocking any thread, then handed off to the worker executor that calls the next handler: the
+     * worker should not share the threads of the executor, that would otherwise be held while the next handler runs.
+     * The delayed requests of a group are accepted in their arrival order: while some are delayed, the new requests
+     * of the group are delayed behind them.
+     *
+     * @param executor
+     *         the executor scheduling the delayed requests
+     * @param worker
+     *         the executor calling the next handler once a delayed request is accepted (or rejecting it)
+     * @param ticker
+     *         the ticker measuring the time the requests are delayed
+     * @param maxDelay
+     *         the maximum time a request may be delayed (requests are never delayed if it is zero)
+     * @param maxQueueSize
+     *         the maximum number of requests delayed at the same time for a group of requests
+     */
+    public void setQueueing(ScheduledExecutorService executor,
+                            Executor worker,
+                            Ticker ticker,
+                            Duration maxDelay,
+                            int maxQueueSize) {
+        this.queue = maxDelay.isZero() ? null : new ThrottlingQueue(executor, worker, ticker, maxDelay, maxQueueSize);
+    }
+
+    /**
+     * Caches the rates provided by the throttling rate policy per group of requests (partition key), so that the
+     * policy (for instance a script) is only called on a cache miss: that only makes sense when the rate of a request
+     * depends on its group alone. The concurrent requests of a group missing the cache share the same lookup, and
+     * the lookup failures are not cached.
+     *
+     * @param ticker
+     *         the ticker measuring the time the rates are kept
+     * @param timeToLive
+     *         the time a rate is kept once looked up (the rates are not cached if it is zero)
+     * @param maxSize
+     *         the maximum number of rates kept (the least recently used ones are evicted)
+     */
+    public void setRateCaching(Ticker ticker, Duration timeToLive, int maxSize) {
+        if (timeToLive.isZero()) {
+            this.rateCache = null;
+            return;
+        }
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                                                           .ticker(ticker)
+                                                           .maximumSize(maxSize);
+        if (!timeToLive.isUnlimited()) {
+            builder.expireAfterWrite(timeToLive.getValue(), timeToLive.getUnit());
+        }
+        Cache<String, Promise<ThrottlingRate, Exception>> cache = builder.build();
+        this.rateCache = cache.asMap();
+    }
+
+    /**
+     * Tracks the groups of requests (partition keys) that are the most allowed, and the most throttled, within a
+     * fixed amount of memory (see {@link HeavyHitters}).
+     *
+     * @param capacity
+     *         the number of groups of requests to track (they are not tracked if it is 0)
+     * @param sampling
+     *         one request out of {@code sampling} is counted
+     */
+    public void setHeavyHitterTracking(int capacity, int sampling) {
+        this.allowedHeavyHitters = capacity == 0 ? null : new HeavyHitters(capacity, sampling);
+        this.throttledHeavyHitters = capacity == 0 ? null : new HeavyHitters(capacity, sampling);
+    }
+
+    /**
+     * Returns the groups of requests that are the most allowed ({@code null} if they are not tracked).
+     *
+     * @return the groups of requests that are the most allowed
+     * @see #setHeavyHitterTracking(int, int)
+     */
+    public HeavyHitters getAllowedHeavyHitters() {
+        return allowedHeavyHitters;
+    }
+
+    /**
+     * Returns the groups of requests that are the most throttled ({@code null} if they are not tracked).
+     *
+     * @return the groups of requests that are the most throttled
+     * @see #setHeavyHitterTracking(int, int)
+     */
+    public HeavyHitters getThrottledHeavyHitters() {
+        return throttledHeavyHitters;
+    }
+
+    /**
+     * Returns the number of requests that the throttling strategy let go through.
+     *
+     * @return the number of requests that the throttling strategy let go through
+     */
+    public long getAllowedRequestCount() {
+        return allowedRequests.sum();
+    }
+
+    /**
+     * Returns the number of requests rejected with a 429 (Too Many Requests) response.
+     *
+     * @return the number of requests rejected with a 429 (Too Many Requests) response
+     */
+    public long getThrottledRequestCount() {
+        return throttledRequests.sum();
+    }
+
+    /**
+     * Returns the number of requests currently delayed (see {@link #setQueueing}).
+     *
+     * @return the number of requests currently delayed
+     */
+    public long getQueuedRequestCount() {
+        return queue == null ? 0L : queue.getWaitingCallCount();
+    }
+
+    /**
+     * Returns the number of partitions currently kept by the throttling strategy (0 if it does not keep any).
+     *
+     * @return the number of partitions currently kept by the throttling strategy
+     */
+    public long getPartitionCount() {
+        if (throttlingStrategy instanceof PartitionedThrottlingStrategy) {
+            return ((PartitionedThrottlingStrategy<?>) throttlingStrategy).getPartitionCount();
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the number of partitions that the throttling strategy evicted to make room for new ones (0 if it does
+     * not keep any).
+     *
+     * @return the number of partitions that the throttling strategy evicted to make room for new ones
+     */
+    public long getEvictedPartitionCount() {
+        if (throttlingStrategy instanceof PartitionedThrottlingStrategy) {
+            return ((PartitionedThrottlingStrategy<?>) throttlingStrategy).getEvictedPartitionCount();
+        }
+        return 0L;
+    }
+
 	/**
      * Stops this filter and frees the resources.
      */
@@ -92,11 +254,14 @@ public class ThrottlingFilter implements Filter {
     public Promise<Response, NeverThrowsException> filter(final Context context,
                                                           final Request request,
                                                           final Handler next) {
-        final Promise<ThrottlingRate, Exception> throttlingRatePromise =
-                throttlingRatePolicy.lookup(context, request);
         final Promise<String, Exception> partitionKeyPromise =
                 newResultPromise(new ContextAndRequest(context, request))
                         .thenAsync(requestGroupingPolicy);
+        final ConcurrentMap<String, Promise<ThrottlingRate, Exception>> currentRateCache = rateCache;
+        final Promise<ThrottlingRate, Exception> throttlingRatePromise =
+                currentRateCache == null
+                        ? throttlingRatePolicy.lookup(context, request)
+                        : partitionKeyPromise.thenAsync(cachedLookup(currentRateCache, context, request));
 
         return whenAllDone(throttlingRatePromise, partitionKeyPromise)
                 .thenAsync(new AsyncFunction<Void, Response, NeverThrowsException>() {
@@ -117,25 +282,74 @@ public class ThrottlingFilter implements Filter {
                                 return next.handle(context, request);
                             }
 
-                            return throttlingStrategy.throttle(partitionKey, throttlingRate)
-                                                     .thenAsync(applyThrottlingDecision());
+                            final PermitAttempt attempt = throttlingStrategy instanceof LatencyAwareThrottlingStrategy
+                                    ? new PermitAttempt((LatencyAwareThrottlingStrategy) throttlingStrategy,
+                                                        partitionKey, throttlingRate)
+                                    : null;
+                            final ThrottlingQueue currentQueue = queue;
+                            final Promise<Long, NeverThrowsException> decision;
+                            if (currentQueue != null) {
+                                // The call waits behind the calls already queued for that partition, if any
+                                decision = attempt == null
+                                        ? currentQueue.submit(throttlingStrategy, partitionKey, throttlingRate)
+                                        : currentQueue.submit(partitionKey, attempt);
+                            } else {
+                                decision = attempt == null
+                                        ? throttlingStrategy.throttle(partitionKey, throttlingRate)
+                                        : attempt.attempt();
+                            }
+                            return decision.thenAsync(applyThrottlingDecision(partitionKey, attempt));
                         } catch (ExecutionException | InterruptedException | IllegalArgumentException e) {
                             return newResponsePromise(newInternalServerError(e));
                         }
                     }
 
-                    private AsyncFunction<Long, Response, NeverThrowsException> applyThrottlingDecision() {
+                    private AsyncFunction<Long, Response, NeverThrowsException> applyThrottlingDecision(
+                            final String partitionKey,
+                            final PermitAttempt attempt) {
                         return new AsyncFunction<Long, Response, NeverThrowsException>() {
                             @Override
                             public Promise<? extends Response, ? extends NeverThrowsException> apply(Long delay) {
                                 if (delay <= 0) {
+                                    allowedRequests.increment();
+                                    count(allowedHeavyHitters, partitionKey);
+                                    if (attempt != null) {
+                                        return handleAndRelease(attempt.getPermit());
+                                    }
                                     return next.handle(context, request);
                                 }
+                                throttledRequests.increment();
+                                count(throttledHeavyHitters, partitionKey);
                                 return newResponsePromise(tooManyRequests(delay));
                             }
                         };
                     }
 
+                    private Promise<Response, NeverThrowsException> handleAndRelease(final Permit permit) {
+                        final long start = System.nanoTime();
+                        final Promise<Response, NeverThrowsException> response;
+                        try {
+                            response = next.handle(context, request);
+                        } catch (RuntimeException e) {
+                            permit.release(System.nanoTime() - start, true);
+                            throw e;
+                        }
+                        return response.thenOnResult(new ResultHandler<Response>() {
+                                           @Override
+                                           public void handleResult(Response response) {
+                                               permit.release(System.nanoTime() - start,
+                                                              isOverloaded(response.getStatus()));
+                                           }
+                                       })
+                                       .thenAlways(new Runnable() {
+                                           @Override
+                                           public void run() {
+                                               // No response was received, unless the permit was released with it above
+                                               permit.release(System.nanoTime() - start, true);
+                                           }
+                                       });
+                    }
+
                     private Response tooManyRequests(long delay) {
                         // http://tools.ietf.org/html/rfc6585#section-4
                         Response response = new Response(Status.TOO_MANY_REQUESTS);
@@ -163,6 +377,106 @@ public class ThrottlingFilter implements Filter {
                 });
     }
 
+    /**
+     * Submits a call to a {@link LatencyAwareThrottlingStrategy}, and keeps the {@link Permit} of the call once it is
+     * accepted.
+     */
+    private static final class PermitAttempt implements ThrottlingQueue.Attempt,
+                                                        Function<Permit, Long, NeverThrowsException> {
+
+        private final LatencyAwareThrottlingStrategy strategy;
+        private final String partitionKey;
+        private final ThrottlingRate throttlingRate;
+        private volatile Permit permit;
+
+        PermitAttempt(LatencyAwareThrottlingStrategy strategy, String partitionKey, ThrottlingRate throttlingRate) {
+            this.strategy = strategy;
+            this.partitionKey = partitionKey;
+            this.throttlingRate = throttlingRate;
+        }
+
+        @Override
+        public Promise<Long, NeverThrowsException> attempt() {
+            return strategy.acquire(partitionKey, throttlingRate).then(this);
+        }
+
+        @Override
+        public Long apply(Permit permit) {
+            if (permit.getDelay() <= 0) {
+                this.permit = permit;
+            }
+            return permit.getDelay();
+        }
+
+        Permit getPermit() {
+            return permit;
+        }
+    }
+
+    private static void count(HeavyHitters heavyHitters, String partitionKey) {
+        if (heavyHitters != null) {
+            heavyHitters.add(partitionKey);
+        }
+    }
+
+    private AsyncFunction<String, ThrottlingRate, Exception> cachedLookup(
+            final ConcurrentMap<String, Promise<ThrottlingRate, Exception>> cache,
+            final Context context,
+            final Request request) {
+        return new AsyncFunction<String, ThrottlingRate, Exception>() {
+            @Override
+            public Promise<ThrottlingRate, Exception> apply(final String partitionKey) {
+                if (partitionKey == null) {
+                    return throttlingRatePolicy.lookup(context, request);
+                }
+                Promise<ThrottlingRate, Exception> cached = cache.get(partitionKey);
+                if (cached != null) {
+                    return cached;
+                }
+                final PromiseImpl<ThrottlingRate, Exception> lookup = PromiseImpl.create();
+                cached = cache.putIfAbsent(partitionKey, lookup);
+                if (cached != null) {
+                    // Another request of the group is looking the rate up
+                    return cached;
+                }
+                Promise<ThrottlingRate, Exception> rate;
+                try {
+                    rate = throttlingRatePolicy.lookup(context, request);
+                } catch (RuntimeException e) {
+                    rate = newExceptionPromise((Exception) e);
+                }
+                rate.thenOnResult(lookup)
+                    .thenOnException(new ExceptionHandler<Exception>() {
+                        @Override
+                        public void handleException(Exception exception) {
+                            // Only the rates are cached, not the failures
+                            cache.remove(partitionKey, lookup);
+                            lookup.handleException(exception);
+                        }
+                    })
+                    .thenOnRuntimeException(new RuntimeExceptionHandler() {
+                        @Override
+                        public void handleRuntimeException(RuntimeException exception) {
+                            cache.remove(partitionKey, lookup);
+                            lookup.handleException(exception);
+                        }
+                    });
+                return lookup;
+            }
+        };
+    }
+
+    /**
+     * Returns whether the given response status denotes an overloaded downstream service (that is either not
+     * available, too slow to respond or throttling itself).
+     */
+    private static boolean isOverloaded(Status status) {
+        return Status.SERVICE_UNAVAILABLE.equals(status)
+                || Status.GATEWAY_TIMEOUT.equals(status)
+                || Status.BAD_GATEWAY.equals(status)
+                || Status.TOO_MANY_REQUESTS.equals(status);
+    }
+
     private static Promise<Void, NeverThrowsException> whenAllDone(final Promise<?, ?>... promises) {
         // Fast exit
         if (promises == null || promises.length == 0) {
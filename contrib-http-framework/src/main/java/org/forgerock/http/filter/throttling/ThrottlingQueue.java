@@ -0,0 +1,366 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.util.Reject.checkNotNull;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.time.Duration;
+
+/**
+ * Delays the calls that a {@link ThrottlingStrategy} does not accept yet, rather than rejecting them, as long as they
+ * do not wait for more than a maximum delay. The delayed calls of a partition wait in a FIFO queue: only the call at
+ * the head of the queue is submitted again to the strategy, once the delay it returned has elapsed, and the next
+ * call is submitted as soon as it is accepted, so that one call is released per token made available by the strategy.
+ * While calls are waiting for a partition, the new calls of the partition are queued behind them instead of being
+ * submitted to the strategy: they cannot take the tokens ahead of the waiting calls.
+ * <p>
+ * Nothing blocks while the calls wait, and the calls are completed on a worker executor, so that the timer thread only
+ * submits the calls to the strategy (the accepted calls are then handled on the worker thread). A call is rejected
+ * as soon as it is known to wait for too long, and the number of calls waiting for a partition is bounded: the calls
+ * over that bound are rejected at once.
+ */
+final class ThrottlingQueue {
+
+    private final ScheduledExecutorService executor;
+    private final Executor worker;
+    private final Ticker ticker;
+    private final long maxDelay;
+    private final int maxQueueSize;
+    private final ConcurrentMap<String, PartitionQueue> queues = new ConcurrentHashMap<>();
+    private final LongAdder waitingCalls = new LongAdder();
+
+    /**
+     * Constructs a new queue.
+     *
+     * @param executor the executor scheduling the waiting calls
+     * @param worker the executor completing the waiting calls
+     * @param ticker the ticker measuring the time the calls wait
+     * @param maxDelay the maximum time a call may wait
+     * @param maxQueueSize the maximum number of calls waiting for a partition
+     */
+    ThrottlingQueue(ScheduledExecutorService executor,
+                    Executor worker,
+                    Ticker ticker,
+                    Duration maxDelay,
+                    int maxQueueSize) {
+        Reject.ifTrue(maxDelay.isUnlimited(), "The maximum delay can't be unlimited.");
+        Reject.ifTrue(maxQueueSize <= 0, "The maximum queue size has to be greater than 0.");
+        this.executor = checkNotNull(executor);
+        this.worker = checkNotNull(worker);
+        this.ticker = checkNotNull(ticker);
+        this.maxDelay = maxDelay.to(NANOSECONDS);
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * A call submitted to a {@link ThrottlingStrategy}.
+     */
+    interface Attempt {
+
+        /**
+         * Submits the call to the throttling strategy.
+         *
+         * @return a {@link Promise} succeeded with 0 if the call is accepted, otherwise with the delay (in
+         * nanoseconds) to wait for the next accepted call
+         */
+        Promise<Long, NeverThrowsException> attempt();
+    }
+
+    /**
+     * Submits a call to the given strategy, unless calls are already waiting for its partition: it is then queued
+     * behind them. A call that the strategy does not accept is queued, if it can wait for the returned delay.
+     *
+     * @param strategy the throttling strategy to submit the call to
+     * @param partitionKey the partition key of the call
+     * @param throttlingRate the throttling rate to apply to the call
+     * @return a {@link Promise} succeeding with 0 once the call is accepted, or with a value greater than 0 if it is
+     * finally rejected (the delay to wait for the next call that could be accepted)
+     */
+    Promise<Long, NeverThrowsException> submit(final ThrottlingStrategy strategy,
+                                               final String partitionKey,
+                                               final ThrottlingRate throttlingRate) {
+        return submit(partitionKey, attempt(strategy, partitionKey, throttlingRate));
+    }
+
+    /**
+     * Submits a call, unless calls are already waiting for its partition: it is then queued behind them. A call that
+     * is not accepted is queued, if it can wait for the returned delay.
+     *
+     * @param partitionKey the partition key of the call
+     * @param attempt submits the call to the strategy
+     * @return a {@link Promise} succeeding with 0 once the call is accepted, or with a value greater than 0 if it is
+     * finally rejected (the delay to wait for the next call that could be accepted)
+     */
+    Promise<Long, NeverThrowsException> submit(final String partitionKey, final Attempt attempt) {
+        PartitionQueue queue = queues.get(partitionKey);
+        if (queue != null) {
+            Promise<Long, NeverThrowsException> queued = queue.append(attempt, 0L);
+            if (queued != null) {
+                return queued;
+            }
+        }
+        return attempt.attempt().thenAsync(new AsyncFunction<Long, Long, NeverThrowsException>() {
+            @Override
+            public Promise<Long, NeverThrowsException> apply(Long delay) {
+                if (delay <= 0) {
+                    return newResultPromise(delay);
+                }
+                return offer(partitionKey, delay, attempt);
+            }
+        });
+    }
+
+    /**
+     * Queues a call that the given strategy did not accept, if it can wait for the given delay.
+     *
+     * @param strategy the throttling strategy to submit the call to again
+     * @param partitionKey the partition key of the call
+     * @param throttlingRate the throttling rate to apply to the call
+     * @param delay the delay returned by the strategy (greater than 0)
+     * @return a {@link Promise} succeeding with 0 once the call is accepted, or with a value greater than 0 if it is
+     * finally rejected (the delay to wait for the next call that could be accepted)
+     */
+    Promise<Long, NeverThrowsException> offer(final ThrottlingStrategy strategy,
+                                              final String partitionKey,
+                                              final ThrottlingRate throttlingRate,
+                                              long delay) {
+        return offer(partitionKey, delay, attempt(strategy, partitionKey, throttlingRate));
+    }
+
+    /**
+     * Queues a call that was not accepted, if it can wait for the given delay.
+     *
+     * @param partitionKey the partition key of the call
+     * @param delay the delay returned by the strategy (greater than 0)
+     * @param attempt submits the call to the strategy again
+     * @return a {@link Promise} succeeding with 0 once the call is accepted, or with a value greater than 0 if it is
+     * finally rejected (the delay to wait for the next call that could be accepted)
+     */
+    Promise<Long, NeverThrowsException> offer(final String partitionKey, long delay, Attempt attempt) {
+        if (delay > maxDelay) {
+            return newResultPromise(delay);
+        }
+        for (;;) {
+            PartitionQueue queue = queues.get(partitionKey);
+            if (queue == null) {
+                queue = new PartitionQueue(partitionKey);
+                PartitionQueue previous = queues.putIfAbsent(partitionKey, queue);
+                if (previous != null) {
+                    queue = previous;
+                }
+            }
+            Promise<Long, NeverThrowsException> queued = queue.append(attempt, delay);
+            if (queued != null) {
+                return queued;
+            }
+            // That queue has been removed, let's try again with a new one
+        }
+    }
+
+    /**
+     * Returns the number of calls currently waiting.
+     *
+     * @return the number of calls currently waiting
+     */
+    long getWaitingCallCount() {
+        return waitingCalls.sum();
+    }
+
+    private static Attempt attempt(final ThrottlingStrategy strategy,
+                                   final String partitionKey,
+                                   final ThrottlingRate throttlingRate) {
+        return new Attempt() {
+            @Override
+            public Promise<Long, NeverThrowsException> attempt() {
+                return strategy.throttle(partitionKey, throttlingRate);
+            }
+        };
+    }
+
+    /**
+     * A call waiting for the strategy to accept it.
+     */
+    private static final class WaitingCall {
+
+        private final Attempt attempt;
+        private final PromiseImpl<Long, NeverThrowsException> result = PromiseImpl.create();
+
+        /** Time (ticker nanoseconds) after which the call has waited for too long. */
+        private final long deadline;
+
+        WaitingCall(Attempt attempt, long deadline) {
+            this.attempt = attempt;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The calls waiting for a partition, in FIFO order: the call at the head of the queue is submitted again to the
+     * strategy once the last delay it returned has elapsed. All the fields are guarded by this object's lock.
+     */
+    private final class PartitionQueue implements Runnable, ResultHandler<Long> {
+
+        private final String partitionKey;
+        private final Deque<WaitingCall> calls = new ArrayDeque<>();
+
+        /** Time (ticker nanoseconds) when the call at the head of the queue is submitted again. */
+        private long retryTime;
+
+        /** Has this queue been removed from the queues, once empty ? */
+        private boolean removed;
+
+        PartitionQueue(String partitionKey) {
+            this.partitionKey = partitionKey;
+        }
+
+        /**
+         * Appends a call to this queue.
+         *
+         * @param attempt submits the call to the strategy
+         * @param delay the delay returned by the strategy for that call (greater than 0), or 0 to only append the
+         * call if other calls are waiting
+         * @return a {@link Promise} completed once the call is accepted or rejected, or {@code null} if the call has
+         * not been appended (this queue has been removed, or it is empty and no delay was given)
+         */
+        synchronized Promise<Long, NeverThrowsException> append(Attempt attempt, long delay) {
+            if (removed || (delay <= 0 && calls.isEmpty())) {
+                return null;
+            }
+            long now = ticker.read();
+            if (calls.size() >= maxQueueSize) {
+                return newResultPromise(delay > 0 ? delay : Math.max(retryTime - now, 1L));
+            }
+            WaitingCall call = new WaitingCall(attempt, now + maxDelay);
+            calls.add(call);
+            waitingCalls.increment();
+            if (calls.size() == 1) {
+                schedule(now, delay);
+            }
+            return call.result;
+        }
+
+        /**
+         * Submits the call at the head of the queue to the strategy.
+         */
+        @Override
+        public void run() {
+            WaitingCall head;
+            synchronized (this) {
+                head = calls.peek();
+            }
+            head.attempt.attempt().thenOnResult(this);
+        }
+
+        /**
+         * Receives the decision of the strategy for the call at the head of the queue.
+         */
+        @Override
+        public void handleResult(Long delay) {
+            List<WaitingCall> rejected = new ArrayList<>();
+            WaitingCall accepted = null;
+            synchronized (this) {
+                long now = ticker.read();
+                if (delay <= 0) {
+                    accepted = calls.poll();
+                    if (!calls.isEmpty()) {
+                        // Submit the next call right away, the strategy may accept it as well
+                        schedule(now, 0L);
+                    }
+                } else {
+                    // The calls are queued in the order of their deadlines
+                    while (!calls.isEmpty() && calls.peek().deadline < now + delay) {
+                        rejected.add(calls.poll());
+                    }
+                    if (!calls.isEmpty()) {
+                        schedule(now, delay);
+                    }
+                }
+                removeIfEmpty();
+            }
+            if (accepted != null) {
+                complete(accepted, 0L);
+            }
+            for (WaitingCall call : rejected) {
+                complete(call, delay);
+            }
+        }
+
+        private void schedule(long now, long delay) {
+            retryTime = now + delay;
+            try {
+                if (delay <= 0) {
+                    executor.execute(this);
+                } else {
+                    executor.schedule(this, delay, NANOSECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down
+                final List<WaitingCall> rejected = new ArrayList<>(calls);
+                calls.clear();
+                removeIfEmpty();
+                final long retryAfter = Math.max(delay, 1L);
+                for (WaitingCall call : rejected) {
+                    complete(call, retryAfter);
+                }
+            }
+        }
+
+        private void removeIfEmpty() {
+            // Forget the empty queues (a call appended meanwhile creates a new one)
+            if (calls.isEmpty() && !removed) {
+                removed = true;
+                queues.remove(partitionKey, this);
+            }
+        }
+    }
+
+    private void complete(final WaitingCall call, final long delay) {
+        waitingCalls.decrement();
+        try {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    call.result.handleResult(delay);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The worker is shutting down
+            call.result.handleResult(delay);
+        }
+    }
+}
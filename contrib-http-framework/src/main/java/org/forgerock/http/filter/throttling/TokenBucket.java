@@ -12,12 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 package org.forgerock.http.filter.throttling;
 
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Ticker;
 import org.forgerock.util.Reject;
@@ -52,29 +53,42 @@ import org.forgerock.util.Reject;
  * }
  * </pre>
  *
+ * The state of the bucket (the number of tokens and the timestamp of the last refill) is packed into a single
+ * {@code long}, updated with compare-and-set: consuming a token does not allocate anything. The number of tokens takes
+ * the lowest bits (as many as needed for the capacity), the timestamp the other ones; the timestamp is relative to
+ * the creation of the bucket and wraps around, which is harmless as only the time elapsed since the last refill
+ * matters, as long as that time can be represented (the bucket is considered as expired beyond that). The time
+ * resolution is 1 ns, unless the capacity and the duration are so large that their product does not fit (the refill
+ * delay is then rounded up to that coarser resolution).
+ *
  * @see https://en.wikipedia.org/wiki/Token_bucket
  */
-class TokenBucket {
-
-    /**
-     * This value class holds the state of the enclosing TokenBucket.
-     */
-    private static final class State {
-        private final long timestampLastRefill;
-        private final long counter;
-
-        State(long counter, long timestampLastRefill) {
-            this.counter = counter;
-            this.timestampLastRefill = timestampLastRefill;
-        }
-    }
+class TokenBucket implements PartitionedThrottlingStrategy.Partition {
 
     private final Ticker ticker;
     private final ThrottlingRate throttlingRate;
     private final int capacity;
-    private final long duration; // in nanoseconds
-    private final AtomicReference<State> state;
-    private final long nanosToWaitForNextToken;
+
+    /** The state: {@code (timestamp of the last refill << counterBits) | counter}. */
+    private final AtomicLong state;
+
+    /** The timestamps are expressed in units of {@code 1 << resolution} ns since this instant. */
+    private final long origin;
+    private final int resolution;
+    private final int counterBits;
+    private final long counterMask;
+    private final long timestampMask;
+
+    private final long duration; // in time units
+    private final long unitsToWaitForNextToken;
+
+    /**
+     * The last time (in time units) this bucket has been accessed, updated at most every {@link #refreshInterval}:
+     * a bucket not accessed for {@link #staleInterval} is expired, whatever its (possibly wrapped) timestamp says.
+     */
+    private volatile long lastAccess;
+    private final long refreshInterval;
+    private final long staleInterval;
 
     /**
      * Construct a TokenBucket.
@@ -89,9 +103,27 @@ class TokenBucket {
         this.ticker = ticker;
         this.throttlingRate = rate;
         this.capacity = rate.getNumberOfRequests();
-        this.duration = rate.getDuration().to(NANOSECONDS);
-        this.nanosToWaitForNextToken = (long) Math.ceil(duration / (double) capacity);
-        this.state = new AtomicReference<>();
+        long durationNanos = rate.getDuration().to(NANOSECONDS);
+        long nanosToWaitForNextToken = (long) Math.ceil(durationNanos / (double) capacity);
+
+        this.counterBits = 64 - Long.numberOfLeadingZeros(capacity);
+        this.counterMask = (1L << counterBits) - 1;
+        int timestampBits = 64 - counterBits;
+        this.timestampMask = -1L >>> counterBits;
+        // The duration has to be lower than a quarter of the timestamps range (see tryConsume())
+        int shift = 0;
+        while ((durationNanos >> shift) >= 1L << (timestampBits - 2)) {
+            shift++;
+        }
+        this.resolution = shift;
+        this.duration = durationNanos >> shift;
+        this.unitsToWaitForNextToken = Math.max(1L, ((nanosToWaitForNextToken - 1) >> shift) + 1);
+        this.refreshInterval = 1L << (timestampBits - 2);
+        this.staleInterval = 1L << (timestampBits - 1);
+
+        this.origin = ticker.read();
+        // Start with a full, expired bucket
+        this.state = new AtomicLong(pack(capacity, -duration - 1));
     }
 
     /**
@@ -103,35 +135,41 @@ class TokenBucket {
      * nanoseconds, for having an opportunity to consume a token.
      */
     public long tryConsume() {
+        final long now = now();
+        // The timestamp of the last refill is not older than the last access minus the duration: unless the bucket
+        // has not been accessed for long, the time elapsed since the last refill can not exceed the timestamps range
+        final long previousAccess = lastAccess;
+        if (now - previousAccess >= refreshInterval) {
+            lastAccess = now;
+        }
+        final boolean stale = now - previousAccess >= staleInterval;
         do {
-            final long now = ticker.read();
-
-            final State currentState = state.get();
-            final State newState;
-            if (currentState == null || isExpired(now)) {
-                // first time or the bucket is expired
-                // start at full capacity minus the current call.
-                newState = new State(capacity - 1, now);
+            final long currentState = state.get();
+            final long elapsedTime = elapsedTime(now, currentState);
+            final long newState;
+            if (stale || elapsedTime > duration) {
+                // the bucket is expired: start at full capacity minus the current call.
+                newState = pack(capacity - 1, now);
             } else {
-                long timestampLastRefill = currentState.timestampLastRefill;
-                long counter = currentState.counter;
-                long newTokens = tokensThatCanBeAdded(now, currentState);
+                long timestampLastRefill = currentState >>> counterBits;
+                long counter = currentState & counterMask;
+                long newTokens = elapsedTime / unitsToWaitForNextToken;
                 // Refill the bucket as much as possible
                 if (newTokens > 0) {
                     // Take care not to exceed the full capacity
-                    newTokens = Math.min(newTokens, capacity - currentState.counter);
+                    newTokens = Math.min(newTokens, capacity - counter);
                     counter += newTokens;
-                    timestampLastRefill = currentState.timestampLastRefill + newTokens * nanosToWaitForNextToken;
+                    timestampLastRefill += newTokens * unitsToWaitForNextToken;
                 }
 
                 if (counter <= 0) {
                     // We had not any opportunity to refill the bucket so we just give up
-                    long delayForNextRetry = (currentState.timestampLastRefill + this.nanosToWaitForNextToken) - now;
+                    long delayForNextRetry = (unitsToWaitForNextToken - elapsedTime) << resolution;
                     // Return at least 1ns to indicate we did not consume a token
                     return Math.max(1, delayForNextRetry);
                 }
                 counter--;
-                newState = new State(counter, timestampLastRefill);
+                newState = pack(counter, timestampLastRefill);
             }
             if (state.compareAndSet(currentState, newState)) {
                 // We succeeded to consume a token and to update the bucket's state
@@ -141,36 +179,48 @@ class TokenBucket {
         } while (true);
     }
 
-    private long tokensThatCanBeAdded(long now, State state) {
-        final long elapsedTime = Math.min(duration, now - state.timestampLastRefill);
-        return elapsedTime / this.nanosToWaitForNextToken;
+    @Override
+    public long tryAcquire(long now) {
+        // The bucket follows its own ticker
+        return tryConsume();
+    }
+
+    /** Returns the current time, in time units since the creation of this bucket. */
+    private long now() {
+        return (ticker.read() - origin) >> resolution;
+    }
+
+    private long pack(long counter, long timestamp) {
+        return (timestamp << counterBits) | counter;
+    }
+
+    /** Returns the time elapsed since the last refill, in time units (modulo the timestamps range). */
+    private long elapsedTime(long now, long state) {
+        return (now - (state >>> counterBits)) & timestampMask;
     }
 
     long getRemainingTokensCount() {
-        State currentState = state.get();
-        return currentState == null ? capacity : currentState.counter;
+        return state.get() & counterMask;
     }
 
+    @Override
     public ThrottlingRate getThrottlingRate() {
         return throttlingRate;
     }
 
-    private long getTimestampLastRefill() {
-        State currentState = state.get();
-        return currentState.timestampLastRefill;
-    }
-
     /**
      * Returns whether this token bucket is expired or not, meaning that the difference between now and the last refill
      * is greater than the bucket's duration.
      * @return whether this token bucket is expired or not
      */
     public boolean isExpired() {
-        return isExpired(ticker.read());
+        long now = now();
+        return now - lastAccess >= staleInterval || elapsedTime(now, state.get()) > duration;
     }
 
-    private boolean isExpired(long timestamp) {
-        return (timestamp - getTimestampLastRefill()) > duration;
+    @Override
+    public boolean isExpired(long now) {
+        return isExpired();
     }
 
 }
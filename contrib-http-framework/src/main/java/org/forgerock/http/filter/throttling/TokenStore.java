@@ -0,0 +1,102 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * The state shared by several gateway nodes to enforce a throttling rate across all of them: a bucket of tokens per
+ * partition key, filled at the rate to apply (and holding up to its number of requests), from which the nodes lease
+ * batches of tokens that they then spend locally (see {@link LeasedTokenThrottlingStrategy}).
+ * <p>
+ * Implementations are typically backed by a remote store: the returned promises must not block the calling thread,
+ * and must always be completed (an implementation that cannot reach its store decides whether to grant the
+ * requested tokens, or to deny them for a while).
+ */
+public interface TokenStore {
+
+    /**
+     * Takes up to the given number of tokens from the bucket of the given partition key.
+     *
+     * @param partitionKey the partition key
+     * @param throttlingRate the rate applied to the partition key (a bucket created or reset for another rate starts
+     * full)
+     * @param tokens the number of tokens to take
+     * @return a promise succeeded with the lease of the taken tokens
+     */
+    Promise<Lease, NeverThrowsException> lease(String partitionKey, ThrottlingRate throttlingRate, int tokens);
+
+    /**
+     * The tokens taken from a bucket.
+     */
+    final class Lease {
+
+        private final int tokens;
+        private final long delay;
+
+        private Lease(int tokens, long delay) {
+            this.tokens = tokens;
+            this.delay = delay;
+        }
+
+        /**
+         * Returns a lease of the given number of tokens.
+         *
+         * @param tokens the number of tokens taken (must be greater than 0)
+         * @return a lease of the given number of tokens
+         */
+        public static Lease granted(int tokens) {
+            if (tokens <= 0) {
+                throw new IllegalArgumentException("A lease has to grant at least a token");
+            }
+            return new Lease(tokens, 0L);
+        }
+
+        /**
+         * Returns an empty lease, the bucket holding no token before the given delay.
+         *
+         * @param delay the delay, in nanoseconds, before the bucket holds a token again (must be greater than 0)
+         * @return an empty lease
+         */
+        public static Lease denied(long delay) {
+            if (delay <= 0) {
+                throw new IllegalArgumentException("A denied lease has to provide a delay greater than 0");
+            }
+            return new Lease(0, delay);
+        }
+
+        /**
+         * Returns the number of tokens taken (0 if the lease is denied).
+         *
+         * @return the number of tokens taken
+         */
+        public int getTokens() {
+            return tokens;
+        }
+
+        /**
+         * Returns the delay, in nanoseconds, before the bucket holds a token again (0 if the lease is granted).
+         *
+         * @return the delay before the bucket holds a token again
+         */
+        public long getDelay() {
+            return delay;
+        }
+    }
+}
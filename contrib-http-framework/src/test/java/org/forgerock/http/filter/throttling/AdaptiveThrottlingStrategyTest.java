@@ -0,0 +1,197 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertAccepted;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertRejected;
+import static org.forgerock.util.time.Duration.duration;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.http.filter.throttling.LatencyAwareThrottlingStrategy.Permit;
+import org.forgerock.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class AdaptiveThrottlingStrategyTest {
+
+    private static final ThrottlingRate MAX_100 = new ThrottlingRate(100, duration(1, SECONDS));
+    private static final String FOO = "foo";
+
+    private static final Duration CLEANING_INTERVAL = Duration.duration("5 seconds");
+    private static final long FAST = MILLISECONDS.toNanos(10);
+    private static final long SLOW = MILLISECONDS.toNanos(100);
+
+    AdaptiveThrottlingStrategy strategy;
+    PartitionStore<AdaptiveThrottlingStrategy.Limiter> partitions;
+    FakeTicker ticker;
+    Deque<Permit> inFlight;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void beforeMethod() {
+        ticker = new FakeTicker();
+        inFlight = new ArrayDeque<>();
+        ScheduledExecutorService scheduledExecutor = mock(ScheduledExecutorService.class);
+        when(scheduledExecutor.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mock(ScheduledFuture.class));
+
+        partitions = new PartitionStore<>(Integer.MAX_VALUE);
+        strategy = new AdaptiveThrottlingStrategy(ticker, partitions, scheduledExecutor, CLEANING_INTERVAL);
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        strategy.stop();
+    }
+
+    @Test
+    public void shouldLimitTheConcurrentCalls() throws Exception {
+        for (int i = 0; i < AdaptiveThrottlingStrategy.Limiter.INITIAL_LIMIT; i++) {
+            inFlight.add(acquire(MAX_100));
+        }
+        assertRejected(strategy.acquire(FOO, MAX_100).get().getDelay());
+
+        inFlight.remove().release(FAST, false);
+        assertAccepted(strategy.acquire(FOO, MAX_100).get().getDelay());
+        assertRejected(strategy.acquire(FOO, MAX_100).get().getDelay());
+    }
+
+    @Test
+    public void shouldNotAccountForTheThrottledCalls() throws Exception {
+        for (int i = 0; i < 2 * AdaptiveThrottlingStrategy.Limiter.INITIAL_LIMIT; i++) {
+            assertAccepted(strategy.throttle(FOO, MAX_100).get());
+        }
+    }
+
+    @Test
+    public void shouldReleaseACallOnce() throws Exception {
+        Permit permit = acquire(MAX_100);
+        for (int i = 1; i < AdaptiveThrottlingStrategy.Limiter.INITIAL_LIMIT; i++) {
+            acquire(MAX_100);
+        }
+        permit.release(FAST, false);
+        permit.release(FAST, false);
+
+        assertAccepted(strategy.acquire(FOO, MAX_100).get().getDelay());
+        assertRejected(strategy.acquire(FOO, MAX_100).get().getDelay());
+    }
+
+    @Test
+    public void shouldReleaseACallToTheLimiterThatAcceptedIt() throws Exception {
+        Permit permit = acquire(MAX_100);
+        AdaptiveThrottlingStrategy.Limiter previous = partitions.get(FOO);
+        ThrottlingRate max1 = new ThrottlingRate(1, duration(1, SECONDS));
+        acquire(max1);
+
+        permit.release(FAST, false);
+        assertRejected(strategy.acquire(FOO, max1).get().getDelay());
+        assertThat(previous.isExpired(ticker.read() + SECONDS.toNanos(1))).isTrue();
+    }
+
+    @Test
+    public void shouldNotExceedTheMaximumLimit() throws Exception {
+        ThrottlingRate max5 = new ThrottlingRate(5, duration(1, SECONDS));
+        saturate(max5, FAST, 1_000);
+
+        assertThat(limit()).isEqualTo(5.0);
+    }
+
+    @Test
+    public void shouldIncreaseTheLimitWhileTheLatencyIsStable() throws Exception {
+        saturate(MAX_100, FAST, 1_000);
+
+        assertThat(limit()).isEqualTo(100.0);
+    }
+
+    @Test
+    public void shouldDecreaseTheLimitWhenTheLatencyInflates() throws Exception {
+        saturate(MAX_100, FAST, 1_000);
+        saturate(MAX_100, SLOW, 100);
+
+        assertThat(limit()).isLessThan(20.0);
+    }
+
+    @Test
+    public void shouldBackOffWhenTheBackendIsOverloaded() throws Exception {
+        acquire(MAX_100).release(FAST, true);
+
+        assertThat(limit()).isEqualTo(AdaptiveThrottlingStrategy.Limiter.INITIAL_LIMIT * 0.9);
+    }
+
+    @Test
+    public void shouldNotIncreaseTheLimitOfAnUnderusedPartition() throws Exception {
+        for (int i = 0; i < 1_000; i++) {
+            acquire(MAX_100).release(FAST, false);
+        }
+
+        assertThat(limit()).isEqualTo((double) AdaptiveThrottlingStrategy.Limiter.INITIAL_LIMIT);
+    }
+
+    @Test
+    public void shouldExpireTheIdlePartitionsWithoutCallsInFlight() throws Exception {
+        Permit permit = acquire(MAX_100);
+        ticker.advance(2, SECONDS);
+        assertThat(partitions.get(FOO).isExpired(ticker.read())).isFalse();
+
+        permit.release(FAST, false);
+        assertThat(partitions.get(FOO).isExpired(ticker.read())).isTrue();
+    }
+
+    private Permit acquire(ThrottlingRate rate) throws Exception {
+        Permit permit = strategy.acquire(FOO, rate).get();
+        assertAccepted(permit.getDelay());
+        return permit;
+    }
+
+    /**
+     * Keeps as many calls in flight as the limit allows, completing the given number of them with the given latency.
+     */
+    private void saturate(ThrottlingRate rate, long latency, int calls) throws Exception {
+        fill(rate);
+        for (int i = 0; i < calls; i++) {
+            inFlight.remove().release(latency, false);
+            fill(rate);
+        }
+    }
+
+    private void fill(ThrottlingRate rate) throws Exception {
+        for (Permit permit = strategy.acquire(FOO, rate).get();
+             permit.getDelay() == 0;
+             permit = strategy.acquire(FOO, rate).get()) {
+            inFlight.add(permit);
+        }
+    }
+
+    private double limit() {
+        return partitions.get(FOO).getLimit();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertAccepted;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertRejected;
+import static org.forgerock.util.time.Duration.UNLIMITED;
+import static org.forgerock.util.time.Duration.ZERO;
+import static org.forgerock.util.time.Duration.duration;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.time.Duration;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class GcraThrottlingStrategyTest {
+
+    private static final ThrottlingRate THROTTLING_RATE_5_PER_SEC = new ThrottlingRate(5, duration(1, SECONDS));
+    private static final String FOO = "foo";
+    private static final String BAR = "bar";
+
+    private static final Duration CLEANING_INTERVAL = Duration.duration("5 seconds");
+
+    GcraThrottlingStrategy strategy;
+    PartitionStore<GcraThrottlingStrategy.Cell> partitions;
+    ScheduledExecutorService scheduledExecutor;
+    FakeTicker ticker;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void beforeMethod() {
+        ticker = new FakeTicker();
+        scheduledExecutor = mock(ScheduledExecutorService.class);
+        when(scheduledExecutor.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mock(ScheduledFuture.class));
+
+        partitions = new PartitionStore<>(Integer.MAX_VALUE);
+        strategy = new GcraThrottlingStrategy(ticker, partitions, scheduledExecutor, CLEANING_INTERVAL);
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        strategy.stop();
+    }
+
+    @DataProvider
+    public static Object[][] incorrectCleaningIntervals() {
+        //@Checkstyle:off
+        return new Object[][]{
+                { ZERO },
+                { UNLIMITED },
+                { duration(25, TimeUnit.HOURS) },
+                };
+        //@Checkstyle:on
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "incorrectCleaningIntervals")
+    public void shouldRefuseIncorrectCleaningInterval(Duration cleaningInterval) throws Exception {
+        new GcraThrottlingStrategy(Ticker.systemTicker(), newSingleThreadScheduledExecutor(), cleaningInterval);
+    }
+
+    @Test
+    public void shouldIsolateThePartitions() throws Exception {
+        ThrottlingRate throttlingRate = new ThrottlingRate(1, duration("3 seconds"));
+
+        assertAccepted(strategy.throttle("bar-00", throttlingRate).get());
+        assertRejected(strategy.throttle("bar-00", throttlingRate).get());
+        assertAccepted(strategy.throttle("bar-01", throttlingRate).get());
+    }
+
+    @Test
+    public void shouldStartOverWhenAnotherRateIsSpecified() throws Exception {
+        assertAccepted(strategy.throttle(FOO, new ThrottlingRate(1, duration("3 seconds"))).get());
+        assertAccepted(strategy.throttle(FOO, new ThrottlingRate(1, duration("10 seconds"))).get());
+
+        ticker.advance(3, SECONDS);
+        assertRejected(strategy.throttle(FOO, new ThrottlingRate(1, duration("10 seconds"))).get());
+    }
+
+    @Test
+    public void shouldSpaceTheCallsEvenlyAfterABurst() throws Exception {
+        // The whole burst tolerance is available after an inactivity
+        for (int i = 0; i < 5; i++) {
+            assertAccepted(strategy.throttle(FOO, THROTTLING_RATE_5_PER_SEC).get());
+        }
+        assertThat(strategy.throttle(FOO, THROTTLING_RATE_5_PER_SEC).get()).isEqualTo(200_000_000);
+
+        // Then only one call per emission interval (200 ms) goes through
+        for (int i = 0; i < 5; i++) {
+            ticker.advance(200, MILLISECONDS);
+            assertAccepted(strategy.throttle(FOO, THROTTLING_RATE_5_PER_SEC).get());
+            assertRejected(strategy.throttle(FOO, THROTTLING_RATE_5_PER_SEC).get());
+        }
+    }
+
+    @Test
+    public void shouldReturnTheDelayToWaitForTheNextAcceptedTry() throws Exception {
+        ThrottlingRate throttlingRate = new ThrottlingRate(1, duration(1, SECONDS));
+        assertThat(strategy.throttle(FOO, throttlingRate).get()).isEqualTo(0);
+        assertThat(strategy.throttle(FOO, throttlingRate).get()).isEqualTo(1_000_000_000);
+
+        ticker.advance(50, MILLISECONDS);
+        long delay = strategy.throttle(FOO, throttlingRate).get();
+        assertThat(delay).isEqualTo(950_000_000);
+
+        ticker.advance(delay, TimeUnit.NANOSECONDS);
+        assertThat(strategy.throttle(FOO, throttlingRate).get()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCleanTheExpiredPartitions() throws Exception {
+        ArgumentCaptor<Runnable> cleaningTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutor).scheduleWithFixedDelay(cleaningTask.capture(), anyLong(), anyLong(),
+                                                         any(TimeUnit.class));
+
+        strategy.throttle(FOO, THROTTLING_RATE_5_PER_SEC).get();
+        ticker.advance(500, MILLISECONDS);
+        strategy.throttle(BAR, THROTTLING_RATE_5_PER_SEC).get();
+        strategy.throttle(BAR, THROTTLING_RATE_5_PER_SEC).get();
+
+        ticker.advance(100, MILLISECONDS);
+        cleaningTask.getValue().run();
+        assertThat(partitions.size()).isEqualTo(1);
+        assertThat(partitions.get(BAR)).isNotNull();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class HeavyHittersTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectANonPositiveCapacity() throws Exception {
+        new HeavyHitters(0);
+    }
+
+    @Test
+    public void shouldCountTheKeys() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(3);
+        add(heavyHitters, "alice", 5);
+        add(heavyHitters, "bob", 2);
+
+        assertThat(heavyHitters.estimate("alice")).isEqualTo(5L);
+        assertThat(heavyHitters.estimate("bob")).isEqualTo(2L);
+        assertThat(heavyHitters.estimate("carol")).isEqualTo(0L);
+        assertThat(heavyHitters.getTotalCount()).isEqualTo(7L);
+    }
+
+    @Test
+    public void shouldKeepTheHeaviestHittersInDescendingOrder() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(3);
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.add("client-" + i);
+        }
+        add(heavyHitters, "carol", 20);
+        add(heavyHitters, "alice", 100);
+        add(heavyHitters, "bob", 50);
+
+        Map<String, Long> top = heavyHitters.getTop();
+        assertThat(top.keySet()).containsExactly("alice", "bob", "carol");
+        assertThat(top.get("alice")).isGreaterThanOrEqualTo(100L);
+    }
+
+    @Test
+    public void shouldReplaceAHitterOnceAnotherKeyExceedsIt() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(1);
+        add(heavyHitters, "alice", 3);
+        add(heavyHitters, "bob", 3);
+        assertThat(heavyHitters.getTop()).containsOnlyKeys("alice");
+
+        heavyHitters.add("bob");
+        assertThat(heavyHitters.getTop()).containsOnlyKeys("bob");
+    }
+
+    @Test
+    public void shouldHalveTheCountsWhenDecaying() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(2);
+        add(heavyHitters, "alice", 8);
+        heavyHitters.add("bob");
+
+        heavyHitters.decay();
+
+        assertThat(heavyHitters.estimate("alice")).isEqualTo(4L);
+        assertThat(heavyHitters.getTotalCount()).isEqualTo(4L);
+        assertThat(heavyHitters.getTop()).containsOnlyKeys("alice");
+
+        // bob has been forgotten, and its count can grow again
+        heavyHitters.add("bob");
+        assertThat(heavyHitters.getTop()).containsOnlyKeys("alice", "bob");
+    }
+
+    @Test
+    public void shouldNotMixUpTheKeysWithTheSameHashCode() throws Exception {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        HeavyHitters heavyHitters = new HeavyHitters(2);
+        add(heavyHitters, "Aa", 10);
+
+        assertThat(heavyHitters.estimate("BB")).isEqualTo(0L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectANonPositiveSampling() throws Exception {
+        new HeavyHitters(1, 0);
+    }
+
+    @Test
+    public void shouldWeightTheSampledOccurrences() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(1, 16);
+        add(heavyHitters, "alice", 16_000);
+
+        // About 1000 occurrences are counted, the standard deviation being about 500
+        assertThat(heavyHitters.estimate("alice")).isGreaterThan(12_000L).isLessThan(20_000L);
+        assertThat(heavyHitters.getTotalCount() % 16).isEqualTo(0L);
+        assertThat(heavyHitters.getTop()).containsOnlyKeys("alice");
+    }
+
+    private static void add(final HeavyHitters heavyHitters, final String key, final int times) {
+        for (int i = 0; i < times; i++) {
+            heavyHitters.add(key);
+        }
+    }
+}
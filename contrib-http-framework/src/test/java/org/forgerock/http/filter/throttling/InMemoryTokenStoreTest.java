@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.util.time.Duration.duration;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class InMemoryTokenStoreTest {
+
+    private static final ThrottlingRate THROTTLING_RATE_4_PER_SEC = new ThrottlingRate(4, duration(1, SECONDS));
+    private static final String FOO = "foo";
+
+    private FakeTicker ticker;
+    private InMemoryTokenStore store;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        ticker = new FakeTicker();
+        store = new InMemoryTokenStore(ticker);
+    }
+
+    @Test
+    public void shouldGrantTheAvailableTokensOnly() throws Exception {
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 3).get().getTokens()).isEqualTo(3);
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 3).get().getTokens()).isEqualTo(1);
+
+        TokenStore.Lease lease = store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 3).get();
+        assertThat(lease.getTokens()).isEqualTo(0);
+        assertThat(lease.getDelay()).isEqualTo(MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void shouldRefillTheBucketsAtTheRate() throws Exception {
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 4).get().getTokens()).isEqualTo(4);
+
+        ticker.advance(600, MILLISECONDS);
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 4).get().getTokens()).isEqualTo(2);
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 4).get().getDelay())
+                .isEqualTo(MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    public void shouldStartOverWhenAnotherRateIsSpecified() throws Exception {
+        assertThat(store.lease(FOO, THROTTLING_RATE_4_PER_SEC, 4).get().getTokens()).isEqualTo(4);
+
+        ThrottlingRate otherRate = new ThrottlingRate(2, duration(1, SECONDS));
+        assertThat(store.lease(FOO, otherRate, 4).get().getTokens()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetTheFullBuckets() throws Exception {
+        store = new InMemoryTokenStore(ticker, new PartitionStore<InMemoryTokenStore.Bucket>(10_000, 1));
+        for (int i = 0; i < 1000; i++) {
+            store.lease("key-" + i, THROTTLING_RATE_4_PER_SEC, 1);
+        }
+        assertThat(store.getBucketCount()).isEqualTo(1000);
+
+        // The full buckets are forgotten a few at a time while new ones are created
+        ticker.advance(1, SECONDS);
+        for (int i = 0; i < 250; i++) {
+            store.lease("other-key-" + i, THROTTLING_RATE_4_PER_SEC, 1);
+        }
+        assertThat(store.getBucketCount()).isEqualTo(250);
+    }
+
+    @Test
+    public void shouldBoundTheBuckets() throws Exception {
+        store = new InMemoryTokenStore(ticker, 100);
+        for (int i = 0; i < 1000; i++) {
+            store.lease("key-" + i, THROTTLING_RATE_4_PER_SEC, 1);
+        }
+        assertThat(store.getBucketCount()).isLessThanOrEqualTo(100);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertAccepted;
+import static org.forgerock.http.filter.throttling.ThrottlingAssertions.assertRejected;
+import static org.forgerock.util.time.Duration.duration;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.time.Duration;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class LeasedTokenThrottlingStrategyTest {
+
+    private static final ThrottlingRate THROTTLING_RATE_4_PER_SEC = new ThrottlingRate(4, duration(1, SECONDS));
+    private static final String FOO = "foo";
+
+    private static final Duration CLEANING_INTERVAL = Duration.duration("5 seconds");
+    private static final Duration LEASE_TIMEOUT = Duration.duration("1 second");
+
+    ScheduledExecutorService scheduledExecutor;
+    FakeTicker ticker;
+    CountingTokenStore store;
+    List<LeasedTokenThrottlingStrategy> strategies = new ArrayList<>();
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void beforeMethod() {
+        ticker = new FakeTicker();
+        scheduledExecutor = mock(ScheduledExecutorService.class);
+        when(scheduledExecutor.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mock(ScheduledFuture.class));
+        when(scheduledExecutor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mock(ScheduledFuture.class));
+        store = new CountingTokenStore(new InMemoryTokenStore(ticker));
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        for (LeasedTokenThrottlingStrategy strategy : strategies) {
+            strategy.stop();
+        }
+        strategies.clear();
+    }
+
+    private LeasedTokenThrottlingStrategy newStrategy(TokenStore tokenStore, int batchSize) {
+        LeasedTokenThrottlingStrategy strategy =
+                new LeasedTokenThrottlingStrategy(ticker,
+                                                  tokenStore,
+                                                  batchSize,
+                                                  LEASE_TIMEOUT,
+                                                  new PartitionStore<LeasedTokenThrottlingStrategy.LeasedTokens>(10),
+                                                  scheduledExecutor,
+                                                  CLEANING_INTERVAL);
+        strategies.add(strategy);
+        return strategy;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRefuseANonPositiveBatchSize() throws Exception {
+        newStrategy(store, 0);
+    }
+
+    @Test
+    public void shouldShareTheRateBetweenTheNodes() throws Exception {
+        LeasedTokenThrottlingStrategy node1 = newStrategy(store, 2);
+        LeasedTokenThrottlingStrategy node2 = newStrategy(store, 2);
+
+        // The first node leases a batch, then the next one in the background: the shared bucket is empty
+        assertAccepted(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertAccepted(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertThat(node2.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get()).isEqualTo(MILLISECONDS.toNanos(250));
+
+        assertAccepted(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertAccepted(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertRejected(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+
+        // A token is back in the shared bucket after the emission interval
+        ticker.advance(250, MILLISECONDS);
+        assertAccepted(node2.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertRejected(node1.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+    }
+
+    @Test
+    public void shouldLeaseTheNextBatchOnceHalfOfTheCurrentOneIsSpent() throws Exception {
+        LeasedTokenThrottlingStrategy strategy = newStrategy(store, 10);
+        ThrottlingRate throttlingRate = new ThrottlingRate(100, duration(1, SECONDS));
+
+        for (int i = 0; i < 5; i++) {
+            assertAccepted(strategy.throttle(FOO, throttlingRate).get());
+        }
+        assertThat(store.leases).isEqualTo(1);
+
+        for (int i = 0; i < 5; i++) {
+            assertAccepted(strategy.throttle(FOO, throttlingRate).get());
+        }
+        assertThat(store.leases).isEqualTo(2);
+        assertThat(strategy.getPartition(FOO).getTokens()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldWaitForThePendingLease() throws Exception {
+        PendingTokenStore pendingStore = new PendingTokenStore();
+        LeasedTokenThrottlingStrategy strategy = newStrategy(pendingStore, 2);
+
+        Promise<Long, NeverThrowsException> first = strategy.throttle(FOO, THROTTLING_RATE_4_PER_SEC);
+        Promise<Long, NeverThrowsException> second = strategy.throttle(FOO, THROTTLING_RATE_4_PER_SEC);
+        assertThat(first.isDone()).isFalse();
+        assertThat(second.isDone()).isFalse();
+        assertThat(pendingStore.leases).hasSize(1);
+
+        pendingStore.leases.get(0).handleResult(TokenStore.Lease.granted(2));
+        assertAccepted(first.get());
+        assertAccepted(second.get());
+    }
+
+    @Test
+    public void shouldGrantALocalBatchWhenTheLeaseTimesOut() throws Exception {
+        PendingTokenStore pendingStore = new PendingTokenStore();
+        LeasedTokenThrottlingStrategy strategy = newStrategy(pendingStore, 2);
+
+        Promise<Long, NeverThrowsException> first = strategy.throttle(FOO, THROTTLING_RATE_4_PER_SEC);
+        assertThat(first.isDone()).isFalse();
+
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutor).schedule(timeout.capture(), eq(LEASE_TIMEOUT.to(NANOSECONDS)), eq(NANOSECONDS));
+        timeout.getValue().run();
+        assertAccepted(first.get());
+        assertThat(strategy.getPartition(FOO).getTokens()).isEqualTo(1);
+
+        // The late answer of the store is ignored, and the partition can expire
+        pendingStore.leases.get(0).handleResult(TokenStore.Lease.granted(2));
+        assertThat(strategy.getPartition(FOO).getTokens()).isEqualTo(1);
+        ticker.advance(1, SECONDS);
+        assertThat(strategy.getPartition(FOO).isExpired(ticker.read())).isTrue();
+    }
+
+    @Test
+    public void shouldRejectWithoutLeasingAgainUntilTheStoreHoldsATokenAgain() throws Exception {
+        LeasedTokenThrottlingStrategy strategy = newStrategy(store, 1);
+        ThrottlingRate throttlingRate = new ThrottlingRate(1, duration(1, SECONDS));
+
+        assertAccepted(strategy.throttle(FOO, throttlingRate).get());
+        assertThat(strategy.throttle(FOO, throttlingRate).get()).isEqualTo(SECONDS.toNanos(1));
+        ticker.advance(400, MILLISECONDS);
+        assertThat(strategy.throttle(FOO, throttlingRate).get()).isEqualTo(MILLISECONDS.toNanos(600));
+        assertThat(store.leases).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetTheTokensOnceTheLeaseIsOver() throws Exception {
+        LeasedTokenThrottlingStrategy strategy = newStrategy(store, 4);
+
+        assertAccepted(strategy.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertThat(strategy.getPartition(FOO).getTokens()).isEqualTo(3);
+
+        ticker.advance(1, SECONDS);
+        assertAccepted(strategy.throttle(FOO, THROTTLING_RATE_4_PER_SEC).get());
+        assertThat(store.leases).isEqualTo(2);
+        assertThat(strategy.getPartition(FOO).getTokens()).isEqualTo(3);
+    }
+
+    private static final class CountingTokenStore implements TokenStore {
+        private final TokenStore delegate;
+        private int leases;
+
+        CountingTokenStore(TokenStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Promise<Lease, NeverThrowsException> lease(String partitionKey, ThrottlingRate rate, int tokens) {
+            leases++;
+            return delegate.lease(partitionKey, rate, tokens);
+        }
+    }
+
+    private static final class PendingTokenStore implements TokenStore {
+        private final List<PromiseImpl<Lease, NeverThrowsException>> leases = new ArrayList<>();
+
+        @Override
+        public Promise<Lease, NeverThrowsException> lease(String partitionKey, ThrottlingRate rate, int tokens) {
+            PromiseImpl<Lease, NeverThrowsException> lease = PromiseImpl.create();
+            leases.add(lease);
+            return lease;
+        }
+    }
+}
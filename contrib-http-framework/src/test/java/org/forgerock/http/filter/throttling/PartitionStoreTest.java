@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.util.time.Duration.duration;
+
+import org.forgerock.http.filter.throttling.PartitionStore.PartitionFactory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PartitionStoreTest {
+
+    private static final ThrottlingRate RATE = new ThrottlingRate(1, duration(1, SECONDS));
+    private static final ThrottlingRate OTHER_RATE = new ThrottlingRate(2, duration(1, SECONDS));
+
+    private static final PartitionFactory<FakePartition> FACTORY = new PartitionFactory<FakePartition>() {
+        @Override
+        public FakePartition newPartition(ThrottlingRate rate, long now) {
+            return new FakePartition(rate);
+        }
+    };
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedPartition() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(2, 1);
+        store.select("a", RATE, 0L, FACTORY);
+        store.select("b", RATE, 0L, FACTORY);
+        store.select("a", RATE, 0L, FACTORY);
+        store.select("c", RATE, 0L, FACTORY);
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get("a")).isNotNull();
+        assertThat(store.get("b")).isNull();
+        assertThat(store.get("c")).isNotNull();
+        assertThat(store.getEvictionCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldRemoveTheExpiredPartitionsRatherThanEvicting() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(2, 1);
+        store.select("a", RATE, 0L, FACTORY).expired = true;
+        store.select("b", RATE, 0L, FACTORY);
+        store.select("c", RATE, 0L, FACTORY);
+
+        assertThat(store.get("a")).isNull();
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.getEvictionCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldExpireFromTheLeastRecentlyUsedPartitions() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(10, 1);
+        store.select("a", RATE, 0L, FACTORY);
+        store.select("b", RATE, 0L, FACTORY);
+        store.select("c", RATE, 0L, FACTORY);
+        store.get("a").expired = true;
+        store.get("c").expired = true;
+        store.select("a", RATE, 0L, FACTORY);
+
+        // a is used again (second chance), the next partition is b, still in use: nothing is scanned after it
+        assertThat(store.expire(0L)).isEqualTo(0);
+        assertThat(store.size()).isEqualTo(3);
+
+        store.get("b").expired = true;
+        assertThat(store.expire(0L)).isEqualTo(3);
+        assertThat(store.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotEvictThePartitionBeingInserted() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(2, 1);
+        store.select("a", RATE, 0L, FACTORY);
+        store.select("b", RATE, 0L, FACTORY);
+        store.select("a", RATE, 0L, FACTORY);
+        store.select("b", RATE, 0L, FACTORY);
+
+        FakePartition partition = store.select("c", RATE, 0L, FACTORY);
+        assertThat(store.get("c")).isSameAs(partition);
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReplaceThePartitionWhenTheRateChanges() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(10, 1);
+        FakePartition partition = store.select("a", RATE, 0L, FACTORY);
+
+        assertThat(store.select("a", RATE, 0L, FACTORY)).isSameAs(partition);
+        assertThat(store.select("a", OTHER_RATE, 0L, FACTORY).getThrottlingRate()).isEqualTo(OTHER_RATE);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotExceedTheMaximumSizeWithManyShards() throws Exception {
+        PartitionStore<FakePartition> store = new PartitionStore<>(100, 16);
+        for (int i = 0; i < 10_000; i++) {
+            store.select("key-" + i, RATE, 0L, FACTORY);
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(100);
+        assertThat(store.getEvictionCount()).isEqualTo(10_000L - store.size());
+    }
+
+    private static final class FakePartition implements PartitionedThrottlingStrategy.Partition {
+
+        private final ThrottlingRate rate;
+        private boolean expired;
+
+        FakePartition(ThrottlingRate rate) {
+            this.rate = rate;
+        }
+
+        @Override
+        public ThrottlingRate getThrottlingRate() {
+            return rate;
+        }
+
+        @Override
+        public long tryAcquire(long now) {
+            return 0L;
+        }
+
+        @Override
+        public boolean isExpired(long now) {
+            return expired;
+        }
+    }
+}
@@ -12,15 +12,22 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 package org.forgerock.http.filter.throttling;
 
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.forgerock.http.protocol.Response.newResponsePromise;
 import static org.forgerock.http.protocol.Responses.newInternalServerError;
+import static org.forgerock.util.promise.Promises.newExceptionPromise;
 import static org.forgerock.util.promise.Promises.newResultPromise;
 import static org.forgerock.util.time.Duration.duration;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -30,10 +37,14 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
+import com.google.common.base.Ticker;
 import org.forgerock.http.ContextAndRequest;
 import org.forgerock.http.Handler;
 import org.forgerock.http.filter.ResponseHandler;
+import org.forgerock.http.filter.throttling.LatencyAwareThrottlingStrategy.Permit;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Status;
@@ -130,6 +141,69 @@ public class ThrottlingFilterTest {
         assertThat(response.getStatus()).isEqualTo(Status.TOO_MANY_REQUESTS);
     }
 
+    @Test
+    public void shouldTrackTheHeavyHitters() throws Exception {
+        // Given
+        ThrottlingStrategy throttlingStrategy = mock(ThrottlingStrategy.class);
+        when(throttlingStrategy.throttle(eq("foo"), any(ThrottlingRate.class)))
+                .thenReturn(Promises.<Long, NeverThrowsException>newResultPromise(1L));
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"),
+                                      throttlingRatePolicy(1, duration("3 seconds")),
+                                      throttlingStrategy);
+        filter.setHeavyHitterTracking(10, 1);
+
+        // When
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+
+        // Then
+        assertThat(filter.getThrottledHeavyHitters().getTop()).containsOnly(entry("foo", 2L));
+        assertThat(filter.getAllowedHeavyHitters().getTop()).isEmpty();
+    }
+
+    @Test
+    public void shouldOnlyLookTheRateUpOnACacheMiss() throws Exception {
+        // Given
+        ThrottlingStrategy throttlingStrategy = mock(ThrottlingStrategy.class);
+        when(throttlingStrategy.throttle(anyString(), any(ThrottlingRate.class)))
+                .thenReturn(Promises.<Long, NeverThrowsException>newResultPromise(0L));
+        CountingThrottlingPolicy throttlingRatePolicy = new CountingThrottlingPolicy();
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"), throttlingRatePolicy, throttlingStrategy);
+        FakeTicker ticker = new FakeTicker();
+        filter.setRateCaching(ticker, duration("1 minute"), 10);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThat(filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get()
+                             .getStatus()).isEqualTo(Status.OK);
+        }
+        assertThat(throttlingRatePolicy.lookups).isEqualTo(1);
+
+        // Then
+        ticker.advance(1, MINUTES);
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+        assertThat(throttlingRatePolicy.lookups).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCacheTheRateLookupFailures() throws Exception {
+        // Given
+        CountingThrottlingPolicy throttlingRatePolicy = new CountingThrottlingPolicy();
+        throttlingRatePolicy.failure = new Exception("Boom");
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"),
+                                      throttlingRatePolicy,
+                                      mock(ThrottlingStrategy.class));
+        filter.setRateCaching(new FakeTicker(), duration("1 minute"), 10);
+
+        // When
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+        Response response = filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(Status.INTERNAL_SERVER_ERROR);
+        assertThat(throttlingRatePolicy.lookups).isEqualTo(2);
+    }
+
     @Test
     public void shouldSetTheResponseHeaderRetryAfterWhenTooManyRequests() throws Exception {
         ThrottlingStrategy throttlingStrategy = mock(ThrottlingStrategy.class);
@@ -145,6 +219,66 @@ public class ThrottlingFilterTest {
         assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
     }
 
+    @Test
+    public void shouldReleaseThePermitOfALatencyAwareStrategy() throws Exception {
+        LatencyAwareThrottlingStrategy throttlingStrategy = mock(LatencyAwareThrottlingStrategy.class);
+        Permit ok = mock(Permit.class);
+        Permit unavailable = mock(Permit.class);
+        when(throttlingStrategy.acquire(eq("foo"), any(ThrottlingRate.class)))
+                .thenReturn(Promises.<Permit, NeverThrowsException>newResultPromise(ok),
+                            Promises.<Permit, NeverThrowsException>newResultPromise(unavailable));
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"),
+                                      throttlingRatePolicy(1, duration("3 seconds")),
+                                      throttlingStrategy);
+
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+        verify(ok).release(anyLong(), eq(false));
+
+        filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.SERVICE_UNAVAILABLE)).get();
+        verify(unavailable).release(anyLong(), eq(true));
+    }
+
+    @Test
+    public void shouldReleaseThePermitWhenTheNextHandlerThrows() throws Exception {
+        LatencyAwareThrottlingStrategy throttlingStrategy = mock(LatencyAwareThrottlingStrategy.class);
+        Permit permit = mock(Permit.class);
+        when(throttlingStrategy.acquire(eq("foo"), any(ThrottlingRate.class)))
+                .thenReturn(Promises.<Permit, NeverThrowsException>newResultPromise(permit));
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"),
+                                      throttlingRatePolicy(1, duration("3 seconds")),
+                                      throttlingStrategy);
+        Handler next = mock(Handler.class);
+        when(next.handle(any(Context.class), any(Request.class))).thenThrow(new IllegalStateException());
+
+        filter.filter(new RootContext(), new Request(), next);
+        verify(permit).release(anyLong(), eq(true));
+    }
+
+    @Test
+    public void shouldDelayTheRequestWhenQueueing() throws Exception {
+        ThrottlingStrategy throttlingStrategy = mock(ThrottlingStrategy.class);
+        when(throttlingStrategy.throttle(eq("foo"), any(ThrottlingRate.class)))
+                .thenReturn(Promises.<Long, NeverThrowsException>newResultPromise(1_000_000L),
+                            Promises.<Long, NeverThrowsException>newResultPromise(0L));
+        filter = new ThrottlingFilter(new StringRequestAsyncFunction("foo"),
+                                      throttlingRatePolicy(1, duration("3 seconds")),
+                                      throttlingStrategy);
+        ScheduledExecutorService executor = newSingleThreadScheduledExecutor();
+        ExecutorService worker = newSingleThreadExecutor();
+        try {
+            filter.setQueueing(executor, worker, Ticker.systemTicker(), duration("1 second"), 10);
+
+            Response response = filter.filter(new RootContext(), new Request(), new ResponseHandler(Status.OK)).get();
+
+            assertThat(response.getStatus()).isEqualTo(Status.OK);
+            assertThat(filter.getAllowedRequestCount()).isEqualTo(1L);
+            assertThat(filter.getQueuedRequestCount()).isEqualTo(0L);
+        } finally {
+            executor.shutdownNow();
+            worker.shutdownNow();
+        }
+    }
+
     /**
      * A first request comes in : while it takes some time to process it, another request is coming in and thus has to
      * be processed concurrently. But since the first request consumed the single token from the bucket, the second
@@ -238,6 +372,21 @@ public class ThrottlingFilterTest {
         }
     }
 
+    private static class CountingThrottlingPolicy implements ThrottlingPolicy {
+
+        private int lookups;
+        private Exception failure;
+
+        @Override
+        public Promise<ThrottlingRate, Exception> lookup(Context context, Request request) {
+            lookups++;
+            if (failure != null) {
+                return newExceptionPromise(failure);
+            }
+            return newResultPromise(new ThrottlingRate(1, duration("1 second")));
+        }
+    }
+
     private ThrottlingPolicy throttlingRatePolicy(final int numberOfRequests, final Duration duration) {
         return new ThrottlingPolicy() {
             @Override
@@ -0,0 +1,223 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+import static org.forgerock.util.time.Duration.duration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.base.Ticker;
+import org.forgerock.util.Function;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ThrottlingQueueTest {
+
+    private static final ThrottlingRate RATE = new ThrottlingRate(1, duration(1, SECONDS));
+    private static final long ONE_MS = MILLISECONDS.toNanos(1);
+
+    private ScheduledExecutorService executor;
+    private ExecutorService worker;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = newSingleThreadScheduledExecutor();
+        worker = newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        worker.shutdownNow();
+    }
+
+    @Test
+    public void shouldDelayTheCallUntilTheStrategyAcceptsIt() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(1, SECONDS), 10);
+        ScriptedStrategy strategy = new ScriptedStrategy(ONE_MS, 0L);
+
+        assertThat(queue.offer(strategy, "foo", RATE, ONE_MS).get()).isEqualTo(0L);
+        assertThat(strategy.calls).isEqualTo(2);
+        assertThat(queue.getWaitingCallCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldRejectTheCallsThatWouldWaitTooLong() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(10, MILLISECONDS),
+                                                    10);
+        ScriptedStrategy strategy = new ScriptedStrategy(MILLISECONDS.toNanos(8));
+
+        // Too long at once
+        assertThat(queue.offer(strategy, "foo", RATE, MILLISECONDS.toNanos(20)).get())
+                .isEqualTo(MILLISECONDS.toNanos(20));
+        assertThat(strategy.calls).isEqualTo(0);
+
+        // Too long after having waited once
+        assertThat(queue.offer(strategy, "foo", RATE, MILLISECONDS.toNanos(5)).get())
+                .isEqualTo(MILLISECONDS.toNanos(8));
+        assertThat(strategy.calls).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBoundTheQueueOfEachPartition() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(1, SECONDS), 1);
+        ScriptedStrategy strategy = new ScriptedStrategy(0L, 0L);
+        long delay = MILLISECONDS.toNanos(100);
+
+        Promise<Long, NeverThrowsException> first = queue.offer(strategy, "foo", RATE, delay);
+        Promise<Long, NeverThrowsException> second = queue.offer(strategy, "foo", RATE, delay);
+        Promise<Long, NeverThrowsException> other = queue.offer(strategy, "bar", RATE, delay);
+
+        assertThat(second.isDone()).isTrue();
+        assertThat(second.get()).isEqualTo(delay);
+        assertThat(first.get()).isEqualTo(0L);
+        assertThat(other.get()).isEqualTo(0L);
+
+        // The queue of "foo" is empty again
+        assertThat(queue.offer(strategy, "foo", RATE, ONE_MS).get()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldMeasureTheTimeTheCallsWaited() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, new FakeTicker(), duration(10, MILLISECONDS),
+                                                    10);
+        ScriptedStrategy strategy = new ScriptedStrategy(MILLISECONDS.toNanos(8), 0L);
+
+        // No time elapsed according to the ticker: the call may wait again
+        assertThat(queue.offer(strategy, "foo", RATE, MILLISECONDS.toNanos(5)).get()).isEqualTo(0L);
+        assertThat(strategy.calls).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCompleteTheCallsOnTheWorker() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(1, SECONDS), 10);
+        Thread workerThread = worker.submit(new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                return Thread.currentThread();
+            }
+        }).get();
+        // Hold the worker until the call is observed
+        final CountDownLatch observed = new CountDownLatch(1);
+        worker.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                observed.await();
+                return null;
+            }
+        });
+
+        Promise<Thread, NeverThrowsException> completingThread =
+                queue.offer(new ScriptedStrategy(0L), "foo", RATE, ONE_MS)
+                     .then(new Function<Long, Thread, NeverThrowsException>() {
+                         @Override
+                         public Thread apply(Long delay) {
+                             return Thread.currentThread();
+                         }
+                     });
+        observed.countDown();
+
+        assertThat(completingThread.get()).isSameAs(workerThread);
+    }
+
+    @Test
+    public void shouldQueueTheNewCallsBehindTheWaitingOnes() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(1, SECONDS), 10);
+        ScriptedStrategy strategy = new ScriptedStrategy(MILLISECONDS.toNanos(50), 0L);
+
+        Promise<Long, NeverThrowsException> first = queue.submit(strategy, "foo", RATE);
+        // The strategy would accept that call, but it has to wait for the first one
+        Promise<Long, NeverThrowsException> second = queue.submit(strategy, "foo", RATE);
+        assertThat(strategy.calls).isEqualTo(1);
+        assertThat(second.isDone()).isFalse();
+
+        assertThat(first.get()).isEqualTo(0L);
+        assertThat(second.get()).isEqualTo(0L);
+        assertThat(strategy.calls).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldReleaseTheWaitingCallsInOrderOnePerToken() throws Exception {
+        ThrottlingQueue queue = new ThrottlingQueue(executor, worker, Ticker.systemTicker(), duration(1, SECONDS), 10);
+        // One token available per millisecond
+        ScriptedStrategy strategy = new ScriptedStrategy(ONE_MS, 0L, ONE_MS, 0L, ONE_MS, 0L);
+        final List<String> accepted = new CopyOnWriteArrayList<>();
+
+        List<Promise<Long, NeverThrowsException>> calls = new ArrayList<>();
+        for (final String name : Arrays.asList("a", "b", "c")) {
+            calls.add(queue.offer(strategy, "foo", RATE, ONE_MS)
+                           .then(new Function<Long, Long, NeverThrowsException>() {
+                               @Override
+                               public Long apply(Long delay) {
+                                   accepted.add(name);
+                                   return delay;
+                               }
+                           }));
+        }
+        for (Promise<Long, NeverThrowsException> call : calls) {
+            assertThat(call.get()).isEqualTo(0L);
+        }
+
+        // Only the head of the queue has been submitted again to the strategy
+        assertThat(strategy.calls).isEqualTo(6);
+        assertThat(accepted).containsExactly("a", "b", "c");
+    }
+
+    /**
+     * Returns the given delays, then keeps returning the last one.
+     */
+    private static final class ScriptedStrategy implements ThrottlingStrategy {
+
+        private final Deque<Long> delays;
+        private volatile int calls;
+
+        ScriptedStrategy(Long... delays) {
+            this.delays = new ArrayDeque<>(Arrays.asList(delays));
+        }
+
+        @Override
+        public synchronized Promise<Long, NeverThrowsException> throttle(String partitionKey,
+                                                                        ThrottlingRate throttlingRate) {
+            calls++;
+            return newResultPromise(delays.size() > 1 ? delays.poll() : delays.peek());
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 package org.forgerock.http.filter.throttling;
 
@@ -21,6 +22,13 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.forgerock.util.time.Duration.duration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.forgerock.util.time.Duration;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -140,4 +148,48 @@ public class TokenBucketTest {
         // This one is refused and advised to wait at least 333_333_334 ns before it can be accepted.
         assertThat(bucket.tryConsume()).as("Consume token #4").isEqualTo(333_333_334);
     }
+
+    @Test
+    public void shouldExpireAfterAnInactivityLongerThanTheTimestampsRange() throws Exception {
+        // The timestamps of that bucket wrap around every 2^33 ns (about 8.6 s)
+        TokenBucket bucket = new TokenBucket(ticker, new ThrottlingRate(Integer.MAX_VALUE, duration("1 second")));
+        assertThat(bucket.tryConsume()).isEqualTo(0);
+        assertThat(bucket.tryConsume()).isEqualTo(0);
+        assertThat(bucket.getRemainingTokensCount()).isEqualTo(Integer.MAX_VALUE - 2);
+
+        ticker.advance(1L << 33, NANOSECONDS);
+        assertThat(bucket.isExpired()).isTrue();
+        assertThat(bucket.tryConsume()).isEqualTo(0);
+        assertThat(bucket.getRemainingTokensCount()).isEqualTo(Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void shouldNotConsumeMoreTokensThanTheCapacityConcurrently() throws Exception {
+        // No refill during the test
+        final TokenBucket bucket = new TokenBucket(ticker, new ThrottlingRate(1_000, duration("1 day")));
+        final AtomicInteger consumed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < 500; j++) {
+                            if (bucket.tryConsume() == 0) {
+                                consumed.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(consumed.get()).isEqualTo(1_000);
+        assertThat(bucket.getRemainingTokensCount()).isEqualTo(0);
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.http.filter.throttling;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import com.google.common.base.Ticker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Consumes the tokens of a single bucket shared by all the threads (a hot partition), with the {@link TokenBucket}
+ * and with its previous implementation ({@link AtomicReferenceTokenBucket}). Run it with various numbers of threads
+ * ({@code -t}) to see how both behave under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TokenBucketBenchmark {
+
+    /**
+     * The rate of the bucket: with the default one, most of the attempts succeed.
+     */
+    @Param({ "100000000/1 second", "1000/1 second" })
+    private String rate;
+
+    private TokenBucket bucket;
+    private AtomicReferenceTokenBucket baseline;
+
+    /**
+     * Builds the buckets.
+     */
+    @Setup
+    public void setUp() {
+        int separator = rate.indexOf('/');
+        ThrottlingRate throttlingRate = new ThrottlingRate(Integer.parseInt(rate.substring(0, separator)),
+                                                           rate.substring(separator + 1));
+        bucket = new TokenBucket(Ticker.systemTicker(), throttlingRate);
+        baseline = new AtomicReferenceTokenBucket(Ticker.systemTicker(), throttlingRate);
+    }
+
+    /**
+     * Tries to consume a token of the packed state bucket.
+     *
+     * @return the delay before a token can be consumed
+     */
+    @Benchmark
+    public long packedState() {
+        return bucket.tryConsume();
+    }
+
+    /**
+     * Tries to consume a token of the previous implementation.
+     *
+     * @return the delay before a token can be consumed
+     */
+    @Benchmark
+    public long atomicReference() {
+        return baseline.tryConsume();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.openig.el.Bindings.bindings;
+
+import org.forgerock.http.protocol.Request;
+import org.forgerock.services.context.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the bindings of a request, as done for each evaluated expression of a route, and evaluates a condition
+ * against them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingsBenchmark {
+
+    private Context context;
+    private Request request;
+    private Expression<Boolean> condition;
+
+    /**
+     * Builds the request, its context and the evaluated condition.
+     *
+     * @throws Exception
+     *         if the condition is invalid
+     */
+    @Setup
+    public void setUp() throws Exception {
+        context = Fixtures.newContext();
+        request = Fixtures.newRequest();
+        condition = Expression.valueOf("${attributes.user.name == 'bjensen'}", Boolean.class);
+    }
+
+    /**
+     * Builds the bindings of the request.
+     *
+     * @return the bindings of the request
+     */
+    @Benchmark
+    public Bindings bindingsOfRequest() {
+        return bindings(context, request);
+    }
+
+    /**
+     * Builds the bindings of the request, and evaluates a condition on its attributes.
+     *
+     * @return the result of the condition
+     */
+    @Benchmark
+    public Boolean bindingsAndEval() {
+        return condition.eval(bindings(context, request));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.openig.el.Bindings.bindings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates typical route conditions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    /**
+     * The benchmarked conditions, by name (the command line splits the parameter values on commas).
+     */
+    private static final Map<String, String> CONDITIONS = new HashMap<>();
+    static {
+        CONDITIONS.put("path", "${request.uri.path == '/api/users'}");
+        CONDITIONS.put("method", "${request.method == 'POST' and request.uri.path == '/login'}");
+        CONDITIONS.put("header", "${request.headers['Host'][0] == 'www.example.com'}");
+        CONDITIONS.put("attribute", "${attributes.user.name == 'bjensen'}");
+        CONDITIONS.put("matches", "${matches(request.uri.path, '^/api/')}");
+        CONDITIONS.put("constant", "${system['java.version'] != null}");
+    }
+
+    @Param({ "path", "method", "header", "attribute", "matches", "constant" })
+    private String condition;
+
+    private Expression<Boolean> expression;
+    private Bindings bindings;
+
+    /**
+     * Builds the expression, and the bindings of a request.
+     *
+     * @throws Exception
+     *         if the expression is invalid
+     */
+    @Setup
+    public void setUp() throws Exception {
+        expression = Expression.valueOf(CONDITIONS.get(condition), Boolean.class);
+        bindings = bindings(Fixtures.newContext(), Fixtures.newRequest());
+    }
+
+    /**
+     * Evaluates the condition.
+     *
+     * @return the result of the condition
+     */
+    @Benchmark
+    public Boolean eval() {
+        return expression.eval(bindings);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.http.protocol.Request;
+import org.forgerock.services.context.AttributesContext;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+
+/**
+ * Builds the request and the context the benchmarked expressions are evaluated against.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns a new request, as received by a route.
+     *
+     * @return a new request
+     * @throws URISyntaxException
+     *         never
+     */
+    static Request newRequest() throws URISyntaxException {
+        Request request = new Request();
+        request.setMethod("POST");
+        request.setUri("http://www.example.com/api/users?_queryFilter=true");
+        request.getHeaders().put("Host", "www.example.com");
+        request.getHeaders().put("Content-Type", "application/json");
+        return request;
+    }
+
+    /**
+     * Returns a new context, with a {@literal user} attribute (a {@link Map} with a {@literal name} entry).
+     *
+     * @return a new context
+     */
+    static Context newContext() {
+        AttributesContext context = new AttributesContext(new RootContext());
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "bjensen");
+        context.getAttributes().put("user", user);
+        return context;
+    }
+}
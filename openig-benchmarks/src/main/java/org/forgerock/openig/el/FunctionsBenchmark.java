@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calls the {@link Functions} helpers directly, without the expression evaluation overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionsBenchmark {
+
+    private String path;
+    private String list;
+    private String[] values;
+    private Map<String, Object> headers;
+
+    /**
+     * Builds the function parameters.
+     */
+    @Setup
+    public void setUp() {
+        path = "/api/users/bjensen";
+        list = "read,write,delete,admin";
+        values = list.split(",");
+        headers = new HashMap<>();
+        headers.put("Host", "www.example.com");
+        headers.put("Content-Type", "application/json");
+        headers.put("X-Forwarded-For", "192.0.2.1");
+    }
+
+    /**
+     * Matches a path against a pattern.
+     *
+     * @return {@code true} if the path matches
+     */
+    @Benchmark
+    public boolean matches() {
+        return Functions.matches(path, "^/api/users/[a-z]+$");
+    }
+
+    /**
+     * Extracts the groups of a path.
+     *
+     * @return the matching groups
+     */
+    @Benchmark
+    public String[] matchingGroups() {
+        return Functions.matchingGroups(path, "^/api/([a-z]+)/([a-z]+)$");
+    }
+
+    /**
+     * Splits a list.
+     *
+     * @return the elements of the list
+     */
+    @Benchmark
+    public String[] split() {
+        return Functions.split(list, ",");
+    }
+
+    /**
+     * Joins a list.
+     *
+     * @return the joined elements
+     */
+    @Benchmark
+    public String join() {
+        return Functions.join(values, ",");
+    }
+
+    /**
+     * Looks up a map key by pattern.
+     *
+     * @return the matching key
+     */
+    @Benchmark
+    public String keyMatch() {
+        return Functions.keyMatch(headers, "^[Xx]-[Ff]orwarded-[Ff]or$");
+    }
+
+    /**
+     * Looks for a substring.
+     *
+     * @return {@code true} if the substring is found
+     */
+    @Benchmark
+    public boolean contains() {
+        return Functions.contains(list, "admin");
+    }
+
+    /**
+     * Lower-cases a value.
+     *
+     * @return the lower-cased value
+     */
+    @Benchmark
+    public String toLowerCase() {
+        return Functions.toLowerCase("Application/JSON");
+    }
+
+    /**
+     * URL-encodes a value.
+     *
+     * @return the encoded value
+     */
+    @Benchmark
+    public String urlEncode() {
+        return Functions.urlEncode("bjensen@example.com/home dir");
+    }
+
+    /**
+     * Base64-encodes a value.
+     *
+     * @return the encoded value
+     */
+    @Benchmark
+    public String encodeBase64() {
+        return Functions.encodeBase64("bjensen:hifalutin");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.openig.el.Bindings.bindings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assigns values through left-value expressions, as the filters storing their results in the attributes do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeftValueExpressionBenchmark {
+
+    private LeftValueExpression<String> attribute;
+    private LeftValueExpression<String> nested;
+    private Bindings bindings;
+
+    /**
+     * Builds the expressions, and the bindings of a request.
+     *
+     * @throws Exception
+     *         if the expressions are invalid
+     */
+    @Setup
+    public void setUp() throws Exception {
+        attribute = LeftValueExpression.valueOf("${attributes.token}", String.class);
+        nested = LeftValueExpression.valueOf("${attributes.user.name}", String.class);
+        bindings = bindings(Fixtures.newContext(), Fixtures.newRequest());
+    }
+
+    /**
+     * Assigns a top-level attribute.
+     *
+     * @return the bindings the attribute has been assigned in
+     */
+    @Benchmark
+    public Bindings setAttribute() {
+        attribute.set(bindings, "eyJhbGciOiJIUzI1NiJ9");
+        return bindings;
+    }
+
+    /**
+     * Assigns an entry of a map attribute.
+     *
+     * @return the bindings the entry has been assigned in
+     */
+    @Benchmark
+    public Bindings setNestedAttribute() {
+        nested.set(bindings, "bjensen");
+        return bindings;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.resolver;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.http.protocol.Headers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves properties through {@link Resolvers#get(Object, Object)}, with the {@link MapResolver}, the
+ * {@link HeadersResolver} and the {@link BeanResolver}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolversBenchmark {
+
+    private Map<String, Object> map;
+    private Headers headers;
+    private User bean;
+
+    /**
+     * Builds the resolved objects.
+     */
+    @Setup
+    public void setUp() {
+        map = new HashMap<>();
+        map.put("name", "bjensen");
+        headers = new Headers();
+        headers.put("Host", "www.example.com");
+        bean = new User("bjensen");
+    }
+
+    /**
+     * Resolves a map entry.
+     *
+     * @return the resolved value
+     */
+    @Benchmark
+    public Object map() {
+        return Resolvers.get(map, "name");
+    }
+
+    /**
+     * Resolves a header.
+     *
+     * @return the resolved value
+     */
+    @Benchmark
+    public Object headers() {
+        return Resolvers.get(headers, "Host");
+    }
+
+    /**
+     * Resolves a bean property.
+     *
+     * @return the resolved value
+     */
+    @Benchmark
+    public Object bean() {
+        return Resolvers.get(bean, "name");
+    }
+
+    /**
+     * A bean, resolved through its getter.
+     */
+    public static final class User {
+        private final String name;
+
+        User(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of this user.
+         *
+         * @return the name of this user
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
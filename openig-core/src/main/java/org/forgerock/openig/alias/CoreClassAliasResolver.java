@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.alias;
@@ -41,6 +42,7 @@ import org.forgerock.openig.filter.SqlAttributesFilter;
 import org.forgerock.openig.filter.StaticRequestFilter;
 import org.forgerock.openig.filter.SwitchFilter;
 import org.forgerock.openig.filter.throttling.DefaultRateThrottlingPolicyHeaplet;
+import org.forgerock.openig.filter.throttling.InMemoryTokenStoreHeaplet;
 import org.forgerock.openig.filter.throttling.MappedThrottlingPolicyHeaplet;
 import org.forgerock.openig.filter.throttling.ScriptableThrottlingPolicy;
 import org.forgerock.openig.filter.throttling.ThrottlingFilterHeaplet;
@@ -91,6 +93,7 @@ public class CoreClassAliasResolver implements ClassAliasResolver {
         ALIASES.put("FileAttributesFilter", FileAttributesFilter.class);
         ALIASES.put("HeaderFilter", HeaderFilter.class);
         ALIASES.put("HttpBasicAuthFilter", HttpBasicAuthFilter.class);
+        ALIASES.put("InMemoryTokenStore", InMemoryTokenStoreHeaplet.class);
         ALIASES.put("JwtSessionFactory", JwtSessionManager.class);
         ALIASES.put("JwtSession", JwtSessionManager.class);
         ALIASES.put("KeyManager", KeyManagerHeaplet.class);
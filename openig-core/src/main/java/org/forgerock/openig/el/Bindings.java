@@ -12,6 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  *
  */
 
@@ -19,9 +20,11 @@ package org.forgerock.openig.el;
 
 import static java.util.Collections.unmodifiableMap;
 
+import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
@@ -35,8 +38,25 @@ import org.forgerock.util.Reject;
  */
 public class Bindings {
 
+    /**
+     * Empty bindings, only used internally for the lookups (nothing must ever be bound to them).
+     */
+    static final Bindings EMPTY = new Bindings();
+
+    private static final String CONTEXTS = "contexts";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String SESSION = "session";
+
+    /**
+     * The bound values, the ones bound to a {@link ContextBindings} are resolved on access.
+     */
     private final Map<String, Object> map = new LinkedHashMap<>();
 
+    /**
+     * The unmodifiable view of the resolved bindings.
+     */
+    private Map<String, Object> view;
+
     /**
      * Returns an empty {@link Bindings} instance (mutable).
      *
@@ -56,6 +76,9 @@ public class Bindings {
      * {@link org.forgerock.services.context.AttributesContext} and to the {@code session}
      * from the {@link org.forgerock.http.session.SessionContext}.
      *
+     * <p>The {@code contexts}, {@code attributes} and {@code session} entries are only resolved (walking the context
+     * chain) when they are first accessed, then they are kept for the subsequent accesses.
+     *
      * @param context
      *         The context to expose
      * @return an initialized {@link Bindings} instance.
@@ -63,13 +86,10 @@ public class Bindings {
     public static Bindings bindings(Context context) {
         Bindings bindings = bindings("context", context);
         if (context != null) {
-            bindings.bind("contexts", flatten(context));
-            if (context.containsContext(AttributesContext.class)) {
-                bindings.bind("attributes", context.asContext(AttributesContext.class).getAttributes());
-            }
-            if (context.containsContext(SessionContext.class)) {
-                bindings.bind("session", context.asContext(SessionContext.class).getSession());
-            }
+            ContextBindings contextBindings = new ContextBindings(context);
+            bindings.map.put(CONTEXTS, contextBindings);
+            bindings.map.put(ATTRIBUTES, contextBindings);
+            bindings.map.put(SESSION, contextBindings);
         }
         return bindings;
     }
@@ -145,6 +165,37 @@ public class Bindings {
         return this;
     }
 
+    /**
+     * Returns the value bound to the given name, or {@code null} if it is not bound (or bound to {@code null}).
+     *
+     * @param name
+     *         binding name
+     * @return the value bound to the given name
+     */
+    Object get(final String name) {
+        Object value = map.get(name);
+        if (value instanceof ContextBindings) {
+            value = ((ContextBindings) value).get(name);
+            return value != ContextBindings.ABSENT ? value : null;
+        }
+        return value;
+    }
+
+    /**
+     * Returns {@code true} if a value (possibly {@code null}) is bound to the given name.
+     *
+     * @param name
+     *         binding name
+     * @return {@code true} if a value is bound to the given name
+     */
+    boolean isBound(final String name) {
+        Object value = map.get(name);
+        if (value instanceof ContextBindings) {
+            return ((ContextBindings) value).get(name) != ContextBindings.ABSENT;
+        }
+        return value != null || map.containsKey(name);
+    }
+
     /**
      * Returns an unmodifiable {@code Map} view of this {@code Bindings} instance.
      * <p>
@@ -154,7 +205,10 @@ public class Bindings {
      * @return an unmodifiable {@code Map} view of this instance (never {@code null}).
      */
     public Map<String, Object> asMap() {
-        return unmodifiableMap(map);
+        if (view == null) {
+            view = new ResolvedView();
+        }
+        return view;
     }
 
     /**
@@ -192,7 +246,78 @@ public class Bindings {
 
     @Override
     public String toString() {
-        return map.toString();
+        return asMap().toString();
+    }
+
+    /**
+     * The bindings derived from a {@link Context}, that are resolved on their first access.
+     */
+    private static final class ContextBindings {
+        /** Marks a binding that does not exist (the context chain does not contain the expected context). */
+        private static final Object ABSENT = new Object();
+
+        private final Context context;
+        private Map<String, Context> contexts;
+        private Object attributes;
+        private Object session;
+
+        ContextBindings(final Context context) {
+            this.context = context;
+        }
+
+        Object get(final String name) {
+            switch (name) {
+            case CONTEXTS:
+                if (contexts == null) {
+                    contexts = flatten(context);
+                }
+                return contexts;
+            case ATTRIBUTES:
+                if (attributes == null) {
+                    attributes = context.containsContext(AttributesContext.class)
+                            ? context.asContext(AttributesContext.class).getAttributes()
+                            : ABSENT;
+                }
+                return attributes;
+            case SESSION:
+                if (session == null) {
+                    session = context.containsContext(SessionContext.class)
+                            ? context.asContext(SessionContext.class).getSession()
+                            : ABSENT;
+                }
+                return session;
+            default:
+                return ABSENT;
+            }
+        }
+    }
+
+    /**
+     * Unmodifiable view of the bindings, with their resolved values.
+     */
+    private final class ResolvedView extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(final Object key) {
+            return key instanceof String ? Bindings.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof String && isBound((String) key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            for (Entry<String, Object> entry : map.entrySet()) {
+                String name = entry.getKey();
+                if (isBound(name)) {
+                    resolved.put(name, get(name));
+                }
+            }
+            return unmodifiableMap(resolved).entrySet();
+        }
     }
 
 }
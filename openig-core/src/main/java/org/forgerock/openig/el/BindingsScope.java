@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The top-level scope of an evaluation: a read-only {@link Map} view of the evaluation {@link Bindings} layered over
+ * the initial bindings of the expression. The bindings are looked up in place, without being copied.
+ */
+final class BindingsScope extends AbstractMap<String, Object> {
+
+    private Bindings initialBindings;
+    private Bindings bindings;
+
+    /**
+     * Builds an empty scope.
+     */
+    BindingsScope() {
+        reset();
+    }
+
+    /**
+     * Sets the bindings of this scope.
+     *
+     * @param initialBindings
+     *         the bindings that are looked up when the name is not bound in {@code bindings}
+     * @param bindings
+     *         the bindings that are looked up first
+     */
+    void set(final Bindings initialBindings, final Bindings bindings) {
+        this.initialBindings = initialBindings;
+        this.bindings = bindings;
+    }
+
+    /**
+     * Empties this scope, so that it does not retain the bindings anymore.
+     */
+    void reset() {
+        set(Bindings.EMPTY, Bindings.EMPTY);
+    }
+
+    @Override
+    public Object get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        Object value = bindings.get(name);
+        if (value != null || bindings.isBound(name)) {
+            return value;
+        }
+        return initialBindings.get(name);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && (bindings.isBound((String) key) || initialBindings.isBound((String) key));
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        // Only needed by the bulk operations, that are not used during the evaluations
+        Map<String, Object> merged = new LinkedHashMap<>(initialBindings.asMap());
+        merged.putAll(bindings.asMap());
+        return unmodifiableMap(merged).entrySet();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import de.odysseus.el.tree.impl.ast.AstFunction;
+import de.odysseus.el.tree.impl.ast.AstIdentifier;
+import de.odysseus.el.tree.impl.ast.AstMethod;
+import de.odysseus.el.tree.impl.ast.AstNode;
+
+/**
+ * Finds out the expressions that can be reduced to constants when they are created: the ones that only depend on
+ * their initial bindings (the heap properties for the expressions of the heap configuration), on the system
+ * properties or on the environment variables, and only call functions whose result only depends on their parameters.
+ * <p>
+ * The system properties are read once: a property changed afterwards is not seen by the folded expressions.
+ */
+final class ConstantFolding {
+
+    /**
+     * The expression plugins whose object does not change once the application has started.
+     */
+    private static final Set<String> CONSTANT_PLUGINS = new HashSet<>(Arrays.asList("system", "env"));
+
+    /**
+     * The types of the values that can be shared by all the evaluations of a folded expression.
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
+    private ConstantFolding() {
+    }
+
+    /**
+     * Returns the names of the initial bindings the given expression depends on, or {@code null} if the expression
+     * cannot be reduced to a constant.
+     *
+     * @param root
+     *         the root of the parsed expression
+     * @param initialBindings
+     *         the initial bindings of the expression
+     * @return the names of the initial bindings the expression depends on, or {@code null} if it cannot be folded
+     */
+    static String[] dependencies(final AstNode root, final Bindings initialBindings) {
+        Set<String> names = new LinkedHashSet<>();
+        if (!collect(root, initialBindings, names)) {
+            return null;
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Returns {@code true} if the given value, computed once, can be returned by all the evaluations of a folded
+     * expression.
+     *
+     * @param value
+     *         the value of the expression
+     * @return {@code true} if the given value can be shared
+     */
+    static boolean isShareable(final Object value) {
+        return value == null || IMMUTABLE_TYPES.contains(value.getClass());
+    }
+
+    private static boolean collect(final AstNode node, final Bindings initialBindings, final Set<String> names) {
+        if (node instanceof AstMethod) {
+            // Arbitrary method invocation
+            return false;
+        }
+        if (node instanceof AstFunction && !Functions.PURE_FUNCTIONS.contains(((AstFunction) node).getName())) {
+            return false;
+        }
+        if (node instanceof AstIdentifier) {
+            String name = ((AstIdentifier) node).getName();
+            if (Expression.isPlugin(name)) {
+                // The plugins take precedence over the bindings
+                return CONSTANT_PLUGINS.contains(name);
+            }
+            if (!initialBindings.isBound(name)) {
+                // Provided when the expression is evaluated
+                return false;
+            }
+            names.add(name);
+        }
+        for (int i = 0; i < node.getCardinality(); i++) {
+            if (!collect((AstNode) node.getChild(i), initialBindings, names)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -13,6 +13,7 @@
  *
  * Copyright 2010-2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.el;
@@ -22,7 +23,11 @@ import static org.forgerock.openig.el.Bindings.bindings;
 import java.beans.FeatureDescriptor;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
 import javax.el.BeanELResolver;
 import javax.el.ELContext;
 import javax.el.ELException;
@@ -37,7 +42,15 @@ import org.forgerock.openig.resolver.Resolvers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.odysseus.el.ExpressionFactoryImpl;
+import de.odysseus.el.TreeValueExpression;
+import de.odysseus.el.misc.TypeConverter;
+import de.odysseus.el.tree.ExpressionNode;
+import de.odysseus.el.tree.Tree;
+import de.odysseus.el.tree.TreeBuilder;
+import de.odysseus.el.tree.TreeStore;
+import de.odysseus.el.tree.impl.Builder;
+import de.odysseus.el.tree.impl.ast.AstNode;
+import de.odysseus.el.tree.impl.ast.AstText;
 
 /**
  * An Unified Expression Language expression. Creating an expression is the equivalent to
@@ -56,16 +69,47 @@ public class Expression<T> {
     /** The original string used to create this expression. */
     private final String original;
 
+    /** The root node of the parsed expression. */
+    private final ExpressionNode root;
+
     /** The expected type of this expression. */
     private final Class<T> expectedType;
 
     /** the initial bindings captured when creating this expression. */
     private final Bindings initialBindings;
 
+    /** The value of this expression if it has been reduced to a constant, {@link #NOT_CONSTANT} otherwise. */
+    private final Object constant;
+
+    /** The names of the initial bindings the constant has been computed from. */
+    private final String[] dependencies;
+
+    /** The compiled patterns given as literals to the functions, kept compiled as long as this expression. */
+    private final List<Pattern> literalPatterns;
+
+    /** Marks the expressions that have not been reduced to a constant. */
+    private static final Object NOT_CONSTANT = new Object();
+
+    /** The number of expressions reduced to constants so far (ignoring the plain literals). */
+    private static final AtomicLong CONSTANTS = new AtomicLong();
+
     /** The expression plugins configured in META-INF/services. */
     private static final Map<String, ExpressionPlugin> PLUGINS =
             Collections.unmodifiableMap(Loader.loadMap(String.class, ExpressionPlugin.class));
 
+    /** The parser of the expressions (with the features of the JEE6 profile of the expression factory). */
+    private static final Builder BUILDER = new Builder(Builder.Feature.METHOD_INVOCATIONS, Builder.Feature.VARARGS);
+
+    /** The number of evaluation contexts kept for reuse (a power of 2). */
+    private static final int CONTEXT_SLOTS = 256;
+
+    /**
+     * The evaluation contexts, reused by the successive evaluations: each thread takes the one of the slot its
+     * identifier falls into, if available. Unlike thread locals, they are not retained by the threads of the
+     * container once the application is undeployed.
+     */
+    private static final AtomicReferenceArray<XLContext> CONTEXTS = new AtomicReferenceArray<>(CONTEXT_SLOTS);
+
     /**
      * Factory method to create an Expression.
      *
@@ -110,7 +154,7 @@ public class Expression<T> {
         this.expectedType = expectedType;
         this.initialBindings = initialBindings;
         try {
-            ExpressionFactoryImpl exprFactory = new ExpressionFactoryImpl();
+            final Tree tree = BUILDER.build(expression);
             /*
              * We still use Object.class but use the expectedType in the evaluation. If we use the expectedType instead
              * of Object.class at the creation, then we had some breaking changes :
@@ -120,12 +164,51 @@ public class Expression<T> {
              *
              * But note that by still using Object.class prevents from using our own TypeConverter.
              */
-            valueExpression = exprFactory.createValueExpression(new XLContext(null), expression, Object.class);
+            TreeStore store = new TreeStore(new TreeBuilder() {
+                @Override
+                public Tree build(String ignored) {
+                    // Parsed once
+                    return tree;
+                }
+            }, null);
+            valueExpression = new TreeValueExpression(store,
+                                                      MethodsMapper.INSTANCE,
+                                                      null,
+                                                      TypeConverter.DEFAULT,
+                                                      expression,
+                                                      Object.class);
+            root = tree.getRoot();
+            // Do not compile the literal patterns on each evaluation
+            literalPatterns = Patterns.compileLiterals((AstNode) root);
+            dependencies = ConstantFolding.dependencies((AstNode) root, initialBindings);
+            constant = dependencies != null ? fold((AstNode) root) : NOT_CONSTANT;
         } catch (ELException ele) {
             throw new ExpressionException(ele);
         }
     }
 
+    /**
+     * Evaluates this expression once and for all, as it does not depend on the evaluation bindings.
+     */
+    private Object fold(final AstNode root) {
+        Object value;
+        try (XLContext context = openContext(initialBindings, Bindings.EMPTY)) {
+            value = valueExpression.getValue(context);
+        } catch (RuntimeException e) {
+            // Reported on each evaluation, as usual (a function or a resolver may fail with any runtime exception)
+            logger.debug("The expression {} cannot be reduced to a constant", original, e);
+            return NOT_CONSTANT;
+        }
+        if (!ConstantFolding.isShareable(value)) {
+            return NOT_CONSTANT;
+        }
+        if (!(root instanceof AstText)) {
+            CONSTANTS.incrementAndGet();
+            logger.debug("The expression {} has been reduced to a constant", original);
+        }
+        return value;
+    }
+
     /**
      * Evaluates the expression within the specified bindings and returns the resulting object if it matches the
      * specified type, or {@code null} if it does not resolve or match.
@@ -136,15 +219,10 @@ public class Expression<T> {
      */
     public T eval(final Bindings bindings) {
         Object value;
-        try {
-            Bindings evaluationBindings = bindings().bind(initialBindings).bind(bindings);
-            value = valueExpression.getValue(new XLContext(evaluationBindings.asMap()));
-        } catch (ELException ele) {
-            logger.warn("An error occurred while evaluating the expression {}",
-                         valueExpression.getExpressionString(),
-                         ele);
-            // unresolved element yields null value
-            value = null;
+        if (constant != NOT_CONSTANT && !shadows(bindings)) {
+            value = constant;
+        } else {
+            value = evaluate(bindings);
         }
 
         if (value == null) {
@@ -162,19 +240,124 @@ public class Expression<T> {
         return expectedType.cast(value);
     }
 
+    private Object evaluate(final Bindings bindings) {
+        Object value;
+        try (XLContext context = openContext(initialBindings, bindings)) {
+            value = valueExpression.getValue(context);
+        } catch (ELException ele) {
+            logger.warn("An error occurred while evaluating the expression {}",
+                         valueExpression.getExpressionString(),
+                         ele);
+            // unresolved element yields null value
+            value = null;
+        }
+        return value;
+    }
+
+    /**
+     * Returns {@code true} if the given bindings hide some of the initial bindings the constant has been computed
+     * from: the expression must then be evaluated.
+     */
+    private boolean shadows(final Bindings bindings) {
+        for (String name : dependencies) {
+            if (bindings.isBound(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Convenient method to eval an Expression that does not need a scope.
      * @return the result of the expression evaluation, or {@code null} if it does not resolve or match the type.
      */
     public T eval() {
-        return eval(bindings());
+        return eval(Bindings.EMPTY);
+    }
+
+    /**
+     * Returns the root node of the parsed form of this expression, that is shared: it must not be modified.
+     *
+     * @return the root node of the parsed form of this expression
+     */
+    public ExpressionNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns {@code true} if this expression has been reduced to a constant when it was created.
+     *
+     * @return {@code true} if this expression has been reduced to a constant
+     */
+    boolean isConstant() {
+        return constant != NOT_CONSTANT;
     }
 
-    static class XLContext extends ELContext {
-        private final ELResolver elResolver;
+    /**
+     * Returns the number of expressions reduced to constants when they were created, since the application started.
+     * The plain literals (the strings without any {@code ${}} part) are not counted.
+     *
+     * @return the number of expressions reduced to constants so far
+     */
+    public static long getConstantCount() {
+        return CONSTANTS.get();
+    }
 
-        XLContext(Object scope) {
-            elResolver = new XLResolver(scope);
+    /**
+     * Returns {@code true} if the given name is the one of an expression plugin.
+     *
+     * @param name
+     *         the name of a top-level identifier
+     * @return {@code true} if the given name is the one of an expression plugin
+     */
+    static boolean isPlugin(final String name) {
+        return PLUGINS.containsKey(name);
+    }
+
+    /**
+     * Returns an evaluation context whose scope is made of the given bindings layered over the initial ones. The
+     * context is confined to the current thread until it is closed, once the evaluation is over.
+     *
+     * @param initialBindings
+     *         the initial bindings of the evaluated expression
+     * @param bindings
+     *         the bindings to evaluate the expression within
+     * @return an evaluation context
+     */
+    static XLContext openContext(final Bindings initialBindings, final Bindings bindings) {
+        int slot = (int) Thread.currentThread().getId() & (CONTEXT_SLOTS - 1);
+        XLContext context = CONTEXTS.getAndSet(slot, null);
+        if (context == null) {
+            // Nested evaluation (from a function or a resolver for instance), or another thread is using the slot
+            context = new XLContext(slot);
+        }
+        context.open(initialBindings, bindings);
+        return context;
+    }
+
+    /**
+     * An evaluation context, reused by the successive evaluations: the evaluations over simple property paths do not
+     * allocate anything.
+     */
+    static final class XLContext extends ELContext implements AutoCloseable {
+        private final XLResolver elResolver = new XLResolver();
+        private final int slot;
+
+        private XLContext(final int slot) {
+            this.slot = slot;
+        }
+
+        private void open(final Bindings initialBindings, final Bindings bindings) {
+            elResolver.scope.set(initialBindings, bindings);
+        }
+
+        @Override
+        public void close() {
+            // Do not retain the request objects until the next evaluation
+            elResolver.scope.reset();
+            setPropertyResolved(false);
+            // Unless another context has been given back in the meantime
+            CONTEXTS.compareAndSet(slot, null, this);
         }
 
         @Override
@@ -195,12 +378,7 @@ public class Expression<T> {
 
     private static class XLResolver extends ELResolver {
         private static final BeanELResolver RESOLVER = new BeanELResolver(true);
-        private final Object scope;
-
-        XLResolver(final Object scope) {
-            // Resolvers.get() don't support null value
-            this.scope = (scope == null) ? new Object() : scope;
-        }
+        private final BindingsScope scope = new BindingsScope();
 
         @Override
         public Object getValue(ELContext context, Object base, Object property) {
@@ -212,9 +390,11 @@ public class Expression<T> {
                 if (node != null) {
                     return node.getObject();
                 }
+                // Look up the bindings in place
+                return scope.get(property);
             }
 
-            Object value = Resolvers.get((base == null ? scope : base), property);
+            Object value = Resolvers.get(base, property);
             return (value != Resolver.UNRESOLVED ? value : null);
         }
 
@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Keeps the content of the files read by the {@link Functions} in memory, and reloads it when the files change.
+ * <p>
+ * A cached content is used as long as the last modification time and the length of its file are unchanged; they
+ * are checked at most once per {@code checkInterval}. As the modification time has a coarse resolution on some file
+ * systems (up to 2 seconds), a file loaded less than 2 seconds after its last modification may be rewritten with the
+ * same length without any visible change: such a content is not trusted, it is loaded again on the next check.
+ * <p>
+ * The total length of the cached files is bounded: the least recently used ones are evicted first, and a file larger
+ * than the bound is never kept.
+ *
+ * @param <T>
+ *         the type of the loaded content
+ */
+final class FileCache<T> {
+
+    /** The resolution of the modification time on the coarsest file systems, in milliseconds. */
+    private static final long MODIFICATION_TIME_RESOLUTION = 2000L;
+
+    /**
+     * Loads the content of a file.
+     *
+     * @param <T>
+     *         the type of the loaded content
+     */
+    interface Loader<T> {
+        /**
+         * Loads the content of the given file.
+         *
+         * @param file
+         *         the file to read
+         * @return the content of the file
+         * @throws IOException
+         *         if the file cannot be read
+         */
+        T load(File file) throws IOException;
+    }
+
+    private final Loader<T> loader;
+    private final long checkIntervalNanos;
+    private final Cache<String, Content<T>> contents;
+
+    /**
+     * Builds a new cache.
+     *
+     * @param loader
+     *         loads the content of the files
+     * @param maximumLength
+     *         the maximum total length of the cached files, in bytes
+     * @param checkIntervalNanos
+     *         the minimum time between two checks of the same file, in nanoseconds
+     */
+    FileCache(final Loader<T> loader, final long maximumLength, final long checkIntervalNanos) {
+        this.loader = loader;
+        this.checkIntervalNanos = checkIntervalNanos;
+        // A single segment, that is given the whole maximum length (it is split between the segments otherwise)
+        this.contents = CacheBuilder.newBuilder()
+                                    .concurrencyLevel(1)
+                                    .maximumWeight(maximumLength)
+                                    .weigher(new Weigher<String, Content<T>>() {
+                                        @Override
+                                        public int weigh(final String filename, final Content<T> content) {
+                                            return (int) Math.min(content.length, Integer.MAX_VALUE);
+                                        }
+                                    })
+                                    .build();
+    }
+
+    /**
+     * Returns the content of the given file, loading it if it is not cached or if the file has changed.
+     *
+     * @param filename
+     *         the file to read
+     * @return the content of the file
+     * @throws IOException
+     *         if the file cannot be read
+     */
+    T get(final String filename) throws IOException {
+        long now = System.nanoTime();
+        Content<T> content = contents.getIfPresent(filename);
+        if (content != null) {
+            if (now - content.checkTime < checkIntervalNanos) {
+                return content.value;
+            }
+            File file = new File(filename);
+            if (!content.racy && file.lastModified() == content.lastModified && file.length() == content.length) {
+                content.checkTime = now;
+                return content.value;
+            }
+        }
+        File file = new File(filename);
+        // Read before loading: a change made while loading is detected by the next check
+        long lastModified = file.lastModified();
+        long length = file.length();
+        boolean racy = System.currentTimeMillis() - lastModified < MODIFICATION_TIME_RESOLUTION;
+        T value = loader.load(file);
+        contents.put(filename, new Content<>(value, lastModified, length, racy, now));
+        return value;
+    }
+
+    /**
+     * A loaded content, and the state of its file when it has been loaded.
+     */
+    private static final class Content<T> {
+        private final T value;
+        private final long lastModified;
+        private final long length;
+        /** Whether the file may have been modified again within the resolution of its modification time. */
+        private final boolean racy;
+        private volatile long checkTime;
+
+        Content(final T value,
+                final long lastModified,
+                final long length,
+                final boolean racy,
+                final long checkTime) {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.racy = racy;
+            this.checkTime = checkTime;
+        }
+    }
+}
@@ -13,12 +13,15 @@
  *
  * Copyright 2010-2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.el;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.forgerock.openig.util.StringUtil.asString;
-import static org.forgerock.util.Utils.closeSilently;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -27,8 +30,10 @@ import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -46,6 +51,45 @@ public final class Functions {
 
     private static final Logger logger = LoggerFactory.getLogger(Functions.class);
 
+    /**
+     * The names of the functions whose result only depends on their parameters ({@link #read(String)} and
+     * {@link #readProperties(String)} depend on the content of the files): an expression only made of such calls
+     * always evaluates to the same result.
+     */
+    public static final Set<String> PURE_FUNCTIONS = unmodifiableSet(new HashSet<>(asList(
+            "array", "bool", "contains", "decodeBase64", "encodeBase64", "fileToUrl", "indexOf", "integer",
+            "integerWithRadix", "join", "keyMatch", "length", "matches", "matchingGroups", "pathToUrl", "split",
+            "toLowerCase", "toString", "toUpperCase", "trim", "urlDecode", "urlEncode")));
+
+    /**
+     * Maximum total length of the files kept in memory by {@link #read(String)} (and by
+     * {@link #readProperties(String)}), in bytes.
+     */
+    private static final long MAXIMUM_CACHED_LENGTH = 16L * 1024 * 1024;
+
+    /**
+     * Minimum time between two checks of the modification of a file kept in memory, in nanoseconds.
+     */
+    private static final long CHECK_INTERVAL = SECONDS.toNanos(1L);
+
+    private static final FileCache<String> FILES = new FileCache<>(new FileCache.Loader<String>() {
+        @Override
+        public String load(final File file) throws IOException {
+            return asString(new FileInputStream(file), Charset.defaultCharset());
+        }
+    }, MAXIMUM_CACHED_LENGTH, CHECK_INTERVAL);
+
+    private static final FileCache<Properties> PROPERTIES = new FileCache<>(new FileCache.Loader<Properties>() {
+        @Override
+        public Properties load(final File file) throws IOException {
+            try (FileInputStream fis = new FileInputStream(file)) {
+                Properties properties = new Properties();
+                properties.load(fis);
+                return properties;
+            }
+        }
+    }, MAXIMUM_CACHED_LENGTH, CHECK_INTERVAL);
+
     private Functions() { }
 
     /**
@@ -165,8 +209,7 @@ public final class Functions {
             // avoid unnecessary proxying via duck typing
             Pattern p = null;
             try {
-                // TODO: cache oft-used patterns?
-                p = Pattern.compile(pattern);
+                p = Patterns.compile(pattern);
             } catch (PatternSyntaxException pse) {
                 // invalid pattern results in no match
                 return null;
@@ -226,7 +269,7 @@ public final class Functions {
         }
         Pattern compiledPattern;
         try {
-            compiledPattern = Pattern.compile(pattern);
+            compiledPattern = Patterns.compile(pattern);
         } catch (PatternSyntaxException pse) {
             logger.warn("Ignoring incorrect pattern : {}", pattern, pse);
             return false;
@@ -248,7 +291,7 @@ public final class Functions {
      */
     public static String[] matchingGroups(String value, String pattern) {
         try {
-            Pattern p = Pattern.compile(pattern);
+            Pattern p = Patterns.compile(pattern);
             Matcher m = p.matcher(value);
             if (m.find()) {
                 int count = m.groupCount();
@@ -276,7 +319,7 @@ public final class Functions {
      * @return the resulting array of split substrings.
      */
     public static String[] split(String value, String regex) {
-        return value != null ? value.split(regex) : null;
+        return value != null ? Patterns.compile(regex).split(value) : null;
     }
 
     /**
@@ -376,6 +419,8 @@ public final class Functions {
 
     /**
      * Returns the content of the given file as a plain String.
+     * <p>
+     * The content is kept in memory, and only read again once the file has been modified.
      *
      * @param filename
      *         file to be read
@@ -383,7 +428,7 @@ public final class Functions {
      */
     public static String read(final String filename) {
         try {
-            return asString(new FileInputStream(new File(filename)), Charset.defaultCharset());
+            return FILES.get(filename);
         } catch (IOException e) {
             logger.warn("An error occurred while reading the file {}", filename, e);
             return null;
@@ -392,23 +437,22 @@ public final class Functions {
 
     /**
      * Returns the content of the given file as a {@link Properties}.
+     * <p>
+     * The content is kept in memory, and only read again once the file has been modified: each call returns a copy
+     * of it.
      *
      * @param filename
      *         file to be read
      * @return the file content as {@link Properties} or {@literal null} if here was an error (missing file, ...)
      */
     public static Properties readProperties(final String filename) {
-        FileInputStream fis = null;
         try {
-            fis = new FileInputStream(new File(filename));
             Properties properties = new Properties();
-            properties.load(fis);
+            properties.putAll(PROPERTIES.get(filename));
             return properties;
         } catch (IOException e) {
             logger.warn("An error occurred while reading the file {}", filename, e);
             return null;
-        } finally {
-            closeSilently(fis);
         }
     }
 
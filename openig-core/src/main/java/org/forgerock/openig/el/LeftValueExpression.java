@@ -12,10 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.el;
 
+import static org.forgerock.openig.el.Expression.openContext;
+
 import javax.el.ELException;
 
 import org.forgerock.util.Reject;
@@ -71,8 +74,8 @@ public final class LeftValueExpression<T> extends Expression<T> {
      */
     public void set(Bindings bindings, Object value) {
         Reject.ifNull(bindings);
-        try {
-            valueExpression.setValue(new XLContext(bindings.asMap()), value);
+        try (XLContext context = openContext(Bindings.EMPTY, bindings)) {
+            valueExpression.setValue(context, value);
         } catch (ELException ele) {
             logger.warn("An error occurred setting the result of the expression {}",
                         valueExpression.getExpressionString(),
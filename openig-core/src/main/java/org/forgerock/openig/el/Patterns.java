@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.odysseus.el.tree.impl.ast.AstFunction;
+import de.odysseus.el.tree.impl.ast.AstNode;
+import de.odysseus.el.tree.impl.ast.AstString;
+
+/**
+ * Compiles the regular expressions used by the {@link Functions}, once.
+ * <p>
+ * The patterns given as literals in the expressions ({@code ${matches(request.uri.path, '^/api')}}) are compiled when
+ * the expressions are created, and held by these expressions: they stay compiled as long as an expression uses them,
+ * whatever the other patterns used meanwhile. The other ones (computed while evaluating the expressions) are compiled
+ * when they are first used, and kept in a bounded cache of the most recently used ones: an evicted pattern is
+ * compiled again on its next use.
+ */
+final class Patterns {
+
+    private static final Logger logger = LoggerFactory.getLogger(Patterns.class);
+
+    /**
+     * Maximum number of patterns that are kept compiled.
+     */
+    static final int MAXIMUM_SIZE = 1024;
+
+    /**
+     * The functions taking a regular expression as their second parameter.
+     */
+    private static final Set<String> REGEX_FUNCTIONS =
+            new HashSet<>(Arrays.asList("matches", "matchingGroups", "split", "keyMatch"));
+
+    /**
+     * The patterns given as literals, as long as an expression holds them.
+     */
+    private static final ConcurrentMap<String, Pattern> LITERALS = CacheBuilder.newBuilder()
+                                                                               .weakValues()
+                                                                               .<String, Pattern>build()
+                                                                               .asMap();
+
+    /**
+     * The most recently used patterns (not given as literals).
+     */
+    private static final Cache<String, Pattern> RECENT = CacheBuilder.newBuilder()
+                                                                     .maximumSize(MAXIMUM_SIZE)
+                                                                     .build();
+
+    private Patterns() {
+    }
+
+    /**
+     * Returns the compiled form of the given regular expression.
+     *
+     * @param regex
+     *         the regular expression to compile
+     * @return the compiled form of the given regular expression
+     * @throws PatternSyntaxException
+     *         if the regular expression is invalid
+     */
+    static Pattern compile(final String regex) {
+        Pattern pattern = LITERALS.get(regex);
+        if (pattern != null) {
+            return pattern;
+        }
+        pattern = RECENT.getIfPresent(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            RECENT.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Returns the number of patterns kept in the cache of the most recently used ones.
+     *
+     * @return the number of patterns kept in the cache of the most recently used ones
+     */
+    static long size() {
+        return RECENT.size();
+    }
+
+    /**
+     * Compiles the patterns given as literals to the regular expression functions in the given expression. The
+     * returned patterns are used by the functions as long as the caller holds them.
+     *
+     * @param node
+     *         the parsed expression (or one of its nodes)
+     * @return the compiled literal patterns (the invalid ones are ignored)
+     */
+    static List<Pattern> compileLiterals(final AstNode node) {
+        List<Pattern> patterns = new ArrayList<>();
+        compileLiterals(node, patterns);
+        return patterns;
+    }
+
+    private static void compileLiterals(final AstNode node, final List<Pattern> patterns) {
+        if (node instanceof AstFunction) {
+            AstFunction function = (AstFunction) node;
+            if (REGEX_FUNCTIONS.contains(function.getName()) && function.getParamCount() == 2) {
+                AstNode pattern = (AstNode) function.getChild(0).getChild(1);
+                if (pattern instanceof AstString) {
+                    compileLiteral((String) pattern.eval(null, null), patterns);
+                }
+            }
+        }
+        for (int i = 0; i < node.getCardinality(); i++) {
+            compileLiterals((AstNode) node.getChild(i), patterns);
+        }
+    }
+
+    private static void compileLiteral(final String regex, final List<Pattern> patterns) {
+        Pattern pattern = LITERALS.get(regex);
+        if (pattern == null) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                // Reported when the expression is evaluated
+                logger.debug("Invalid pattern {}", regex, e);
+                return;
+            }
+            Pattern previous = LITERALS.putIfAbsent(regex, pattern);
+            if (previous != null) {
+                pattern = previous;
+            }
+        }
+        patterns.add(pattern);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.openig.filter.throttling;
+
+import static org.forgerock.http.protocol.Response.newResponsePromise;
+import static org.forgerock.http.protocol.Status.METHOD_NOT_ALLOWED;
+import static org.forgerock.http.protocol.Status.OK;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.object;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.http.Handler;
+import org.forgerock.http.filter.throttling.HeavyHitters;
+import org.forgerock.http.filter.throttling.ThrottlingFilter;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * Exposes the groups of requests that a {@link ThrottlingFilter} allows and throttles the most, with their estimated
+ * number of requests (see {@link HeavyHitters}):
+ *
+ * <pre>
+ * {@code {
+ *     "allowed": {
+ *         "total": 1200,
+ *         "top": [ { "partition": "alice", "count": 800 }, ... ]
+ *     },
+ *     "throttled": {
+ *         "total": 150,
+ *         "top": [ { "partition": "mallory", "count": 150 }, ... ]
+ *     }
+ * }
+ * }
+ * </pre>
+ */
+final class HeavyHittersHandler implements Handler {
+
+    private final ThrottlingFilter filter;
+
+    HeavyHittersHandler(final ThrottlingFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
+        if (!"GET".equals(request.getMethod())) {
+            return newResponsePromise(new Response(METHOD_NOT_ALLOWED));
+        }
+        Response response = new Response(OK);
+        response.setEntity(object(field("allowed", report(filter.getAllowedHeavyHitters())),
+                                  field("throttled", report(filter.getThrottledHeavyHitters()))));
+        return newResponsePromise(response);
+    }
+
+    private static Object report(final HeavyHitters heavyHitters) {
+        if (heavyHitters == null) {
+            return null;
+        }
+        List<Object> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : heavyHitters.getTop().entrySet()) {
+            entries.add(object(field("partition", entry.getKey()), field("count", entry.getValue())));
+        }
+        return object(field("total", heavyHitters.getTotalCount()), field("top", entries));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+
+package org.forgerock.openig.filter.throttling;
+
+import com.google.common.base.Ticker;
+import org.forgerock.http.filter.throttling.InMemoryTokenStore;
+import org.forgerock.openig.heap.GenericHeaplet;
+import org.forgerock.openig.heap.HeapException;
+import org.forgerock.openig.heap.Keys;
+
+/**
+ * Creates and initializes an {@link InMemoryTokenStore} in a heap environment: the throttling filters using the
+ * "leased" strategy with this token store apply their rates as if they were a single filter (this lets a cluster of
+ * gateways be tried out on a single machine).
+ * Configuration options:
+ *
+ * <pre>
+ * {@code
+ * {
+ *     "type": "InMemoryTokenStore",
+ *     "config": {
+ *         "maxBuckets"         : integer        [OPTIONAL - The maximum number of token buckets kept, the least
+ *                                                           recently used ones being evicted. Default to 1000000.]
+ *     }
+ * }
+ * }
+ * </pre>
+ */
+public class InMemoryTokenStoreHeaplet extends GenericHeaplet {
+
+    /** Default maximum number of token buckets kept. */
+    private static final int DEFAULT_MAX_BUCKETS = 1_000_000;
+
+    @Override
+    public Object create() throws HeapException {
+        int maxBuckets = config.get("maxBuckets")
+                               .as(evaluatedWithHeapProperties())
+                               .defaultTo(DEFAULT_MAX_BUCKETS)
+                               .asInteger();
+        if (maxBuckets <= 0) {
+            throw new HeapException("maxBuckets has to be greater than 0");
+        }
+        return new InMemoryTokenStore(heap.get(Keys.TICKER_HEAP_KEY, Ticker.class), maxBuckets);
+    }
+}
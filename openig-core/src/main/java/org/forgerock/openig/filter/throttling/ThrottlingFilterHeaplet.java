@@ -12,24 +12,37 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.filter.throttling;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.forgerock.json.JsonValueFunctions.duration;
+import static org.forgerock.openig.heap.Keys.ENDPOINT_REGISTRY_HEAP_KEY;
+import static org.forgerock.openig.heap.Keys.METRIC_SOURCES_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY;
 import static org.forgerock.openig.util.JsonValues.evaluated;
+import static org.forgerock.openig.util.JsonValues.optionalHeapObject;
 import static org.forgerock.openig.util.JsonValues.requiredHeapObject;
 
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
 import com.google.common.base.Ticker;
+import org.forgerock.http.filter.throttling.AdaptiveThrottlingStrategy;
 import org.forgerock.http.filter.throttling.FixedRateThrottlingPolicy;
+import org.forgerock.http.filter.throttling.GcraThrottlingStrategy;
+import org.forgerock.http.filter.throttling.InMemoryTokenStore;
+import org.forgerock.http.filter.throttling.LeasedTokenThrottlingStrategy;
+import org.forgerock.http.filter.throttling.SlidingWindowThrottlingStrategy;
 import org.forgerock.http.filter.throttling.ThrottlingFilter;
 import org.forgerock.http.filter.throttling.ThrottlingPolicy;
 import org.forgerock.http.filter.throttling.ThrottlingRate;
 import org.forgerock.http.filter.throttling.ThrottlingStrategy;
+import org.forgerock.http.filter.throttling.TokenStore;
 import org.forgerock.http.filter.throttling.TokenBucketThrottlingStrategy;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.JsonValueException;
@@ -39,6 +52,8 @@ import org.forgerock.openig.el.ExpressionRequestAsyncFunction;
 import org.forgerock.openig.heap.GenericHeaplet;
 import org.forgerock.openig.heap.HeapException;
 import org.forgerock.openig.heap.Keys;
+import org.forgerock.openig.http.EndpointRegistry;
+import org.forgerock.openig.metrics.MetricSources;
 import org.forgerock.util.Function;
 import org.forgerock.util.time.Duration;
 import org.slf4j.Logger;
@@ -58,6 +73,53 @@ import org.slf4j.LoggerFactory;
  *         "cleaningInterval"             : duration            [OPTIONAL - The interval to wait for cleaning outdated
  *                                                                          buckets. Cannot be neither zero nor
  *                                                                          unlimited.
+ *         "strategy"                     : string              [OPTIONAL - The algorithm enforcing the rate: "bursty"
+ *                                                                          (token bucket, default), "gcra" (evenly
+ *                                                                          spaced calls), "sliding-window" (sliding
+ *                                                                          window counter), "adaptive" (concurrency
+ *                                                                          limit adjusted from the latency, see
+ *                                                                          below) or "leased" (token buckets shared
+ *                                                                          by several gateways, see below).]
+ *         "tokenStore"                   : reference           [OPTIONAL - With the "leased" strategy, the TokenStore
+ *                                                                          holding the shared token buckets. Default
+ *                                                                          to an InMemoryTokenStore only shared by
+ *                                                                          this filter.]
+ *         "tokenBatchSize"               : integer             [OPTIONAL - With the "leased" strategy, the number of
+ *                                                                          tokens leased at once from the token store:
+ *                                                                          the greater, the less accurate the rate
+ *                                                                          across the gateways, but the fewer round
+ *                                                                          trips to the store. Default to 10.]
+ *         "leaseTimeout"                 : duration            [OPTIONAL - With the "leased" strategy, the time
+ *                                                                          after which a lease that the token store
+ *                                                                          did not complete is granted locally.
+ *                                                                          Default to 1 second.]
+ *         "maxPartitions"                : integer             [OPTIONAL - The maximum number of partitions (groups of
+ *                                                                          requests) tracked at once, the least
+ *                                                                          recently used ones being evicted.
+ *                                                                          Default to 1000000.]
+ *         "maxQueueingDelay"             : duration            [OPTIONAL - The maximum time a request that is over the
+ *                                                                          rate may be delayed (using the executor)
+ *                                                                          before being rejected. Default to zero:
+ *                                                                          such requests are rejected at once.]
+ *         "queueingExecutor"             : executor            [REQUIRED if maxQueueingDelay is not zero - The
+ *                                                                          executor calling the next handler once a
+ *                                                                          delayed request is accepted: it has to be
+ *                                                                          another executor than "executor", whose
+ *                                                                          threads only schedule the delayed
+ *                                                                          requests.]
+ *         "maxQueueSize"                 : integer             [OPTIONAL - The maximum number of requests delayed at
+ *                                                                          the same time for a group of requests.
+ *                                                                          Default to 100.]
+ *         "heavyHitters"                 : integer             [OPTIONAL - The number of groups of requests the most
+ *                                                                          allowed and the most throttled that are
+ *                                                                          tracked. Default to 0: no tracking.]
+ *         "heavyHittersSampling"         : integer             [OPTIONAL - One request out of this number is counted
+ *                                                                          when tracking the groups of requests: the
+ *                                                                          greater, the cheaper but the less accurate.
+ *                                                                          Default to 16.]
+ *         "heavyHittersDecayInterval"    : duration            [OPTIONAL - The interval at which the tracked counts
+ *                                                                          are halved, so that they reflect the
+ *                                                                          recent traffic. Default to 1 minute.]
  *         "requestGroupingPolicy"        : expression<String>  [REQUIRED - Expression to evaluate whether a request
  *                                                                          matches when calculating a rate for a group
  *                                                                          of requests.]
@@ -70,15 +132,50 @@ import org.slf4j.LoggerFactory;
  * OR
  *         "throttlingRatePolicy"         : reference or        [REQUIRED - the policy that will define the throttling
  *                                          inlined declaration             rate to apply]
+ *         "rateCacheTtl"                 : duration            [OPTIONAL - The time the rate provided by the
+ *                                                                          throttlingRatePolicy for a group of
+ *                                                                          requests is cached, so that the policy
+ *                                                                          (for instance a script) only runs on a
+ *                                                                          cache miss. Only suitable when the rate
+ *                                                                          depends on the group of requests alone.
+ *                                                                          Default to zero: no caching.]
+ *         "rateCacheMaxSize"             : integer             [OPTIONAL - The maximum number of groups of requests
+ *                                                                          whose rate is cached. Default to 10000.]
  *      }
  *  }
  *  }
  * </pre>
+ * With the "adaptive" strategy, the rate's number of requests is the maximum number of concurrent requests of a
+ * group, and its duration the time an idle group keeps the concurrency limit learnt from the latency.
+ * <p>
+ * With the "leased" strategy, the rate is applied across all the gateways sharing the token store: each gateway
+ * leases batches of tokens from the store, and spends them locally (see {@link LeasedTokenThrottlingStrategy}).
+ * <p>
+ * The tracked groups of requests are exposed on the {@literal heavy-hitters} endpoint of this object (for instance
+ * {@literal /openig/api/system/objects/_router/routes/my-route/objects/my-filter/heavy-hitters}).
  */
 public class ThrottlingFilterHeaplet extends GenericHeaplet {
 
     private static final Logger logger = LoggerFactory.getLogger(ThrottlingFilterHeaplet.class);
 
+    /** Default maximum number of partitions kept by the throttling strategy. */
+    private static final int DEFAULT_MAX_PARTITIONS = 1_000_000;
+
+    /** Default maximum number of requests delayed at the same time for a group of requests. */
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+
+    /** Default maximum number of groups of requests whose rate is cached. */
+    private static final int DEFAULT_RATE_CACHE_MAX_SIZE = 10_000;
+
+    /** Default number of tokens leased at once by the "leased" strategy. */
+    private static final int DEFAULT_TOKEN_BATCH_SIZE = 10;
+
+    /** Default number of groups of requests tracked as the most allowed and the most throttled. */
+    private static final int DEFAULT_HEAVY_HITTERS = 0;
+
+    /** Default number of requests out of which one is counted when tracking the groups of requests. */
+    private static final int DEFAULT_HEAVY_HITTERS_SAMPLING = 16;
+
     static Function<JsonValue, ThrottlingRate, JsonValueException> throttlingRate(final Bindings bindings) {
         return new Function<JsonValue, ThrottlingRate, JsonValueException>() {
 
@@ -95,15 +192,47 @@ public class ThrottlingFilterHeaplet extends GenericHeaplet {
     private ThrottlingStrategy throttlingStrategy(String throttlingStrategy,
                                                   Ticker ticker,
                                                   ScheduledExecutorService scheduledExecutor,
-                                                  Duration cleaningInterval) {
+                                                  Duration cleaningInterval,
+                                                  int maxPartitions) throws HeapException {
         switch (throttlingStrategy) {
+        case "leased":
+            TokenStore store = config.get("tokenStore").as(optionalHeapObject(heap, TokenStore.class));
+            int batchSize = config.get("tokenBatchSize")
+                                  .as(evaluatedWithHeapProperties())
+                                  .defaultTo(DEFAULT_TOKEN_BATCH_SIZE)
+                                  .asInteger();
+            if (batchSize <= 0) {
+                throw new HeapException("tokenBatchSize has to be greater than 0");
+            }
+            Duration leaseTimeout = config.get("leaseTimeout")
+                                          .as(evaluatedWithHeapProperties())
+                                          .defaultTo("1 second")
+                                          .as(duration());
+            if (leaseTimeout.isZero() || leaseTimeout.isUnlimited()) {
+                throw new HeapException("leaseTimeout cannot be neither zero nor unlimited");
+            }
+            return new LeasedTokenThrottlingStrategy(ticker,
+                                                     store != null ? store : new InMemoryTokenStore(ticker),
+                                                     batchSize,
+                                                     leaseTimeout,
+                                                     scheduledExecutor,
+                                                     cleaningInterval,
+                                                     maxPartitions);
+        case "adaptive":
+            return new AdaptiveThrottlingStrategy(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+        case "gcra":
+            return new GcraThrottlingStrategy(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
+        case "sliding-window":
+            return new SlidingWindowThrottlingStrategy(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
         case "bursty":
         default:
-            return new TokenBucketThrottlingStrategy(ticker, scheduledExecutor, cleaningInterval);
+            return new TokenBucketThrottlingStrategy(ticker, scheduledExecutor, cleaningInterval, maxPartitions);
         }
     }
 
     private ThrottlingFilter filter;
+    private ThrottlingMetricSource metricSource;
+    private ScheduledFuture<?> heavyHittersDecay;
 
     @Override
     public Object create() throws HeapException {
@@ -113,6 +242,14 @@ public class ThrottlingFilterHeaplet extends GenericHeaplet {
                                           .defaultTo("5 seconds")
                                           .as(duration());
 
+        int maxPartitions = config.get("maxPartitions")
+                                  .as(evaluatedWithHeapProperties())
+                                  .defaultTo(DEFAULT_MAX_PARTITIONS)
+                                  .asInteger();
+        if (maxPartitions <= 0) {
+            throw new HeapException("maxPartitions has to be greater than 0");
+        }
+
         final Expression<String> requestGroupingPolicy = config.get("requestGroupingPolicy")
                                                                .defaultTo("")
                                                                .as(expression(String.class));
@@ -140,17 +277,100 @@ public class ThrottlingFilterHeaplet extends GenericHeaplet {
                                                                          .toLowerCase(Locale.ROOT),
                                                                    ticker,
                                                                    executorService,
-                                                                   cleaningInterval);
+                                                                   cleaningInterval,
+                                                                   maxPartitions);
 
-        return filter = new ThrottlingFilter(name,new ExpressionRequestAsyncFunction<>(requestGroupingPolicy),
-                                             throttlingRatePolicy,
-                                             throttlingStrategy);
+        filter = new ThrottlingFilter(name,new ExpressionRequestAsyncFunction<>(requestGroupingPolicy),
+                                      throttlingRatePolicy,
+                                      throttlingStrategy);
+        Duration maxQueueingDelay = config.get("maxQueueingDelay")
+                                          .as(evaluatedWithHeapProperties())
+                                          .defaultTo("zero")
+                                          .as(duration());
+        int maxQueueSize = config.get("maxQueueSize")
+                                 .as(evaluatedWithHeapProperties())
+                                 .defaultTo(DEFAULT_MAX_QUEUE_SIZE)
+                                 .asInteger();
+        if (maxQueueingDelay.isUnlimited() || maxQueueSize <= 0) {
+            throw new HeapException("maxQueueingDelay cannot be unlimited and maxQueueSize has to be greater than 0");
+        }
+        if (!maxQueueingDelay.isZero()) {
+            Executor queueingExecutor = config.get("queueingExecutor")
+                                              .required()
+                                              .as(requiredHeapObject(heap, Executor.class));
+            if (queueingExecutor == executorService) {
+                throw new HeapException("queueingExecutor has to be another executor than executor");
+            }
+            filter.setQueueing(executorService, queueingExecutor, ticker, maxQueueingDelay, maxQueueSize);
+        }
+        trackHeavyHitters(executorService);
+
+        Duration rateCacheTtl = config.get("rateCacheTtl")
+                                      .as(evaluatedWithHeapProperties())
+                                      .defaultTo("zero")
+                                      .as(duration());
+        int rateCacheMaxSize = config.get("rateCacheMaxSize")
+                                     .as(evaluatedWithHeapProperties())
+                                     .defaultTo(DEFAULT_RATE_CACHE_MAX_SIZE)
+                                     .asInteger();
+        if (rateCacheMaxSize <= 0) {
+            throw new HeapException("rateCacheMaxSize has to be greater than 0");
+        }
+        filter.setRateCaching(ticker, rateCacheTtl, rateCacheMaxSize);
+
+        MetricSources sources = heap.get(METRIC_SOURCES_HEAP_KEY, MetricSources.class);
+        if (sources != null) {
+            metricSource = sources.getOrRegister(ThrottlingMetricSource.NAME, ThrottlingMetricSource.FACTORY);
+            metricSource.add(qualified.getFullyQualifiedName(), filter);
+        }
+        return filter;
+    }
+
+    private void trackHeavyHitters(final ScheduledExecutorService executorService) throws HeapException {
+        int heavyHitters = config.get("heavyHitters")
+                                 .as(evaluatedWithHeapProperties())
+                                 .defaultTo(DEFAULT_HEAVY_HITTERS)
+                                 .asInteger();
+        int sampling = config.get("heavyHittersSampling")
+                             .as(evaluatedWithHeapProperties())
+                             .defaultTo(DEFAULT_HEAVY_HITTERS_SAMPLING)
+                             .asInteger();
+        Duration decayInterval = config.get("heavyHittersDecayInterval")
+                                       .as(evaluatedWithHeapProperties())
+                                       .defaultTo("1 minute")
+                                       .as(duration());
+        if (heavyHitters < 0 || sampling <= 0 || decayInterval.isZero() || decayInterval.isUnlimited()) {
+            throw new HeapException("heavyHitters cannot be negative, heavyHittersSampling has to be greater than 0 "
+                                            + "and heavyHittersDecayInterval cannot be neither zero nor unlimited");
+        }
+        filter.setHeavyHitterTracking(heavyHitters, sampling);
+        if (heavyHitters == 0) {
+            return;
+        }
+
+        long period = decayInterval.to(MILLISECONDS);
+        heavyHittersDecay = executorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                filter.getAllowedHeavyHitters().decay();
+                filter.getThrottledHeavyHitters().decay();
+            }
+        }, period, period, MILLISECONDS);
+        if (heap.get(ENDPOINT_REGISTRY_HEAP_KEY, EndpointRegistry.class) != null) {
+            endpointRegistry().register("heavy-hitters", new HeavyHittersHandler(filter));
+        }
     }
 
     @Override
     public void destroy() {
         super.destroy();
+        if (heavyHittersDecay != null) {
+            heavyHittersDecay.cancel(false);
+        }
         if (filter != null) {
+            if (metricSource != null) {
+                metricSource.remove(qualified.getFullyQualifiedName(), filter);
+            }
             filter.stop();
         }
     }
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.filter.throttling;
+
+import static org.forgerock.openig.metrics.OpenMetricsWriter.COUNTER;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.GAUGE;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.forgerock.http.filter.throttling.ThrottlingFilter;
+import org.forgerock.openig.metrics.MetricSource;
+import org.forgerock.openig.metrics.OpenMetricsWriter;
+import org.forgerock.util.Factory;
+
+/**
+ * Exposes the decisions of all the {@link ThrottlingFilter}s, labelled with the fully qualified name of the filter.
+ */
+final class ThrottlingMetricSource implements MetricSource {
+
+    /**
+     * Name of this source in the {@link org.forgerock.openig.metrics.MetricSources}.
+     */
+    static final String NAME = "throttling";
+
+    /**
+     * Provides a new source, to register when there is none.
+     */
+    static final Factory<ThrottlingMetricSource> FACTORY = new Factory<ThrottlingMetricSource>() {
+        @Override
+        public ThrottlingMetricSource newInstance() {
+            return new ThrottlingMetricSource();
+        }
+    };
+
+    private final ConcurrentMap<String, ThrottlingFilter> filters = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds a filter.
+     *
+     * @param name
+     *         the fully qualified name of the filter
+     * @param filter
+     *         the filter
+     */
+    void add(final String name, final ThrottlingFilter filter) {
+        filters.put(name, filter);
+    }
+
+    /**
+     * Removes the given filter, unless it has already been replaced.
+     *
+     * @param name
+     *         the fully qualified name of the filter
+     * @param filter
+     *         the filter
+     */
+    void remove(final String name, final ThrottlingFilter filter) {
+        filters.remove(name, filter);
+    }
+
+    @Override
+    public void writeTo(final OpenMetricsWriter writer) throws IOException {
+        if (filters.isEmpty()) {
+            return;
+        }
+        writer.family("openig_throttling_requests", COUNTER, null,
+                      "Requests to which a throttling rate applied, by decision");
+        for (Map.Entry<String, ThrottlingFilter> entry : filters.entrySet()) {
+            ThrottlingFilter filter = entry.getValue();
+            writer.sample("openig_throttling_requests_total", filter.getAllowedRequestCount(),
+                          "filter", entry.getKey(), "decision", "allowed");
+            writer.sample("openig_throttling_requests_total", filter.getThrottledRequestCount(),
+                          "filter", entry.getKey(), "decision", "throttled");
+        }
+
+        writer.family("openig_throttling_queued_requests", GAUGE, null,
+                      "Requests over the rate being delayed rather than rejected");
+        for (Map.Entry<String, ThrottlingFilter> entry : filters.entrySet()) {
+            writer.sample("openig_throttling_queued_requests", entry.getValue().getQueuedRequestCount(),
+                          "filter", entry.getKey());
+        }
+
+        writer.family("openig_throttling_partitions", GAUGE, null,
+                      "Partitions (groups of requests sharing a rate) currently tracked");
+        for (Map.Entry<String, ThrottlingFilter> entry : filters.entrySet()) {
+            writer.sample("openig_throttling_partitions", entry.getValue().getPartitionCount(),
+                          "filter", entry.getKey());
+        }
+
+        writer.family("openig_throttling_partition_evictions", COUNTER, null,
+                      "Partitions evicted to make room for new ones, while they may still be in use");
+        for (Map.Entry<String, ThrottlingFilter> entry : filters.entrySet()) {
+            writer.sample("openig_throttling_partition_evictions_total", entry.getValue().getEvictedPartitionCount(),
+                          "filter", entry.getKey());
+        }
+    }
+}
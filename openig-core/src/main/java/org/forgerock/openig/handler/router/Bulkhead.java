@@ -0,0 +1,284 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.forgerock.http.protocol.Response.newResponsePromise;
+import static org.forgerock.http.protocol.Responses.newInternalServerError;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.http.Filter;
+import org.forgerock.http.Handler;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.http.protocol.Status;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Limits the number of requests that a route processes concurrently, so that a slow backend cannot exhaust the
+ * threads and connections shared with the other routes.
+ * <p>
+ * The requests over the limit wait in a bounded queue: they are processed in order, as soon as the in-flight
+ * requests complete, unless they have been waiting for longer than the queue timeout. The requests that cannot be
+ * queued (or that timed out) are rejected with a {@literal 503 Service Unavailable} response.
+ * <p>
+ * No thread ever waits: once an in-flight request completes, the next queued request is handed off to the dispatcher
+ * executor, that processes it.
+ */
+class Bulkhead implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(Bulkhead.class);
+
+    private final int maxConcurrentRequests;
+    private final int maxQueuedRequests;
+    private final Duration queueTimeout;
+    private final ScheduledExecutorService executor;
+    private final Executor dispatcher;
+    private final Counter queuedRequests;
+    private final Counter rejectedRequests;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Serializes the dispatch of the queued requests (see {@link #drain()}).
+     */
+    private final AtomicInteger draining = new AtomicInteger();
+
+    /**
+     * Builds a new bulkhead.
+     *
+     * @param maxConcurrentRequests
+     *         the maximum number of requests processed concurrently (strictly positive)
+     * @param maxQueuedRequests
+     *         the maximum number of requests waiting to be processed (0 to reject the requests over the limit)
+     * @param queueTimeout
+     *         the maximum time that a request may wait to be processed (unlimited to never expire)
+     * @param executor
+     *         the executor that expires the waiting requests (not used if the timeout is unlimited)
+     * @param dispatcher
+     *         the executor that processes the waiting requests once they can be (not used if there is no queue)
+     * @param metrics
+     *         the metrics of the route, that count the waiting requests and the rejected ones (either because the
+     *         queue was full or because they waited for too long), may be {@code null} if the route is not monitored
+     */
+    Bulkhead(final int maxConcurrentRequests,
+             final int maxQueuedRequests,
+             final Duration queueTimeout,
+             final ScheduledExecutorService executor,
+             final Executor dispatcher,
+             final MonitoringMetrics metrics) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueuedRequests = queueTimeout.isZero() ? 0 : maxQueuedRequests;
+        this.queueTimeout = queueTimeout;
+        this.executor = executor;
+        this.dispatcher = dispatcher;
+        this.queuedRequests = metrics != null ? metrics.getQueuedRequestCount() : new Counter();
+        this.rejectedRequests = metrics != null ? metrics.getRejectedRequestCount() : new Counter();
+    }
+
+    @Override
+    public Promise<Response, NeverThrowsException> filter(final Context context,
+                                                          final Request request,
+                                                          final Handler next) {
+        // Do not overtake the waiting requests
+        if (queued.get() == 0 && tryAcquire()) {
+            return process(context, request, next);
+        }
+        if (!tryEnqueue()) {
+            return newResponsePromise(reject("the queue is full"));
+        }
+        Waiter waiter = new Waiter(context, request, next);
+        queuedRequests.inc();
+        if (!queueTimeout.isUnlimited()) {
+            // Before the waiter is published, so that it is always cancelled once dispatched
+            waiter.timeout = executor.schedule(waiter, queueTimeout.getValue(), queueTimeout.getUnit());
+        }
+        waiters.add(waiter);
+        // An in-flight request may have completed in between
+        drain();
+        return waiter.promise;
+    }
+
+    private Promise<Response, NeverThrowsException> process(final Context context,
+                                                            final Request request,
+                                                            final Handler next) {
+        try {
+            return next.handle(context, request)
+                       .thenAlways(new Runnable() {
+                           @Override
+                           public void run() {
+                               release();
+                           }
+                       });
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentRequests) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    private boolean tryEnqueue() {
+        while (true) {
+            int current = queued.get();
+            if (current >= maxQueuedRequests) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands the waiting requests off to the dispatcher while there are free slots. A single thread drains the queue
+     * at a time: the other ones only ask it for another pass, so that a request completing synchronously does not
+     * recurse.
+     */
+    private void drain() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!waiters.isEmpty() && tryAcquire()) {
+                Waiter waiter = waiters.poll();
+                if (waiter == null || !waiter.claim()) {
+                    // Nothing to dispatch (or it has just expired): give the slot back
+                    inFlight.decrementAndGet();
+                    continue;
+                }
+                dispatch(waiter);
+            }
+        } while (draining.decrementAndGet() != 0);
+    }
+
+    private void dispatch(final Waiter waiter) {
+        try {
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    waiter.dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The dispatcher is shutting down: process the request anyway, as it holds a slot
+            waiter.dispatch();
+        }
+    }
+
+    private Response reject(final String reason) {
+        rejectedRequests.inc();
+        logger.debug("Request rejected: {}", reason);
+        return new Response(Status.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Returns the number of requests being processed.
+     * @return the number of requests being processed
+     */
+    int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    /**
+     * A request waiting for a free slot, either dispatched or expired (whichever {@linkplain #claim() claims} it
+     * first).
+     */
+    private final class Waiter implements Runnable {
+        private final Context context;
+        private final Request request;
+        private final Handler next;
+        private final PromiseImpl<Response, NeverThrowsException> promise = PromiseImpl.create();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        Waiter(final Context context, final Request request, final Handler next) {
+            this.context = context;
+            this.request = request;
+            this.next = next;
+        }
+
+        boolean claim() {
+            if (claimed.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+                queuedRequests.dec();
+                return true;
+            }
+            return false;
+        }
+
+        void dispatch() {
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            try {
+                process(context, request, next).thenOnResult(new ResultHandler<Response>() {
+                    @Override
+                    public void handleResult(final Response response) {
+                        promise.handleResult(response);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("An error occurred while processing a queued request", e);
+                promise.handleResult(newInternalServerError(e));
+            }
+        }
+
+        @Override
+        public void run() {
+            // Expired
+            if (claim()) {
+                waiters.remove(this);
+                promise.handleResult(reject("the request has been waiting for too long"));
+            }
+        }
+    }
+}
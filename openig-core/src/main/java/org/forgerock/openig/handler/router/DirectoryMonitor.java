@@ -12,24 +12,27 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
-import static java.util.Arrays.asList;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
@@ -38,13 +41,15 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.forgerock.http.util.Json;
 import org.forgerock.json.JsonValue;
 import org.forgerock.util.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * A {@link DirectoryMonitor} monitors a given directory. It watches the direct content (changes inside
- * children directories will not trigger any notifications) of the given directory, filtering only {@literal *.json}
- * files.
+ * children directories will not trigger any notifications, unless the monitor is {@linkplain #isRecursive()
+ * recursive}) of the given directory, filtering only {@literal *.json} files.
  * <p>
  * It reacts to the following events:
  * <ul>
@@ -52,12 +57,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  *     <li>Removed Files: Compared to the last snapshot, a file was deleted.</li>
  *     <li>Modified Files: Compared to the last snapshot, a file has been changed externally.</li>
  * </ul>
+ * <p>
+ * A file is considered as modified when its last modified date or its size has changed <em>and</em> its content
+ * digest differs from the one computed when it was last seen: touching a file, or rewriting it with the same
+ * content, does not trigger any notification.
+ * <p>
+ * The whole directory is compared to the snapshot with {@link #monitor(FileChangeListener)}, while
+ * {@link #monitor(FileChangeListener, Collection)} only checks the given paths (as reported by a
+ * {@link DirectoryWatcher}).
  *
  * @see FileChangeListener
  * @since 2.2
  */
 class DirectoryMonitor {
 
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryMonitor.class);
+
     private static final ObjectMapper MAPPER;
     static {
         MAPPER = new ObjectMapper().registerModules(new Json.JsonValueModule());
@@ -69,12 +84,22 @@ class DirectoryMonitor {
      */
     private final File directory;
 
+    /**
+     * Are the sub-directories monitored as well ?
+     */
+    private final boolean recursive;
+
     /**
      * Snapshot of the directory content. It maps the {@link File} to its {@linkplain File#lastModified() last modified}
      * value. It represents the currently "managed" files.
      */
     private final Map<File, Long> snapshot;
 
+    /**
+     * Size and content digest of the managed files, used to ignore changes that do not alter the content.
+     */
+    private final Map<File, FileDigest> digests = new HashMap<>();
+
     private Lock lock = new ReentrantLock();
 
     /**
@@ -85,7 +110,21 @@ class DirectoryMonitor {
      *         a non-{@literal null} directory (it may or may not exists) to monitor
      */
     public DirectoryMonitor(final File directory) {
-        this(directory, new HashMap<File, Long>());
+        this(directory, false);
+    }
+
+    /**
+     * Builds a new monitor watching for changes in the given {@literal directory} (and optionally in its
+     * sub-directories) that will notify the given listener.
+     * It starts with an empty snapshot (at first run, all discovered files will be considered as new).
+     *
+     * @param directory
+     *         a non-{@literal null} directory (it may or may not exists) to monitor
+     * @param recursive
+     *         {@literal true} if the files of the sub-directories have to be monitored as well
+     */
+    public DirectoryMonitor(final File directory, final boolean recursive) {
+        this(directory, new HashMap<File, Long>(), recursive);
     }
 
     /**
@@ -97,28 +136,87 @@ class DirectoryMonitor {
      *         initial state of the snapshot
      */
     public DirectoryMonitor(final File directory, final Map<File, Long> snapshot) {
+        this(directory, snapshot, false);
+    }
+
+    /**
+     * Builds a new monitor watching for changes in the given {@literal directory} that will notify the given listener.
+     * This constructor is intended for test cases where it's useful to provide an initial state under control.
+     * @param directory
+     *         a non-{@literal null} directory (it may or may not exist) to monitor
+     * @param snapshot
+     *         initial state of the snapshot
+     * @param recursive
+     *         {@literal true} if the files of the sub-directories have to be monitored as well
+     */
+    DirectoryMonitor(final File directory, final Map<File, Long> snapshot, final boolean recursive) {
         this.directory = directory;
         this.snapshot = snapshot;
+        this.recursive = recursive;
+    }
+
+    /**
+     * Returns the monitored directory.
+     * @return the monitored directory.
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns {@literal true} if the files of the sub-directories are monitored as well.
+     * @return {@literal true} if the files of the sub-directories are monitored as well.
+     */
+    boolean isRecursive() {
+        return recursive;
     }
 
     /**
      * Monitor the directory and notify the listener.
      * @param listener the listener to notify about the changes
+     * @return {@literal false} if the directory could not be scanned because a scan is already in progress,
+     * {@literal true} otherwise
      */
-    public void monitor(FileChangeListener listener) {
+    public boolean monitor(FileChangeListener listener) {
         if (lock.tryLock()) {
             try {
-                FileChangeSet fileChangeSet = createFileChangeSet();
-                if (fileChangeSet.isEmpty()) {
-                    // If there is no change to propagate, simply return
-                    return;
-                }
-                // Invoke listeners
-                listener.onChanges(fileChangeSet);
+                notify(listener, createFileChangeSet());
+                return true;
             } finally {
                 lock.unlock();
             }
         }
+        return false;
+    }
+
+    /**
+     * Checks only the given paths (files or directories, existing or not) and notify the listener of their
+     * changes.
+     *
+     * @param listener the listener to notify about the changes
+     * @param paths the paths that may have changed
+     * @return {@literal false} if the paths could not be checked because a scan is already in progress,
+     * {@literal true} otherwise
+     */
+    boolean monitor(FileChangeListener listener, Collection<File> paths) {
+        if (lock.tryLock()) {
+            try {
+                notify(listener, createFileChangeSet(paths));
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    private static void notify(final FileChangeListener listener, final FileChangeSet fileChangeSet) {
+        if (fileChangeSet.isEmpty()) {
+            // If there is no change to propagate, simply return
+            return;
+        }
+        // Invoke listeners
+        listener.onChanges(fileChangeSet);
     }
 
     /**
@@ -128,64 +226,122 @@ class DirectoryMonitor {
     @VisibleForTesting
     FileChangeSet createFileChangeSet() {
         // Take a snapshot of the current directory
-        List<File> latest = Collections.emptyList();
-        if (directory.isDirectory()) {
-            latest = new ArrayList<>(asList(directory.listFiles(jsonFiles())));
-        }
+        Set<File> candidates = new LinkedHashSet<>();
+        listJsonFiles(directory, candidates);
+        // Known files that are not there anymore will be detected as removed
+        candidates.addAll(snapshot.keySet());
+        return compare(candidates, false);
+    }
 
-        // Detect added files
-        // (in latest but not in known)
-        Set<File> added = new HashSet<>();
-        for (File candidate : new ArrayList<>(latest)) {
-            if (!snapshot.containsKey(candidate)) {
-                added.add(candidate);
-                latest.remove(candidate);
+    /**
+     * Returns a snapshot of the changes of the given paths compared to the previous scan. When one of the paths is
+     * (or was) a directory, its whole content is checked.
+     * @param paths the paths that may have changed
+     * @return a snapshot of the changes of the given paths compared to the previous scan.
+     */
+    @VisibleForTesting
+    FileChangeSet createFileChangeSet(Collection<File> paths) {
+        Set<File> candidates = new LinkedHashSet<>();
+        for (File path : paths) {
+            if (path.isDirectory()) {
+                listJsonFiles(path, candidates);
+            } else if (isJsonFile(path.getName())) {
+                candidates.add(path);
+            }
+            // Known files located under a (possibly removed) directory
+            String prefix = path.getPath() + File.separator;
+            for (File known : snapshot.keySet()) {
+                if (known.getPath().startsWith(prefix)) {
+                    candidates.add(known);
+                }
             }
         }
+        // The paths have been reported as changed: always compare the content of the known files
+        return compare(candidates, true);
+    }
 
-        // Detect removed files
-        // (in known but not in latest)
+    /**
+     * Compares the given candidates with the snapshot, updating it along the way. The content of the known files
+     * is only compared if their last modified date or their size changed, unless {@code verifyContent} is
+     * {@literal true}.
+     */
+    private FileChangeSet compare(final Set<File> candidates, final boolean verifyContent) {
+        Set<File> added = new HashSet<>();
         Set<File> removed = new HashSet<>();
-        for (File candidate : new ArrayList<>(snapshot.keySet())) {
-            if (!latest.contains(candidate)) {
+        Set<File> modified = new HashSet<>();
+        for (File candidate : candidates) {
+            boolean exists = candidate.isFile() && isMonitored(candidate);
+            Long lastModified = snapshot.get(candidate);
+            if (lastModified == null) {
+                if (exists) {
+                    // Detect added files (in latest but not in known)
+                    added.add(candidate);
+                    snapshot.put(candidate, candidate.lastModified());
+                    digests.put(candidate, FileDigest.of(candidate));
+                }
+            } else if (!exists) {
+                // Detect removed files (in known but not in latest)
                 removed.add(candidate);
                 snapshot.remove(candidate);
-            }
-        }
-
-        // Detect modified files
-        // Now, latest and known list should have the same Files inside
-        Set<File> modified = new HashSet<>();
-        for (File candidate : latest) {
-            long lastModified = snapshot.get(candidate);
-            if (lastModified < candidate.lastModified()) {
-                // File has changed since last check
-                modified.add(candidate);
+                digests.remove(candidate);
+            } else if (verifyContent
+                    || lastModified != candidate.lastModified()
+                    || hasDifferentLength(candidate)) {
+                // File may have changed since last check: compare the content digests
                 snapshot.put(candidate, candidate.lastModified());
+                FileDigest digest = FileDigest.of(candidate);
+                FileDigest previous = digests.put(candidate, digest);
+                if (previous == null || digest == null || !previous.equals(digest)) {
+                    modified.add(candidate);
+                }
             }
         }
+        return new FileChangeSet(directory, added, modified, removed);
+    }
 
-        // Append the added files to the known list for next processing step
-        for (File file : added) {
-            // Store their last modified value
-            snapshot.put(file, file.lastModified());
-        }
+    private boolean hasDifferentLength(final File file) {
+        FileDigest digest = digests.get(file);
+        return digest != null && digest.length != file.length();
+    }
 
-        return new FileChangeSet(directory, added, modified, removed);
+    /**
+     * Returns {@literal true} if the given file is located where this monitor looks for files.
+     */
+    private boolean isMonitored(final File file) {
+        File parent = file.getParentFile();
+        if (!recursive) {
+            return directory.equals(parent);
+        }
+        while (parent != null) {
+            if (directory.equals(parent)) {
+                return true;
+            }
+            parent = parent.getParentFile();
+        }
+        return false;
     }
 
     /**
-     * Factory method to be used as a fluent {@link FileFilter} declaration.
-     *
-     * @return a filter for {@literal .json} files
+     * Collects the {@literal .json} files of the given directory (and of its sub-directories if this monitor is
+     * recursive).
      */
-    private static FileFilter jsonFiles() {
-        return new FileFilter() {
-            @Override
-            public boolean accept(final File path) {
-                return path.isFile() && path.getName().endsWith(".json");
+    private void listJsonFiles(final File folder, final Set<File> files) {
+        File[] children = folder.listFiles();
+        if (children == null) {
+            // Not a directory, or an I/O error occurred
+            return;
+        }
+        for (File child : children) {
+            if (child.isFile() && isJsonFile(child.getName())) {
+                files.add(child);
+            } else if (recursive && child.isDirectory()) {
+                listJsonFiles(child, files);
             }
-        };
+        }
+    }
+
+    private static boolean isJsonFile(final String name) {
+        return name.endsWith(".json");
     }
 
     void store(String routeId, JsonValue routeConfig) throws IOException {
@@ -203,6 +359,7 @@ class DirectoryMonitor {
             }
             // Update the snapshot so it is not detected during the next scan
             snapshot.put(routeFile, routeFile.lastModified());
+            digests.put(routeFile, FileDigest.of(routeFile));
         } finally {
             lock.unlock();
         }
@@ -215,6 +372,7 @@ class DirectoryMonitor {
             if (routeFile.delete()) {
                 // Update the snapshot so it is not detected during the next scan
                 snapshot.remove(routeFile);
+                digests.remove(routeFile);
             }
         } finally {
             lock.unlock();
@@ -224,4 +382,56 @@ class DirectoryMonitor {
     private File routeFile(String routeId) {
         return new File(directory, routeId + ".json");
     }
+
+    /**
+     * Size and SHA-256 digest of a file content.
+     */
+    private static final class FileDigest {
+        private final long length;
+        private final byte[] digest;
+
+        private FileDigest(final long length, final byte[] digest) {
+            this.length = length;
+            this.digest = digest;
+        }
+
+        /**
+         * Computes the digest of the given file, returns {@literal null} if it cannot be read.
+         */
+        static FileDigest of(final File file) {
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                long length = 0;
+                try (InputStream in = new FileInputStream(file)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        sha256.update(buffer, 0, read);
+                        length += read;
+                    }
+                }
+                return new FileDigest(length, sha256.digest());
+            } catch (IOException | NoSuchAlgorithmException e) {
+                logger.warn("Cannot compute the digest of the file '{}'", file, e);
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileDigest)) {
+                return false;
+            }
+            FileDigest that = (FileDigest) o;
+            return length == that.length && Arrays.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(digest);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DirectoryWatcher} receives the file system events (through a {@link WatchService}) of the directory
+ * monitored by a {@link DirectoryMonitor}, and asks it to check the changed paths only.
+ * <p>
+ * It is meant to be {@linkplain #run() run} periodically (every {@literal debounce} period): the events received
+ * during a run are accumulated, and the accumulated paths are only checked by the first run that does not receive
+ * any new event. That way, a burst of writes results in a single {@link FileChangeListener#onChanges(FileChangeSet)}
+ * notification.
+ * <p>
+ * The events may be lost (overflow) or not delivered at all (some network file systems): in the first case the
+ * whole directory is checked, in the second one the periodic full scan of the {@link DirectoryMonitor} acts as the
+ * safety net.
+ */
+class DirectoryWatcher implements Runnable, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final DirectoryMonitor monitor;
+    private final FileChangeListener listener;
+    private final WatchService watchService;
+
+    /**
+     * Watched directories, by their registration key.
+     */
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    /**
+     * Paths reported as changed, not yet checked.
+     */
+    private final Set<File> dirty = new HashSet<>();
+
+    /**
+     * Were some events lost since the last check ?
+     */
+    private boolean overflow;
+
+    /**
+     * Builds a new watcher of the directory monitored by the given {@link DirectoryMonitor}.
+     *
+     * @param monitor
+     *         the monitor that checks the changed paths
+     * @param listener
+     *         the listener to notify about the changes
+     * @throws IOException
+     *         if the watch service cannot be created
+     */
+    DirectoryWatcher(final DirectoryMonitor monitor, final FileChangeListener listener) throws IOException {
+        this.monitor = monitor;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    @Override
+    public synchronized void run() {
+        try {
+            if (keys.isEmpty() && monitor.getDirectory().isDirectory()) {
+                // The directory did not exist before (or has been re-created): watch it and check all its content
+                register(monitor.getDirectory().toPath());
+                overflow = true;
+            }
+            if (!poll() && (overflow || !dirty.isEmpty())) {
+                // Quiet period after a burst of events: check the changed paths
+                flush();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.trace("The watch service of the directory '{}' has been closed", monitor.getDirectory(), e);
+        } catch (Exception e) {
+            logger.error("An error occurred while watching the directory '{}'", monitor.getDirectory(), e);
+        }
+    }
+
+    /**
+     * Accumulates the pending events, returns {@literal true} if there was any.
+     */
+    private boolean poll() throws IOException {
+        boolean received = false;
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            received = true;
+            Path folder = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW || folder == null) {
+                    overflow = true;
+                    continue;
+                }
+                Path path = folder.resolve((Path) event.context());
+                dirty.add(path.toFile());
+                if (event.kind() == ENTRY_CREATE && monitor.isRecursive() && path.toFile().isDirectory()) {
+                    register(path);
+                }
+            }
+            if (!key.reset()) {
+                // The directory is not accessible anymore
+                keys.remove(key);
+            }
+        }
+        return received;
+    }
+
+    private void flush() {
+        boolean checked;
+        if (overflow) {
+            // Some events may be missing: check everything
+            checked = monitor.monitor(listener);
+        } else {
+            checked = monitor.monitor(listener, new HashSet<>(dirty));
+        }
+        if (checked) {
+            // Otherwise a scan is in progress: try again later
+            overflow = false;
+            dirty.clear();
+        }
+    }
+
+    private void register(final Path folder) throws IOException {
+        keys.put(folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), folder);
+        if (monitor.isRecursive()) {
+            File[] children = folder.toFile().listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (child.isDirectory()) {
+                        register(child.toPath());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values (response times in microseconds) with a fixed relative precision, using the
+ * log-linear bucketing of HdrHistogram: each power of 2 is split in 128 linear sub-buckets, so any value is known
+ * within 1% and the high percentiles are as accurate as the low ones (nothing is sampled out).
+ * <p>
+ * Recording a value is lock-free (a few atomic additions). The statistics are only consistent when no value is
+ * recorded concurrently: the {@link ResponseTimeRecorder} records into a histogram while reading another one.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Number of linear sub-buckets per power of 2, as a power of 2: 256 sub-buckets for the first bucket
+     * (values lower than 256 are recorded exactly), 128 for the other ones.
+     */
+    private static final int SUB_BUCKET_BITS = 8;
+
+    /**
+     * Highest trackable value (about 71 minutes in microseconds): larger values are counted as this one.
+     */
+    static final long HIGHEST_TRACKABLE_VALUE = (1L << 32) - 1;
+
+    private static final int LENGTH = indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given value.
+     *
+     * @param value
+     *         the value to record (negative values are recorded as 0)
+     */
+    void record(final long value) {
+        long recorded = Math.min(Math.max(value, 0L), HIGHEST_TRACKABLE_VALUE);
+        counts.incrementAndGet(indexOf(recorded));
+        sum.add(recorded);
+        long current;
+        while (recorded > (current = max.get())) {
+            if (max.compareAndSet(current, recorded)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Adds the values of this histogram into the given one.
+     *
+     * @param target
+     *         the histogram to add the values to
+     */
+    void addTo(final LatencyHistogram target) {
+        for (int i = 0; i < LENGTH; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                target.counts.addAndGet(i, count);
+            }
+        }
+        target.sum.add(sum.sum());
+        long current;
+        long value = max.get();
+        while (value > (current = target.max.get())) {
+            if (target.max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Clears this histogram.
+     */
+    void reset() {
+        for (int i = 0; i < LENGTH; i++) {
+            counts.lazySet(i, 0L);
+        }
+        sum.reset();
+        max.set(0L);
+    }
+
+    /**
+     * Returns a copy of this histogram.
+     *
+     * @return a copy of this histogram
+     */
+    LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        addTo(copy);
+        return copy;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    long getCount() {
+        long count = 0L;
+        for (int i = 0; i < LENGTH; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum of the recorded values
+     */
+    long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the highest recorded value (0 if there is none).
+     *
+     * @return the highest recorded value
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values (0 if there is none).
+     *
+     * @return the mean of the recorded values
+     */
+    double getMean() {
+        long count = getCount();
+        return count == 0L ? 0.0 : (double) getSum() / count;
+    }
+
+    /**
+     * Returns the standard deviation of the recorded values (0 if there is none).
+     *
+     * @return the standard deviation of the recorded values
+     */
+    double getStdDev() {
+        long count = getCount();
+        if (count == 0L) {
+            return 0.0;
+        }
+        double mean = (double) getSum() / count;
+        double squares = 0.0;
+        for (int i = 0; i < LENGTH; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0L) {
+                double deviation = medianValueAt(i) - mean;
+                squares += deviation * deviation * bucketCount;
+            }
+        }
+        return Math.sqrt(squares / count);
+    }
+
+    /**
+     * Returns the value below which the given fraction of the recorded values fall (0 if there is none). The
+     * returned value is the highest value equivalent (within the precision of this histogram) to the actual one,
+     * without exceeding the highest recorded value.
+     *
+     * @param quantile
+     *         the fraction of the recorded values, in [0, 1] (0.99 for the 99th percentile)
+     * @return the value below which the given fraction of the recorded values fall
+     */
+    long getValueAtQuantile(final double quantile) {
+        long count = getCount();
+        if (count == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(Math.max(quantile, 0.0), 1.0) * count));
+        long seen = 0L;
+        for (int i = 0; i < LENGTH; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int indexOf(final long value) {
+        int bucket = 64 - Long.numberOfLeadingZeros(value | ((1L << SUB_BUCKET_BITS) - 1)) - SUB_BUCKET_BITS;
+        return (bucket << (SUB_BUCKET_BITS - 1)) + (int) (value >>> bucket);
+    }
+
+    static long lowestValueAt(final int index) {
+        int bucket = bucketOf(index);
+        return (long) (index - (bucket << (SUB_BUCKET_BITS - 1))) << bucket;
+    }
+
+    static long highestValueAt(final int index) {
+        return lowestValueAt(index) + (1L << bucketOf(index)) - 1L;
+    }
+
+    private static double medianValueAt(final int index) {
+        return (lowestValueAt(index) + highestValueAt(index)) / 2.0;
+    }
+
+    private static int bucketOf(final int index) {
+        return Math.max(0, (index >> (SUB_BUCKET_BITS - 1)) - 1);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.forgerock.http.protocol.Responses.newInternalServerError;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.json.JsonValue;
+import org.forgerock.openig.el.Expression;
+import org.forgerock.openig.heap.HeapException;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.time.TimeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Route} whose heap is only built when it processes its first request: only its condition is parsed when
+ * it is loaded, so that it can be indexed and selected like any other route.
+ * <p>
+ * The route is built once (the concurrent first requests wait for it), and started unless this route has been
+ * stopped in the meantime. It is built without holding the lock of this route: building its heap looks objects up in
+ * the parent heap, whose lock is held while this route is destroyed along with it. A route that cannot be built logs
+ * the error and responds with a {@literal 500 Internal Server Error} until its configuration is reloaded.
+ * <p>
+ * Once built, a lazy route is never unbuilt: the {@link RouterHandler} evicts an idle route by replacing it with an
+ * {@link #unbuilt()} copy, and retires it like any replaced route.
+ */
+final class LazyRoute extends Route {
+
+    private static final Logger logger = LoggerFactory.getLogger(LazyRoute.class);
+
+    private final RouteBuilder builder;
+    private final Expression<Boolean> condition;
+    private final TimeService time;
+
+    /**
+     * The built route, once the first request has been received.
+     */
+    private volatile Route built;
+
+    /**
+     * Time of the last request (milliseconds since epoch).
+     */
+    private volatile long lastAccessTime;
+
+    // The following fields are guarded by this object's lock
+    /** Released once the route being built by the first request has been built (or has failed to). */
+    private CountDownLatch building;
+    private Exception failure;
+    private boolean stopped;
+    private boolean destroyed;
+
+    /**
+     * Builds a new lazy route.
+     *
+     * @param builder
+     *         the builder of the actual route
+     * @param id
+     *         route's id
+     * @param name
+     *         route's name
+     * @param config
+     *         route's config
+     * @param condition
+     *         used to dispatch only a subset of incoming request to this route
+     * @param time
+     *         provides the time of the requests
+     */
+    LazyRoute(final RouteBuilder builder,
+              final String id,
+              final String name,
+              final JsonValue config,
+              final Expression<Boolean> condition,
+              final TimeService time) {
+        super(null, id, name, config, condition);
+        this.builder = builder;
+        this.condition = condition;
+        this.time = time;
+    }
+
+    @Override
+    public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
+        Route route = built;
+        if (route == null) {
+            route = instantiate();
+            if (route == null) {
+                return newResultPromise(newInternalServerError());
+            }
+        }
+        long now = time.now();
+        if (now != lastAccessTime) {
+            lastAccessTime = now;
+        }
+        return route.handle(context, request);
+    }
+
+    private Route instantiate() {
+        CountDownLatch latch;
+        synchronized (this) {
+            if (built != null || failure != null || destroyed) {
+                return built;
+            }
+            if (building != null) {
+                latch = building;
+            } else {
+                latch = null;
+                building = new CountDownLatch(1);
+            }
+        }
+        if (latch != null) {
+            // Another request is building the route
+            awaitUninterruptibly(latch);
+            return built;
+        }
+
+        Route route = null;
+        Exception error = null;
+        try {
+            route = builder.build(getId(), getName(), getConfig());
+        } catch (HeapException | RuntimeException e) {
+            error = e;
+        }
+        boolean discarded;
+        synchronized (this) {
+            discarded = destroyed;
+            if (route != null && !discarded) {
+                if (!stopped) {
+                    route.start();
+                }
+                lastAccessTime = time.now();
+                built = route;
+            }
+            failure = error;
+            building.countDown();
+            building = null;
+        }
+        if (error != null) {
+            logger.error("An error occurred while building the route with id '{}', it will not handle any request "
+                                 + "until it is reloaded", getId(), error);
+        } else if (discarded) {
+            // Destroyed while it was built
+            route.destroy();
+        } else {
+            logger.info("Built the route with id '{}' on its first request", getId());
+        }
+        return built;
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns {@literal true} if this route has been built, and has not received any request since the given time.
+     *
+     * @param threshold
+     *         the time (milliseconds since epoch) since when the route must not have received any request
+     * @return {@literal true} if this route has been built, and has not received any request since the given time
+     */
+    boolean isIdleSince(final long threshold) {
+        return built != null && lastAccessTime <= threshold && getInFlightRequests() == 0;
+    }
+
+    /**
+     * Returns a new, not built yet, copy of this route.
+     *
+     * @return a new, not built yet, copy of this route
+     */
+    LazyRoute unbuilt() {
+        return new LazyRoute(builder, getId(), getName(), getConfig(), condition, time);
+    }
+
+    @Override
+    public synchronized void start() {
+        stopped = false;
+        if (built != null) {
+            built.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopped = true;
+        if (built != null) {
+            built.stop();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Route route;
+        synchronized (this) {
+            destroyed = true;
+            route = built;
+        }
+        // A route being built is destroyed once built
+        if (route != null) {
+            route.destroy();
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
@@ -61,8 +62,7 @@ class MetricsFilter implements Filter {
                            public void handleResult(final Response result) {
                                // Elapsed time is computed in microseconds
                                long elapsed = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
-                               metrics.getAccumulatedResponseTime().inc(elapsed);
-                               metrics.getResponseTime().update(elapsed);
+                               metrics.getResponseTime().record(elapsed);
 
                                metrics.getThroughput().mark();
 
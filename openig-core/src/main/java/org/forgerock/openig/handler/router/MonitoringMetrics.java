@@ -12,19 +12,31 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.util.time.TimeService;
+
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.ExponentiallyDecayingReservoir;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 
 /**
  * Holds the set of metrics needed for monitoring.
+ * <p>
+ * None of them takes a lock when updated: the counters are striped, and the response times are recorded into
+ * lock-free histograms (see {@link ResponseTimeRecorder}), that also provide the accumulated response time.
  */
 class MonitoringMetrics {
+
+    /**
+     * Default duration of the intervals of the response time statistics.
+     */
+    static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     private final Counter totalResponseCount;
     private final Counter informativeResponseCount;
     private final Counter successResponseCount;
@@ -36,11 +48,24 @@ class MonitoringMetrics {
     private final Counter nullResponseCount;
     private final Counter totalRequestCount;
     private final Counter activeRequestCount;
+    private final Counter queuedRequestCount;
+    private final Counter rejectedRequestCount;
     private final Meter throughput;
-    private final Histogram responseTime;
-    private final Counter accumulatedResponseTime;
+    private final ResponseTimeRecorder responseTime;
 
     public MonitoringMetrics() {
+        this(TimeService.SYSTEM, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Builds a new set of metrics.
+     *
+     * @param time
+     *         the time service providing the bounds of the response time intervals
+     * @param intervalMillis
+     *         the duration of the response time intervals, in milliseconds
+     */
+    public MonitoringMetrics(final TimeService time, final long intervalMillis) {
         this.totalResponseCount = new Counter();
         this.informativeResponseCount = new Counter();
         this.successResponseCount = new Counter();
@@ -53,10 +78,11 @@ class MonitoringMetrics {
 
         this.totalRequestCount = new Counter();
         this.activeRequestCount = new Counter();
+        this.queuedRequestCount = new Counter();
+        this.rejectedRequestCount = new Counter();
 
         this.throughput = new Meter();
-        this.responseTime = new Histogram(new ExponentiallyDecayingReservoir());
-        this.accumulatedResponseTime = new Counter();
+        this.responseTime = new ResponseTimeRecorder(time, intervalMillis);
     }
 
     public Counter getTotalResponseCount() {
@@ -103,15 +129,27 @@ class MonitoringMetrics {
         return activeRequestCount;
     }
 
+    /**
+     * Returns the number of requests waiting for the route's {@link Bulkhead} to let them through.
+     * @return the number of requests waiting for the route's bulkhead
+     */
+    public Counter getQueuedRequestCount() {
+        return queuedRequestCount;
+    }
+
+    /**
+     * Returns the number of requests rejected by the route's {@link Bulkhead}.
+     * @return the number of requests rejected by the route's bulkhead
+     */
+    public Counter getRejectedRequestCount() {
+        return rejectedRequestCount;
+    }
+
     public Meter getThroughput() {
         return throughput;
     }
 
-    public Histogram getResponseTime() {
+    public ResponseTimeRecorder getResponseTime() {
         return responseTime;
     }
-
-    public Counter getAccumulatedResponseTime() {
-        return accumulatedResponseTime;
-    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
@@ -44,11 +45,11 @@ import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.Responses;
 import org.forgerock.json.resource.SingletonResourceProvider;
 import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.openig.handler.router.ResponseTimeRecorder.Interval;
 import org.forgerock.services.context.Context;
 import org.forgerock.util.promise.Promise;
 
 import com.codahale.metrics.Meter;
-import com.codahale.metrics.Snapshot;
 
 /**
  * Expose monitoring information provided by the given {@link MonitoringMetrics} as a REST resource.
@@ -87,7 +88,9 @@ class MonitoringResourceProvider implements SingletonResourceProvider {
 
         // requests
         data.put("requests", object(field("total", metrics.getTotalRequestCount().getCount()),
-                                    field("active", metrics.getActiveRequestCount().getCount())));
+                                    field("active", metrics.getActiveRequestCount().getCount()),
+                                    field("queued", metrics.getQueuedRequestCount().getCount()),
+                                    field("rejected", metrics.getRejectedRequestCount().getCount())));
 
         // responses
         data.put("responses", object(field("total", metrics.getTotalResponseCount().getCount()),
@@ -107,23 +110,38 @@ class MonitoringResourceProvider implements SingletonResourceProvider {
                                       field("last5Minutes", scale(throughput.getFiveMinuteRate())),
                                       field("last15Minutes", scale(throughput.getFifteenMinuteRate()))));
 
-        // responseTime (milliseconds), with 3 decimal point (ex: 92.908 ms)
-        // total is the accumulated response time: long only
-        Snapshot snapshot = metrics.getResponseTime().getSnapshot();
-        long accumulatedMillis = MICROSECONDS.toMillis(metrics.getAccumulatedResponseTime().getCount());
-        data.put("responseTime", object(field("mean", toMilliseconds(snapshot.getMean())),
-                                        field("median", toMilliseconds(snapshot.getMedian())),
-                                        field("standardDeviation", toMilliseconds(snapshot.getStdDev())),
-                                        field("total", accumulatedMillis),
-                                        field("percentiles", percentilesValues(snapshot))));
+        // responseTime (milliseconds) since monitoring started, with 3 decimal point (ex: 92.908 ms)
+        ResponseTimeRecorder recorder = metrics.getResponseTime();
+        data.put("responseTime", responseTime(recorder.getSinceStart().getHistogram()));
+
+        // the same statistics over the last completed interval
+        Interval interval = recorder.getLastInterval();
+        LatencyHistogram histogram = interval.getHistogram();
+        long duration = interval.getEnd() - interval.getStart();
+        double rate = duration == 0L ? 0.0 : histogram.getCount() * 1000.0 / duration;
+        data.put("lastInterval", object(field("start", interval.getStart()),
+                                        field("end", interval.getEnd()),
+                                        field("responses", histogram.getCount()),
+                                        field("throughput", scale(rate)),
+                                        field("responseTime", responseTime(histogram))));
 
         return Responses.newResourceResponse(null, null, data).asPromise();
     }
 
-    private Map<String, BigDecimal> percentilesValues(Snapshot snapshot) {
+    private Map<String, Object> responseTime(final LatencyHistogram histogram) {
+        // total is the accumulated response time: long only
+        return object(field("mean", toMilliseconds(histogram.getMean())),
+                      field("median", toMilliseconds(histogram.getValueAtQuantile(0.5))),
+                      field("standardDeviation", toMilliseconds(histogram.getStdDev())),
+                      field("max", toMilliseconds(histogram.getMax())),
+                      field("total", MICROSECONDS.toMillis(histogram.getSum())),
+                      field("percentiles", percentilesValues(histogram)));
+    }
+
+    private Map<String, BigDecimal> percentilesValues(LatencyHistogram histogram) {
         Map<String, BigDecimal> map = new LinkedHashMap<>();
         for (Double percentile : percentiles) {
-            map.put(String.valueOf(percentile), toMilliseconds(snapshot.getValue(percentile)));
+            map.put(String.valueOf(percentile), toMilliseconds(histogram.getValueAtQuantile(percentile)));
         }
         return map;
     }
@@ -0,0 +1,226 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.util.time.TimeService;
+
+/**
+ * Records the response times into {@link LatencyHistogram}s, and provides their statistics since the recording
+ * started and over the last completed interval.
+ * <p>
+ * The writers never wait: they record into an active histogram, that the readers swap with an empty one before
+ * reading its values (as HdrHistogram's {@literal Recorder} does). The intervals are closed when read: the last
+ * completed interval spans at least the configured interval duration, its actual bounds are provided.
+ */
+final class ResponseTimeRecorder {
+
+    private final TimeService time;
+    private final long intervalMillis;
+    private final Phaser phaser = new Phaser();
+
+    /**
+     * The histogram that the writers record into.
+     */
+    private volatile LatencyHistogram active = new LatencyHistogram();
+
+    // The following fields are only accessed by the readers, holding this object's lock
+    private LatencyHistogram inactive = new LatencyHistogram();
+    private final LatencyHistogram sinceStart = new LatencyHistogram();
+    private LatencyHistogram current = new LatencyHistogram();
+    private LatencyHistogram last = new LatencyHistogram();
+    private final long startTime;
+    private long currentStartTime;
+    private long lastStartTime;
+    private long lastEndTime;
+
+    /**
+     * Builds a new recorder.
+     *
+     * @param time
+     *         the time service providing the bounds of the intervals
+     * @param intervalMillis
+     *         the minimum duration of the intervals, in milliseconds
+     */
+    ResponseTimeRecorder(final TimeService time, final long intervalMillis) {
+        this.time = time;
+        this.intervalMillis = intervalMillis;
+        this.startTime = time.now();
+        this.currentStartTime = startTime;
+        this.lastStartTime = startTime;
+        this.lastEndTime = startTime;
+    }
+
+    /**
+     * Records a response time.
+     *
+     * @param micros
+     *         the response time, in microseconds
+     */
+    void record(final long micros) {
+        long epoch = phaser.enter();
+        try {
+            active.record(micros);
+        } finally {
+            phaser.exit(epoch);
+        }
+    }
+
+    /**
+     * Returns the response times recorded since the recording started.
+     *
+     * @return the response times recorded since the recording started
+     */
+    synchronized Interval getSinceStart() {
+        long now = sample();
+        return new Interval(startTime, now, sinceStart.copy());
+    }
+
+    /**
+     * Returns the response times recorded during the last completed interval (empty, with identical bounds, if no
+     * interval has been completed yet).
+     *
+     * @return the response times recorded during the last completed interval
+     */
+    synchronized Interval getLastInterval() {
+        sample();
+        return new Interval(lastStartTime, lastEndTime, last.copy());
+    }
+
+    /**
+     * Summarizes the response times without copying any histogram: the count and the sum of the response times
+     * recorded since the recording started, and the given quantiles of the ones recorded during the last completed
+     * interval.
+     *
+     * @param quantiles
+     *         the quantiles to compute (in [0, 1])
+     * @param values
+     *         receives the count, the sum, then the value at each quantile (its length must be at least the number
+     *         of quantiles plus 2)
+     */
+    synchronized void summarize(final double[] quantiles, final long[] values) {
+        sample();
+        values[0] = sinceStart.getCount();
+        values[1] = sinceStart.getSum();
+        for (int i = 0; i < quantiles.length; i++) {
+            values[i + 2] = last.getValueAtQuantile(quantiles[i]);
+        }
+    }
+
+    /**
+     * Collects the values recorded so far, and completes the current interval if it is over.
+     */
+    private long sample() {
+        long now = time.now();
+        LatencyHistogram recorded = active;
+        active = inactive;
+        // Wait for the writers that may still be recording into the previous histogram
+        phaser.flip();
+        recorded.addTo(sinceStart);
+        recorded.addTo(current);
+        recorded.reset();
+        inactive = recorded;
+
+        if (now - currentStartTime >= intervalMillis) {
+            LatencyHistogram completed = current;
+            current = last;
+            current.reset();
+            last = completed;
+            lastStartTime = currentStartTime;
+            lastEndTime = now;
+            currentStartTime = now;
+        }
+        return now;
+    }
+
+    /**
+     * The response times recorded during a period of time.
+     */
+    static final class Interval {
+        private final long start;
+        private final long end;
+        private final LatencyHistogram histogram;
+
+        Interval(final long start, final long end, final LatencyHistogram histogram) {
+            this.start = start;
+            this.end = end;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Returns the start of this interval (milliseconds since epoch).
+         * @return the start of this interval
+         */
+        long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the end of this interval (milliseconds since epoch).
+         * @return the end of this interval
+         */
+        long getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the response times (in microseconds) recorded during this interval.
+         * @return the response times recorded during this interval
+         */
+        LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Lets a reader wait for the writers that entered their critical section before a phase flip (the writers
+     * never wait). The phase is encoded in the sign of the start epoch.
+     */
+    private static final class Phaser {
+        private final AtomicLong startEpoch = new AtomicLong();
+        private final AtomicLong evenEndEpoch = new AtomicLong();
+        private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+        long enter() {
+            return startEpoch.getAndIncrement();
+        }
+
+        void exit(final long epoch) {
+            if (epoch < 0) {
+                oddEndEpoch.getAndIncrement();
+            } else {
+                evenEndEpoch.getAndIncrement();
+            }
+        }
+
+        /**
+         * Starts a new phase, and waits for the writers of the previous one to exit. Must be called by a single
+         * reader at a time.
+         */
+        void flip() {
+            boolean nextPhaseIsEven = startEpoch.get() < 0;
+            long initialValue = nextPhaseIsEven ? 0L : Long.MIN_VALUE;
+            (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialValue);
+            long startValueAtFlip = startEpoch.getAndSet(initialValue);
+            AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+            while (previousEndEpoch.get() != startValueAtFlip) {
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -12,12 +12,15 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
 import static org.forgerock.openig.el.Bindings.bindings;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.forgerock.http.Handler;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
@@ -62,6 +65,9 @@ import org.forgerock.util.promise.Promise;
  *       handler execution (if not defined, it always evaluate to true).</li>
  *   <li>{@literal name}: a string used name this route (may be used in route ordering).</li>
  *   <li>{@literal session}: the name of a declared heap object of type {@link SessionManager}.</li>
+ *   <li>{@literal bulkhead}: limits the requests processed concurrently by this route (see {@link Bulkhead}),
+ *       with {@literal maxConcurrentRequests}, {@literal maxQueuedRequests}, {@literal queueTimeout} and
+ *       {@literal executor}.</li>
  * </ul>
  *
  * @see RouterHandler
@@ -69,6 +75,11 @@ import org.forgerock.util.promise.Promise;
  */
 abstract class Route implements Handler {
 
+    /**
+     * Flag added to the in-flight requests count once the route has been retired.
+     */
+    private static final int RETIRED = 1 << 30;
+
     /**
      * Main entry point of this route.
      */
@@ -95,6 +106,21 @@ abstract class Route implements Handler {
      */
     private final JsonValue config;
 
+    /**
+     * Route's condition analysis.
+     */
+    private final RouteIndex.Constraints constraints;
+
+    /**
+     * Number of in-flight requests, plus {@link #RETIRED} once the route has been retired.
+     */
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * Invoked when the last in-flight request of a retired route completes.
+     */
+    private volatile Runnable onDrained;
+
     /**
      * Builds a new Route.
      * @param handler main handler of the route.
@@ -113,6 +139,7 @@ abstract class Route implements Handler {
         this.name = name;
         this.config = config;
         this.condition = condition;
+        this.constraints = RouteIndex.Constraints.of(condition);
     }
 
     /**
@@ -139,6 +166,14 @@ abstract class Route implements Handler {
         return config;
     }
 
+    /**
+     * Returns the necessary conditions extracted from the route condition, used for indexing.
+     * @return the necessary conditions extracted from the route condition.
+     */
+    RouteIndex.Constraints getConstraints() {
+        return constraints;
+    }
+
     /**
      * Evaluate if this route will accept the given {@link Context} and {@link Request}.
      * @param context used to evaluate the condition against
@@ -154,11 +189,68 @@ abstract class Route implements Handler {
      */
     public abstract void start();
 
+    /**
+     * Unhook this route from the system, without releasing its resources (its in-flight requests may still be
+     * processed). {@link #destroy()} is still expected to be called afterwards. Does nothing by default.
+     */
+    public void stop() {
+    }
+
     /**
      * Cleanup the resources used by this route.
      */
     public abstract void destroy();
 
+    /**
+     * Registers a request about to be processed by this route. Each successful call must be followed by a call to
+     * {@link #exit()} once the request has been processed.
+     *
+     * @return {@literal false} if this route has been retired (the request has to be dispatched to the routes
+     * that replaced it)
+     */
+    boolean enter() {
+        while (true) {
+            int current = state.get();
+            if (current >= RETIRED) {
+                return false;
+            }
+            if (state.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Signals that a request registered with {@link #enter()} has been processed.
+     */
+    void exit() {
+        if (state.decrementAndGet() == RETIRED) {
+            // Only the last request of a retired route can observe this value
+            onDrained.run();
+        }
+    }
+
+    /**
+     * Retires this route: no more requests can {@link #enter()} it.
+     *
+     * @param onDrained
+     *         invoked (once, by the thread completing the last request) when the in-flight requests have all been
+     *         processed, unless there was none
+     * @return {@literal true} if there was no in-flight request ({@code onDrained} will not be invoked)
+     */
+    boolean retire(final Runnable onDrained) {
+        this.onDrained = onDrained;
+        return state.getAndAdd(RETIRED) == 0;
+    }
+
+    /**
+     * Returns the number of requests being processed by this route.
+     * @return the number of requests being processed by this route.
+     */
+    int getInFlightRequests() {
+        return state.get() & (RETIRED - 1);
+    }
+
     @Override
     public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
         return handler.handle(context, request);
@@ -12,19 +12,24 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.forgerock.http.filter.Filters.newSessionFilter;
 import static org.forgerock.http.handler.Handlers.chainOf;
 import static org.forgerock.http.routing.RouteMatchers.requestUriMatcher;
 import static org.forgerock.http.routing.RoutingMode.EQUALS;
+import static org.forgerock.json.JsonValueFunctions.duration;
 import static org.forgerock.json.resource.Resources.newHandler;
 import static org.forgerock.json.resource.http.CrestHttp.newHttpHandler;
 import static org.forgerock.openig.handler.router.MonitoringResourceProvider.DEFAULT_PERCENTILES;
 import static org.forgerock.openig.heap.Keys.ENDPOINT_REGISTRY_HEAP_KEY;
+import static org.forgerock.openig.heap.Keys.METRIC_SOURCES_HEAP_KEY;
+import static org.forgerock.openig.heap.Keys.SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.TIME_SERVICE_HEAP_KEY;
 import static org.forgerock.openig.util.CrestUtil.newCrestApplication;
 import static org.forgerock.openig.util.JsonValues.evaluated;
@@ -34,6 +39,8 @@ import static org.forgerock.openig.util.StringUtil.slug;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.forgerock.audit.AuditService;
 import org.forgerock.http.Filter;
@@ -41,6 +48,7 @@ import org.forgerock.http.Handler;
 import org.forgerock.http.routing.Router;
 import org.forgerock.http.session.SessionManager;
 import org.forgerock.json.JsonValue;
+import org.forgerock.json.JsonValueException;
 import org.forgerock.json.resource.RequestHandler;
 import org.forgerock.openig.el.Expression;
 import org.forgerock.openig.filter.HttpAccessAuditFilter;
@@ -52,6 +60,8 @@ import org.forgerock.openig.heap.HeapException;
 import org.forgerock.openig.heap.HeapImpl;
 import org.forgerock.openig.heap.Name;
 import org.forgerock.openig.http.EndpointRegistry;
+import org.forgerock.openig.metrics.MetricSources;
+import org.forgerock.util.time.Duration;
 import org.forgerock.util.time.TimeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -86,6 +96,18 @@ class RouteBuilder {
         this.routerRegistry = routerRegistry;
     }
 
+    /**
+     * Returns whether routes can be built by other threads while the calling one waits for them: this is not the
+     * case while the calling thread holds the lock of the parent heap (the router defers its first scan until it is
+     * released, see {@link HeapImpl#runUnlocked(Runnable)}), as the route heaps look their objects up in the parent
+     * heap.
+     *
+     * @return whether routes can be built by other threads while the calling one waits for them
+     */
+    boolean canBuildConcurrently() {
+        return !heap.isLockedByCurrentThread();
+    }
+
     /**
      * Builds a new route from the given configuration.
      *
@@ -110,7 +132,7 @@ class RouteBuilder {
 
         try {
             routeHeap.init(config.copy(), "handler", "session", "name", "condition", "auditService", "globalDecorators",
-                           "monitor", "properties");
+                           "monitor", "bulkhead", "properties");
 
             Expression<Boolean> condition = config.get("condition").as(expression(Boolean.class, heap.getProperties()));
 
@@ -125,18 +147,41 @@ class RouteBuilder {
 
             final Endpoints endpoints = new Endpoints(slug);
             endpoints.register("objects", objects, null);
-            Handler routeHandler = setupRouteHandler(routeHeap, config, endpoints, routeId);
+            MonitorConfig mc = getMonitorConfig(config.get("monitor"));
+            final MonitoringMetrics metrics;
+            final RouteMetricSource metricSource;
+            if (mc.isEnabled()) {
+                metrics = new MonitoringMetrics(routeHeap.get(TIME_SERVICE_HEAP_KEY, TimeService.class),
+                                                mc.getInterval());
+                metricSource = getRouteMetricSource();
+            } else {
+                metrics = null;
+                metricSource = null;
+            }
+            Handler routeHandler = setupRouteHandler(routeHeap, config, endpoints, routeId, mc, metrics);
             return new Route(routeHandler, routeId, routeName, config, condition) {
 
                 @Override
                 public void start() {
                     // Register this route's endpoints into the parent registry
                     endpoints.attach();
+                    if (metricSource != null) {
+                        metricSource.add(name.getLeaf(), routeId, metrics);
+                    }
                 }
 
                 @Override
-                public void destroy() {
+                public void stop() {
+                    // Un-register this route's endpoints, so that a replacing route can register its own ones
                     endpoints.detach();
+                    if (metricSource != null) {
+                        metricSource.remove(name.getLeaf(), routeId, metrics);
+                    }
+                }
+
+                @Override
+                public void destroy() {
+                    stop();
                     routeHeap.destroy();
                 }
             };
@@ -146,10 +191,25 @@ class RouteBuilder {
         }
     }
 
+    /**
+     * Builds a new route from the given configuration, whose heap is only built when it processes its first request
+     * (only its condition is parsed now).
+     *
+     * @param config the JSON route configuration
+     * @return a new lazy Route
+     */
+    LazyRoute lazy(final String routeId, final String routeName, final JsonValue config) throws HeapException {
+        Expression<Boolean> condition = config.get("condition").as(expression(Boolean.class, heap.getProperties()));
+        TimeService time = heap.get(TIME_SERVICE_HEAP_KEY, TimeService.class);
+        return new LazyRoute(this, routeId, routeName, config, condition, time != null ? time : TimeService.SYSTEM);
+    }
+
     private Handler setupRouteHandler(final HeapImpl routeHeap,
                                       final JsonValue config,
                                       final Endpoints endpoints,
-                                      final String routeId) throws HeapException {
+                                      final String routeId,
+                                      final MonitorConfig mc,
+                                      final MonitoringMetrics metrics) throws HeapException {
 
         TimeService time = routeHeap.get(TIME_SERVICE_HEAP_KEY, TimeService.class);
 
@@ -169,9 +229,7 @@ class RouteBuilder {
             filters.add(new HttpAccessAuditFilter(auditService, time));
         }
 
-        MonitorConfig mc = getMonitorConfig(config.get("monitor"));
-        if (mc.isEnabled()) {
-            MonitoringMetrics metrics = new MonitoringMetrics();
+        if (metrics != null) {
             filters.add(new MetricsFilter(metrics));
             RequestHandler singleton = newHandler(new MonitoringResourceProvider(metrics, mc.getPercentiles()));
             endpoints.register("monitoring",
@@ -180,6 +238,12 @@ class RouteBuilder {
                                "Monitoring endpoint available at '{}'");
         }
 
+        // Limit the concurrent requests once they have been counted
+        Bulkhead bulkhead = getBulkhead(config.get("bulkhead"), routeHeap, metrics);
+        if (bulkhead != null) {
+            filters.add(bulkhead);
+        }
+
         // Log exceptions attached to responses
         filters.add(new LogAttachedExceptionFilter());
 
@@ -192,6 +256,18 @@ class RouteBuilder {
         return chainOf(routeHeap.getHandler(), filters);
     }
 
+    /**
+     * Returns the source exposing the metrics of the monitored routes, or {@code null} if there is no
+     * {@link MetricSources} in the heap.
+     */
+    private RouteMetricSource getRouteMetricSource() throws HeapException {
+        MetricSources sources = heap.get(METRIC_SOURCES_HEAP_KEY, MetricSources.class);
+        if (sources == null) {
+            return null;
+        }
+        return sources.getOrRegister(RouteMetricSource.NAME, RouteMetricSource.FACTORY);
+    }
+
     /**
      * Extract monitoring information from JSON.
      *
@@ -215,12 +291,14 @@ class RouteBuilder {
      *     {@code
      *       "monitor": {
      *           "enabled": "${true}",
-     *           "percentiles": [ 0.1, 0.75, 0.99, 0.999 ]
+     *           "percentiles": [ 0.1, 0.75, 0.99, 0.999 ],
+     *           "interval": "1 minute"
      *       }
      *     }
      * </pre>
      *
-     * By default (if omitted), monitoring is disabled.
+     * By default (if omitted), monitoring is disabled. The response time statistics are provided since the
+     * monitoring started and over the last completed {@literal interval} (default to 1 minute).
      */
     private MonitorConfig getMonitorConfig(JsonValue monitor) {
         JsonValue evaluatedConfig = monitor.as(evaluated(heap.getProperties()));
@@ -230,6 +308,13 @@ class RouteBuilder {
             mc.setEnabled(evaluatedConfig.get("enabled").defaultTo(false).asBoolean());
             // percentiles
             mc.setPercentiles(evaluatedConfig.get("percentiles").defaultTo(DEFAULT_PERCENTILES).asList(Double.class));
+            // interval
+            JsonValue interval = evaluatedConfig.get("interval").defaultTo("1 minute");
+            Duration duration = interval.as(duration());
+            if (duration.isZero() || duration.isUnlimited()) {
+                throw new JsonValueException(interval, "the interval must be positive and finite");
+            }
+            mc.setInterval(duration.to(MILLISECONDS));
         } else {
             // by default monitoring is disabled
             mc.setEnabled(evaluatedConfig.defaultTo(false).asBoolean());
@@ -237,9 +322,68 @@ class RouteBuilder {
         return mc;
     }
 
+    /**
+     * Builds the {@link Bulkhead} limiting the concurrent requests of the route from JSON.
+     *
+     * <pre>
+     *     {@code
+     *       "bulkhead": {
+     *           "maxConcurrentRequests": 100,
+     *           "maxQueuedRequests": 50,
+     *           "queueTimeout": "2 seconds",
+     *           "executor": "BulkheadExecutor"
+     *       }
+     *     }
+     * </pre>
+     *
+     * By default (if omitted), the concurrent requests are not limited. Otherwise {@literal maxConcurrentRequests}
+     * is required, and by default the requests over the limit are rejected ({@literal maxQueuedRequests} defaults to
+     * 0) or, when they can be queued, wait for 1 second at most ({@literal queueTimeout}). The queued requests are
+     * processed by the {@literal executor} ({@link Executor}), that is required when {@literal maxQueuedRequests} is
+     * positive: it runs the whole downstream chain of the queued requests, so it should be dedicated to the route
+     * (sharing the {@link ScheduledExecutorService} of the heap would delay its timers behind a slow backend).
+     */
+    private Bulkhead getBulkhead(final JsonValue bulkhead,
+                                 final HeapImpl routeHeap,
+                                 final MonitoringMetrics metrics) throws HeapException {
+        if (bulkhead.isNull()) {
+            return null;
+        }
+        JsonValue evaluatedConfig = bulkhead.as(evaluated(heap.getProperties()));
+        JsonValue maxConcurrentRequests = evaluatedConfig.get("maxConcurrentRequests").required();
+        if (maxConcurrentRequests.asInteger() < 1) {
+            throw new JsonValueException(maxConcurrentRequests, "the maximum number of concurrent requests must be "
+                    + "strictly positive");
+        }
+        JsonValue maxQueuedRequests = evaluatedConfig.get("maxQueuedRequests").defaultTo(0);
+        if (maxQueuedRequests.asInteger() < 0) {
+            throw new JsonValueException(maxQueuedRequests, "the maximum number of queued requests must be positive");
+        }
+        Duration queueTimeout = evaluatedConfig.get("queueTimeout").defaultTo("1 second").as(duration());
+        ScheduledExecutorService executor = routeHeap.get(SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY,
+                                                          ScheduledExecutorService.class);
+        Executor dispatcher = bulkhead.get("executor").as(optionalHeapObject(routeHeap, Executor.class));
+        if (maxQueuedRequests.asInteger() > 0 && !queueTimeout.isZero()) {
+            if (dispatcher == null) {
+                throw new JsonValueException(bulkhead.get("executor"),
+                                             "an executor is required to process the queued requests");
+            }
+            if (executor == null && !queueTimeout.isUnlimited()) {
+                throw new HeapException("No ScheduledExecutorService available to expire the queued requests");
+            }
+        }
+        return new Bulkhead(maxConcurrentRequests.asInteger(),
+                            maxQueuedRequests.asInteger(),
+                            queueTimeout,
+                            executor,
+                            dispatcher,
+                            metrics);
+    }
+
     private static class MonitorConfig {
         private boolean enabled;
         private List<Double> percentiles = DEFAULT_PERCENTILES;
+        private long interval = MonitoringMetrics.DEFAULT_INTERVAL_MILLIS;
 
         public void setEnabled(boolean enabled) {
             this.enabled = enabled;
@@ -256,6 +400,14 @@ class RouteBuilder {
         public List<Double> getPercentiles() {
             return percentiles;
         }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
     }
 
     private final class Endpoints {
@@ -284,6 +436,8 @@ class RouteBuilder {
             for (EndpointRegistry.Registration registration : registrations) {
                 registration.unregister();
             }
+            // Registrations of another route may use the same paths: never un-register them twice
+            registrations.clear();
         }
 
         public void register(String path, Handler handler, String message) {
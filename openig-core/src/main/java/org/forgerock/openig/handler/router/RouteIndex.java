@@ -0,0 +1,712 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.forgerock.http.protocol.Request;
+import org.forgerock.openig.el.Expression;
+import org.forgerock.openig.el.Functions;
+import org.forgerock.services.context.Context;
+
+import de.odysseus.el.tree.impl.ast.AstBinary;
+import de.odysseus.el.tree.impl.ast.AstBoolean;
+import de.odysseus.el.tree.impl.ast.AstChoice;
+import de.odysseus.el.tree.impl.ast.AstDot;
+import de.odysseus.el.tree.impl.ast.AstEval;
+import de.odysseus.el.tree.impl.ast.AstFunction;
+import de.odysseus.el.tree.impl.ast.AstIdentifier;
+import de.odysseus.el.tree.impl.ast.AstMethod;
+import de.odysseus.el.tree.impl.ast.AstNested;
+import de.odysseus.el.tree.impl.ast.AstNode;
+import de.odysseus.el.tree.impl.ast.AstNull;
+import de.odysseus.el.tree.impl.ast.AstNumber;
+import de.odysseus.el.tree.impl.ast.AstParameters;
+import de.odysseus.el.tree.impl.ast.AstProperty;
+import de.odysseus.el.tree.impl.ast.AstString;
+import de.odysseus.el.tree.impl.ast.AstUnary;
+
+/**
+ * Immutable index over an ordered set of {@link Route}s, used to avoid evaluating the condition of every route for
+ * each incoming request.
+ *
+ * <p>An index is a snapshot of the routes managed by a {@link RouterHandler}: changes are applied by building a new
+ * index (see {@link #with(Route)} and {@link #without(Route)}) that is then published, so that requests can be
+ * dispatched without any locking.
+ *
+ * <p>Route conditions are analysed once, when the index is built. The top-level conjunctions ({@code and}/{@code &&})
+ * of the following shapes are recognized:
+ * <ul>
+ *     <li>{@code matches(request.uri.path, '^/literal')}: the route is stored in a prefix trie on the request
+ *     path</li>
+ *     <li>{@code request.uri.host == 'example.com'}: the route is stored in a per-host map</li>
+ *     <li>{@code request.method == 'GET'}: the method is checked before evaluating the condition</li>
+ * </ul>
+ * Each recognized shape is a necessary condition for the route to accept a request: routes whose constraints are
+ * not satisfied are skipped without evaluating their condition. Routes whose condition is entirely made of such
+ * constraints are accepted without any expression evaluation; all the others still get their condition evaluated,
+ * in order.
+ *
+ * <p>The candidates are always tried in the order of the routes given at construction time (that is, the order
+ * defined by {@link LexicographicalRouteComparator}), so the first accepting route is the same as with a linear
+ * scan.
+ *
+ * <p>The conditions that provably read nothing but the request method, host and path (and literals, operators and
+ * side-effect free functions) are also identified. When the selection of a route only involved such conditions,
+ * its result is determined by these 3 attributes: it is remembered in a bounded cache, so that the next requests
+ * with the same attributes get the same route without evaluating any condition. The cache belongs to the index,
+ * so every change of the routes starts with an empty one.
+ */
+final class RouteIndex {
+
+    private static final int[] NONE = new int[0];
+
+    /** An index that contains no routes. */
+    static final RouteIndex EMPTY = new RouteIndex(new ArrayList<Route>());
+
+    private static final String REQUEST_PATH = "request.uri.path";
+    private static final String REQUEST_HOST = "request.uri.host";
+    private static final String REQUEST_METHOD = "request.method";
+
+    /** Number of slots of the route selection cache (a power of 2). */
+    private static final int SELECTION_CACHE_SIZE = 1024;
+
+    /** Indexed routes, in their evaluation order. */
+    private final Route[] routes;
+
+    /** Indexed routes, by identifier. */
+    private final Map<String, Route> byId = new HashMap<>();
+
+    /** Analysed conditions of the routes (same indexes as {@link #routes}). */
+    private final Constraints[] constraints;
+
+    /** Routes that are not bound to a given host. */
+    private final PathTrie anyHost = new PathTrie();
+
+    /** Routes bound to a given host. */
+    private final Map<String, PathTrie> hosts = new HashMap<>();
+
+    /**
+     * Recent route selections, by request method, host and path: a direct-mapped cache (colliding selections replace
+     * each other), or {@code null} if no condition is determined by these attributes.
+     */
+    private final AtomicReferenceArray<Selection> selections;
+
+    /**
+     * Builds an index of the given routes.
+     *
+     * @param routes
+     *         the routes to index, in the order they have to be tried
+     */
+    RouteIndex(final Collection<Route> routes) {
+        this.routes = routes.toArray(new Route[routes.size()]);
+        this.constraints = new Constraints[this.routes.length];
+        boolean cacheable = false;
+        for (int i = 0; i < this.routes.length; i++) {
+            byId.put(this.routes[i].getId(), this.routes[i]);
+            Constraints analysed = this.routes[i].getConstraints();
+            constraints[i] = analysed;
+            cacheable |= analysed.deterministic;
+            PathTrie trie = anyHost;
+            if (analysed.host != null) {
+                trie = hosts.get(analysed.host);
+                if (trie == null) {
+                    trie = new PathTrie();
+                    hosts.put(analysed.host, trie);
+                }
+            }
+            trie.add(analysed.pathPrefix, i);
+        }
+        anyHost.seal();
+        for (PathTrie trie : hosts.values()) {
+            trie.seal();
+        }
+        this.selections = cacheable ? new AtomicReferenceArray<Selection>(SELECTION_CACHE_SIZE) : null;
+    }
+
+    /**
+     * Returns the indexed route with the given identifier.
+     *
+     * @param routeId
+     *         the route identifier
+     * @return the indexed route with the given identifier, or {@code null} if there is none.
+     */
+    Route get(final String routeId) {
+        return byId.get(routeId);
+    }
+
+    /**
+     * Returns the indexed routes, in the order they are tried.
+     *
+     * @return the indexed routes, in the order they are tried.
+     */
+    List<Route> getRoutes() {
+        return unmodifiableList(Arrays.asList(routes));
+    }
+
+    /**
+     * Returns a new index containing the routes of this index, plus the given one.
+     *
+     * @param route
+     *         the route to add (its identifier must not already be indexed)
+     * @return a new index containing the routes of this index, plus the given one.
+     */
+    RouteIndex with(final Route route) {
+        SortedSet<Route> sorted = new TreeSet<>(new LexicographicalRouteComparator());
+        sorted.addAll(Arrays.asList(routes));
+        sorted.add(route);
+        return new RouteIndex(sorted);
+    }
+
+    /**
+     * Returns a new index containing the routes of this index, plus the given ones.
+     *
+     * @param added
+     *         the routes to add (their identifiers must not already be indexed)
+     * @return a new index containing the routes of this index, plus the given ones.
+     */
+    RouteIndex with(final Collection<Route> added) {
+        SortedSet<Route> sorted = new TreeSet<>(new LexicographicalRouteComparator());
+        sorted.addAll(Arrays.asList(routes));
+        sorted.addAll(added);
+        return new RouteIndex(sorted);
+    }
+
+    /**
+     * Returns a new index containing the routes of this index, except the given one.
+     *
+     * @param route
+     *         the route to remove
+     * @return a new index containing the routes of this index, except the given one.
+     */
+    RouteIndex without(final Route route) {
+        List<Route> remaining = new ArrayList<>(routes.length);
+        for (Route candidate : routes) {
+            if (candidate != route) {
+                remaining.add(candidate);
+            }
+        }
+        return new RouteIndex(remaining);
+    }
+
+    /**
+     * Returns a new index containing the routes of this index, except the given ones.
+     *
+     * @param removed
+     *         the routes to remove
+     * @return a new index containing the routes of this index, except the given ones.
+     */
+    RouteIndex without(final Collection<Route> removed) {
+        Set<Route> excluded = Collections.newSetFromMap(new IdentityHashMap<Route, Boolean>());
+        excluded.addAll(removed);
+        List<Route> remaining = new ArrayList<>(routes.length);
+        for (Route candidate : routes) {
+            if (!excluded.contains(candidate)) {
+                remaining.add(candidate);
+            }
+        }
+        return new RouteIndex(remaining);
+    }
+
+    /**
+     * Returns the first route (in evaluation order) that accepts the given request, or {@code null} if none does.
+     *
+     * @param context
+     *         the request's context
+     * @param request
+     *         the request to route
+     * @return the first route that accepts the given request, or {@code null} if none does.
+     */
+    Route find(final Context context, final Request request) {
+        if (routes.length == 0) {
+            return null;
+        }
+        String host = null;
+        String path = null;
+        String method = null;
+        if (request != null) {
+            method = request.getMethod();
+            if (request.getUri() != null) {
+                host = request.getUri().getHost();
+                path = request.getUri().getPath();
+            }
+        }
+
+        int slot = -1;
+        if (selections != null && request != null) {
+            slot = slotOf(method, host, path);
+            Selection selection = selections.get(slot);
+            if (selection != null && selection.matches(method, host, path)) {
+                return selection.route;
+            }
+        }
+
+        // 4 sorted lists of candidates: routes that do not constrain the path and routes whose path prefix matches,
+        // for any host and for the request's host
+        PathTrie hostTrie = host != null ? hosts.get(host) : null;
+        int[] anyHostAnyPath = anyHost.root.routes;
+        int[] anyHostPath = anyHost.candidates(path);
+        int[] hostAnyPath = hostTrie != null ? hostTrie.root.routes : NONE;
+        int[] hostPath = hostTrie != null ? hostTrie.candidates(path) : NONE;
+
+        int a = 0;
+        int b = 0;
+        int c = 0;
+        int d = 0;
+        // Is the selection determined by the request method, host and path ?
+        boolean deterministic = slot != -1;
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            if (a < anyHostAnyPath.length) {
+                next = anyHostAnyPath[a];
+            }
+            if (b < anyHostPath.length && anyHostPath[b] < next) {
+                next = anyHostPath[b];
+            }
+            if (c < hostAnyPath.length && hostAnyPath[c] < next) {
+                next = hostAnyPath[c];
+            }
+            if (d < hostPath.length && hostPath[d] < next) {
+                next = hostPath[d];
+            }
+            if (next == Integer.MAX_VALUE) {
+                return select(deterministic, slot, method, host, path, null);
+            }
+            if (a < anyHostAnyPath.length && anyHostAnyPath[a] == next) {
+                a++;
+            } else if (b < anyHostPath.length && anyHostPath[b] == next) {
+                b++;
+            } else if (c < hostAnyPath.length && hostAnyPath[c] == next) {
+                c++;
+            } else {
+                d++;
+            }
+
+            Route route = routes[next];
+            Constraints constraint = constraints[next];
+            if (constraint.method != null && !constraint.method.equals(method)) {
+                continue;
+            }
+            if (constraint.exact) {
+                return select(deterministic, slot, method, host, path, route);
+            }
+            deterministic &= constraint.deterministic;
+            if (route.accept(context, request)) {
+                return select(deterministic, slot, method, host, path, route);
+            }
+        }
+    }
+
+    private Route select(final boolean deterministic,
+                         final int slot,
+                         final String method,
+                         final String host,
+                         final String path,
+                         final Route route) {
+        if (deterministic) {
+            selections.lazySet(slot, new Selection(method, host, path, route));
+        }
+        return route;
+    }
+
+    private static int slotOf(final String method, final String host, final String path) {
+        int hash = (Objects.hashCode(method) * 31 + Objects.hashCode(host)) * 31 + Objects.hashCode(path);
+        // Spread the high bits, as HashMap does
+        return (hash ^ (hash >>> 16)) & (SELECTION_CACHE_SIZE - 1);
+    }
+
+    /**
+     * The route selected for a request method, host and path ({@code null} if no route accepted them).
+     */
+    private static final class Selection {
+        private final String method;
+        private final String host;
+        private final String path;
+        private final Route route;
+
+        Selection(final String method, final String host, final String path, final Route route) {
+            this.method = method;
+            this.host = host;
+            this.path = path;
+            this.route = route;
+        }
+
+        boolean matches(final String method, final String host, final String path) {
+            return Objects.equals(this.path, path)
+                    && Objects.equals(this.host, host)
+                    && Objects.equals(this.method, method);
+        }
+    }
+
+    /**
+     * Necessary conditions extracted from a route's condition.
+     */
+    static final class Constraints {
+
+        /** Constraints of a route that has no condition, or a condition that could not be analysed. */
+        private static final Constraints NONE = new Constraints(null, null, null, false, false);
+
+        /** The required request host, or {@code null}. */
+        final String host;
+
+        /** The required request method, or {@code null}. */
+        final String method;
+
+        /** The required request path prefix, or {@code null}. */
+        final String pathPrefix;
+
+        /**
+         * {@code true} if the constraints are equivalent to the whole condition (no need to evaluate the
+         * condition once the constraints are satisfied).
+         */
+        final boolean exact;
+
+        /**
+         * {@code true} if the condition reads nothing but the request method, host and path: its result is
+         * determined by them.
+         */
+        final boolean deterministic;
+
+        private Constraints(final String host,
+                            final String method,
+                            final String pathPrefix,
+                            final boolean exact,
+                            final boolean deterministic) {
+            this.host = host;
+            this.method = method;
+            this.pathPrefix = pathPrefix;
+            this.exact = exact;
+            this.deterministic = deterministic;
+        }
+
+        /**
+         * Analyses the given route condition.
+         *
+         * @param condition
+         *         the route condition (may be {@code null})
+         * @return the constraints extracted from the condition (never {@code null})
+         */
+        static Constraints of(final Expression<Boolean> condition) {
+            if (condition == null) {
+                return new Constraints(null, null, null, true, true);
+            }
+            AstNode root = (AstNode) condition.getRoot();
+            if (!(root instanceof AstEval) || ((AstEval) root).isDeferred()) {
+                // Literal text or composite expression
+                return NONE;
+            }
+            Collector collector = new Collector();
+            collector.collect(child(root, 0));
+            return new Constraints(collector.host,
+                                   collector.method,
+                                   collector.pathPrefix,
+                                   collector.exact,
+                                   isDeterministic(child(root, 0)));
+        }
+
+        /**
+         * Returns {@code true} if the given expression node (and all its children) only reads the request method,
+         * host and path, literals, and the results of side-effect free functions and operators.
+         */
+        private static boolean isDeterministic(final AstNode node) {
+            if (node instanceof AstString
+                    || node instanceof AstNumber
+                    || node instanceof AstBoolean
+                    || node instanceof AstNull) {
+                return true;
+            }
+            if (node instanceof AstIdentifier) {
+                // The bindings (request, context, attributes, ...) as a whole
+                return false;
+            }
+            if (node instanceof AstProperty) {
+                // Either one of the 3 request attributes, or a property of a deterministic value
+                return isRequestKey(node) || areDeterministic(node, 0);
+            }
+            if (node instanceof AstFunction) {
+                AstFunction function = (AstFunction) node;
+                return Functions.PURE_FUNCTIONS.contains(function.getName()) && areDeterministic(node, 0);
+            }
+            if (node instanceof AstMethod) {
+                // Method invoked on a deterministic value, e.g. request.uri.path.startsWith('/api')
+                return areDeterministic(child(node, 0), 0) && areDeterministic(node, 1);
+            }
+            if (node instanceof AstBinary
+                    || node instanceof AstUnary
+                    || node instanceof AstChoice
+                    || node instanceof AstNested
+                    || node instanceof AstParameters) {
+                return areDeterministic(node, 0);
+            }
+            // Composite expressions, lambdas, ...
+            return false;
+        }
+
+        private static boolean areDeterministic(final AstNode node, final int from) {
+            for (int i = from; i < node.getCardinality(); i++) {
+                if (!isDeterministic(child(node, i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isRequestKey(final AstNode node) {
+            if (!(node instanceof AstDot)) {
+                return false;
+            }
+            String property = node.getStructuralId(null);
+            return REQUEST_PATH.equals(property) || REQUEST_HOST.equals(property) || REQUEST_METHOD.equals(property);
+        }
+    }
+
+    /**
+     * Walks the conjunctions of a condition, collecting the constraints it recognizes.
+     */
+    private static final class Collector {
+        private String host;
+        private String method;
+        private String pathPrefix;
+        private boolean exact = true;
+
+        void collect(final AstNode node) {
+            if (node instanceof AstNested) {
+                collect(child(node, 0));
+            } else if (node instanceof AstBinary && ((AstBinary) node).getOperator() == AstBinary.AND) {
+                collect(child(node, 0));
+                collect(child(node, 1));
+            } else if (!collectPathPrefix(node) && !collectEquality(node)) {
+                // Unknown shape: the condition has to be evaluated
+                exact = false;
+            }
+        }
+
+        private boolean collectPathPrefix(final AstNode node) {
+            if (!(node instanceof AstFunction)) {
+                return false;
+            }
+            AstFunction function = (AstFunction) node;
+            if (!"matches".equals(function.getName()) || function.getParamCount() != 2) {
+                return false;
+            }
+            AstNode parameters = child(function, 0);
+            AstNode value = child(parameters, 0);
+            AstNode pattern = child(parameters, 1);
+            if (!(pattern instanceof AstString) || !REQUEST_PATH.equals(value.getStructuralId(null))) {
+                return false;
+            }
+            String regex = (String) pattern.eval(null, null);
+            String prefix = literalPrefix(regex);
+            if (prefix == null) {
+                return false;
+            }
+            if (pathPrefix != null) {
+                // Several path constraints: keep the most selective one, but evaluate the condition
+                if (prefix.length() > pathPrefix.length()) {
+                    pathPrefix = prefix;
+                }
+                return markInexact();
+            }
+            pathPrefix = prefix;
+            // The whole pattern is '^' followed by the literal prefix
+            return isLiteral(regex, prefix) || markInexact();
+        }
+
+        private boolean collectEquality(final AstNode node) {
+            if (!(node instanceof AstBinary) || ((AstBinary) node).getOperator() != AstBinary.EQ) {
+                return false;
+            }
+            AstNode left = child(node, 0);
+            AstNode right = child(node, 1);
+            if (left instanceof AstString) {
+                AstNode swap = left;
+                left = right;
+                right = swap;
+            }
+            if (!(right instanceof AstString)) {
+                return false;
+            }
+            String property = left.getStructuralId(null);
+            String literal = (String) right.eval(null, null);
+            if (REQUEST_HOST.equals(property)) {
+                if (host == null) {
+                    host = literal;
+                    return true;
+                }
+                return host.equals(literal) || markInexact();
+            } else if (REQUEST_METHOD.equals(property)) {
+                if (method == null) {
+                    method = literal;
+                    return true;
+                }
+                return method.equals(literal) || markInexact();
+            }
+            return false;
+        }
+
+        private boolean markInexact() {
+            exact = false;
+            return true;
+        }
+
+        private static boolean isLiteral(final String regex, final String prefix) {
+            return regex.length() == prefix.length() + 1 && regex.indexOf('\\') == -1;
+        }
+    }
+
+    private static AstNode child(final AstNode node, final int index) {
+        return (AstNode) node.getChild(index);
+    }
+
+    /**
+     * Returns the literal prefix that any string matched by the given regular expression has to start with, or
+     * {@code null} if it cannot be determined (pattern not anchored, alternations, flags, ...).
+     *
+     * @param regex
+     *         the regular expression as used by {@link java.util.regex.Matcher#find()}
+     * @return the literal prefix, or {@code null}
+     */
+    static String literalPrefix(final String regex) {
+        if (regex == null || !regex.startsWith("^") || regex.indexOf('|') != -1) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 1; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '?' || c == '*' || c == '{') {
+                // The previous character is optional
+                if (prefix.length() > 0) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            }
+            if (c == '\\') {
+                if (i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    // Escaped literal character
+                    prefix.append(regex.charAt(++i));
+                    continue;
+                }
+                break;
+            }
+            if (".[]()+^$".indexOf(c) != -1) {
+                break;
+            }
+            prefix.append(c);
+        }
+        return prefix.length() == 0 ? null : prefix.toString();
+    }
+
+    /**
+     * Character trie of path prefixes.
+     */
+    private static final class PathTrie {
+        private final Node root = new Node();
+
+        void add(final String prefix, final int route) {
+            Node node = root;
+            if (prefix != null) {
+                for (int i = 0; i < prefix.length(); i++) {
+                    Node child = node.children.get(prefix.charAt(i));
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(prefix.charAt(i), child);
+                    }
+                    node = child;
+                }
+            }
+            node.pending.add(route);
+        }
+
+        void seal() {
+            root.routes = toArray(root.pending);
+            root.pending = null;
+            for (Node child : root.children.values()) {
+                child.seal(NONE);
+            }
+        }
+
+        /**
+         * Returns the sorted routes whose prefix is a non-empty prefix of the given path.
+         */
+        int[] candidates(final String path) {
+            if (path == null) {
+                return NONE;
+            }
+            int[] candidates = NONE;
+            Node node = root;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.children.get(path.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.terminal) {
+                    candidates = node.routes;
+                }
+            }
+            return candidates;
+        }
+
+        private static int[] toArray(final List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        private static final class Node {
+            private final Map<Character, Node> children = new HashMap<>();
+            private List<Integer> pending = new ArrayList<>();
+            private boolean terminal;
+
+            /**
+             * For the root: routes without path constraint. For other nodes: routes whose prefix ends at this node
+             * or at one of its ancestors (root excluded), sorted.
+             */
+            private int[] routes = NONE;
+
+            void seal(final int[] inherited) {
+                terminal = !pending.isEmpty();
+                routes = inherited;
+                if (terminal) {
+                    int[] own = toArray(pending);
+                    routes = Arrays.copyOf(inherited, inherited.length + own.length);
+                    System.arraycopy(own, 0, routes, inherited.length, own.length);
+                    Arrays.sort(routes);
+                }
+                pending = null;
+                for (Node child : children.values()) {
+                    child.seal(routes);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.forgerock.openig.metrics.OpenMetricsWriter.COUNTER;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.GAUGE;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.SUMMARY;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.forgerock.openig.metrics.MetricSource;
+import org.forgerock.openig.metrics.OpenMetricsWriter;
+import org.forgerock.util.Factory;
+
+/**
+ * Exposes the {@link MonitoringMetrics} of the monitored routes of all the routers, labelled with the router name
+ * and the route identifier.
+ */
+final class RouteMetricSource implements MetricSource {
+
+    /**
+     * Name of this source in the {@link org.forgerock.openig.metrics.MetricSources}.
+     */
+    static final String NAME = "routes";
+
+    /**
+     * Provides a new source, to register when there is none.
+     */
+    static final Factory<RouteMetricSource> FACTORY = new Factory<RouteMetricSource>() {
+        @Override
+        public RouteMetricSource newInstance() {
+            return new RouteMetricSource();
+        }
+    };
+
+    /**
+     * Quantiles of the response times of the last completed interval.
+     */
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final String[] QUANTILE_LABELS = { "0.5", "0.9", "0.99", "0.999" };
+
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+
+    private final ConcurrentMap<String, MonitoredRoute> routes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds the metrics of a route, replacing the ones of the previous route with the same identifier in the same
+     * router.
+     *
+     * @param router
+     *         the router name
+     * @param route
+     *         the route identifier
+     * @param metrics
+     *         the metrics of the route
+     */
+    void add(final String router, final String route, final MonitoringMetrics metrics) {
+        routes.put(key(router, route), new MonitoredRoute(router, route, metrics));
+    }
+
+    /**
+     * Removes the given metrics of a route, unless they have already been replaced.
+     *
+     * @param router
+     *         the router name
+     * @param route
+     *         the route identifier
+     * @param metrics
+     *         the metrics of the route
+     */
+    void remove(final String router, final String route, final MonitoringMetrics metrics) {
+        String key = key(router, route);
+        MonitoredRoute monitored = routes.get(key);
+        if (monitored != null && monitored.metrics == metrics) {
+            routes.remove(key, monitored);
+        }
+    }
+
+    private static String key(final String router, final String route) {
+        return router + '\u0000' + route;
+    }
+
+    @Override
+    public void writeTo(final OpenMetricsWriter writer) throws IOException {
+        if (routes.isEmpty()) {
+            return;
+        }
+
+        writer.family("openig_route_requests", COUNTER, null, "Requests received by the route");
+        for (MonitoredRoute route : routes.values()) {
+            writer.sample("openig_route_requests_total", route.metrics.getTotalRequestCount().getCount(),
+                          route.labels);
+        }
+
+        writer.family("openig_route_active_requests", GAUGE, null, "Requests being processed by the route");
+        for (MonitoredRoute route : routes.values()) {
+            writer.sample("openig_route_active_requests", route.metrics.getActiveRequestCount().getCount(),
+                          route.labels);
+        }
+
+        writer.family("openig_route_queued_requests", GAUGE, null,
+                      "Requests waiting for the bulkhead of the route to let them through");
+        for (MonitoredRoute route : routes.values()) {
+            writer.sample("openig_route_queued_requests", route.metrics.getQueuedRequestCount().getCount(),
+                          route.labels);
+        }
+
+        writer.family("openig_route_rejected_requests", COUNTER, null,
+                      "Requests rejected by the bulkhead of the route");
+        for (MonitoredRoute route : routes.values()) {
+            writer.sample("openig_route_rejected_requests_total", route.metrics.getRejectedRequestCount().getCount(),
+                          route.labels);
+        }
+
+        writer.family("openig_route_responses", COUNTER, null, "Responses sent by the route, by status family");
+        for (MonitoredRoute route : routes.values()) {
+            MonitoringMetrics metrics = route.metrics;
+            writeResponses(writer, route, "1xx", metrics.getInformativeResponseCount().getCount());
+            writeResponses(writer, route, "2xx", metrics.getSuccessResponseCount().getCount());
+            writeResponses(writer, route, "3xx", metrics.getRedirectResponseCount().getCount());
+            writeResponses(writer, route, "4xx", metrics.getClientErrorResponseCount().getCount());
+            writeResponses(writer, route, "5xx", metrics.getServerErrorResponseCount().getCount());
+            writeResponses(writer, route, "other", metrics.getOtherResponseCount().getCount());
+            writeResponses(writer, route, "null", metrics.getNullResponseCount().getCount());
+        }
+
+        writer.family("openig_route_response_errors", COUNTER, null,
+                      "Responses sent by the route with an attached exception");
+        for (MonitoredRoute route : routes.values()) {
+            writer.sample("openig_route_response_errors_total", route.metrics.getErrorsResponseCount().getCount(),
+                          route.labels);
+        }
+
+        writer.family("openig_route_response_time_seconds", SUMMARY, "seconds",
+                      "Response times of the route (the quantiles are the ones of the last completed interval)");
+        long[] values = new long[QUANTILES.length + 2];
+        for (MonitoredRoute route : routes.values()) {
+            route.metrics.getResponseTime().summarize(QUANTILES, values);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                writer.sample("openig_route_response_time_seconds", values[i + 2] / MICROS_PER_SECOND,
+                              "router", route.router, "route", route.route, "quantile", QUANTILE_LABELS[i]);
+            }
+            writer.sample("openig_route_response_time_seconds_count", values[0], route.labels);
+            writer.sample("openig_route_response_time_seconds_sum", values[1] / MICROS_PER_SECOND, route.labels);
+        }
+    }
+
+    private static void writeResponses(final OpenMetricsWriter writer,
+                                       final MonitoredRoute route,
+                                       final String status,
+                                       final long count) throws IOException {
+        writer.sample("openig_route_responses_total", count,
+                      "router", route.router, "route", route.route, "status", status);
+    }
+
+    private static final class MonitoredRoute {
+        private final String router;
+        private final String route;
+        private final MonitoringMetrics metrics;
+        private final String[] labels;
+
+        MonitoredRoute(final String router, final String route, final MonitoringMetrics metrics) {
+            this.router = router;
+            this.route = route;
+            this.metrics = metrics;
+            this.labels = new String[] { "router", router, "route", route };
+        }
+    }
+}
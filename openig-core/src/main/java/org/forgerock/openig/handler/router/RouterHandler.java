@@ -12,12 +12,15 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.forgerock.json.JsonValue.json;
 import static org.forgerock.json.JsonValueFunctions.duration;
 import static org.forgerock.json.JsonValueFunctions.file;
 import static org.forgerock.json.resource.Resources.newHandler;
@@ -26,27 +29,33 @@ import static org.forgerock.openig.handler.router.Route.routeName;
 import static org.forgerock.openig.heap.Keys.ENVIRONMENT_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.RUNMODE_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY;
+import static org.forgerock.openig.heap.Keys.TIME_SERVICE_HEAP_KEY;
 import static org.forgerock.openig.http.RunMode.EVALUATION;
 import static org.forgerock.openig.util.CrestUtil.newCrestApplication;
 import static org.forgerock.openig.util.JsonValues.optionalHeapObject;
 import static org.forgerock.openig.util.JsonValues.readJson;
+import static org.forgerock.util.Utils.closeSilently;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.forgerock.http.Handler;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
@@ -66,6 +75,7 @@ import org.forgerock.util.promise.NeverThrowsException;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.promise.Promises;
 import org.forgerock.util.time.Duration;
+import org.forgerock.util.time.TimeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,7 +91,18 @@ import org.slf4j.LoggerFactory;
  *     "config": {
  *       "directory": "/tmp/routes",
  *       "defaultHandler": "404NotFound",
- *       "scanInterval": 2 or "2 seconds"
+ *       "scanInterval": 2 or "2 seconds",
+ *       "recursive": false,
+ *       "buildThreads": 4,
+ *       "gracePeriod": "30 seconds",
+ *       "watch": {
+ *         "enabled": false,
+ *         "debounce": "500 ms"
+ *       },
+ *       "lazy": {
+ *         "enabled": false,
+ *         "idleTimeout": "unlimited"
+ *       }
  *     }
  *   }
  *   }
@@ -96,6 +117,34 @@ import org.slf4j.LoggerFactory;
  * </ul>
  * In both cases, the default value is 10 seconds.
  *
+ * <p>When {@literal recursive} is {@literal true}, the route files of the sub-directories are loaded as well
+ * (default to {@literal false}).
+ *
+ * <p>When several route files are added at once (at startup typically), up to {@literal buildThreads} routes
+ * (default to the number of available processors) are built concurrently, then they are all published at once. A
+ * route that fails to build is logged and skipped, without affecting the other ones. The build time of each route
+ * is logged.
+ *
+ * <p>When a route is modified, its new version is built and started first, then it replaces the previous one
+ * atomically (the previous version is kept if the new one cannot be loaded). The previous version is destroyed once
+ * its in-flight requests have completed, or once {@literal gracePeriod} has expired (default to 30 seconds,
+ * "unlimited" waits for all the in-flight requests, "zero" does not wait). The same applies to the removed routes.
+ *
+ * <p>When {@literal watch} is enabled (default to disabled), the file system notifications
+ * ({@link java.nio.file.WatchService}) of the directory are used to detect the changes as soon as they happen: the
+ * bursts of events are debounced (they are processed once no other event has been received during the
+ * {@literal debounce} duration) and only the changed files are checked. The periodic scan (that can then be
+ * configured with a larger {@literal scanInterval}) remains as a reconciliation step, in case some notifications
+ * have been lost. {@literal "watch": true} is a shortcut for {@literal "watch": { "enabled": true }}.
+ *
+ * <p>When {@literal lazy} is enabled (default to disabled), only the name and the condition of the routes are read
+ * when they are loaded: the heap of a route is built when the route processes its first request (see
+ * {@link LazyRoute}), which keeps the startup time and the memory footprint of very large route sets low. A route
+ * that has not processed any request during {@literal idleTimeout} (default to "unlimited", never evicted) is
+ * evicted back to its unbuilt state; the idle routes are looked for every half {@literal idleTimeout}, and the
+ * evicted ones are retired like the replaced routes. {@literal "lazy": true} is a shortcut for
+ * {@literal "lazy": { "enabled": true }}.
+ *
  * @since 2.2
  */
 public class RouterHandler implements FileChangeListener, Handler {
@@ -113,30 +162,48 @@ public class RouterHandler implements FileChangeListener, Handler {
     private final DirectoryMonitor directoryMonitor;
 
     /**
-     * Keep track of managed routes.
+     * Immutable snapshot of the managed routes, used to dispatch requests without locking.
+     * A new snapshot is built and published on every change.
      */
-    private final Map<String, Route> routes = new HashMap<>();
+    private volatile RouteIndex routes = RouteIndex.EMPTY;
 
     /**
-     * Ordered set of managed routes.
+     * Serializes the modifications of the routes (readers never take it). The routes are built before it is taken:
+     * building a route looks objects up in the parent heap, whose lock is held while the router is stopped.
      */
-    private final SortedSet<Route> sorted = new TreeSet<>(new LexicographicalRouteComparator());
+    private final Lock write = new ReentrantLock();
 
     /**
-     * Protect routes access.
+     * Has this handler been stopped ? Guarded by {@link #write}.
      */
-    private final Lock read;
+    private boolean stopped;
 
     /**
-     * Protects write access to the routes.
+     * The optional handler which should be invoked when no routes match the
+     * request.
      */
-    private final Lock write;
+    private volatile Handler defaultHandler;
 
     /**
-     * The optional handler which should be invoked when no routes match the
-     * request.
+     * Maximum number of routes built concurrently when several route files are added at once.
+     */
+    private int buildThreads = 1;
+
+    /**
+     * Maximum time given to the in-flight requests of a replaced (or removed) route to complete before it is
+     * destroyed.
      */
-    private Handler defaultHandler;
+    private Duration gracePeriod = Duration.UNLIMITED;
+
+    /**
+     * Executor enforcing the grace period and destroying the retired routes (may be {@literal null}).
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Are the route heaps only built when the routes process their first request ?
+     */
+    private boolean lazy;
 
     /**
      * Builds a router that loads its configuration from the given directory.
@@ -146,9 +213,6 @@ public class RouterHandler implements FileChangeListener, Handler {
     public RouterHandler(final RouteBuilder builder, final DirectoryMonitor directoryMonitor) {
         this.builder = builder;
         this.directoryMonitor = directoryMonitor;
-        ReadWriteLock lock = new ReentrantReadWriteLock();
-        this.read = lock.readLock();
-        this.write = lock.writeLock();
     }
 
     /**
@@ -160,12 +224,47 @@ public class RouterHandler implements FileChangeListener, Handler {
      *            request
      */
     void setDefaultHandler(final Handler handler) {
-        write.lock();
-        try {
-            this.defaultHandler = handler;
-        } finally {
-            write.unlock();
-        }
+        this.defaultHandler = handler;
+    }
+
+    /**
+     * Sets the maximum number of routes built concurrently when several route files are added at once (at startup
+     * typically). {@literal 1} means that the routes are built sequentially.
+     *
+     * @param buildThreads
+     *            the maximum number of routes built concurrently
+     */
+    void setBuildThreads(final int buildThreads) {
+        Reject.ifTrue(buildThreads < 1, "buildThreads must be greater than or equal to 1");
+        this.buildThreads = buildThreads;
+    }
+
+    /**
+     * Sets how long the in-flight requests of a replaced (or removed) route are given to complete before it is
+     * destroyed. {@link Duration#ZERO} destroys the routes right away, {@link Duration#UNLIMITED} (the default) waits
+     * for all their in-flight requests.
+     *
+     * @param gracePeriod
+     *            the maximum time given to the in-flight requests of a retired route
+     * @param executor
+     *            the executor used to enforce the grace period and to destroy the retired routes (if {@literal null},
+     *            the grace period is unlimited and the routes are destroyed by the thread completing their last
+     *            request)
+     */
+    void setGracePeriod(final Duration gracePeriod, final ScheduledExecutorService executor) {
+        this.gracePeriod = Reject.checkNotNull(gracePeriod);
+        this.executor = executor;
+    }
+
+    /**
+     * Sets whether the route heaps are built when the routes are loaded (the default), or only when they process
+     * their first request. Only applies to the routes loaded afterwards.
+     *
+     * @param lazy
+     *            {@literal true} to build the route heaps when the routes process their first request
+     */
+    void setLazy(final boolean lazy) {
+        this.lazy = lazy;
     }
 
     /**
@@ -174,13 +273,14 @@ public class RouterHandler implements FileChangeListener, Handler {
     public void stop() {
         write.lock();
         try {
+            stopped = true;
             // Un-register all the routes
-            sorted.clear();
+            RouteIndex previous = routes;
+            routes = RouteIndex.EMPTY;
             // Destroy the routes
-            for (Route route : routes.values()) {
+            for (Route route : previous.getRoutes()) {
                 route.destroy();
             }
-            routes.clear();
         } finally {
             write.unlock();
         }
@@ -197,15 +297,12 @@ public class RouterHandler implements FileChangeListener, Handler {
      */
     public void deploy(String routeId, String routeName, JsonValue routeConfig) throws RouterHandlerException {
         Reject.ifNull(routeName);
-        write.lock();
+        load(routeId, routeName, routeConfig.copy());
         try {
-            load(routeId, routeName, routeConfig.copy());
             directoryMonitor.store(routeId, routeConfig);
             logger.info("Deployed the route with id '{}' named '{}'", routeId, routeName);
         } catch (IOException e) {
             throw new RouterHandlerException(format("An error occurred while storing the route '%s'", routeId), e);
-        } finally {
-            write.unlock();
         }
     }
 
@@ -237,80 +334,354 @@ public class RouterHandler implements FileChangeListener, Handler {
      * @throws RouterHandlerException if the given routeConfig is not valid
      */
     public void update(String routeId, String routeName, JsonValue routeConfig) throws RouterHandlerException {
-        write.lock();
-        Route previousRoute = routes.get(routeId);
+        Reject.ifNull(routeId, routeName);
+        // The previous route keeps serving requests if the new one cannot be loaded
+        replace(routeId, routeName, routeConfig);
         try {
-            Reject.ifNull(routeId, routeName);
-            write.lock();
-            try {
-                unload(routeId);
-                load(routeId, routeName, routeConfig);
-            } finally {
-                write.unlock();
-            }
             directoryMonitor.store(routeId, routeConfig);
             logger.info("Updated the route with id '{}'", routeId);
-        } catch (RouterHandlerException e) {
-            // Restore the previous route if the reload failed
-            load(previousRoute.getId(), previousRoute.getName(), previousRoute.getConfig());
-            throw e;
         } catch (IOException e) {
             throw new RouterHandlerException(format("An error occurred while storing the route '%s'", routeId), e);
+        }
+    }
+
+    void load(String routeId, String routeName, JsonValue routeConfig) throws RouterHandlerException {
+        Reject.ifNull(routeId, routeName);
+        checkNotLoaded(routes, routeId, routeName);
+        Route route = newRoute(routeId, routeName, routeConfig);
+        write.lock();
+        try {
+            checkNotStopped();
+            RouteIndex current = routes;
+            checkNotLoaded(current, routeId, routeName);
+            route.start();
+            routes = current.with(route);
+            logger.info("Loaded the route with id '{}' registered with the name '{}'", route.getId(), route.getName());
+        } catch (RouterHandlerException | RuntimeException e) {
+            route.destroy();
+            throw e;
         } finally {
             write.unlock();
         }
     }
 
-    void load(String routeId, String routeName, JsonValue routeConfig) throws RouterHandlerException {
+    /**
+     * Replaces a loaded route without interruption of service: the new route is built and started first, then it
+     * is published in place of the previous one, that is retired (destroyed once its in-flight requests have
+     * completed, or once the grace period has expired). The previous route is kept if the new one cannot be built.
+     */
+    void replace(String routeId, String routeName, JsonValue routeConfig) throws RouterHandlerException {
         Reject.ifNull(routeId, routeName);
+        checkLoaded(routes, routeId);
+        Route route = newRoute(routeId, routeName, routeConfig);
         write.lock();
         try {
-            for (Route route : sorted) {
-                if (routeId.equals(route.getId())) {
-                    throw new RouterHandlerException(format("A route with the id '%s' is already loaded", routeId));
+            checkNotStopped();
+            RouteIndex current = routes;
+            Route previous = checkLoaded(current, routeId);
+            RouteIndex others = current.without(previous);
+            checkNotLoaded(others, routeId, routeName);
+            // Both routes expose their endpoints under the same paths
+            previous.stop();
+            route.start();
+            routes = others.with(route);
+            logger.info("Replaced the route with id '{}' registered with the name '{}'",
+                        route.getId(),
+                        route.getName());
+            retire(previous);
+        } catch (RouterHandlerException | RuntimeException e) {
+            route.destroy();
+            throw e;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Builds a route, or only prepares it if the routes are {@link #setLazy(boolean) lazy}. Must not be called while
+     * holding {@link #write}.
+     */
+    private Route newRoute(final String routeId, final String routeName, final JsonValue routeConfig)
+            throws RouterHandlerException {
+        try {
+            if (!lazy) {
+                return builder.build(routeId, routeName, routeConfig);
+            }
+            return builder.lazy(routeId, routeName, routeConfig);
+        } catch (HeapException e) {
+            throw new RouterHandlerException(
+                    format("An error occurred while loading the route with the '%s'", routeName), e);
+        }
+    }
+
+    private void checkNotStopped() throws RouterHandlerException {
+        if (stopped) {
+            throw new RouterHandlerException("The router has been stopped");
+        }
+    }
+
+    private static Route checkLoaded(final RouteIndex current, final String routeId) throws RouterHandlerException {
+        Route route = current.get(routeId);
+        if (route == null) {
+            throw new RouterHandlerException(format("No route with id '%s' was loaded : unable to replace it.",
+                                                    routeId));
+        }
+        return route;
+    }
+
+    /**
+     * Evicts the lazy routes that are built and have not processed any request since the given time: they are
+     * replaced with routes that will be built again on their next request, and retired.
+     *
+     * @param threshold
+     *            the time (milliseconds since epoch) since when the evicted routes have not received any request
+     * @return the number of evicted routes
+     */
+    int evictIdleRoutes(final long threshold) {
+        write.lock();
+        try {
+            RouteIndex current = routes;
+            List<Route> idle = new ArrayList<>();
+            List<Route> unbuilt = new ArrayList<>();
+            for (Route route : current.getRoutes()) {
+                if (route instanceof LazyRoute && ((LazyRoute) route).isIdleSince(threshold)) {
+                    idle.add(route);
+                    unbuilt.add(((LazyRoute) route).unbuilt());
                 }
-                if (routeName.equals(route.getName())) {
+            }
+            if (idle.isEmpty()) {
+                return 0;
+            }
+            for (Route route : idle) {
+                route.stop();
+            }
+            routes = current.without(idle).with(unbuilt);
+            for (Route route : idle) {
+                logger.info("Evicted the idle route with id '{}'", route.getId());
+                retire(route);
+            }
+            return idle.size();
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Destroys the given route, that is not published anymore, once its in-flight requests have completed or once
+     * the grace period has expired.
+     */
+    private void retire(final Route route) {
+        Retirement retirement = new Retirement(route, executor);
+        if (route.retire(retirement)) {
+            // No in-flight request
+            retirement.destroy(false);
+            return;
+        }
+        logger.info("The route with id '{}' will be destroyed once its {} in-flight request(s) have completed",
+                    route.getId(),
+                    route.getInFlightRequests());
+        if (gracePeriod.isZero()) {
+            retirement.destroy(true);
+        } else if (executor != null && !gracePeriod.isUnlimited()) {
+            retirement.scheduleTimeout(gracePeriod);
+        }
+    }
+
+    /**
+     * Loads the given routes: they are built concurrently (up to {@link #setBuildThreads(int) buildThreads} at a
+     * time), then all published at once. A route that cannot be loaded is logged and skipped, it does not prevent
+     * the other ones from being loaded.
+     */
+    void loadAll(List<RouteDefinition> definitions) {
+        List<RouteDefinition> accepted = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (RouteDefinition definition : definitions) {
+            try {
+                checkNotLoaded(routes, definition.id, definition.name);
+                if (!ids.add(definition.id) || !names.add(definition.name)) {
                     throw new RouterHandlerException(
-                            format("A route with the id '%s' is already loaded with the name '%s'",
-                                   routeId,
-                                   routeName));
+                            format("The route with the id '%s' and the name '%s' is defined more than once",
+                                   definition.id,
+                                   definition.name));
                 }
+                accepted.add(definition);
+            } catch (RouterHandlerException e) {
+                logger.error("An error occurred while reading the route defined in the file '{}'.",
+                             definition.file,
+                             e);
             }
-            Route route;
-            try {
-                route = builder.build(routeId, routeName, routeConfig);
-            } catch (HeapException e) {
-                throw new RouterHandlerException(
-                        format("An error occurred while loading the route with the '%s'", routeName), e);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        build(accepted);
+        write.lock();
+        try {
+            if (stopped) {
+                for (RouteDefinition definition : accepted) {
+                    if (definition.route != null) {
+                        definition.route.destroy();
+                    }
+                }
+                return;
+            }
+            RouteIndex current = routes;
+            List<Route> built = new ArrayList<>();
+            for (RouteDefinition definition : accepted) {
+                if (definition.route == null) {
+                    continue;
+                }
+                try {
+                    // The routes may have been modified while these ones were built
+                    checkNotLoaded(current, definition.id, definition.name);
+                    definition.route.start();
+                    built.add(definition.route);
+                } catch (RouterHandlerException | RuntimeException e) {
+                    // A route that cannot be started does not prevent the other ones from being loaded
+                    logger.error("An error occurred while handling the added file '{}'",
+                                 definition.file.getAbsolutePath(),
+                                 e);
+                    definition.route.destroy();
+                    definition.route = null;
+                }
+            }
+            routes = current.with(built);
+            for (RouteDefinition definition : accepted) {
+                if (definition.route != null) {
+                    logger.info("Loaded the route with id '{}' registered with the name '{}' (built in {} ms)",
+                                definition.id,
+                                definition.name,
+                                NANOSECONDS.toMillis(definition.buildTime));
+                }
+            }
+            if (accepted.size() > 1) {
+                logger.info("Loaded {} route(s) out of {} in {} ms",
+                            built.size(),
+                            accepted.size(),
+                            NANOSECONDS.toMillis(System.nanoTime() - start));
             }
-            route.start();
-            routes.put(routeId, route);
-            sorted.add(route);
-            logger.info("Loaded the route with id '{}' registered with the name '{}'", route.getId(), route.getName());
         } finally {
             write.unlock();
         }
     }
 
+    /**
+     * Builds the given routes, concurrently if allowed: the routes that have been successfully built are set into their
+     * definition. If the calling thread is interrupted while waiting for the builds, they are cancelled and none of
+     * the routes is set (the routes built in the meantime are destroyed).
+     */
+    private void build(final List<RouteDefinition> definitions) {
+        // Nothing to build yet if the routes are lazy
+        int threads = lazy ? 1 : Math.min(buildThreads, definitions.size());
+        if (threads > 1 && !builder.canBuildConcurrently()) {
+            // The route builders would wait for the parent heap locked by this thread
+            threads = 1;
+        }
+        if (threads <= 1) {
+            for (RouteDefinition definition : definitions) {
+                try {
+                    definition.route = definition.build(builder, lazy);
+                } catch (HeapException | RuntimeException e) {
+                    logBuildFailure(definition, e);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(threads,
+                                             new ThreadFactoryBuilder().setNameFormat("route-builder-%d")
+                                                                       .setDaemon(true)
+                                                                       .build());
+        // Guards the routes set into the definitions
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (final RouteDefinition definition : definitions) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Route route = definition.build(builder, false);
+                        synchronized (cancelled) {
+                            if (!cancelled.get()) {
+                                definition.route = route;
+                                return null;
+                            }
+                        }
+                        route.destroy();
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    logBuildFailure(definitions.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Do not wait for the builds (the router may be being destroyed)
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while building {} route(s), the routes are not loaded", definitions.size());
+            synchronized (cancelled) {
+                cancelled.set(true);
+            }
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            for (RouteDefinition definition : definitions) {
+                if (definition.route != null) {
+                    definition.route.destroy();
+                    definition.route = null;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void logBuildFailure(final RouteDefinition definition, final Throwable cause) {
+        logger.error("An error occurred while reading the route defined in the file '{}'.",
+                     definition.file,
+                     new RouterHandlerException(format("An error occurred while loading the route with the '%s'",
+                                                       definition.name),
+                                                cause));
+    }
+
+    private static void checkNotLoaded(final RouteIndex current, final String routeId, final String routeName)
+            throws RouterHandlerException {
+        for (Route route : current.getRoutes()) {
+            if (routeId.equals(route.getId())) {
+                throw new RouterHandlerException(format("A route with the id '%s' is already loaded", routeId));
+            }
+            if (routeName.equals(route.getName())) {
+                throw new RouterHandlerException(
+                        format("A route with the id '%s' is already loaded with the name '%s'",
+                               routeId,
+                               routeName));
+            }
+        }
+    }
+
     JsonValue unload(String routeId) throws RouterHandlerException {
         Reject.ifNull(routeId);
         write.lock();
         try {
-            Route removedRoute = routes.remove(routeId);
+            RouteIndex current = routes;
+            Route removedRoute = current.get(routeId);
             if (removedRoute == null) {
                 throw new RouterHandlerException(format("No route with id '%s' was loaded : unable to unload it.",
                                                         routeId));
-            } else {
-                removedRoute.destroy();
-                logger.info("Unloaded the route with id '{}'", routeId);
-            }
-
-            Iterator<Route> iterator = sorted.iterator();
-            while (iterator.hasNext()) {
-                if (removedRoute == iterator.next()) {
-                    iterator.remove();
-                }
             }
+            // Stop dispatching to the route before destroying it
+            routes = current.without(removedRoute);
+            removedRoute.stop();
+            retire(removedRoute);
+            logger.info("Unloaded the route with id '{}'", routeId);
             return removedRoute.getConfig();
         } finally {
             write.unlock();
@@ -319,16 +690,11 @@ public class RouterHandler implements FileChangeListener, Handler {
 
     JsonValue routeConfig(String routeId) throws RouterHandlerException {
         Reject.ifNull(routeId);
-        read.lock();
-        try {
-            Route route = routes.get(routeId);
-            if (route == null) {
-                throw new RouterHandlerException(format("No route with id '%s' was loaded.", routeId));
-            }
-            return route.getConfig();
-        } finally {
-            read.unlock();
+        Route route = routes.get(routeId);
+        if (route == null) {
+            throw new RouterHandlerException(format("No route with id '%s' was loaded.", routeId));
         }
+        return route.getConfig();
     }
 
     /**
@@ -336,32 +702,38 @@ public class RouterHandler implements FileChangeListener, Handler {
      * @return a list of the currently deployed routes, in the order they are tried.
      */
     List<Route> getRoutes() {
-        read.lock();
-        try {
-            return new ArrayList<>(sorted);
-        } finally {
-            read.unlock();
-        }
+        return new ArrayList<>(routes.getRoutes());
     }
 
     @Override
     public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
-        // Traverse the routes
-        read.lock();
-        try {
-            for (Route route : sorted) {
-                if (route.accept(context, request)) {
-                    return route.handle(context, request);
-                }
-            }
-            if (defaultHandler != null) {
-                return defaultHandler.handle(context, request);
+        // Traverse the routes of the current snapshot
+        Route route;
+        do {
+            route = routes.find(context, request);
+            // A retired route has been replaced in the current snapshot: look again
+        } while (route != null && !route.enter());
+        if (route != null) {
+            final Route selected = route;
+            try {
+                return route.handle(context, request)
+                            .thenAlways(new Runnable() {
+                                @Override
+                                public void run() {
+                                    selected.exit();
+                                }
+                            });
+            } catch (RuntimeException e) {
+                selected.exit();
+                throw e;
             }
-            logger.error("no handler to dispatch to");
-            return Promises.newResultPromise(Responses.newNotFound());
-        } finally {
-            read.unlock();
         }
+        Handler handler = defaultHandler;
+        if (handler != null) {
+            return handler.handle(context, request);
+        }
+        logger.error("no handler to dispatch to");
+        return Promises.newResultPromise(Responses.newNotFound());
     }
 
     @Override
@@ -374,13 +746,23 @@ public class RouterHandler implements FileChangeListener, Handler {
             }
         }
 
+        // The added files are loaded together: their routes are built concurrently
+        List<RouteDefinition> definitions = new ArrayList<>();
         for (File file : changes.getAddedFiles()) {
             try {
-                onAddedFile(file);
+                RouteDefinition definition = readRouteDefinition(file);
+                if (definition != null) {
+                    definitions.add(definition);
+                }
             } catch (Exception e) {
                 logger.error("An error occurred while handling the added file '{}'", file.getAbsolutePath(), e);
             }
         }
+        try {
+            loadAll(definitions);
+        } catch (Exception e) {
+            logger.error("An error occurred while loading the added files", e);
+        }
 
         for (File file : changes.getModifiedFiles()) {
             try {
@@ -391,16 +773,14 @@ public class RouterHandler implements FileChangeListener, Handler {
         }
     }
 
-    private void onAddedFile(File file) {
+    private static RouteDefinition readRouteDefinition(File file) {
         try {
             JsonValue routeConfig = readJson(file.toURI().toURL());
             String routeId = routeId(file);
-            String routeName = routeName(routeConfig, routeId);
-            load(routeId, routeName, routeConfig);
+            return new RouteDefinition(file, routeId, routeName(routeConfig, routeId), routeConfig);
         } catch (IOException | JsonValueException e) {
             logger.error("The file '{}' is not a valid route configuration.", file, e);
-        } catch (RouterHandlerException e) {
-            logger.error("An error occurred while reading the route defined in the file '{}'.", file, e);
+            return null;
         }
     }
 
@@ -414,8 +794,20 @@ public class RouterHandler implements FileChangeListener, Handler {
     }
 
     private void onModifiedFile(File file) {
-        onRemovedFile(file);
-        onAddedFile(file);
+        RouteDefinition definition = readRouteDefinition(file);
+        if (definition == null) {
+            // The previous version of the route (if any) is kept
+            return;
+        }
+        try {
+            if (routes.get(definition.id) != null) {
+                replace(definition.id, definition.name, definition.config);
+            } else {
+                load(definition.id, definition.name, definition.config);
+            }
+        } catch (RouterHandlerException e) {
+            logger.error("An error occurred while reading the route defined in the file '{}'.", file, e);
+        }
     }
 
     private static String routeId(File file) {
@@ -426,6 +818,99 @@ public class RouterHandler implements FileChangeListener, Handler {
         return path.substring(0, path.length() - ".json".length());
     }
 
+    /**
+     * Destroys a retired route, once.
+     */
+    private static final class Retirement implements Runnable {
+        private final Route route;
+        private final ScheduledExecutorService executor;
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        Retirement(final Route route, final ScheduledExecutorService executor) {
+            this.route = route;
+            this.executor = executor;
+        }
+
+        /**
+         * Invoked by the thread completing the last in-flight request of the route.
+         */
+        @Override
+        public void run() {
+            if (executor == null) {
+                destroy(false);
+                return;
+            }
+            // Do not release the route's resources (its client connections for instance) from a thread they own
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        destroy(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                destroy(false);
+            }
+        }
+
+        void scheduleTimeout(final Duration gracePeriod) {
+            timeout = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    destroy(true);
+                }
+            }, gracePeriod.to(MILLISECONDS), MILLISECONDS);
+        }
+
+        void destroy(final boolean expired) {
+            if (!destroyed.compareAndSet(false, true)) {
+                return;
+            }
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            if (expired) {
+                logger.warn("Destroying the route with id '{}' with {} request(s) still in-flight",
+                            route.getId(),
+                            route.getInFlightRequests());
+            }
+            route.destroy();
+            logger.info("Destroyed the route with id '{}'", route.getId());
+        }
+    }
+
+    /**
+     * A route read from a file, to be built.
+     */
+    static final class RouteDefinition {
+        private final File file;
+        private final String id;
+        private final String name;
+        private final JsonValue config;
+
+        /** The built route, if successful. */
+        private Route route;
+
+        /** Time spent building the route, in nanoseconds. */
+        private long buildTime;
+
+        RouteDefinition(final File file, final String id, final String name, final JsonValue config) {
+            this.file = file;
+            this.id = id;
+            this.name = name;
+            this.config = config;
+        }
+
+        Route build(final RouteBuilder builder, final boolean lazy) throws HeapException {
+            long start = System.nanoTime();
+            Route built = lazy ? builder.lazy(id, name, config) : builder.build(id, name, config);
+            buildTime = System.nanoTime() - start;
+            return built;
+        }
+    }
+
     /** Creates and initializes a routing handler in a heap environment. */
     public static class Heaplet extends GenericHeaplet {
 
@@ -433,7 +918,12 @@ public class RouterHandler implements FileChangeListener, Handler {
         private DirectoryMonitor directoryMonitor;
         private ScheduledFuture<?> scheduledCommand;
         private Duration scanInterval;
-
+        private Duration debounce;
+        private DirectoryWatcher directoryWatcher;
+        private ScheduledFuture<?> scheduledWatch;
+        private Duration idleTimeout;
+        private ScheduledFuture<?> scheduledEviction;
+        private volatile boolean destroyed;
 
         @Override
         public Object create() throws HeapException {
@@ -443,8 +933,13 @@ public class RouterHandler implements FileChangeListener, Handler {
                 Environment env = heap.get(ENVIRONMENT_HEAP_KEY, Environment.class);
                 directory = new File(env.getConfigDirectory(), "routes");
             }
-            this.directoryMonitor = new DirectoryMonitor(directory);
+            this.directoryMonitor = new DirectoryMonitor(directory,
+                                                         config.get("recursive")
+                                                               .as(evaluatedWithHeapProperties())
+                                                               .defaultTo(false)
+                                                               .asBoolean());
             this.scanInterval = scanInterval();
+            this.debounce = watchDebounce();
 
             EndpointRegistry registry = endpointRegistry();
             RouterHandler handler = new RouterHandler(new RouteBuilder((HeapImpl) heap,
@@ -452,6 +947,14 @@ public class RouterHandler implements FileChangeListener, Handler {
                                                                        registry),
                                                       directoryMonitor);
             handler.setDefaultHandler(config.get("defaultHandler").as(optionalHeapObject(heap, Handler.class)));
+            handler.setGracePeriod(gracePeriod(),
+                                   heap.get(SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY, ScheduledExecutorService.class));
+            handler.setBuildThreads(config.get("buildThreads")
+                                          .as(evaluatedWithHeapProperties())
+                                          .defaultTo(Runtime.getRuntime().availableProcessors())
+                                          .asInteger());
+            this.idleTimeout = lazyIdleTimeout();
+            handler.setLazy(idleTimeout != null);
 
             RunMode mode = heap.get(RUNMODE_HEAP_KEY, RunMode.class);
             if (EVALUATION.equals(mode)) {
@@ -489,8 +992,86 @@ public class RouterHandler implements FileChangeListener, Handler {
             }
         }
 
+        private Duration gracePeriod() {
+            return config.get("gracePeriod")
+                         .as(evaluatedWithHeapProperties())
+                         .defaultTo("30 seconds")
+                         .as(duration());
+        }
+
+        /**
+         * Returns the debounce duration of the file system notifications, or {@literal null} if they are not
+         * watched.
+         */
+        private Duration watchDebounce() {
+            JsonValue watch = config.get("watch").as(evaluatedWithHeapProperties());
+            JsonValue debounceConfig = json("500 ms");
+            boolean enabled;
+            if (watch.isMap()) {
+                enabled = watch.get("enabled").defaultTo(true).asBoolean();
+                debounceConfig = watch.get("debounce").defaultTo("500 ms");
+            } else {
+                enabled = watch.defaultTo(false).asBoolean();
+            }
+            if (!enabled) {
+                return null;
+            }
+            Duration debounce = debounceConfig.as(duration());
+            if (debounce.isUnlimited() || debounce.isZero()) {
+                throw new JsonValueException(debounceConfig, "the debounce duration must be positive and finite");
+            }
+            return debounce;
+        }
+
+        /**
+         * Returns the duration after which the idle lazy routes are evicted, or {@literal null} if the routes are
+         * not lazy.
+         */
+        private Duration lazyIdleTimeout() {
+            JsonValue lazy = config.get("lazy").as(evaluatedWithHeapProperties());
+            JsonValue idleTimeoutConfig = json("unlimited");
+            boolean enabled;
+            if (lazy.isMap()) {
+                enabled = lazy.get("enabled").defaultTo(true).asBoolean();
+                idleTimeoutConfig = lazy.get("idleTimeout").defaultTo("unlimited");
+            } else {
+                enabled = lazy.defaultTo(false).asBoolean();
+            }
+            if (!enabled) {
+                return null;
+            }
+            Duration idleTimeout = idleTimeoutConfig.as(duration());
+            if (idleTimeout.isZero()) {
+                throw new JsonValueException(idleTimeoutConfig, "the idle timeout must be positive");
+            }
+            return idleTimeout;
+        }
+
         @Override
         public void start() throws HeapException {
+            if (debounce != null) {
+                try {
+                    directoryWatcher = new DirectoryWatcher(directoryMonitor, (RouterHandler) object);
+                } catch (IOException e) {
+                    throw new HeapException("Cannot watch the directory " + directoryMonitor.getDirectory(), e);
+                }
+            }
+            final ScheduledExecutorService scheduledExecutorService =
+                    heap.get(SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY, ScheduledExecutorService.class);
+            final TimeService time = heap.get(TIME_SERVICE_HEAP_KEY, TimeService.class);
+
+            // The routes are built concurrently, and they look objects up in the heap: wait for it to be unlocked
+            ((HeapImpl) heap).runUnlocked(new Runnable() {
+                @Override
+                public void run() {
+                    if (!destroyed) {
+                        monitor(scheduledExecutorService, time);
+                    }
+                }
+            });
+        }
+
+        private void monitor(final ScheduledExecutorService scheduledExecutorService, final TimeService time) {
             Runnable command = new Runnable() {
                 @Override
                 public void run() {
@@ -505,23 +1086,58 @@ public class RouterHandler implements FileChangeListener, Handler {
             // First scan is blocking : ensure everything is correct
             command.run();
 
+            // Watch the file system notifications, if enabled
+            if (directoryWatcher != null) {
+                scheduledWatch = scheduledExecutorService.scheduleWithFixedDelay(directoryWatcher,
+                                                                                 0L,
+                                                                                 debounce.to(MILLISECONDS),
+                                                                                 MILLISECONDS);
+            }
+
             // If a scanInterval was provided then schedule the next directory scans
             if (scanInterval != Duration.ZERO) {
-                ScheduledExecutorService scheduledExecutorService =
-                        heap.get(SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY, ScheduledExecutorService.class);
-
                 scheduledCommand = scheduledExecutorService.scheduleAtFixedRate(command,
                                                                                 scanInterval.to(MILLISECONDS),
                                                                                 scanInterval.to(MILLISECONDS),
                                                                                 MILLISECONDS);
             }
+
+            // Evict the idle lazy routes, if enabled
+            if (idleTimeout != null && !idleTimeout.isUnlimited()) {
+                final long idleMillis = idleTimeout.to(MILLISECONDS);
+                Runnable eviction = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            ((RouterHandler) object).evictIdleRoutes(time.now() - idleMillis);
+                        } catch (Exception e) {
+                            logger.error("An error occurred while evicting the idle routes", e);
+                        }
+                    }
+                };
+                long period = Math.max(idleMillis / 2, 1000L);
+                scheduledEviction = scheduledExecutorService.scheduleWithFixedDelay(eviction,
+                                                                                   period,
+                                                                                   period,
+                                                                                   MILLISECONDS);
+            }
         }
 
         @Override
         public void destroy() {
+            destroyed = true;
             if (scheduledCommand != null) {
                 scheduledCommand.cancel(true);
             }
+            if (scheduledWatch != null) {
+                scheduledWatch.cancel(false);
+            }
+            if (scheduledEviction != null) {
+                scheduledEviction.cancel(false);
+            }
+            if (directoryWatcher != null) {
+                closeSilently(directoryWatcher);
+            }
             if (object != null) {
                 ((RouterHandler) object).stop();
             }
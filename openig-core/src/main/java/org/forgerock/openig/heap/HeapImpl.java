@@ -13,6 +13,7 @@
  *
  * Copyright 2010-2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.heap;
@@ -61,6 +62,11 @@ import org.slf4j.LoggerFactory;
  * The concrete implementation of a heap. Provides methods to initialize and destroy a heap.
  * A Heap can be part of a heap hierarchy: if the queried object is not found locally, and if it has a parent,
  * the parent will be queried (and this, recursively until there is no parent anymore).
+ * <p>
+ * The objects are looked up and constructed while holding the lock of the heap, so that child heaps can be built by
+ * several threads at once. The work of an object that needs the other threads to look objects up in its heap (such
+ * as building child heaps concurrently) can be deferred until the lock is released with
+ * {@link #runUnlocked(Runnable)}.
  */
 public class HeapImpl implements Heap {
 
@@ -71,6 +77,11 @@ public class HeapImpl implements Heap {
      */
     private static final List<String> EXCLUDED_ATTRIBUTES = asList("type", "name", "config");
 
+    /**
+     * Tasks deferred by the current thread until it releases the lock of the heaps they have been deferred by.
+     */
+    private static final ThreadLocal<List<Runnable>> DEFERRED_TASKS = new ThreadLocal<>();
+
     /**
      * Parent heap to delegate queries to if nothing is found in the local heap.
      * It may be null if this is the root heap (built by the system).
@@ -176,8 +187,15 @@ public class HeapImpl implements Heap {
      * @throws HeapException if an exception occurs allocating heaplets.
      * @throws JsonValueException if the configuration object is malformed.
      */
-    public synchronized void init(JsonValue config, String... reservedFieldNames)
-            throws HeapException {
+    public void init(JsonValue config, String... reservedFieldNames) throws HeapException {
+        try {
+            initialize(config, reservedFieldNames);
+        } finally {
+            runDeferredTasks();
+        }
+    }
+
+    private synchronized void initialize(JsonValue config, String... reservedFieldNames) throws HeapException {
         // process configuration object model structure
         this.config = config;
 
@@ -321,6 +339,63 @@ public class HeapImpl implements Heap {
         }
     }
 
+    /**
+     * Returns whether the calling thread holds the lock of this heap or of one of its parents (typically while one
+     * of their objects is being constructed): the other threads looking objects up in this heap wait for it.
+     *
+     * @return whether the calling thread holds the lock of this heap or of one of its parents
+     */
+    public boolean isLockedByCurrentThread() {
+        for (HeapImpl heap = this; heap != null; heap = heap.parent) {
+            if (Thread.holdsLock(heap)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the given task once the calling thread has released the lock of this heap and of its parents, or right
+     * away if it does not hold any of them. An object started while its heap is being initialized can defer this
+     * way the work that needs the other threads to look objects up in this heap: they would wait for the calling
+     * thread otherwise.
+     *
+     * @param task
+     *         the task to run once this heap and its parents are not locked by the calling thread anymore
+     */
+    public void runUnlocked(final Runnable task) {
+        if (!isLockedByCurrentThread()) {
+            task.run();
+            return;
+        }
+        List<Runnable> tasks = DEFERRED_TASKS.get();
+        if (tasks == null) {
+            tasks = new ArrayList<>();
+            DEFERRED_TASKS.set(tasks);
+        }
+        tasks.add(new Runnable() {
+            @Override
+            public void run() {
+                // Deferred again if this heap is still locked
+                runUnlocked(task);
+            }
+        });
+    }
+
+    /**
+     * Runs the tasks deferred by the calling thread, once it has released the lock of this heap and of its parents.
+     */
+    private void runDeferredTasks() {
+        List<Runnable> tasks = DEFERRED_TASKS.get();
+        if (tasks == null || isLockedByCurrentThread()) {
+            return;
+        }
+        DEFERRED_TASKS.remove();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
     @Override
     public <T> T get(final String name, final Class<T> type) throws HeapException {
         return get(name, type, true);
@@ -367,6 +442,15 @@ public class HeapImpl implements Heap {
      * @throws HeapException if extraction failed
      */
     ExtractedObject extract(final String name, final boolean parentLookup) throws HeapException {
+        try {
+            return extractObject(name, parentLookup);
+        } finally {
+            runDeferredTasks();
+        }
+    }
+
+    private synchronized ExtractedObject extractObject(final String name, final boolean parentLookup)
+            throws HeapException {
         if (resolving.contains(name)) {
             // Fail for recursive object resolution
             throw new HeapException(
@@ -403,7 +487,17 @@ public class HeapImpl implements Heap {
     }
 
     @Override
-    public <T> T resolve(final JsonValue reference, final Class<T> type, final boolean optional) throws HeapException {
+    public <T> T resolve(final JsonValue reference, final Class<T> type, final boolean optional)
+            throws HeapException {
+        try {
+            return resolveReference(reference, type, optional);
+        } finally {
+            runDeferredTasks();
+        }
+    }
+
+    private synchronized <T> T resolveReference(final JsonValue reference, final Class<T> type, final boolean optional)
+            throws HeapException {
 
         // If optional if set, accept that the provided reference may wrap a null
         if (optional && reference.isNull()) {
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 package org.forgerock.openig.heap;
 
@@ -25,6 +26,7 @@ import org.forgerock.openig.decoration.capture.CaptureDecorator;
 import org.forgerock.openig.decoration.timer.TimerDecorator;
 import org.forgerock.openig.handler.ClientHandler;
 import org.forgerock.openig.http.EndpointRegistry;
+import org.forgerock.openig.metrics.MetricSources;
 import org.forgerock.util.time.TimeService;
 
 /**
@@ -81,6 +83,12 @@ public final class Keys {
      */
     public static final String FORGEROCK_CLIENT_HANDLER_HEAP_KEY = "ForgeRockClientHandler";
 
+    /**
+     * Key to retrieve the {@link MetricSources} instance from the {@link org.forgerock.openig.heap.Heap}: the
+     * components register there the metrics exposed by the {@literal /openig/api/system/objects/metrics} endpoint.
+     */
+    public static final String METRIC_SOURCES_HEAP_KEY = "MetricSources";
+
     /**
      * Key to retrieve the {@link org.forgerock.openig.http.RunMode} from the {@link org.forgerock.openig.heap.Heap}.
      */
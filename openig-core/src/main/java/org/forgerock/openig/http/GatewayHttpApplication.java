@@ -13,6 +13,7 @@
  *
  * Copyright 2010–2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.http;
@@ -30,6 +31,7 @@ import static org.forgerock.openig.heap.Keys.CLIENT_HANDLER_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.ENDPOINT_REGISTRY_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.ENVIRONMENT_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.FORGEROCK_CLIENT_HANDLER_HEAP_KEY;
+import static org.forgerock.openig.heap.Keys.METRIC_SOURCES_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.RUNMODE_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.SCHEDULED_EXECUTOR_SERVICE_HEAP_KEY;
 import static org.forgerock.openig.heap.Keys.SESSION_FACTORY_HEAP_KEY;
@@ -57,9 +59,12 @@ import org.forgerock.openig.config.Environment;
 import org.forgerock.openig.decoration.baseuri.BaseUriDecorator;
 import org.forgerock.openig.decoration.capture.CaptureDecorator;
 import org.forgerock.openig.decoration.timer.TimerDecorator;
+import org.forgerock.openig.el.Expression;
 import org.forgerock.openig.heap.EnvironmentHeap;
 import org.forgerock.openig.heap.HeapImpl;
 import org.forgerock.openig.heap.Name;
+import org.forgerock.openig.metrics.MetricSources;
+import org.forgerock.openig.metrics.OpenMetricsHandler;
 import org.forgerock.util.Factory;
 import org.forgerock.util.annotations.VisibleForTesting;
 import org.forgerock.util.time.TimeService;
@@ -97,6 +102,7 @@ public final class GatewayHttpApplication implements HttpApplication {
     private final JsonValue config;
     private final EndpointRegistry endpointRegistry;
     private final RunMode mode;
+    private EndpointRegistry.Registration metricsRegistration;
 
     @VisibleForTesting
     GatewayHttpApplication(final Environment environment,
@@ -136,6 +142,14 @@ public final class GatewayHttpApplication implements HttpApplication {
 
             heap.put(ENDPOINT_REGISTRY_HEAP_KEY, endpointRegistry);
 
+            // Single endpoint exposing the metrics of all the components in the OpenMetrics format
+            MetricSources metricSources = new MetricSources();
+            heap.put(METRIC_SOURCES_HEAP_KEY, metricSources);
+            if (endpointRegistry != null) {
+                metricsRegistration = endpointRegistry.register("metrics", new OpenMetricsHandler(metricSources));
+                logger.info("Metrics endpoint available at '{}'", metricsRegistration.getPath());
+            }
+
             // "Live" objects
             heap.put(ENVIRONMENT_HEAP_KEY, environment);
             heap.put(TIME_SERVICE_HEAP_KEY, TimeService.SYSTEM);
@@ -151,7 +165,10 @@ public final class GatewayHttpApplication implements HttpApplication {
             heap.addDefaultDeclaration(DEFAULT_CLIENT_HANDLER);
             heap.addDefaultDeclaration(FORGEROCK_CLIENT_HANDLER);
             heap.addDefaultDeclaration(DEFAULT_SCHEDULED_THREAD_POOL);
+            long constants = Expression.getConstantCount();
             heap.init(config, "temporaryStorage", "handler", "handlerObject", "globalDecorators", "properties");
+            logger.info("{} expression(s) of the configuration have been reduced to constants",
+                        Expression.getConstantCount() - constants);
 
             storage = config.get("temporaryStorage")
                             .defaultTo(TEMPORARY_STORAGE_HEAP_KEY)
@@ -183,6 +200,10 @@ public final class GatewayHttpApplication implements HttpApplication {
 
     @Override
     public void stop() {
+        if (metricsRegistration != null) {
+            metricsRegistration.unregister();
+            metricsRegistration = null;
+        }
         if (heap != null) {
             // Try to release Heaplet(s) resources
             heap.destroy();
@@ -0,0 +1,38 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import java.io.IOException;
+
+/**
+ * A source of metrics, written on demand in the OpenMetrics text format.
+ * <p>
+ * The samples of a metric family have to be written contiguously: a source is expected to own its families, and
+ * to write them family by family (all the samples of a family, whatever their labels, before the next family).
+ */
+public interface MetricSource {
+
+    /**
+     * Writes the current values of the metric families of this source.
+     *
+     * @param writer
+     *         the writer to write the metric families to
+     * @throws IOException
+     *         if the metrics cannot be written
+     */
+    void writeTo(OpenMetricsWriter writer) throws IOException;
+}
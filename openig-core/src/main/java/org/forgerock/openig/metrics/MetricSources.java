@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.forgerock.util.Factory;
+
+/**
+ * Registry of the {@link MetricSource}s of the gateway, available in the heap under the
+ * {@link org.forgerock.openig.heap.Keys#METRIC_SOURCES_HEAP_KEY} key.
+ * <p>
+ * The components that may have many instances (routes, throttling filters, ...) share a single source (see
+ * {@link #getOrRegister(String, Factory)}) that labels the samples of each instance, so that every metric family is
+ * written once.
+ */
+public final class MetricSources {
+
+    private final ConcurrentMap<String, MetricSource> sources = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the source registered under the given name, registering the one provided by the factory if there is
+     * none.
+     *
+     * @param name
+     *         the name of the source
+     * @param factory
+     *         the factory of the source to register if there is none
+     * @param <T>
+     *         the type of the source
+     * @return the source registered under the given name
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MetricSource> T getOrRegister(final String name, final Factory<T> factory) {
+        MetricSource source = sources.get(name);
+        if (source == null) {
+            MetricSource created = factory.newInstance();
+            source = sources.putIfAbsent(name, created);
+            if (source == null) {
+                source = created;
+            }
+        }
+        return (T) source;
+    }
+
+    /**
+     * Registers the given source under the given name, replacing the previous one, if any.
+     *
+     * @param name
+     *         the name of the source
+     * @param source
+     *         the source to register
+     */
+    public void register(final String name, final MetricSource source) {
+        sources.put(name, source);
+    }
+
+    /**
+     * Un-registers the given source, if it is still registered under the given name.
+     *
+     * @param name
+     *         the name of the source
+     * @param source
+     *         the source to un-register
+     */
+    public void unregister(final String name, final MetricSource source) {
+        sources.remove(name, source);
+    }
+
+    /**
+     * Writes the metric families of all the registered sources (in the order of their names), followed by the
+     * end of the exposition.
+     *
+     * @param writer
+     *         the writer to write the metric families to
+     * @throws IOException
+     *         if the metrics cannot be written
+     */
+    public void writeTo(final OpenMetricsWriter writer) throws IOException {
+        for (MetricSource source : sources.values()) {
+            source.writeTo(writer);
+        }
+        writer.eof();
+    }
+}
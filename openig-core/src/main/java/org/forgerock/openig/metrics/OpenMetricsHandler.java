@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.forgerock.http.protocol.Response.newResponsePromise;
+import static org.forgerock.http.protocol.Responses.newInternalServerError;
+import static org.forgerock.http.protocol.Status.METHOD_NOT_ALLOWED;
+import static org.forgerock.http.protocol.Status.OK;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+import org.forgerock.http.Handler;
+import org.forgerock.http.header.ContentTypeHeader;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes all the registered {@link MetricSources} in the OpenMetrics text format (that Prometheus scrapes).
+ * <p>
+ * The sources write their samples directly as text: no intermediate representation of the metrics is built,
+ * whatever the number of series. The text is buffered in memory, then sent as the response content once complete (so
+ * that a failure results in an error response rather than in a truncated scrape): the buffer is sized after the
+ * previous scrape, so that it does not have to grow again.
+ */
+public final class OpenMetricsHandler implements Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenMetricsHandler.class);
+
+    /** The initial size of the buffer of the first scrape. */
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final MetricSources sources;
+
+    /** The length of the previous scrape. */
+    private volatile int lastLength;
+
+    /**
+     * Builds a new handler exposing the given sources.
+     *
+     * @param sources
+     *         the metric sources to expose
+     */
+    public OpenMetricsHandler(final MetricSources sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
+        if (!"GET".equals(request.getMethod())) {
+            return newResponsePromise(new Response(METHOD_NOT_ALLOWED));
+        }
+        // Leave some room for the new series
+        ByteArrayOutputStream content =
+                new ByteArrayOutputStream(Math.max(INITIAL_BUFFER_SIZE, lastLength + lastLength / 8));
+        try (OutputStreamWriter writer = new OutputStreamWriter(content, UTF_8)) {
+            sources.writeTo(new OpenMetricsWriter(writer));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Cannot write the metrics", e);
+            return newResponsePromise(newInternalServerError(e));
+        }
+        lastLength = content.size();
+        Response response = new Response(OK);
+        response.getHeaders().put(ContentTypeHeader.NAME, OpenMetricsWriter.CONTENT_TYPE);
+        response.getEntity().setBytes(content.toByteArray());
+        return newResponsePromise(response);
+    }
+}
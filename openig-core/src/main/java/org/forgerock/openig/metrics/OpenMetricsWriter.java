@@ -0,0 +1,190 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes metric families in the
+ * <a href="https://github.com/OpenObservability/OpenMetrics/blob/main/specification/OpenMetrics.md">OpenMetrics</a>
+ * text format, straight to the underlying {@link Writer} (nothing is buffered by this class, wrap the writer into a
+ * {@link java.io.BufferedWriter} if needed).
+ * <p>
+ * A family is started by {@link #family(String, String, String, String)}, followed by its samples: the labels of a
+ * sample are given as alternating label names and values. The exposition is ended by {@link #eof()}.
+ *
+ * <pre>
+ *     {@code
+ *     writer.family("openig_route_requests", "counter", null, "Requests received by the route")
+ *           .sample("openig_route_requests_total", 42L, "route", "welcome");
+ *     writer.eof();
+ *     }
+ * </pre>
+ */
+public final class OpenMetricsWriter {
+
+    /**
+     * The content type of the OpenMetrics text format.
+     */
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /** Counter metric type. */
+    public static final String COUNTER = "counter";
+
+    /** Gauge metric type. */
+    public static final String GAUGE = "gauge";
+
+    /** Summary metric type. */
+    public static final String SUMMARY = "summary";
+
+    private final Writer writer;
+
+    /**
+     * Builds a new writer.
+     *
+     * @param writer
+     *         the writer to write the text to
+     */
+    public OpenMetricsWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a new metric family.
+     *
+     * @param name
+     *         the name of the family (without the {@literal _total} suffix of the counter samples)
+     * @param type
+     *         the type of the family ({@link #COUNTER}, {@link #GAUGE}, {@link #SUMMARY}, ...)
+     * @param unit
+     *         the unit of the family (the name must end with it), or {@code null}
+     * @param help
+     *         the description of the family
+     * @return this writer
+     * @throws IOException
+     *         if the family cannot be written
+     */
+    public OpenMetricsWriter family(final String name, final String type, final String unit, final String help)
+            throws IOException {
+        writer.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (unit != null) {
+            writer.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+        }
+        writer.append("# HELP ").append(name).append(' ');
+        escape(help);
+        writer.append('\n');
+        return this;
+    }
+
+    /**
+     * Writes an integer sample of the current family.
+     *
+     * @param name
+     *         the name of the sample (the family name, with the suffix expected by its type)
+     * @param value
+     *         the value of the sample
+     * @param labels
+     *         the alternating names and values of the labels of the sample
+     * @return this writer
+     * @throws IOException
+     *         if the sample cannot be written
+     */
+    public OpenMetricsWriter sample(final String name, final long value, final String... labels)
+            throws IOException {
+        labels(name, labels);
+        writer.append(Long.toString(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a floating point sample of the current family.
+     *
+     * @param name
+     *         the name of the sample (the family name, with the suffix expected by its type)
+     * @param value
+     *         the value of the sample
+     * @param labels
+     *         the alternating names and values of the labels of the sample
+     * @return this writer
+     * @throws IOException
+     *         if the sample cannot be written
+     */
+    public OpenMetricsWriter sample(final String name, final double value, final String... labels)
+            throws IOException {
+        labels(name, labels);
+        if (Double.isNaN(value)) {
+            writer.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            writer.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            writer.append(Double.toString(value));
+        }
+        writer.append('\n');
+        return this;
+    }
+
+    /**
+     * Ends the exposition, and flushes the underlying writer.
+     *
+     * @throws IOException
+     *         if the end of the exposition cannot be written
+     */
+    public void eof() throws IOException {
+        writer.append("# EOF\n");
+        writer.flush();
+    }
+
+    private void labels(final String name, final String... labels) throws IOException {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("The labels of the sample '" + name + "' are not name/value pairs");
+        }
+        writer.append(name);
+        if (labels.length != 0) {
+            writer.append('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i != 0) {
+                    writer.append(',');
+                }
+                writer.append(labels[i]).append("=\"");
+                escape(labels[i + 1]);
+                writer.append('"');
+            }
+            writer.append('}');
+        }
+        writer.append(' ');
+    }
+
+    private void escape(final String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                writer.append("\\\\");
+                break;
+            case '\n':
+                writer.append("\\n");
+                break;
+            case '"':
+                writer.append("\\\"");
+                break;
+            default:
+                writer.append(c);
+            }
+        }
+    }
+}
@@ -12,15 +12,23 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.resolver;
 
-import javax.el.BeanELResolver;
-import javax.el.ELContext;
-import javax.el.ELResolver;
-import javax.el.FunctionMapper;
-import javax.el.VariableMapper;
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isPublic;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +36,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Resolves Java Beans objects.
  *
+ * <p>The properties of each class are introspected once: they are then read and written through cached
+ * {@link MethodHandle}s.
+ *
  * <p>Notice that this object is considered as a fallback in the resolution mechanism.
  * It MUST NOT be declared in the {@literal META-INF/services/org.forgerock.openig.resolver.Resolver} services file.
  */
@@ -35,19 +46,21 @@ public class BeanResolver implements Resolver {
 
     private static final Logger logger = LoggerFactory.getLogger(BeanResolver.class);
 
-    private final BeanELResolver delegate;
-    private final ELContext context;
-
-    /** The unique resolver instance. */
-    static final BeanResolver INSTANCE = new BeanResolver();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 
     /**
-     * Builds a new BeanResolver around an EL {@link BeanELResolver} instance.
+     * The properties of each class, by name.
      */
-    public BeanResolver() {
-        delegate = new BeanELResolver();
-        context = new BasicELContext();
-    }
+    private static final ClassValue<Map<String, BeanProperty>> PROPERTIES =
+            new ClassValue<Map<String, BeanProperty>>() {
+                @Override
+                protected Map<String, BeanProperty> computeValue(final Class<?> type) {
+                    return introspect(type);
+                }
+            };
+
+    /** The unique resolver instance. */
+    static final BeanResolver INSTANCE = new BeanResolver();
 
     /**
      * Do not forget to override this method in sub-classes.
@@ -60,43 +73,128 @@ public class BeanResolver implements Resolver {
 
     @Override
     public Object get(final Object object, final Object element) {
+        if (object == null || element == null) {
+            return UNRESOLVED;
+        }
+        BeanProperty property = PROPERTIES.get(object.getClass()).get(element.toString());
+        if (property == null || property.getter == null) {
+            logger.warn("The property '{}' cannot be read from an object of type {}",
+                        element,
+                        object.getClass().getName());
+            return UNRESOLVED;
+        }
         try {
-            final Object value = delegate.getValue(context, object, element);
-            if (context.isPropertyResolved()) {
-                return value;
-            }
-        } catch (Exception e) {
+            return (Object) property.getter.invokeExact(object);
+        } catch (Throwable e) {
+            rethrowIfError(e);
             logger.warn("An error occurred during the resolution", e);
             // Ignored, considered as un-resolved
+            return UNRESOLVED;
         }
-        return UNRESOLVED;
     }
 
     @Override
     public Object put(final Object object, final Object element, final Object value) {
+        if (object == null || element == null) {
+            return UNRESOLVED;
+        }
+        BeanProperty property = PROPERTIES.get(object.getClass()).get(element.toString());
+        if (property == null || property.setter == null) {
+            logger.warn("The property '{}' cannot be written to an object of type {}",
+                        element,
+                        object.getClass().getName());
+            return UNRESOLVED;
+        }
         try {
-            delegate.setValue(context, object, element, value);
-        } catch (Exception e) {
+            property.setter.invokeExact(object, value);
+        } catch (Throwable e) {
+            rethrowIfError(e);
             logger.warn("An error occurred during the resolution", e);
             // Ignored, let other resolvers take over
         }
         return UNRESOLVED;
     }
 
-    private class BasicELContext extends ELContext {
-        @Override
-        public ELResolver getELResolver() {
-            return delegate;
+    private static void rethrowIfError(final Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
         }
+    }
 
-        @Override
-        public FunctionMapper getFunctionMapper() {
-            return null;
+    private static Map<String, BeanProperty> introspect(final Class<?> type) {
+        Map<String, BeanProperty> properties = new HashMap<>();
+        try {
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                MethodHandle getter = unreflect(descriptor.getReadMethod());
+                MethodHandle setter = unreflect(descriptor.getWriteMethod());
+                if (getter != null || setter != null) {
+                    properties.put(descriptor.getName(),
+                                   new BeanProperty(
+                                           getter == null ? null : getter.asType(methodType(Object.class,
+                                                                                            Object.class)),
+                                           setter == null ? null : setter.asType(methodType(void.class,
+                                                                                            Object.class,
+                                                                                            Object.class))));
+                }
+            }
+        } catch (IntrospectionException e) {
+            logger.warn("Cannot introspect the class {}", type.getName(), e);
         }
+        return Collections.unmodifiableMap(properties);
+    }
 
-        @Override
-        public VariableMapper getVariableMapper() {
+    /**
+     * Returns a handle on the given public method, preferably through a public class or interface declaring it.
+     */
+    private static MethodHandle unreflect(final Method method) {
+        if (method == null || !isPublic(method.getModifiers())) {
+            return null;
+        }
+        Method accessible = findPublicMethod(method.getDeclaringClass(), method.getName(), method.getParameterTypes());
+        if (accessible != null) {
+            try {
+                return MethodHandles.publicLookup().unreflect(accessible);
+            } catch (IllegalAccessException e) {
+                // Try the method itself
+            }
+        }
+        try {
+            // A public method of a non-public class
+            method.setAccessible(true);
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            logger.trace("The method {} is not accessible", method, e);
             return null;
         }
     }
+
+    private static Method findPublicMethod(final Class<?> type, final String name, final Class<?>[] parameterTypes) {
+        if (isPublic(type.getModifiers())) {
+            try {
+                return type.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        for (Class<?> iface : type.getInterfaces()) {
+            Method method = findPublicMethod(iface, name, parameterTypes);
+            if (method != null) {
+                return method;
+            }
+        }
+        return type.getSuperclass() != null ? findPublicMethod(type.getSuperclass(), name, parameterTypes) : null;
+    }
+
+    /**
+     * The accessors of a bean property, adapted to {@code (Object)Object} and {@code (Object, Object)void}.
+     */
+    private static final class BeanProperty {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        BeanProperty(final MethodHandle getter, final MethodHandle setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
 }
@@ -13,6 +13,7 @@
  *
  * Copyright 2010-2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.resolver;
@@ -37,14 +38,36 @@ public final class Resolvers {
      * Resolver that handles native arrays (not handled like the service-based
      * resolvers).
      */
-    private static final List<Resolver> ARRAY_RESOLVER = Collections.unmodifiableList(Arrays
-            .asList((Resolver) new ArrayResolver()));
+    private static final Resolver[] ARRAY_RESOLVER = { new ArrayResolver() };
 
     /** Mapping of supported classes to associated resolvers. */
     @SuppressWarnings("rawtypes")
     public static final Map<Class, Resolver> SERVICES = Collections.unmodifiableMap(Loader.loadMap(
             Class.class, Resolver.class));
 
+    /**
+     * The resolvers of each class, ordered from most specific class/interface to least: they are determined once
+     * per class.
+     */
+    private static final ClassValue<Resolver[]> CHAINS = new ClassValue<Resolver[]>() {
+        @Override
+        protected Resolver[] computeValue(final Class<?> type) {
+            if (type.isArray()) {
+                return ARRAY_RESOLVER;
+            }
+            List<Resolver> chain = new ArrayList<>();
+            Iterator<Resolver> resolvers = new ResolverIterator(type);
+            while (resolvers.hasNext()) {
+                Resolver resolver = resolvers.next();
+                // A resolver reached through several interfaces would not resolve the element the second time
+                if (!chain.contains(resolver)) {
+                    chain.add(resolver);
+                }
+            }
+            return chain.toArray(new Resolver[chain.size()]);
+        }
+    };
+
     /** Static methods only. */
     private Resolvers() {
     }
@@ -52,66 +75,15 @@ public final class Resolvers {
     /**
      * Provides an iterable object over the resolvers that are appropriate for a
      * particular object. Resolvers are provided ordered from most specific to
-     * class/interface to least. Resolvers are provided through an iterator
-     * interface to avoid the overhead of determining all resolvers in advance.
+     * class/interface to least. The resolvers of each class are only determined
+     * once.
      *
      * @param object the object for which a set of resolvers is being sought.
      * @return an object that returns an iterator over the set of resolvers for
      * the object.
      */
     public static Iterable<Resolver> resolvers(final Object object) {
-        return new Iterable<Resolver>() {
-            public Iterator<Resolver> iterator() {
-                return (object.getClass().isArray() ? ARRAY_RESOLVER.iterator() : new Iterator<Resolver>() {
-                    Class<?> class1 = object.getClass();
-                    Class<?> class2 = class1;
-                    Iterator<Class<?>> interfaces = null;
-                    int n = 0;
-
-                    public boolean hasNext() {
-                        // interface hierarchy not yet exhausted
-                        return (class2 != null);
-                    }
-
-                    public Resolver next() {
-                        while (class1 != null) {
-                            // class hierarchy
-                            Resolver resolver = SERVICES.get(class1);
-                            class1 = class1.getSuperclass();
-                            if (resolver != null) {
-                                return resolver;
-                            }
-                        }
-                        // exhausted class hierarchy
-                        class1 = null;
-                        while (class2 != null && class2 != Object.class) {
-                            // interface hierarchy
-                            if (interfaces != null && interfaces.hasNext()) {
-                                Resolver resolver = SERVICES.get(interfaces.next());
-                                if (resolver != null) {
-                                    return resolver;
-                                }
-                            } else {
-                                List<Class<?>> list = getInterfaces(class2, n++);
-                                if (list.size() > 0) {
-                                    interfaces = list.iterator();
-                                } else {
-                                    class2 = class2.getSuperclass();
-                                    n = 0;
-                                }
-                            }
-                        }
-                        // exhausted interface hierarchy
-                        class2 = null;
-                        return BeanResolver.INSTANCE;
-                    }
-
-                    public void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                });
-            }
-        };
+        return Collections.unmodifiableList(Arrays.asList(CHAINS.get(object.getClass())));
     }
 
     /**
@@ -124,7 +96,7 @@ public final class Resolvers {
      * @see Resolver#get(Object, Object)
      */
     public static Object get(Object object, Object element) {
-        for (Resolver resolver : resolvers(object)) {
+        for (Resolver resolver : CHAINS.get(object.getClass())) {
             Object value = resolver.get(object, element);
             if (value != Resolver.UNRESOLVED) {
                 // first hit wins
@@ -147,7 +119,7 @@ public final class Resolvers {
      * @see Resolver#put(Object, Object, Object)
      */
     public static Object put(Object object, Object element, Object value) {
-        for (Resolver resolver : resolvers(object)) {
+        for (Resolver resolver : CHAINS.get(object.getClass())) {
             Object resolved = resolver.put(object, element, value);
             if (resolved != Resolver.UNRESOLVED) {
                 // first hit wins
@@ -170,4 +142,65 @@ public final class Resolvers {
         }
         return interfaces;
     }
+
+    /**
+     * Iterates over the resolvers of a class, from the most specific class/interface to the least, ending with the
+     * {@link BeanResolver}.
+     */
+    private static final class ResolverIterator implements Iterator<Resolver> {
+        private Class<?> class1;
+        private Class<?> class2;
+        private Iterator<Class<?>> interfaces = null;
+        private int n = 0;
+
+        ResolverIterator(final Class<?> type) {
+            this.class1 = type;
+            this.class2 = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // interface hierarchy not yet exhausted
+            return (class2 != null);
+        }
+
+        @Override
+        public Resolver next() {
+            while (class1 != null) {
+                // class hierarchy
+                Resolver resolver = SERVICES.get(class1);
+                class1 = class1.getSuperclass();
+                if (resolver != null) {
+                    return resolver;
+                }
+            }
+            // exhausted class hierarchy
+            class1 = null;
+            while (class2 != null && class2 != Object.class) {
+                // interface hierarchy
+                if (interfaces != null && interfaces.hasNext()) {
+                    Resolver resolver = SERVICES.get(interfaces.next());
+                    if (resolver != null) {
+                        return resolver;
+                    }
+                } else {
+                    List<Class<?>> list = getInterfaces(class2, n++);
+                    if (list.size() > 0) {
+                        interfaces = list.iterator();
+                    } else {
+                        class2 = class2.getSuperclass();
+                        n = 0;
+                    }
+                }
+            }
+            // exhausted interface hierarchy
+            class2 = null;
+            return BeanResolver.INSTANCE;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  *
  */
 
@@ -21,6 +22,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.forgerock.openig.el.Bindings.bindings;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 import java.util.Map;
 
@@ -94,6 +97,21 @@ public class BindingsTest {
                 .hasSize(5);
     }
 
+    @Test
+    public void shouldOnlyResolveTheContextBindingsWhenAccessed() throws Exception {
+        Context context = mock(Context.class);
+        when(context.getContextName()).thenReturn("mock");
+        Request request = new Request();
+        Bindings bindings = bindings(context, request);
+
+        assertThat(bindings.get("request")).isSameAs(request);
+        verifyZeroInteractions(context);
+
+        assertThat(bindings.isBound("session")).isFalse();
+        assertThat((Map<?, ?>) bindings.get("contexts")).containsOnly(entry("mock", context));
+        assertThat(bindings.get("contexts")).isSameAs(bindings.get("contexts"));
+    }
+
     @Test
     public void shouldBindContextRequestAndResponse() throws Exception {
         assertThat(bindings(new RootContext(), new Request(), new Response(Status.OK)).asMap())
@@ -13,6 +13,7 @@
  *
  * Copyright 2010-2011 ApexIdentity Inc.
  * Portions Copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.el;
@@ -348,6 +349,92 @@ public class ExpressionTest {
         assertThat(evaluationBindings.asMap()).containsExactly(entry("b", 2));
     }
 
+    @Test
+    public void shouldLetTheEvaluationBindingsShadowTheInitialOnes() throws Exception {
+        Expression<Object> expression = Expression.valueOf("${a}", Object.class, bindings("a", 1));
+        assertThat(expression.eval(bindings("a", 2))).isEqualTo(2);
+        assertThat(expression.eval(bindings("a", null))).isNull();
+        assertThat(expression.eval(bindings("b", 2))).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReduceTheExpressionsOnlyDependingOnTheInitialBindingsToConstants() throws Exception {
+        long constants = Expression.getConstantCount();
+        Expression<String> expression = Expression.valueOf("http://${host}:${port}${toLowerCase(path)}",
+                                                           String.class,
+                                                           bindings("host", "example.com").bind("port", 8080)
+                                                                                          .bind("path", "/API"));
+
+        assertThat(expression.isConstant()).isTrue();
+        assertThat(Expression.getConstantCount()).isEqualTo(constants + 1);
+        assertThat(expression.eval(bindings("request", new Request()))).isEqualTo("http://example.com:8080/api");
+        assertThat(expression.eval(bindings("host", "forgerock.org"))).isEqualTo("http://forgerock.org:8080/api");
+    }
+
+    @Test
+    public void shouldReduceTheExpressionsOnlyDependingOnTheSystemPropertiesToConstants() throws Exception {
+        System.setProperty("expression.test.base", "/base");
+        try {
+            Expression<String> expression = Expression.valueOf("${system['expression.test.base']}/path",
+                                                               String.class);
+            assertThat(expression.isConstant()).isTrue();
+            assertThat(expression.eval()).isEqualTo("/base/path");
+        } finally {
+            System.clearProperty("expression.test.base");
+        }
+    }
+
+    @DataProvider
+    private Object[][] notConstantExpressions() {
+        return new Object[][] {
+            // Provided when evaluated
+            { "${request.method}" },
+            // Arbitrary method invocation
+            { "${a.concat('b')}" },
+            // Depends on the content of a file
+            { "${read(a)}" },
+            // Mutable result
+            { "${split(a, ',')}" },
+        };
+    }
+
+    @Test(dataProvider = "notConstantExpressions")
+    public void shouldNotReduceTheExpressionsToConstants(final String expression) throws Exception {
+        assertThat(Expression.valueOf(expression, Object.class, bindings("a", "a,b")).isConstant()).isFalse();
+    }
+
+    @Test
+    public void shouldNotReduceTheExpressionsFailingWithARuntimeException() throws Exception {
+        Map<String, Object> failing = new HashMap<String, Object>() {
+            @Override
+            public Object get(final Object key) {
+                throw new IllegalStateException("Not available yet");
+            }
+        };
+        Expression<Object> expression = Expression.valueOf("${a.b}", Object.class, bindings("a", failing));
+        assertThat(expression.isConstant()).isFalse();
+    }
+
+    @Test
+    public void shouldSupportNestedEvaluations() throws Exception {
+        Expression<String> expression = Expression.valueOf("${nested.value}-${a}", String.class);
+        assertThat(expression.eval(bindings("nested", new NestedBean()).bind("a", "outer"))).isEqualTo("inner-outer");
+    }
+
+    @Test(invocationCount = 100, threadPoolSize = 8)
+    public void shouldSupportConcurrentEvaluations() throws Exception {
+        String name = Thread.currentThread().getName();
+        Expression<String> expression = Expression.valueOf("${a}-${nested.value}", String.class);
+        assertThat(expression.eval(bindings("nested", new NestedBean()).bind("a", name))).isEqualTo(name + "-inner");
+    }
+
+    public static class NestedBean {
+        public String getValue() throws ExpressionException {
+            // Evaluated while the enclosing expression is being evaluated by the same thread
+            return Expression.valueOf("${a}", String.class).eval(bindings("a", "inner"));
+        }
+    }
+
     public static class ExternalBean {
         private InternalBean internal;
 
@@ -0,0 +1,147 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class FileCacheTest {
+
+    private File file;
+    private CountingLoader loader;
+    private int writes;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = File.createTempFile("file-cache", ".txt");
+        loader = new CountingLoader();
+        writes = 0;
+        write("hello");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void shouldLoadTheFileOnlyOnceWhenUnchanged() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 1024L, 0L);
+
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+        assertThat(loader.loads).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReloadTheFileOnceModified() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 1024L, 0L);
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+
+        write("hello world");
+        assertThat(cache.get(file.getPath())).isEqualTo("hello world");
+        assertThat(loader.loads).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCheckTheFileDuringTheCheckInterval() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 1024L, Long.MAX_VALUE);
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+
+        write("hello world");
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+        assertThat(loader.loads).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotKeepTheFilesLargerThanTheMaximumLength() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 2L, 0L);
+
+        cache.get(file.getPath());
+        cache.get(file.getPath());
+        assertThat(loader.loads).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldKeepAFileAsLargeAsTheMaximumLength() throws Exception {
+        // Large enough for the cache to be split into several segments by default
+        write(new String(new char[100]).replace('\0', 'a'));
+        FileCache<String> cache = new FileCache<>(loader, 100L, 0L);
+
+        cache.get(file.getPath());
+        cache.get(file.getPath());
+        assertThat(loader.loads).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReloadTheFilesLoadedWithinTheModificationTimeResolution() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 1024L, 0L);
+        long now = System.currentTimeMillis();
+        file.setLastModified(now);
+        assertThat(cache.get(file.getPath())).isEqualTo("hello");
+
+        // Same length, same modification time
+        Files.write(file.toPath(), "jello".getBytes(UTF_8));
+        file.setLastModified(now);
+        assertThat(cache.get(file.getPath())).isEqualTo("jello");
+    }
+
+    @Test
+    public void shouldFailWhenTheFileIsRemoved() throws Exception {
+        FileCache<String> cache = new FileCache<>(loader, 1024L, 0L);
+        cache.get(file.getPath());
+
+        assertThat(file.delete()).isTrue();
+        try {
+            cache.get(file.getPath());
+            fail("The removed file should not be read");
+        } catch (FileNotFoundException e) {
+            assertThat(loader.loads).isEqualTo(2);
+        }
+    }
+
+    private void write(final String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        // Make sure the change is visible even with a coarse modification time resolution, and that the file is not
+        // considered as being modified while loaded
+        file.setLastModified(System.currentTimeMillis() - 60_000L + 2000L * writes++);
+    }
+
+    private static final class CountingLoader implements FileCache.Loader<String> {
+        private int loads;
+
+        @Override
+        public String load(final File file) throws IOException {
+            loads++;
+            if (!file.exists()) {
+                throw new FileNotFoundException(file.getPath());
+            }
+            return new String(Files.readAllBytes(file.toPath()), UTF_8);
+        }
+    }
+}
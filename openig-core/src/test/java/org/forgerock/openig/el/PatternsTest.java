@@ -0,0 +1,78 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.el;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PatternsTest {
+
+    @Test
+    public void shouldCompileThePatternsOnce() throws Exception {
+        Pattern pattern = Patterns.compile("^/dynamic/[0-9]+");
+        assertThat(Patterns.compile("^/dynamic/[0-9]+")).isSameAs(pattern);
+    }
+
+    @Test
+    public void shouldCompileTheLiteralPatternsWhenTheExpressionIsCreated() throws Exception {
+        Expression<Boolean> expression =
+                Expression.valueOf("${matches(path, '^/literal/[a-z]+') and split(list, ';')[0] == 'a'}",
+                                   Boolean.class);
+        Pattern pattern = Patterns.compile("^/literal/[a-z]+");
+
+        assertThat(expression.eval(Bindings.bindings("path", "/literal/abc").bind("list", "a;b"))).isTrue();
+        assertThat(Patterns.compile("^/literal/[a-z]+")).isSameAs(pattern);
+    }
+
+    @Test
+    public void shouldKeepTheLiteralPatternsOfTheExpressionsCompiled() throws Exception {
+        Expression<Boolean> expression = Expression.valueOf("${matches(path, '^/kept/[a-z]+')}", Boolean.class);
+        Pattern pattern = Patterns.compile("^/kept/[a-z]+");
+
+        // Evict all the recently used patterns
+        for (int i = 0; i < Patterns.MAXIMUM_SIZE * 2; i++) {
+            Patterns.compile("^/dynamic/" + i);
+        }
+
+        assertThat(Patterns.compile("^/kept/[a-z]+")).isSameAs(pattern);
+        assertThat(expression.eval(Bindings.bindings("path", "/kept/abc"))).isTrue();
+    }
+
+    @Test
+    public void shouldBoundTheLiteralPatterns() throws Exception {
+        for (int i = 0; i < Patterns.MAXIMUM_SIZE * 2; i++) {
+            Expression.valueOf("${matches(path, '^/literal/" + i + "')}", Boolean.class);
+        }
+        assertThat(Patterns.size()).isLessThanOrEqualTo(Patterns.MAXIMUM_SIZE);
+    }
+
+    @Test
+    public void shouldIgnoreInvalidLiteralPatterns() throws Exception {
+        Expression<Boolean> expression = Expression.valueOf("${matches(path, '(')}", Boolean.class);
+        assertThat(expression.eval(Bindings.bindings("path", "("))).isFalse();
+    }
+
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public void shouldFailToCompileInvalidPatterns() throws Exception {
+        Patterns.compile("(");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.filter.throttling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.protocol.Status.METHOD_NOT_ALLOWED;
+import static org.forgerock.http.protocol.Status.OK;
+import static org.forgerock.json.JsonValue.json;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.forgerock.http.filter.throttling.HeavyHitters;
+import org.forgerock.http.filter.throttling.ThrottlingFilter;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.json.JsonValue;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class HeavyHittersHandlerTest {
+
+    @Test
+    public void shouldReportTheHeavyHittersInDescendingOrder() throws Exception {
+        HeavyHitters allowed = new HeavyHitters(2);
+        add(allowed, "bob", 1);
+        add(allowed, "alice", 3);
+        HeavyHitters throttled = new HeavyHitters(2);
+        add(throttled, "mallory", 2);
+        ThrottlingFilter filter = mock(ThrottlingFilter.class);
+        when(filter.getAllowedHeavyHitters()).thenReturn(allowed);
+        when(filter.getThrottledHeavyHitters()).thenReturn(throttled);
+
+        Response response = new HeavyHittersHandler(filter).handle(new RootContext(), new Request().setMethod("GET"))
+                                                           .get();
+
+        assertThat(response.getStatus()).isEqualTo(OK);
+        JsonValue report = json(response.getEntity().getJson());
+        assertThat(report.get("allowed").get("total").asLong()).isEqualTo(4L);
+        assertThat(report.get("allowed").get("top").size()).isEqualTo(2);
+        assertThat(report.get("allowed").get("top").get(0).get("partition").asString()).isEqualTo("alice");
+        assertThat(report.get("allowed").get("top").get(0).get("count").asLong()).isEqualTo(3L);
+        assertThat(report.get("allowed").get("top").get(1).get("partition").asString()).isEqualTo("bob");
+        assertThat(report.get("allowed").get("top").get(1).get("count").asLong()).isEqualTo(1L);
+        assertThat(report.get("throttled").get("total").asLong()).isEqualTo(2L);
+        assertThat(report.get("throttled").get("top").get(0).get("partition").asString()).isEqualTo("mallory");
+    }
+
+    @Test
+    public void shouldReportNothingWhenNotTracking() throws Exception {
+        Response response = new HeavyHittersHandler(mock(ThrottlingFilter.class))
+                .handle(new RootContext(), new Request().setMethod("GET"))
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(OK);
+        JsonValue report = json(response.getEntity().getJson());
+        assertThat(report.get("allowed").isNull()).isTrue();
+        assertThat(report.get("throttled").isNull()).isTrue();
+    }
+
+    @Test
+    public void shouldRejectNonGetMethod() throws Exception {
+        Response response = new HeavyHittersHandler(mock(ThrottlingFilter.class))
+                .handle(new RootContext(), new Request().setMethod("POST"))
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(METHOD_NOT_ALLOWED);
+    }
+
+    private static void add(final HeavyHitters heavyHitters, final String key, final int times) {
+        for (int i = 0; i < times; i++) {
+            heavyHitters.add(key);
+        }
+    }
+}
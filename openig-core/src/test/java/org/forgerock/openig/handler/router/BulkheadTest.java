@@ -0,0 +1,205 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.protocol.Status.OK;
+import static org.forgerock.http.protocol.Status.SERVICE_UNAVAILABLE;
+import static org.forgerock.util.time.Duration.UNLIMITED;
+import static org.forgerock.util.time.Duration.duration;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.forgerock.http.Handler;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class BulkheadTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private PendingHandler next;
+    private MonitoringMetrics metrics;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        next = new PendingHandler();
+        metrics = new MonitoringMetrics();
+    }
+
+    @Test
+    public void shouldRejectRequestsOverTheLimitWhenThereIsNoQueue() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 0, UNLIMITED, null, DIRECT, metrics);
+
+        Promise<Response, NeverThrowsException> first = handle(bulkhead);
+        Promise<Response, NeverThrowsException> second = handle(bulkhead);
+
+        assertThat(first.isDone()).isFalse();
+        assertThat(second.get().getStatus()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(metrics.getRejectedRequestCount().getCount()).isEqualTo(1);
+
+        next.complete(0);
+        assertThat(first.get().getStatus()).isEqualTo(OK);
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(0);
+        assertThat(handle(bulkhead).isDone()).isFalse();
+    }
+
+    @Test
+    public void shouldProcessTheQueuedRequestsOnceTheInFlightOnesComplete() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 2, UNLIMITED, null, DIRECT, metrics);
+
+        Promise<Response, NeverThrowsException> first = handle(bulkhead);
+        Promise<Response, NeverThrowsException> second = handle(bulkhead);
+        Promise<Response, NeverThrowsException> third = handle(bulkhead);
+        Promise<Response, NeverThrowsException> fourth = handle(bulkhead);
+
+        assertThat(next.pending).hasSize(1);
+        assertThat(metrics.getQueuedRequestCount().getCount()).isEqualTo(2);
+        assertThat(fourth.get().getStatus()).isEqualTo(SERVICE_UNAVAILABLE);
+
+        next.complete(0);
+        assertThat(first.get().getStatus()).isEqualTo(OK);
+        // The second request is processed, in order
+        assertThat(next.pending).hasSize(2);
+        assertThat(second.isDone()).isFalse();
+        assertThat(metrics.getQueuedRequestCount().getCount()).isEqualTo(1);
+
+        next.complete(1);
+        assertThat(second.get().getStatus()).isEqualTo(OK);
+        next.complete(2);
+        assertThat(third.get().getStatus()).isEqualTo(OK);
+        assertThat(metrics.getQueuedRequestCount().getCount()).isEqualTo(0);
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldHandTheQueuedRequestsOffToTheDispatcher() throws Exception {
+        final List<Runnable> dispatched = new ArrayList<>();
+        Executor dispatcher = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                dispatched.add(command);
+            }
+        };
+        Bulkhead bulkhead = new Bulkhead(1, 1, UNLIMITED, null, dispatcher, metrics);
+
+        Promise<Response, NeverThrowsException> first = handle(bulkhead);
+        Promise<Response, NeverThrowsException> second = handle(bulkhead);
+
+        next.complete(0);
+        assertThat(first.get().getStatus()).isEqualTo(OK);
+        assertThat(dispatched).hasSize(1);
+        assertThat(next.pending).hasSize(1);
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(1);
+
+        dispatched.get(0).run();
+        assertThat(next.pending).hasSize(2);
+        next.complete(1);
+        assertThat(second.get().getStatus()).isEqualTo(OK);
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRejectTheQueuedRequestsThatWaitedForTooLong() throws Exception {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        Bulkhead bulkhead = new Bulkhead(1, 1, duration(3, SECONDS), executor, DIRECT, metrics);
+
+        Promise<Response, NeverThrowsException> first = handle(bulkhead);
+        Promise<Response, NeverThrowsException> second = handle(bulkhead);
+
+        ArgumentCaptor<Runnable> expiration = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(expiration.capture(), eq(3L), eq(SECONDS));
+        expiration.getValue().run();
+
+        assertThat(second.get().getStatus()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(metrics.getQueuedRequestCount().getCount()).isEqualTo(0);
+        assertThat(metrics.getRejectedRequestCount().getCount()).isEqualTo(1);
+
+        // The expired request is not processed anymore
+        next.complete(0);
+        assertThat(first.get().getStatus()).isEqualTo(OK);
+        assertThat(next.pending).hasSize(1);
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotRecurseWhenTheQueuedRequestsCompleteSynchronously() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 10_000, UNLIMITED, null, DIRECT, metrics);
+        Promise<Response, NeverThrowsException> first = handle(bulkhead);
+        List<Promise<Response, NeverThrowsException>> queued = new ArrayList<>();
+        Handler immediate = new Handler() {
+            @Override
+            public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
+                return Response.newResponsePromise(new Response(OK));
+            }
+        };
+        for (int i = 0; i < 10_000; i++) {
+            queued.add(bulkhead.filter(new RootContext(), new Request(), immediate));
+        }
+
+        next.complete(0);
+
+        assertThat(first.get().getStatus()).isEqualTo(OK);
+        for (Promise<Response, NeverThrowsException> promise : queued) {
+            assertThat(promise.get().getStatus()).isEqualTo(OK);
+        }
+        assertThat(bulkhead.getInFlightRequests()).isEqualTo(0);
+    }
+
+    private Promise<Response, NeverThrowsException> handle(final Bulkhead bulkhead) {
+        return bulkhead.filter(new RootContext(), new Request(), next);
+    }
+
+    /**
+     * Keeps the requests pending until they are explicitly completed.
+     */
+    private static final class PendingHandler implements Handler {
+        private final List<PromiseImpl<Response, NeverThrowsException>> pending = new ArrayList<>();
+
+        @Override
+        public Promise<Response, NeverThrowsException> handle(final Context context, final Request request) {
+            PromiseImpl<Response, NeverThrowsException> promise = PromiseImpl.create();
+            pending.add(promise);
+            return promise;
+        }
+
+        void complete(final int index) {
+            pending.get(index).handleResult(new Response(OK));
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
@@ -139,6 +140,58 @@ public class DirectoryMonitorTest {
         verify(listener).onChanges(same(fileChangeSet));
     }
 
+    @Test
+    public void testSubDirectoriesAreOnlyScannedWhenRecursive() throws Exception {
+        File folder = newTemporaryFolder();
+        File tenant = new File(folder, "tenant");
+        assertThat(tenant.mkdir()).isTrue();
+        File jsonFile = new File(tenant, "route.json");
+        writeFile("{}", jsonFile);
+
+        assertThat(new DirectoryMonitor(folder).createFileChangeSet().isEmpty()).isTrue();
+        assertThat(new DirectoryMonitor(folder, true).createFileChangeSet().getAddedFiles()).containsOnly(jsonFile);
+    }
+
+    @Test
+    public void testFilesWithUnchangedContentAreNotConsideredAsModified() throws Exception {
+        File folder = newTemporaryFolder();
+        File jsonFile = new File(folder, "route.json");
+        writeFile("{ \"foo\": \"bar\" }", jsonFile);
+        DirectoryMonitor observer = new DirectoryMonitor(folder);
+        assertThat(observer.createFileChangeSet().getAddedFiles()).containsOnly(jsonFile);
+
+        // Same content, different last modified date
+        assertThat(jsonFile.setLastModified(jsonFile.lastModified() - 10_000L)).isTrue();
+        assertThat(observer.createFileChangeSet().isEmpty()).isTrue();
+
+        // Different content, same last modified date and size
+        long lastModified = jsonFile.lastModified();
+        writeFile("{ \"foo\": \"baz\" }", jsonFile);
+        assertThat(jsonFile.setLastModified(lastModified)).isTrue();
+        assertThat(observer.createFileChangeSet(Collections.singleton(jsonFile)).getModifiedFiles())
+                .containsOnly(jsonFile);
+    }
+
+    @Test
+    public void testOnlyTheGivenPathsAreChecked() throws Exception {
+        File folder = newTemporaryFolder();
+        File tenant = new File(folder, "tenant");
+        assertThat(tenant.mkdir()).isTrue();
+        File first = new File(folder, "first.json");
+        File second = new File(tenant, "second.json");
+        writeFile("{}", first);
+        writeFile("{}", second);
+        DirectoryMonitor observer = new DirectoryMonitor(folder, true);
+
+        assertThat(observer.createFileChangeSet(Collections.singleton(first)).getAddedFiles()).containsOnly(first);
+        assertThat(observer.createFileChangeSet(Collections.singleton(tenant)).getAddedFiles()).containsOnly(second);
+
+        // Removing a directory removes the files it contained
+        assertThat(second.delete() && tenant.delete()).isTrue();
+        assertThat(observer.createFileChangeSet(Collections.singleton(tenant)).getRemovedFiles())
+                .containsOnly(second);
+    }
+
     @DataProvider
     public static Object[][] directories() throws IOException {
         // @Checkstyle:off
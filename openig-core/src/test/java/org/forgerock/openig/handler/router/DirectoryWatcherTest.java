@@ -0,0 +1,158 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.reporters.Files.writeFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class DirectoryWatcherTest {
+
+    private File folder;
+    private DirectoryMonitor monitor;
+    private RecordingListener listener;
+    private DirectoryWatcher watcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        folder = createTempDirectory("routes").toFile();
+        folder.deleteOnExit();
+        monitor = new DirectoryMonitor(folder, true);
+        listener = new RecordingListener();
+        watcher = new DirectoryWatcher(monitor, listener);
+        // Registers the directory and performs the initial check
+        watcher.run();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        watcher.close();
+    }
+
+    @Test
+    public void shouldNotifyAddedModifiedAndRemovedFiles() throws Exception {
+        File route = new File(folder, "route.json");
+        writeFile("{}", route);
+        FileChangeSet changes = awaitChanges();
+        assertThat(changes.getAddedFiles()).containsOnly(route);
+
+        writeFile("{ \"name\": \"route\" }", route);
+        changes = awaitChanges();
+        assertThat(changes.getModifiedFiles()).containsOnly(route);
+
+        assertThat(route.delete()).isTrue();
+        changes = awaitChanges();
+        assertThat(changes.getRemovedFiles()).containsOnly(route);
+    }
+
+    @Test
+    public void shouldWatchNewSubDirectories() throws Exception {
+        File tenant = new File(folder, "tenant");
+        assertThat(tenant.mkdir()).isTrue();
+        File route = new File(tenant, "route.json");
+        writeFile("{}", route);
+        assertThat(awaitChanges().getAddedFiles()).containsOnly(route);
+
+        writeFile("{ \"name\": \"route\" }", route);
+        assertThat(awaitChanges().getModifiedFiles()).containsOnly(route);
+    }
+
+    @Test
+    public void shouldDebounceBurstsOfWrites() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            writeFile("{ \"version\": " + i + " }", new File(folder, "route-" + i + ".json"));
+        }
+        FileChangeSet changes = awaitChanges();
+        assertThat(listener.changes).hasSize(1);
+        assertThat(changes.getAddedFiles()).hasSize(10);
+    }
+
+    @Test
+    public void shouldCheckEverythingAgainWhenAScanWasInProgress() throws Exception {
+        File other = createTempDirectory("routes").toFile();
+        other.deleteOnExit();
+        writeFile("{}", new File(other, "first.json"));
+        final DirectoryMonitor busyMonitor = new DirectoryMonitor(other, true);
+        final CountDownLatch scanning = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // A scan is in progress (notifying the first file) when the watcher first checks the directory
+        Thread scan = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                busyMonitor.monitor(new FileChangeListener() {
+                    @Override
+                    public void onChanges(final FileChangeSet changes) {
+                        scanning.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+        });
+        scan.start();
+        assertThat(scanning.await(5, SECONDS)).isTrue();
+        File second = new File(other, "second.json");
+        writeFile("{}", second);
+
+        try (DirectoryWatcher busyWatcher = new DirectoryWatcher(busyMonitor, listener)) {
+            busyWatcher.run();
+            assertThat(listener.changes).isEmpty();
+
+            release.countDown();
+            scan.join();
+            busyWatcher.run();
+            assertThat(listener.changes).hasSize(1);
+            assertThat(listener.changes.get(0).getAddedFiles()).containsOnly(second);
+        }
+    }
+
+    /**
+     * Runs the watcher until the listener gets notified (or a timeout expires).
+     */
+    private FileChangeSet awaitChanges() throws Exception {
+        int received = listener.changes.size();
+        for (int i = 0; i < 100 && listener.changes.size() == received; i++) {
+            Thread.sleep(50L);
+            watcher.run();
+        }
+        assertThat(listener.changes).hasSize(received + 1);
+        return listener.changes.get(received);
+    }
+
+    private static final class RecordingListener implements FileChangeListener {
+        private final List<FileChangeSet> changes = new ArrayList<>();
+
+        @Override
+        public void onChanges(final FileChangeSet changes) {
+            this.changes.add(changes);
+        }
+    }
+}
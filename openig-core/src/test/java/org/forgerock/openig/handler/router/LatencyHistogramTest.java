@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class LatencyHistogramTest {
+
+    @DataProvider
+    public static Object[][] values() {
+        // @Checkstyle:off
+        return new Object[][] {
+                { 0L },
+                { 1L },
+                { 255L },
+                { 256L },
+                { 511L },
+                { 512L },
+                { 1_234_567L },
+                { LatencyHistogram.HIGHEST_TRACKABLE_VALUE }
+        };
+        // @Checkstyle:on
+    }
+
+    @Test(dataProvider = "values")
+    public void shouldCountValuesWithinOnePercent(final long value) throws Exception {
+        int index = LatencyHistogram.indexOf(value);
+        assertThat(LatencyHistogram.lowestValueAt(index)).isLessThanOrEqualTo(value);
+        assertThat(LatencyHistogram.highestValueAt(index)).isGreaterThanOrEqualTo(value);
+        assertThat(LatencyHistogram.highestValueAt(index) - LatencyHistogram.lowestValueAt(index))
+                .isLessThanOrEqualTo(value / 100);
+    }
+
+    @Test
+    public void shouldProvideAccurateHighPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100_000L);
+        assertThat(histogram.getSum()).isEqualTo(5_000_050_000L);
+        assertThat(histogram.getMax()).isEqualTo(100_000L);
+        assertThat(histogram.getMean()).isEqualTo(50_000.5);
+        assertThat(histogram.getValueAtQuantile(0.5)).isBetween(50_000L, 50_500L);
+        assertThat(histogram.getValueAtQuantile(0.999)).isBetween(99_900L, 100_000L);
+        assertThat(histogram.getValueAtQuantile(0.99999)).isBetween(99_999L, 100_000L);
+        assertThat(histogram.getValueAtQuantile(1.0)).isEqualTo(100_000L);
+        assertThat(histogram.getStdDev()).isBetween(28_500.0, 29_200.0);
+    }
+
+    @Test
+    public void shouldMergeAndResetHistograms() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10L);
+        histogram.record(-5L);
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(1000L);
+
+        histogram.addTo(other);
+        assertThat(other.getCount()).isEqualTo(3L);
+        assertThat(other.getMax()).isEqualTo(1000L);
+        assertThat(other.getValueAtQuantile(0.0)).isEqualTo(0L);
+
+        histogram.reset();
+        assertThat(histogram.getCount()).isEqualTo(0L);
+        assertThat(histogram.getMean()).isEqualTo(0.0);
+        assertThat(histogram.getValueAtQuantile(0.99)).isEqualTo(0L);
+    }
+}
@@ -12,17 +12,23 @@
  * information: "Portions Copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import org.forgerock.http.filter.ResponseHandler;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Status;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
+import org.forgerock.util.time.TimeService;
 import org.testng.annotations.Test;
 
 @SuppressWarnings("javadoc")
@@ -65,6 +71,42 @@ public class MonitoringResourceProviderTest {
         assertThat(data.get(ptr("responseTime/percentiles/0.999")).isNumber()).isTrue();
         assertThat(data.get(ptr("responseTime/percentiles/0.9999")).isNumber()).isTrue();
         assertThat(data.get(ptr("responseTime/percentiles/0.99999")).isNumber()).isTrue();
+        assertThat(data.get(ptr("responseTime/max")).isNumber()).isTrue();
+
+        assertThat(data.get(ptr("lastInterval/start")).isNumber()).isTrue();
+        assertThat(data.get(ptr("lastInterval/end")).isNumber()).isTrue();
+        assertThat(data.get(ptr("lastInterval/responses")).isNumber()).isTrue();
+        assertThat(data.get(ptr("lastInterval/throughput")).isNumber()).isTrue();
+        assertThat(data.get(ptr("lastInterval/responseTime/percentiles/0.999")).isNumber()).isTrue();
+    }
+
+    @Test
+    public void shouldReturnTheStatisticsOfTheLastCompletedInterval() throws Exception {
+        TimeService time = mock(TimeService.class);
+        when(time.now()).thenReturn(0L);
+        MonitoringMetrics metrics = new MonitoringMetrics(time, 1000L);
+        MonitoringResourceProvider endpoint = new MonitoringResourceProvider(metrics, asList(0.5, 0.99));
+
+        for (int i = 1; i <= 100; i++) {
+            metrics.getResponseTime().record(i * 1000L);
+        }
+        when(time.now()).thenReturn(2000L);
+        metrics.getResponseTime().record(500_000L);
+        JsonValue data = endpoint.readInstance(null, null).get().getContent();
+
+        // All the values have been recorded before the interval got completed
+        assertThat(data.get(ptr("lastInterval/start")).asLong()).isEqualTo(0L);
+        assertThat(data.get(ptr("lastInterval/end")).asLong()).isEqualTo(2000L);
+        assertThat(data.get(ptr("lastInterval/responses")).asLong()).isEqualTo(101L);
+        assertThat(data.get(ptr("lastInterval/throughput")).asDouble()).isEqualTo(50.5);
+        assertThat(data.get(ptr("lastInterval/responseTime/max")).asDouble()).isEqualTo(500.0);
+        assertThat(data.get(ptr("lastInterval/responseTime/percentiles/0.5")).asDouble()).isCloseTo(51.0, offset(1.0));
+
+        when(time.now()).thenReturn(3500L);
+        data = endpoint.readInstance(null, null).get().getContent();
+        assertThat(data.get(ptr("lastInterval/start")).asLong()).isEqualTo(2000L);
+        assertThat(data.get(ptr("lastInterval/responses")).asLong()).isEqualTo(0L);
+        assertThat(data.get(ptr("responseTime/max")).asDouble()).isEqualTo(500.0);
     }
 
     private static JsonPointer ptr(final String pointer) {
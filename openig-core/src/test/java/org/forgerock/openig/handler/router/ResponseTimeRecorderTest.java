@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.forgerock.util.time.TimeService;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ResponseTimeRecorderTest {
+
+    @Test
+    public void shouldNotLoseValuesRecordedWhileReading() throws Exception {
+        final ResponseTimeRecorder recorder = new ResponseTimeRecorder(TimeService.SYSTEM, 1L);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                writers.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < 100_000; j++) {
+                            recorder.record(j);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            IntervalCounter intervals = new IntervalCounter(recorder);
+            for (Future<?> writer : writers) {
+                while (!writer.isDone()) {
+                    intervals.read();
+                }
+                writer.get();
+            }
+            // Complete the last interval
+            Thread.sleep(2L);
+            intervals.read();
+
+            assertThat(recorder.getSinceStart().getHistogram().getCount()).isEqualTo(400_000L);
+            assertThat(intervals.count).isEqualTo(400_000L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sums the values of the distinct completed intervals.
+     */
+    private static final class IntervalCounter {
+        private final ResponseTimeRecorder recorder;
+        private long lastEnd = -1L;
+        private long count;
+
+        IntervalCounter(final ResponseTimeRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        void read() {
+            ResponseTimeRecorder.Interval interval = recorder.getLastInterval();
+            if (interval.getEnd() != lastEnd) {
+                lastEnd = interval.getEnd();
+                count += interval.getHistogram().getCount();
+            }
+        }
+    }
+}
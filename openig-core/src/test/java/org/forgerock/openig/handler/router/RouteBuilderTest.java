@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
@@ -155,6 +156,18 @@ public class RouteBuilderTest {
         buildRoute(builder, getRelativeFile(RouteBuilderTest.class, "missing-handler-route.json"));
     }
 
+    @Test(expectedExceptions = JsonValueException.class)
+    public void shouldRequireAnExecutorToQueueTheRequests() throws Exception {
+        newRouteBuilder().build("queued",
+                                "queued",
+                                json(object(field("handler",
+                                                  object(field("type",
+                                                               "org.forgerock.openig.handler.router.StatusHandler"),
+                                                         field("config", object(field("status", 200))))),
+                                            field("bulkhead", object(field("maxConcurrentRequests", 1),
+                                                                     field("maxQueuedRequests", 1))))));
+    }
+
     @Test
     public void testConditionalRouteLoading() throws Exception {
         RouteBuilder builder = newRouteBuilder();
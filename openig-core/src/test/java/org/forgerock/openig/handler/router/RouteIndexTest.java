@@ -0,0 +1,231 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.forgerock.http.protocol.Request;
+import org.forgerock.openig.el.Expression;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class RouteIndexTest {
+
+    @DataProvider
+    public static Object[][] literalPrefixes() {
+        // @Checkstyle:off
+        return new Object[][] {
+                { "^/api", "/api" },
+                { "^/api/v1$", "/api/v1" },
+                { "^/ab?c", "/a" },
+                { "^/a\\.b*", "/a." },
+                { "^/a\\.b+", "/a.b" },
+                { "^/a(b|c)", "/a" },
+                { "^/a|/b", null },
+                { "/api", null },
+                { "^.*", null },
+                { "^\\d+", null }
+        };
+        // @Checkstyle:on
+    }
+
+    @Test(dataProvider = "literalPrefixes")
+    public void shouldExtractLiteralPrefix(final String regex, final String expected) throws Exception {
+        assertThat(RouteIndex.literalPrefix(regex)).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldAnalyseIndexableConditions() throws Exception {
+        RouteIndex.Constraints constraints =
+                RouteIndex.Constraints.of(condition("${matches(request.uri.path, '^/api') "
+                                                            + "and request.method == 'GET' "
+                                                            + "and 'example.com' eq request.uri.host}"));
+        assertThat(constraints.pathPrefix).isEqualTo("/api");
+        assertThat(constraints.method).isEqualTo("GET");
+        assertThat(constraints.host).isEqualTo("example.com");
+        assertThat(constraints.exact).isTrue();
+    }
+
+    @Test
+    public void shouldNotConsiderPartiallyIndexableConditionsAsExact() throws Exception {
+        RouteIndex.Constraints constraints =
+                RouteIndex.Constraints.of(condition("${matches(request.uri.path, '^/api/v[0-9]') "
+                                                            + "&& request.headers['X-Tenant'][0] == 'acme'}"));
+        assertThat(constraints.pathPrefix).isEqualTo("/api/v");
+        assertThat(constraints.exact).isFalse();
+    }
+
+    @Test
+    public void shouldNotIndexDisjunctions() throws Exception {
+        RouteIndex.Constraints constraints =
+                RouteIndex.Constraints.of(condition("${matches(request.uri.path, '^/api') "
+                                                            + "or request.method == 'GET'}"));
+        assertThat(constraints.pathPrefix).isNull();
+        assertThat(constraints.method).isNull();
+        assertThat(constraints.exact).isFalse();
+    }
+
+    @DataProvider
+    public static Object[][] deterministicConditions() {
+        // @Checkstyle:off
+        return new Object[][] {
+                { "${request.uri.path == '/api' or request.method == 'GET'}", true },
+                { "${request.uri.path.startsWith('/api') and toLowerCase(request.uri.host) == 'example.com'}", true },
+                { "${matchingGroups(request.uri.path, '^/api/(v[0-9])')[1] != 'v1'}", true },
+                { "${empty request.uri.host ? true : request.uri.path.length() > 3}", true },
+                { "${request.uri.query == 'a=b'}", false },
+                { "${request.headers['X-Tenant'][0] == 'acme'}", false },
+                { "${contexts.client.remoteAddress == '127.0.0.1'}", false },
+                { "${read('/tmp/route') == request.uri.path}", false },
+                { "/api/${request.uri.path}", false }
+        };
+        // @Checkstyle:on
+    }
+
+    @Test(dataProvider = "deterministicConditions")
+    public void shouldIdentifyConditionsDeterminedByTheRequestMethodHostAndPath(final String condition,
+                                                                               final boolean expected)
+            throws Exception {
+        assertThat(RouteIndex.Constraints.of(condition(condition)).deterministic).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldCacheTheSelectionsDeterminedByTheRequestMethodHostAndPath() throws Exception {
+        CountingRoute versioned = new CountingRoute("01-versioned", "${request.uri.path.endsWith('/v2')}");
+        CountingRoute tenant = new CountingRoute("02-tenant", "${request.headers['X-Tenant'][0] == 'acme'}");
+        CountingRoute api = new CountingRoute("03-api", "${request.uri.path.startsWith('/api')}");
+        RouteIndex index = new RouteIndex(asList(versioned, api));
+
+        assertThat(find(index, "GET", "http://localhost/api/v1")).isEqualTo("03-api");
+        assertThat(find(index, "GET", "http://localhost/api/v1")).isEqualTo("03-api");
+        assertThat(find(index, "GET", "http://localhost/other")).isNull();
+        assertThat(find(index, "GET", "http://localhost/other")).isNull();
+        assertThat(versioned.evaluations).isEqualTo(2);
+        assertThat(api.evaluations).isEqualTo(2);
+
+        // A new snapshot starts with an empty cache
+        RouteIndex changed = index.with(tenant);
+        assertThat(find(changed, "GET", "http://localhost/api/v1")).isEqualTo("03-api");
+        assertThat(find(changed, "GET", "http://localhost/api/v1")).isEqualTo("03-api");
+        // The tenant route depends on a header: the selections that evaluated it are not cached
+        assertThat(tenant.evaluations).isEqualTo(2);
+        assertThat(api.evaluations).isEqualTo(4);
+
+        // But the selections that stopped before it are
+        assertThat(find(changed, "GET", "http://localhost/api/v2")).isEqualTo("01-versioned");
+        assertThat(find(changed, "GET", "http://localhost/api/v2")).isEqualTo("01-versioned");
+        assertThat(tenant.evaluations).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSelectRoutesInLexicographicalOrder() throws Exception {
+        SortedSet<Route> routes = new TreeSet<>(new LexicographicalRouteComparator());
+        routes.addAll(asList(route("10-api", "${matches(request.uri.path, '^/api')}"),
+                             route("05-api-v1", "${matches(request.uri.path, '^/api/v1')}"),
+                             route("20-host", "${request.uri.host == 'example.com'}"),
+                             route("01-post", "${request.method == 'POST' and matches(request.uri.path, '^/api')}"),
+                             route("15-header", "${request.headers['X-Test'][0] == 'yes'}"),
+                             route("99-default", null)));
+        RouteIndex index = new RouteIndex(routes);
+
+        assertThat(find(index, "GET", "http://localhost/api/v1/users")).isEqualTo("05-api-v1");
+        assertThat(find(index, "GET", "http://localhost/api/v2/users")).isEqualTo("10-api");
+        assertThat(find(index, "POST", "http://localhost/api/v1/users")).isEqualTo("01-post");
+        assertThat(find(index, "GET", "http://example.com/other")).isEqualTo("20-host");
+        assertThat(find(index, "GET", "http://localhost/other")).isEqualTo("99-default");
+
+        Request request = request("GET", "http://example.com/other");
+        request.getHeaders().put("X-Test", "yes");
+        assertThat(index.find(new RootContext(), request).getId()).isEqualTo("15-header");
+    }
+
+    @Test
+    public void shouldReturnNullWhenNoRouteAccepts() throws Exception {
+        RouteIndex index = new RouteIndex(asList(route("api", "${matches(request.uri.path, '^/api')}")));
+        assertThat(find(index, "GET", "http://localhost/other")).isNull();
+        assertThat(RouteIndex.EMPTY.find(new RootContext(), new Request())).isNull();
+    }
+
+    @Test
+    public void shouldBuildNewSnapshotsWithoutModifyingTheCurrentOne() throws Exception {
+        Route api = route("10-api", "${matches(request.uri.path, '^/api')}");
+        Route other = route("05-other", "${matches(request.uri.path, '^/other')}");
+        RouteIndex initial = RouteIndex.EMPTY.with(api);
+        RouteIndex added = initial.with(other);
+        RouteIndex removed = added.without(api);
+
+        assertThat(initial.getRoutes()).containsExactly(api);
+        assertThat(added.getRoutes()).containsExactly(other, api);
+        assertThat(added.get("10-api")).isSameAs(api);
+        assertThat(removed.getRoutes()).containsExactly(other);
+        assertThat(removed.get("10-api")).isNull();
+        assertThat(find(added, "GET", "http://localhost/api")).isEqualTo("10-api");
+        assertThat(find(removed, "GET", "http://localhost/api")).isNull();
+    }
+
+    private static String find(final RouteIndex index, final String method, final String uri) throws Exception {
+        Route route = index.find(new RootContext(), request(method, uri));
+        return route == null ? null : route.getId();
+    }
+
+    private static Request request(final String method, final String uri) throws Exception {
+        return new Request().setMethod(method).setUri(uri);
+    }
+
+    private static Expression<Boolean> condition(final String condition) throws Exception {
+        return Expression.valueOf(condition, Boolean.class);
+    }
+
+    private static final class CountingRoute extends Route {
+        private int evaluations;
+
+        CountingRoute(final String id, final String condition) throws Exception {
+            super(null, id, id, json(object()), condition(condition));
+        }
+
+        @Override
+        public boolean accept(final Context context, final Request request) {
+            evaluations++;
+            return super.accept(context, request);
+        }
+
+        @Override
+        public void start() { }
+
+        @Override
+        public void destroy() { }
+    }
+
+    private static Route route(final String id, final String condition) throws Exception {
+        return new Route(null, id, id, json(object()), condition == null ? null : condition(condition)) {
+            @Override
+            public void start() { }
+
+            @Override
+            public void destroy() { }
+        };
+    }
+}
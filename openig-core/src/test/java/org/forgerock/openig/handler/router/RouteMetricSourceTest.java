@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.handler.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringWriter;
+
+import org.forgerock.openig.metrics.OpenMetricsWriter;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class RouteMetricSourceTest {
+
+    @Test
+    public void shouldWriteEachFamilyOnceForAllRoutes() throws Exception {
+        RouteMetricSource source = new RouteMetricSource();
+        MonitoringMetrics first = new MonitoringMetrics();
+        first.getTotalRequestCount().inc(3);
+        first.getSuccessResponseCount().inc(2);
+        first.getResponseTime().record(1500L);
+        MonitoringMetrics second = new MonitoringMetrics();
+        second.getTotalRequestCount().inc();
+        source.add("_Router", "b", second);
+        source.add("_Router", "a", first);
+
+        String text = write(source);
+
+        assertThat(text.split("# TYPE openig_route_requests counter", -1)).hasSize(2);
+        assertThat(text).contains("openig_route_requests_total{router=\"_Router\",route=\"a\"} 3\n"
+                                          + "openig_route_requests_total{router=\"_Router\",route=\"b\"} 1\n");
+        assertThat(text).contains("openig_route_responses_total{router=\"_Router\",route=\"a\",status=\"2xx\"} 2\n");
+        assertThat(text).contains("openig_route_response_time_seconds_count{router=\"_Router\",route=\"a\"} 1\n");
+        assertThat(text).contains("openig_route_response_time_seconds_sum{router=\"_Router\",route=\"a\"} 0.0015\n");
+    }
+
+    @Test
+    public void shouldKeepTheMetricsOfTheReplacingRoute() throws Exception {
+        RouteMetricSource source = new RouteMetricSource();
+        MonitoringMetrics previous = new MonitoringMetrics();
+        MonitoringMetrics replacing = new MonitoringMetrics();
+        replacing.getTotalRequestCount().inc(7);
+        source.add("_Router", "route", previous);
+        source.add("_Router", "route", replacing);
+
+        source.remove("_Router", "route", previous);
+        assertThat(write(source)).contains("openig_route_requests_total{router=\"_Router\",route=\"route\"} 7\n");
+
+        source.remove("_Router", "route", replacing);
+        assertThat(write(source)).isEmpty();
+    }
+
+    private static String write(final RouteMetricSource source) throws Exception {
+        StringWriter out = new StringWriter();
+        source.writeTo(new OpenMetricsWriter(out));
+        return out.toString();
+    }
+}
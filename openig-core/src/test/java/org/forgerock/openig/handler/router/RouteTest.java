@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
@@ -20,6 +21,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.forgerock.json.JsonValue.json;
 import static org.forgerock.json.JsonValue.object;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import org.forgerock.http.Handler;
@@ -70,6 +75,33 @@ public class RouteTest {
         assertThat(route.handle(new RootContext(), new Request())).isSameAs(promise);
     }
 
+    @Test
+    public void shouldNotifyOnceTheInFlightRequestsOfARetiredRouteHaveCompleted() throws Exception {
+        Route route = createRoute(null);
+        Runnable onDrained = mock(Runnable.class);
+        assertThat(route.enter()).isTrue();
+        assertThat(route.enter()).isTrue();
+
+        assertThat(route.retire(onDrained)).isFalse();
+        assertThat(route.enter()).isFalse();
+        assertThat(route.getInFlightRequests()).isEqualTo(2);
+
+        route.exit();
+        verify(onDrained, never()).run();
+        route.exit();
+        verify(onDrained).run();
+        assertThat(route.getInFlightRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotNotifyWhenRetiringAnIdleRoute() throws Exception {
+        Route route = createRoute(null);
+        Runnable onDrained = mock(Runnable.class);
+        assertThat(route.retire(onDrained)).isTrue();
+        assertThat(route.enter()).isFalse();
+        verifyZeroInteractions(onDrained);
+    }
+
     private Route createRoute(final Expression<Boolean> condition) {
         return new Route(handler, ROUTE_NAME, ROUTE_NAME, json(object()), condition) {
             @Override
@@ -12,12 +12,16 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.handler.router;
 
+import static java.nio.file.Files.createTempDirectory;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.forgerock.json.JsonValue.array;
 import static org.forgerock.json.JsonValue.field;
 import static org.forgerock.json.JsonValue.json;
 import static org.forgerock.json.JsonValue.object;
@@ -31,11 +35,14 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.testng.reporters.Files.writeFile;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -59,6 +66,7 @@ import org.forgerock.services.context.Context;
 import org.forgerock.services.context.RootContext;
 import org.forgerock.util.promise.NeverThrowsException;
 import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.time.Duration;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
@@ -182,6 +190,84 @@ public class RouterHandlerTest {
         handler.load("id2", "route-name", routeConfig.copy());
     }
 
+    @Test
+    public void shouldReplaceRouteOnceTheNewOneIsBuilt() throws Exception {
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(null));
+        handler.load("id", "route", statusRoute(200));
+
+        handler.replace("id", "route", statusRoute(418));
+        assertStatusOnUri(handler, "http://localhost/", Status.TEAPOT);
+
+        // The previous route keeps serving the requests when the new one cannot be built
+        JsonValue invalid = json(object(field("handler", object(field("type", "UnknownHandler")))));
+        try {
+            handler.replace("id", "route", invalid);
+            failBecauseExceptionWasNotThrown(Exception.class);
+        } catch (Exception e) {
+            assertStatusOnUri(handler, "http://localhost/", Status.TEAPOT);
+        }
+        assertThat(handler.getRoutes()).hasSize(1);
+    }
+
+    @Test
+    public void shouldDestroyTheReplacedRouteOnceItsInFlightRequestsHaveCompleted() throws Exception {
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(null));
+        handler.setGracePeriod(Duration.UNLIMITED, null);
+        handler.load("id", "route",
+                     json(object(field("handler", "Detection"),
+                                 field("heap", array(object(field("name", "Detection"),
+                                                            field("type", DestroyDetectHandler.class.getName())))))));
+        Route previous = handler.getRoutes().get(0);
+        // Simulates a request being processed
+        assertThat(previous.enter()).isTrue();
+
+        handler.replace("id", "route", statusRoute(418));
+        assertThat(DestroyDetectHandler.destroyed).isFalse();
+        assertStatusOnUri(handler, "http://localhost/", Status.TEAPOT);
+
+        previous.exit();
+        assertThat(DestroyDetectHandler.destroyed).isTrue();
+    }
+
+    @Test
+    public void shouldOnlyBuildLazyRoutesOnTheirFirstRequest() throws Exception {
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(null));
+        handler.setLazy(true);
+        handler.load("id", "route", json(object(field("handler", object(field("type", "UnknownHandler"))))));
+        assertThat(handler.getRoutes()).hasSize(1);
+
+        // The invalid route is only detected when it is built
+        assertStatusOnUri(handler, "http://localhost/", Status.INTERNAL_SERVER_ERROR);
+
+        handler.replace("id", "route", statusRoute(418));
+        assertStatusOnUri(handler, "http://localhost/", Status.TEAPOT);
+    }
+
+    @Test
+    public void shouldEvictIdleLazyRoutes() throws Exception {
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(null));
+        handler.setLazy(true);
+        handler.load("id", "route",
+                     json(object(field("handler", "Detection"),
+                                 field("heap", array(object(field("name", "Detection"),
+                                                            field("type", DestroyDetectHandler.class.getName())))))));
+        // Not built yet
+        assertThat(handler.evictIdleRoutes(Long.MAX_VALUE)).isEqualTo(0);
+
+        handle(handler, "OpenIG");
+        Route built = handler.getRoutes().get(0);
+        // Not idle since the given time
+        assertThat(handler.evictIdleRoutes(0L)).isEqualTo(0);
+        assertThat(DestroyDetectHandler.destroyed).isFalse();
+
+        assertThat(handler.evictIdleRoutes(Long.MAX_VALUE)).isEqualTo(1);
+        assertThat(DestroyDetectHandler.destroyed).isTrue();
+        assertThat(handler.getRoutes()).hasSize(1);
+        assertThat(handler.getRoutes().get(0)).isNotSameAs(built);
+        assertThat(handler.getRoutes().get(0).getId()).isEqualTo("id");
+        assertThat(handler.evictIdleRoutes(Long.MAX_VALUE)).isEqualTo(0);
+    }
+
     @Test
     public void testListOfRoutesIsProperlyOrdered() throws Exception {
         DirectoryMonitor directoryMonitor = new DirectoryMonitor(null);
@@ -206,6 +292,122 @@ public class RouterHandlerTest {
                 .containsExactly("aaa","zzz");
     }
 
+    @Test
+    public void shouldBuildAddedRoutesConcurrentlyAndSkipTheFailingOnes() throws Exception {
+        File directory = createTempDirectory("routes").toFile();
+        directory.deleteOnExit();
+        Set<File> added = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            added.add(routeFile(directory, "route-" + i, "org.forgerock.openig.handler.router.StatusHandler"));
+        }
+        added.add(routeFile(directory, "broken", "org.forgerock.openig.handler.router.UnknownHandler"));
+        File invalid = new File(directory, "invalid.json");
+        writeFile("{ not json", invalid);
+        added.add(invalid);
+
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(directory));
+        handler.setBuildThreads(4);
+        handler.onChanges(new FileChangeSet(directory,
+                                            added,
+                                            Collections.<File>emptySet(),
+                                            Collections.<File>emptySet()));
+
+        assertThat(handler.getRoutes())
+                .extracting(new Extractor<Route, String>() {
+                    @Override
+                    public String extract(Route input) {
+                        return input.getId();
+                    }
+                })
+                .containsExactly("route-0", "route-1", "route-2", "route-3",
+                                 "route-4", "route-5", "route-6", "route-7");
+        handler.stop();
+    }
+
+    @Test(timeOut = 10_000)
+    public void shouldBuildAddedRoutesSeriallyWhileTheParentHeapIsLocked() throws Exception {
+        File directory = createTempDirectory("routes").toFile();
+        directory.deleteOnExit();
+        Set<File> added = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            added.add(routeFile(directory, "route-" + i, "org.forgerock.openig.handler.router.StatusHandler"));
+        }
+
+        RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(directory));
+        handler.setBuildThreads(4);
+        // As when the router is started by its heap: the routes cannot wait for the heap locked by this thread
+        synchronized (heap) {
+            handler.onChanges(new FileChangeSet(directory,
+                                                added,
+                                                Collections.<File>emptySet(),
+                                                Collections.<File>emptySet()));
+        }
+
+        assertThat(handler.getRoutes()).hasSize(4);
+        handler.stop();
+    }
+
+    @Test(timeOut = 10_000)
+    public void shouldBuildTheRoutesConcurrentlyAtStartup() throws Exception {
+        File directory = createTempDirectory("routes").toFile();
+        directory.deleteOnExit();
+        for (int i = 0; i < 4; i++) {
+            routeFile(directory, "route-" + i, BuildThreadHandler.class.getName());
+        }
+        BuildThreadHandler.THREADS.clear();
+
+        // The router is started while its heap is initialized
+        HeapImpl gateway = new HeapImpl(heap, Name.of("gateway"));
+        gateway.init(json(object(field("heap",
+                                       array(object(field("name", "router"),
+                                                    field("type", RouterHandler.class.getName()),
+                                                    field("config",
+                                                          object(field("directory", directory.getPath()),
+                                                                 field("scanInterval", "disabled"),
+                                                                 field("buildThreads", 4)))))))));
+        try {
+            assertThat(gateway.get("router", RouterHandler.class).getRoutes()).hasSize(4);
+            assertThat(BuildThreadHandler.THREADS).isNotEmpty();
+            for (String thread : BuildThreadHandler.THREADS) {
+                assertThat(thread).startsWith("route-builder-");
+            }
+        } finally {
+            gateway.destroy();
+        }
+    }
+
+    @Test(timeOut = 10_000)
+    public void shouldStopWhileTheAddedRoutesAreBuilt() throws Exception {
+        File directory = createTempDirectory("routes").toFile();
+        directory.deleteOnExit();
+        Set<File> added = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            added.add(routeFile(directory, "route-" + i, "org.forgerock.openig.handler.router.StatusHandler"));
+        }
+
+        final RouterHandler handler = new RouterHandler(newRouteBuilder(), new DirectoryMonitor(directory));
+        handler.setBuildThreads(4);
+        final FileChangeSet changes = new FileChangeSet(directory,
+                                                        added,
+                                                        Collections.<File>emptySet(),
+                                                        Collections.<File>emptySet());
+        Thread scan = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                handler.onChanges(changes);
+            }
+        });
+        // As when the parent heap is destroyed: the routes wait for the heap while it stops the router
+        synchronized (heap) {
+            scan.start();
+            Thread.sleep(100L);
+            handler.stop();
+        }
+        scan.join();
+
+        assertThat(handler.getRoutes()).isEmpty();
+    }
+
     @Test
     public void testRouterEndpointIsBeingRegistered() throws Exception {
         Router router = new Router();
@@ -320,6 +522,18 @@ public class RouterHandlerTest {
         return new AttributesContext(new RootContext());
     }
 
+    private static JsonValue statusRoute(final int status) {
+        return json(object(field("handler",
+                                 object(field("type", "org.forgerock.openig.handler.router.StatusHandler"),
+                                        field("config", object(field("status", status)))))));
+    }
+
+    private static File routeFile(final File directory, final String id, final String type) {
+        File file = new File(directory, id + ".json");
+        writeFile("{ \"handler\": { \"type\": \"" + type + "\", \"config\": { \"status\": 200 } } }", file);
+        return file;
+    }
+
     private static File endpointsDirectory() throws IOException {
         return getRelativeDirectory(RouteBuilderTest.class, "endpoints");
     }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.heap;
@@ -27,6 +28,7 @@ import static org.forgerock.openig.heap.HeapUtilsTest.buildDefaultHeap;
 import static org.forgerock.openig.util.JsonValues.readJson;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.forgerock.json.JsonValue;
@@ -393,6 +395,31 @@ public class HeapImplTest {
         assertThat(child.getAll(Architect.class)).isEmpty();
     }
 
+    @Test
+    public void shouldRunTheTasksOnceTheHeapIsUnlocked() throws Exception {
+        final HeapImpl parent = new HeapImpl();
+        parent.put("book", new Book("OpenIG-Reference"));
+        final HeapImpl child = new HeapImpl(parent);
+        final List<Boolean> locked = new ArrayList<>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                locked.add(child.isLockedByCurrentThread());
+            }
+        };
+
+        child.runUnlocked(task);
+        assertThat(locked).containsExactly(false);
+
+        synchronized (parent) {
+            child.runUnlocked(task);
+            child.get("book", Book.class);
+            assertThat(locked).hasSize(1);
+        }
+        child.get("book", Book.class);
+        assertThat(locked).containsExactly(false, false);
+    }
+
     @Test
     public void shouldUseOnlyLocalHeapForInlineDeclaration() throws Exception {
         HeapImpl parentHeap = buildDefaultHeap();
@@ -0,0 +1,102 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.http.protocol.Status.METHOD_NOT_ALLOWED;
+import static org.forgerock.http.protocol.Status.OK;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.COUNTER;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.GAUGE;
+
+import java.io.IOException;
+
+import org.forgerock.http.header.ContentTypeHeader;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class OpenMetricsHandlerTest {
+
+    @Test
+    public void shouldWriteTheSourcesInOrderFollowedByEof() throws Exception {
+        MetricSources sources = new MetricSources();
+        sources.register("b", new MetricSource() {
+            @Override
+            public void writeTo(final OpenMetricsWriter writer) throws IOException {
+                writer.family("openig_b", GAUGE, null, "B")
+                      .sample("openig_b", 0.5);
+            }
+        });
+        sources.register("a", new MetricSource() {
+            @Override
+            public void writeTo(final OpenMetricsWriter writer) throws IOException {
+                writer.family("openig_a", COUNTER, null, "A")
+                      .sample("openig_a_total", 1L, "route", "r1")
+                      .sample("openig_a_total", 2L, "route", "r2");
+            }
+        });
+
+        Response response = new OpenMetricsHandler(sources).handle(new RootContext(), new Request().setMethod("GET"))
+                                                           .get();
+
+        assertThat(response.getStatus()).isEqualTo(OK);
+        assertThat(response.getHeaders().getFirst(ContentTypeHeader.NAME)).isEqualTo(OpenMetricsWriter.CONTENT_TYPE);
+        assertThat(response.getEntity().getString()).isEqualTo("# TYPE openig_a counter\n"
+                                                                       + "# HELP openig_a A\n"
+                                                                       + "openig_a_total{route=\"r1\"} 1\n"
+                                                                       + "openig_a_total{route=\"r2\"} 2\n"
+                                                                       + "# TYPE openig_b gauge\n"
+                                                                       + "# HELP openig_b B\n"
+                                                                       + "openig_b 0.5\n"
+                                                                       + "# EOF\n");
+    }
+
+    @Test
+    public void shouldOnlyUnregisterTheRegisteredSource() throws Exception {
+        MetricSources sources = new MetricSources();
+        MetricSource registered = new MetricSource() {
+            @Override
+            public void writeTo(final OpenMetricsWriter writer) throws IOException {
+                writer.family("openig_registered", GAUGE, null, "Registered")
+                      .sample("openig_registered", 1L);
+            }
+        };
+        sources.register("source", registered);
+        sources.unregister("source", new MetricSource() {
+            @Override
+            public void writeTo(final OpenMetricsWriter writer) throws IOException {
+            }
+        });
+
+        Response response = new OpenMetricsHandler(sources).handle(new RootContext(), new Request().setMethod("GET"))
+                                                           .get();
+
+        assertThat(response.getEntity().getString()).contains("openig_registered 1\n");
+        assertThat(sources.getOrRegister("source", null)).isSameAs(registered);
+    }
+
+    @Test
+    public void shouldRejectNonGetMethod() throws Exception {
+        Response response = new OpenMetricsHandler(new MetricSources()).handle(new RootContext(),
+                                                                               new Request().setMethod("POST"))
+                                                                       .get();
+
+        assertThat(response.getStatus()).isEqualTo(METHOD_NOT_ALLOWED);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+
+package org.forgerock.openig.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.openig.metrics.OpenMetricsWriter.SUMMARY;
+
+import java.io.StringWriter;
+
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class OpenMetricsWriterTest {
+
+    @Test
+    public void shouldWriteFamilyWithUnitAndLabelledSamples() throws Exception {
+        StringWriter out = new StringWriter();
+        new OpenMetricsWriter(out).family("openig_time_seconds", SUMMARY, "seconds", "Time")
+                                  .sample("openig_time_seconds", 0.25, "quantile", "0.5")
+                                  .sample("openig_time_seconds_count", 3L)
+                                  .eof();
+
+        assertThat(out.toString()).isEqualTo("# TYPE openig_time_seconds summary\n"
+                                                     + "# UNIT openig_time_seconds seconds\n"
+                                                     + "# HELP openig_time_seconds Time\n"
+                                                     + "openig_time_seconds{quantile=\"0.5\"} 0.25\n"
+                                                     + "openig_time_seconds_count 3\n"
+                                                     + "# EOF\n");
+    }
+
+    @Test
+    public void shouldEscapeLabelValuesAndHelp() throws Exception {
+        StringWriter out = new StringWriter();
+        new OpenMetricsWriter(out).family("openig_test", "gauge", null, "Back\\slash \"quoted\"\nnew line")
+                                  .sample("openig_test", 1L, "route", "a\"b\\c\nd", "router", "r");
+
+        assertThat(out.toString()).isEqualTo("# TYPE openig_test gauge\n"
+                                                     + "# HELP openig_test Back\\\\slash \\\"quoted\\\"\\nnew line\n"
+                                                     + "openig_test{route=\"a\\\"b\\\\c\\nd\",router=\"r\"} 1\n");
+    }
+
+    @Test
+    public void shouldWriteSpecialFloatingPointValues() throws Exception {
+        StringWriter out = new StringWriter();
+        new OpenMetricsWriter(out).sample("a", Double.NaN)
+                                  .sample("b", Double.POSITIVE_INFINITY)
+                                  .sample("c", Double.NEGATIVE_INFINITY);
+
+        assertThat(out.toString()).isEqualTo("a NaN\nb +Inf\nc -Inf\n");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnpairedLabels() throws Exception {
+        new OpenMetricsWriter(new StringWriter()).sample("a", 1L, "route");
+    }
+}
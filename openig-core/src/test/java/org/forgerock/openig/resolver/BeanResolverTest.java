@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014 ForgeRock AS.
+ * Portions copyright 2026 Open Identity Platform Community.
  */
 
 package org.forgerock.openig.resolver;
@@ -63,6 +64,37 @@ public class BeanResolverTest {
         assertThat(bean.getNumber()).isEqualTo(42);
     }
 
+    @Test
+    public void shouldReturnUnresolvedWhenTheGetterFails() throws Exception {
+        BeanResolver resolver = new BeanResolver();
+
+        assertThat(resolver.get(new FailingBean(), "value")).isEqualTo(Resolver.UNRESOLVED);
+    }
+
+    @Test
+    public void shouldResolveThroughAPublicInterface() throws Exception {
+        BeanResolver resolver = new BeanResolver();
+        final Named named = new Named() {
+            @Override
+            public String getName() {
+                return "OpenIG";
+            }
+        };
+
+        assertThat(resolver.get(named, "name")).isEqualTo("OpenIG");
+    }
+
+    public interface Named {
+        String getName();
+    }
+
+    private static class FailingBean {
+        @SuppressWarnings("unused")
+        public String getValue() {
+            throw new IllegalStateException("Boom");
+        }
+    }
+
     private static class JavaBean {
         private String name;
         private boolean bool;